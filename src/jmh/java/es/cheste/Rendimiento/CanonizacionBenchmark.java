@@ -0,0 +1,46 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.CanonizadorSudoku;
+import es.cheste.Objetos.Huella;
+import es.cheste.Objetos.Sudoku;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark del cálculo de la huella canónica de Sudokus distintos, usado para descartar los repetidos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class CanonizacionBenchmark {
+
+    private static final int SUDOKUS = 64;
+
+    private final CanonizadorSudoku canonizador = new CanonizadorSudoku(9);
+    private Sudoku[] sudokus;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        sudokus = new Sudoku[SUDOKUS];
+        for (int i = 0; i < SUDOKUS; i++) {
+            sudokus[i] = new Sudoku();
+            sudokus[i].generar(45, Boolean.TRUE, random);
+        }
+    }
+
+    @Benchmark
+    public Huella calcularHuella() {
+        siguiente = (siguiente + 1) % SUDOKUS;
+        return canonizador.calcular(sudokus[siguiente]);
+    }
+}
@@ -0,0 +1,67 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Objetos.Sudoku;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la comprobación del tablero de un jugador con algunos errores: el tablero completo
+ * y una sola jugada con la comprobación incremental.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ComprobacionBenchmark {
+
+    private Sudoku sudoku;
+    private int[][] tableroJugador;
+    private int[] celdasJugador;
+    private int celda;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        sudoku = new Sudoku();
+        sudoku.generar(42, Boolean.TRUE, random);
+
+        tableroJugador = new int[9][9];
+        celdasJugador = new int[81];
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                int valor = sudoku.getTableroSolucion()[i][j];
+                if (random.nextInt(10) == 0) {
+                    valor = valor % 9 + 1;
+                }
+                tableroJugador[i][j] = valor;
+                celdasJugador[i * 9 + j] = valor;
+            }
+        }
+    }
+
+    @Benchmark
+    public int comprobarTablero() {
+        sudoku.comprobarResultado(tableroJugador);
+        return sudoku.getNumErrores();
+    }
+
+    @Benchmark
+    public int comprobarCeldas() {
+        sudoku.comprobarResultado(celdasJugador);
+        return sudoku.getNumErrores();
+    }
+
+    @Benchmark
+    public int[] anotarJugada() {
+        celda = (celda + 1) % celdasJugador.length;
+        sudoku.anotarJugada(celda, celdasJugador[celda]);
+        return sudoku.getErrores();
+    }
+}
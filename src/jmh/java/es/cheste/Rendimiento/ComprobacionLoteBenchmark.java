@@ -0,0 +1,70 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.ComprobadorEscalar;
+import es.cheste.Motor.ComprobadorTableros;
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Objetos.LoteTableros;
+import es.cheste.Objetos.Tablero;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la comprobación de un lote de tableros terminados, uno de cada diez con algún error, con el
+ * comprobador escalar y con el vectorial. El vectorial necesita {@code --add-modules jdk.incubator.vector},
+ * que el perfil {@code benchmark} ya pasa a la JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ComprobacionLoteBenchmark {
+
+    private static final int NUM_TABLEROS = 256;
+
+    @Param({"9", "16"})
+    private int tamanyo;
+
+    @Param({"escalar", "vectorial"})
+    private String motor;
+
+    private ComprobadorTableros comprobador;
+    private LoteTableros lote;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        GeneradorTablero generador = new GeneradorTablero(tamanyo, random);
+        int[][] solucion = new int[tamanyo][tamanyo];
+        int[] celdas = new int[tamanyo * tamanyo];
+
+        comprobador = "vectorial".equals(motor) ? ComprobadorTableros.para(tamanyo) : new ComprobadorEscalar(tamanyo);
+        if ("vectorial".equals(motor) && comprobador instanceof ComprobadorEscalar) {
+            throw new IllegalStateException("La Vector API no está disponible para tableros de " + tamanyo);
+        }
+        lote = new LoteTableros(tamanyo, NUM_TABLEROS);
+        for (int i = 0; i < NUM_TABLEROS; i++) {
+            generador.rellenar(solucion);
+            for (int celda = 0; celda < celdas.length; celda++) {
+                celdas[celda] = solucion[celda / tamanyo][celda % tamanyo];
+            }
+            if (random.nextInt(10) == 0) {
+                int celda = random.nextInt(celdas.length);
+                celdas[celda] = celdas[celda] % tamanyo + 1;
+            }
+            lote.anyadir(celdas, Tablero.desdeMatriz(solucion));
+        }
+    }
+
+    @Benchmark
+    public LoteTableros comprobarLote() {
+        comprobador.comprobar(lote);
+        return lote;
+    }
+}
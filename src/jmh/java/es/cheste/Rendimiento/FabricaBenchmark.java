@@ -0,0 +1,47 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.FabricaSudokus;
+import es.cheste.Objetos.Dificultad;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la generación por lotes con {@link FabricaSudokus}, con uno o varios hilos.
+ * Cada operación es un Sudoku generado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FabricaBenchmark {
+
+    private static final int CANTIDAD = 2000;
+
+    @Param({"1", "4"})
+    private int hilos;
+
+    private FabricaSudokus fabrica;
+    private long semilla;
+
+    @Setup
+    public void preparar() {
+        fabrica = new FabricaSudokus(hilos, 64);
+    }
+
+    @TearDown
+    public void cerrar() {
+        fabrica.cerrar();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANTIDAD)
+    public int producirDificil() {
+        return fabrica.producir(CANTIDAD, Dificultad.DIFICIL, semilla++, lote -> { });
+    }
+}
@@ -0,0 +1,69 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Utilidad.CodecSudoku;
+import es.cheste.Utilidad.LectorTablero;
+import es.cheste.Utilidad.RenderizadorTablero;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de los formatos en memoria: el binario de {@link CodecSudoku} y la lectura del tablero de texto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FormatoBenchmark {
+
+    private Sudoku sudoku;
+    private ByteBuffer binario;
+    private ByteBuffer texto;
+    private LectorTablero lector;
+    private int[] celdas;
+
+    @Setup
+    public void preparar() {
+        sudoku = new Sudoku();
+        sudoku.generar(42, Boolean.TRUE, new SplittableRandom(42));
+        binario = ByteBuffer.allocate(CodecSudoku.tamanyoCodificado(9));
+
+        RenderizadorTablero renderizador = new RenderizadorTablero(9);
+        texto = ByteBuffer.allocateDirect(renderizador.renderizar(sudoku.getTableroSolucion()));
+        renderizador.escribir(sudoku.getTableroSolucion(), texto);
+        texto.flip();
+
+        lector = new LectorTablero(9);
+        celdas = new int[81];
+    }
+
+    @Benchmark
+    public ByteBuffer codificar() {
+        binario.clear();
+        CodecSudoku.codificar(sudoku, binario);
+        return binario;
+    }
+
+    @Benchmark
+    public Sudoku decodificar() throws IOException {
+        binario.clear();
+        CodecSudoku.codificar(sudoku, binario);
+        binario.flip();
+        return CodecSudoku.decodificar(binario);
+    }
+
+    @Benchmark
+    public int leerTexto() {
+        lector.leer(texto, celdas);
+        return lector.getVacias();
+    }
+}
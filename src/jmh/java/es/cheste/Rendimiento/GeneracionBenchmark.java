@@ -0,0 +1,73 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Motor.ResolutorLogico;
+import es.cheste.Motor.Tecnica;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.Sudoku;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la generación de Sudokus en un solo hilo: tablero completo, Sudoku con solución única
+ * para cada dificultad de la configuración, Sudoku calificado por técnicas y calificación de un tablero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class GeneracionBenchmark {
+
+    @Param({"FACIL", "MEDIO", "DIFICIL"})
+    private Dificultad dificultad;
+
+    private SplittableRandom random;
+    private GeneradorTablero generador;
+    private int[][] tablero;
+    private ResolutorLogico calificador;
+    private int[][] tableroCalificar;
+
+    @Setup
+    public void preparar() {
+        random = new SplittableRandom(42);
+        generador = new GeneradorTablero(9, random);
+        tablero = new int[9][9];
+        calificador = new ResolutorLogico(9);
+
+        Sudoku sudoku = new Sudoku();
+        sudoku.generar(dificultad, new SplittableRandom(7));
+        tableroCalificar = sudoku.getTablero();
+    }
+
+    @Benchmark
+    public int[][] rellenarTablero() {
+        generador.rellenar(tablero);
+        return tablero;
+    }
+
+    @Benchmark
+    public Sudoku generarSolucionUnica() {
+        Sudoku sudoku = new Sudoku();
+        sudoku.generar(dificultad.obtenerHuecos(random), Boolean.TRUE, random);
+        return sudoku;
+    }
+
+    @Benchmark
+    public Sudoku generarCalificado() {
+        Sudoku sudoku = new Sudoku();
+        sudoku.generar(dificultad, random);
+        return sudoku;
+    }
+
+    @Benchmark
+    public Tecnica calificar() {
+        return calificador.calificar(tableroCalificar);
+    }
+}
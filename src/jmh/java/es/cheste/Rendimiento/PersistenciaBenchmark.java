@@ -0,0 +1,109 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Utilidad.AlmacenDatos;
+import es.cheste.Utilidad.AlmacenFicheros;
+import es.cheste.Utilidad.AlmacenSegmento;
+import es.cheste.Utilidad.EscritorSudokus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de los almacenes de datos en un directorio temporal: guardado individual, guardado por lotes,
+ * guardado asíncrono con {@link EscritorSudokus} y carga por UUID, para cada tipo de almacén.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    private static final int PRECARGADOS = 5000;
+    private static final int TAMANYO_LOTE = 100;
+
+    @Param({"ficheros", "segmento"})
+    private String formato;
+
+    private Path directorio;
+    private AlmacenDatos almacen;
+    private EscritorSudokus escritor;
+    private List<Sudoku> sudokus;
+    private List<Sudoku> lote;
+    private SplittableRandom random;
+
+    @Setup
+    public void preparar() throws IOException {
+        directorio = Files.createTempDirectory("sudoku-jmh");
+        almacen = formato.equals("segmento")
+                ? new AlmacenSegmento(directorio.resolve("sudokus.seg"), directorio.resolve("sudokus.idx"), 9)
+                : new AlmacenFicheros(directorio + "/", directorio + "/Sudoku_");
+
+        random = new SplittableRandom(42);
+        sudokus = new ArrayList<>(PRECARGADOS);
+        for (int i = 0; i < PRECARGADOS; i++) {
+            Sudoku sudoku = new Sudoku();
+            sudoku.generar(42, Boolean.FALSE, random);
+            sudokus.add(sudoku);
+        }
+        almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+        lote = sudokus.subList(0, TAMANYO_LOTE);
+        escritor = new EscritorSudokus(almacen, 9, 4 * TAMANYO_LOTE, TAMANYO_LOTE);
+    }
+
+    @TearDown
+    public void limpiar() throws IOException {
+        escritor.close();
+        if (almacen instanceof Closeable cerrable) {
+            cerrable.close();
+        }
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(fichero -> fichero.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Sudoku cargar() throws IOException {
+        return almacen.cargar(sudokus.get(random.nextInt(PRECARGADOS)).getUuid());
+    }
+
+    @Benchmark
+    public Sudoku guardar() throws IOException {
+        Sudoku sudoku = sudokus.get(random.nextInt(PRECARGADOS));
+        almacen.guardar(List.of(sudoku), EstadoSudoku.EN_JUEGO);
+        return sudoku;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TAMANYO_LOTE)
+    public List<Sudoku> guardarLote() throws IOException {
+        almacen.guardar(lote, EstadoSudoku.GENERADO);
+        return lote;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TAMANYO_LOTE)
+    public boolean guardarAsincrono() {
+        CompletableFuture<Boolean> ultimo = null;
+        for (int i = 0; i < TAMANYO_LOTE; i++) {
+            ultimo = escritor.guardar(sudokus.get(random.nextInt(PRECARGADOS)), EstadoSudoku.EN_JUEGO, null, null);
+        }
+        return ultimo.join();
+    }
+}
@@ -0,0 +1,49 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Utilidad.RenderizadorTablero;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la conversión de tableros a texto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RenderizadoBenchmark {
+
+    private int[][] tablero;
+    private RenderizadorTablero renderizador;
+
+    @Setup
+    public void preparar() {
+        Sudoku sudoku = new Sudoku();
+        sudoku.generar(42, Boolean.TRUE, new SplittableRandom(42));
+        tablero = sudoku.getTablero();
+        renderizador = new RenderizadorTablero(9);
+    }
+
+    @Benchmark
+    public String mostrarTablero() {
+        return Sudoku.mostrarTablero(tablero);
+    }
+
+    @Benchmark
+    public int renderizarBytes() {
+        return renderizador.renderizar(tablero);
+    }
+
+    @Benchmark
+    public String mostrarLinea() {
+        return renderizador.mostrarLinea(tablero);
+    }
+}
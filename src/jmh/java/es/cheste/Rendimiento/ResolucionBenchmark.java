@@ -0,0 +1,73 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Motor.Resolutor;
+import es.cheste.Motor.ResolutorDLX;
+import es.cheste.Motor.ResolutorMascaras;
+import es.cheste.Motor.VaciadorTablero;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de los motores de resolución en tableros de distintos tamaños: resolución de un Sudoku con
+ * solución única y comprobación de que la solución es única. Sirve para elegir el motor de
+ * {@link Resolutor#para(int)} según el tamaño.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ResolucionBenchmark {
+
+    private static final int NUM_TABLEROS = 32;
+    private static final double PROPORCION_HUECOS = 0.6;
+
+    @Param({"4", "9", "16", "25"})
+    private int tamanyo;
+
+    @Param({"mascaras", "dlx"})
+    private String motor;
+
+    private Resolutor resolutor;
+    private int[][][] tableros;
+    private int[][] trabajo;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        GeneradorTablero generador = new GeneradorTablero(tamanyo, random);
+        VaciadorTablero vaciador = new VaciadorTablero(tamanyo, random);
+        int huecos = (int) (tamanyo * tamanyo * PROPORCION_HUECOS);
+
+        resolutor = "dlx".equals(motor) ? new ResolutorDLX(tamanyo) : new ResolutorMascaras(tamanyo);
+        tableros = new int[NUM_TABLEROS][tamanyo][tamanyo];
+        trabajo = new int[tamanyo][tamanyo];
+        for (int[][] tablero : tableros) {
+            generador.rellenar(tablero);
+            vaciador.vaciar(tablero, huecos);
+        }
+    }
+
+    @Benchmark
+    public int[][] resolver() {
+        int[][] tablero = tableros[siguiente++ & (NUM_TABLEROS - 1)];
+        for (int fila = 0; fila < tamanyo; fila++) {
+            System.arraycopy(tablero[fila], 0, trabajo[fila], 0, tamanyo);
+        }
+        resolutor.resolver(trabajo);
+        return trabajo;
+    }
+
+    @Benchmark
+    public int contarSoluciones() {
+        return resolutor.contarSoluciones(tableros[siguiente++ & (NUM_TABLEROS - 1)], 2);
+    }
+}
@@ -0,0 +1,51 @@
+package es.cheste.Rendimiento;
+
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Motor.VaciadorTablero;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Benchmark de la generación en tableros de distintos tamaños: relleno de un tablero completo y relleno
+ * con vaciado de la mitad de las celdas manteniendo la solución única.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TamanyoBenchmark {
+
+    @Param({"4", "9", "16", "25"})
+    private int tamanyo;
+
+    private GeneradorTablero generador;
+    private VaciadorTablero vaciador;
+    private int[][] tablero;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        generador = new GeneradorTablero(tamanyo, random);
+        vaciador = new VaciadorTablero(tamanyo, random);
+        tablero = new int[tamanyo][tamanyo];
+    }
+
+    @Benchmark
+    public int[][] rellenar() {
+        generador.rellenar(tablero);
+        return tablero;
+    }
+
+    @Benchmark
+    public int rellenarYVaciar() {
+        generador.rellenar(tablero);
+        return vaciador.vaciar(tablero, tamanyo * tamanyo / 2);
+    }
+}
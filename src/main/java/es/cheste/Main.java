@@ -1,15 +1,35 @@
 package es.cheste;
 
+import es.cheste.Motor.FabricaSudokus;
+import es.cheste.Motor.PoolSudokus;
+import es.cheste.Motor.Resolutor;
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Dificultad;
 import es.cheste.Objetos.Sudoku;
+import es.cheste.Servidor.ServidorSudokus;
+import es.cheste.Utilidad.ComprobadorLote;
 import es.cheste.Utilidad.Configuracion;
+import es.cheste.Utilidad.EntradaSudoku;
+import es.cheste.Utilidad.ExportadorLineas;
+import es.cheste.Utilidad.FiltroSudokus;
 import es.cheste.Utilidad.GestorSudokus;
+import es.cheste.Utilidad.ImportadorLineas;
+import es.cheste.Utilidad.LectorTablero;
+import es.cheste.Utilidad.RenderizadorTablero;
+import es.cheste.Utilidad.ResumenComprobacion;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Hugo Almodóvar Fuster
@@ -21,6 +41,13 @@ import java.util.Scanner;
 public class Main {
 
     private static final Logger LOGGER = LogManager.getLogger(Main.class);
+    private static final int TAMANYO_LOTE = 256;
+    private static final int CAPACIDAD_COLA_COMPROBACION = 1024;
+    private static final int TAMANYO_PAGINA = 20;
+    private static final String USO = "Uso: lote <cantidad> <facil|medio|dificil> [hilos] [semilla]"
+            + " | servidor [puerto] | comprobar [hilos] [directorio|uuid ...] | regenerar <codigo>"
+            + " | resolver <fichero> | importar <fichero> [hilos] | exportar <fichero> [solucion] [dificultad]"
+            + " | deshacer <uuid> [jugadas] | rehacer <uuid> [jugadas]";
     private static Scanner sc = new Scanner(System.in);
 
     /**
@@ -29,6 +56,11 @@ public class Main {
      */
     public static void main(String[] args) {
 
+        if (args.length > 0) {
+            ejecutarModoComandos(args);
+            return;
+        }
+
         char eleccion = elegirOpcion();
         GestorSudokus gestorSudokus = new GestorSudokus();
 
@@ -37,13 +69,15 @@ public class Main {
                 System.err.println("Ocurrio un error inesperado, cerrando programa.");
                 break;
             case '1':
-                Sudoku sudoku = new Sudoku();
-                int numHuecos = elegirDificultad();
-                sudoku.generar(numHuecos);
-                System.out.println(gestorSudokus.guardarSudoku(sudoku, Boolean.FALSE) ? "El sudoku se guardo correctamente"
-                        : "Hubo un error y no se puedo guardar el sudoku");
-                System.out.println(gestorSudokus.guardarDatosSudoku(sudoku) ? "Los datos del sudoku se han guardado correctamente"
-                        : "Hubo un error al guardar los datos");
+                Dificultad dificultad = elegirDificultad();
+                Sudoku sudoku = Sudoku.crear(dificultad, ThreadLocalRandom.current());
+                System.out.println(gestorSudokus.guardarSudokuAsincrono(sudoku).join()
+                        ? "El sudoku y sus datos se guardaron correctamente"
+                        : "Hubo un error y no se pudo guardar el sudoku");
+                if (sudoku.getCodigo() != null) {
+                    System.out.println("Código del sudoku: " + sudoku.getCodigo());
+                }
+                GestorSudokus.cerrarEscritor();
                 System.out.println("Por favor, mire en la carpeta partidas en resources, ahi estará su sudoku");
                 break;
             case '2':
@@ -61,21 +95,376 @@ public class Main {
     }
 
     /**
-     * Muestra un menú para que el usuario elija un archivo de Sudoku.
-     * @return el nombre del archivo seleccionado.
+     * Ejecuta la aplicación sin menú a partir de los argumentos de la línea de comandos.
+     * Uso: {@code lote <cantidad> <facil|medio|dificil> [hilos] [semilla]}, {@code servidor [puerto]},
+     * {@code comprobar [hilos] [directorio|uuid ...]}, {@code regenerar <codigo>}, {@code resolver <fichero>},
+     * {@code importar <fichero> [hilos]}, {@code exportar <fichero> [solucion] [dificultad]},
+     * {@code deshacer <uuid> [jugadas]} o {@code rehacer <uuid> [jugadas]}
+     * @param args los argumentos de la línea de comandos.
      */
-    private static String elegirFichero() {
+    private static void ejecutarModoComandos(String[] args) {
+
+        switch (args[0]) {
+            case "lote" -> ejecutarLote(args);
+            case "servidor" -> ejecutarServidor(args);
+            case "comprobar" -> ejecutarComprobacion(args);
+            case "regenerar" -> ejecutarRegeneracion(args);
+            case "resolver" -> ejecutarResolucion(args);
+            case "importar" -> ejecutarImportacion(args);
+            case "exportar" -> ejecutarExportacion(args);
+            case "deshacer" -> ejecutarDeshacer(args, false);
+            case "rehacer" -> ejecutarDeshacer(args, true);
+            default -> System.err.println(USO);
+        }
+    }
+
+    /**
+     * Regenera un Sudoku reproducible a partir de su código y vuelve a crear su partida.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarRegeneracion(String[] args) {
 
-        int opcion;
-        StringBuilder sb = new StringBuilder("--Listado Sudokus--\n");
-        List<String> listaUUID = GestorSudokus.obtenerUUIDSudoku();
+        if (args.length < 2) {
+            System.err.println(USO);
+            return;
+        }
 
-        for (int i = 0; i < listaUUID.size(); i++) {
-            sb.append((i + 1)).append(". ").append(listaUUID.get(i)).append("\n");
+        Sudoku sudoku;
+        try {
+            sudoku = Sudoku.regenerar(CodigoSudoku.desdeTexto(args[1],
+                    Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"))));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Código no válido para el modo regenerar {}", e.getMessage());
+            System.err.println("Código de sudoku no válido: " + args[1]);
+            return;
         }
-        sb.append("Elija el sudoku indicando el número de delante: ");
 
-        do {
+        boolean guardado = new GestorSudokus().guardarSudokuAsincrono(sudoku).join();
+        GestorSudokus.cerrarEscritor();
+        System.out.println(guardado ? "Sudoku " + sudoku.getCodigo() + " regenerado con UUID " + sudoku.getUuid()
+                : "Hubo un error y no se pudo guardar el sudoku");
+    }
+
+    /**
+     * Deshace las últimas jugadas de un Sudoku, o rehace las últimas deshechas, y vuelve a escribir su partida.
+     * @param args los argumentos de la línea de comandos.
+     * @param rehacer true para rehacer, false para deshacer.
+     */
+    private static void ejecutarDeshacer(String[] args, boolean rehacer) {
+
+        int jugadas;
+        try {
+            if (args.length < 2) {
+                throw new IllegalArgumentException("falta el UUID");
+            }
+            jugadas = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+            if (jugadas < 1) {
+                throw new IllegalArgumentException("el número de jugadas debe ser positivo");
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Argumentos no válidos para el modo {} {}", args[0], e.getMessage());
+            System.err.println(USO);
+            return;
+        }
+
+        int hechas = new GestorSudokus().deshacerJugadas(args[1], jugadas, rehacer);
+        GestorSudokus.cerrarEscritor();
+        if (hechas < 0) {
+            System.out.println("Hubo un error inesperado");
+        } else {
+            System.out.println((rehacer ? "Jugadas rehechas: " : "Jugadas deshechas: ") + hechas);
+        }
+    }
+
+    /**
+     * Resuelve un tablero leído de un fichero de texto, con el mismo formato que las partidas, e indica si
+     * su solución es única.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarResolucion(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println(USO);
+            return;
+        }
+
+        int tamanyo = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
+        int[] celdas = new int[tamanyo * tamanyo];
+        try {
+            if (!new LectorTablero(tamanyo).leer(Paths.get(args[1]), celdas)) {
+                System.err.println("El fichero " + args[1] + " no tiene un tablero de " + tamanyo + "x" + tamanyo);
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.error("No se pudo leer el tablero a resolver {}", e.getMessage());
+            System.err.println("No se pudo leer el fichero " + args[1]);
+            return;
+        }
+
+        int[][] tablero = new int[tamanyo][tamanyo];
+        for (int celda = 0; celda < celdas.length; celda++) {
+            tablero[celda / tamanyo][celda % tamanyo] = celdas[celda];
+        }
+
+        Resolutor resolutor = Resolutor.para(tamanyo);
+        int soluciones = resolutor.contarSoluciones(tablero, 2);
+        if (soluciones == 0 || !resolutor.resolver(tablero)) {
+            System.out.println("El tablero no tiene solución");
+            return;
+        }
+        System.out.println(soluciones == 1 ? "El tablero tiene solución única:" : "El tablero tiene varias soluciones, una es:");
+        System.out.print(new RenderizadorTablero(tamanyo).mostrar(tablero));
+    }
+
+    /**
+     * Importa un fichero con un Sudoku por línea y guarda en el almacén los que tienen solución única y no
+     * están repetidos.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarImportacion(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println(USO);
+            return;
+        }
+
+        ImportadorLineas importador;
+        int hilos;
+        try {
+            hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            importador = new ImportadorLineas(new GestorSudokus(),
+                    Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo")), hilos,
+                    CAPACIDAD_COLA_COMPROBACION, TAMANYO_LOTE);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Argumentos no válidos para el modo importar {}", e.getMessage());
+            System.err.println(USO);
+            return;
+        }
+
+        try {
+            System.out.println(importador.importar(Paths.get(args[1])) + " con " + hilos + " hilos");
+        } catch (IOException e) {
+            LOGGER.error("No se pudo importar el fichero {} {}", args[1], e.getMessage());
+            System.err.println("No se pudo leer el fichero " + args[1]);
+        } finally {
+            importador.cerrar();
+        }
+    }
+
+    /**
+     * Exporta todos los Sudokus guardados a un fichero con un Sudoku por línea, opcionalmente con su
+     * solución y su dificultad.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarExportacion(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println(USO);
+            return;
+        }
+
+        boolean conSolucion = false;
+        boolean conDificultad = false;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "solucion" -> conSolucion = true;
+                case "dificultad" -> conDificultad = true;
+                default -> {
+                    System.err.println(USO);
+                    return;
+                }
+            }
+        }
+
+        ExportadorLineas exportador = new ExportadorLineas(new GestorSudokus(),
+                Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo")), conSolucion, conDificultad);
+        long inicio = System.nanoTime();
+        try {
+            long exportados = exportador.exportar(FiltroSudokus.TODOS, Paths.get(args[1]));
+            System.out.printf("Exportados %d sudokus a %s en %d ms%n", exportados, args[1],
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException e) {
+            LOGGER.error("No se pudo exportar al fichero {} {}", args[1], e.getMessage());
+            System.err.println("No se pudo escribir el fichero " + args[1]);
+        }
+    }
+
+    /**
+     * Genera y guarda un lote de Sudokus en paralelo.
+     * Con la misma semilla, cantidad y tamaño de lote se generan los mismos Sudokus.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarLote(String[] args) {
+
+        if (args.length < 3) {
+            System.err.println(USO);
+            return;
+        }
+
+        int cantidad;
+        Dificultad dificultad;
+        int hilos;
+        long semilla;
+
+        try {
+            cantidad = Integer.parseInt(args[1]);
+            dificultad = Dificultad.desdeNombre(args[2]);
+            hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            semilla = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Argumentos no válidos para el modo lote {}", e.getMessage());
+            System.err.println(USO);
+            return;
+        }
+
+        GestorSudokus gestorSudokus = new GestorSudokus();
+        FabricaSudokus fabrica = new FabricaSudokus(hilos, TAMANYO_LOTE);
+        AtomicInteger guardados = new AtomicInteger();
+
+        long inicio = System.nanoTime();
+        int generados = fabrica.producir(cantidad, dificultad, semilla,
+                lote -> guardados.addAndGet(gestorSudokus.guardarLote(gestorSudokus.descartarRepetidos(lote))));
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        fabrica.cerrar();
+
+        System.out.printf("Generados %d sudokus (%d guardados) en %d ms con %d hilos, semilla %d%n",
+                generados, guardados.get(), milisegundos, hilos, semilla);
+    }
+
+    /**
+     * Comprueba a la vez las partidas de los directorios y UUIDs indicados, o todas las del directorio de
+     * partidas si no se indica ninguno, y muestra un resumen.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarComprobacion(String[] args) {
+
+        int hilos = Runtime.getRuntime().availableProcessors();
+        int primero = 1;
+
+        if (args.length > 1 && args[1].chars().allMatch(Character::isDigit)) {
+            try {
+                hilos = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                LOGGER.error("Argumentos no válidos para el modo comprobar {}", e.getMessage());
+                System.err.println(USO);
+                return;
+            }
+            primero = 2;
+        }
+
+        List<Path> partidas = new ArrayList<>();
+        for (int i = primero; i < args.length; i++) {
+            Path ruta = Paths.get(args[i]);
+            String uuid;
+            if (Files.isDirectory(ruta)) {
+                partidas.addAll(GestorSudokus.listarPartidas(ruta));
+            } else if ((uuid = GestorSudokus.normalizarUuid(args[i])) != null) {
+                partidas.add(GestorSudokus.rutaPartida(uuid));
+            } else {
+                System.err.println("Se omite " + args[i] + ": no es un directorio ni el UUID de un sudoku");
+            }
+        }
+        if (primero == args.length) {
+            partidas.addAll(GestorSudokus.listarPartidas());
+        }
+
+        ComprobadorLote comprobador;
+        try {
+            comprobador = new ComprobadorLote(new GestorSudokus(),
+                    Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo")), hilos,
+                    CAPACIDAD_COLA_COMPROBACION, TAMANYO_LOTE);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Argumentos no válidos para el modo comprobar {}", e.getMessage());
+            System.err.println(USO);
+            return;
+        }
+
+        ResumenComprobacion resumen = comprobador.comprobar(partidas);
+        comprobador.cerrar();
+
+        System.out.println(resumen + " con " + hilos + " hilos");
+    }
+
+    /**
+     * Arranca el servidor de Sudokus y lo mantiene en marcha hasta que se detiene el proceso.
+     * La reserva y el servidor se configuran con las claves {@code servidor.*} de la configuración.
+     * @param args los argumentos de la línea de comandos.
+     */
+    private static void ejecutarServidor(String[] args) {
+
+        // El servidor HTTP del JDK lee esta propiedad una sola vez, al crear el primer servidor. Sin TCP_NODELAY
+        // las respuestas pequeñas esperan al ACK retardado del cliente (unos 40 ms).
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        int puerto;
+        int hilos;
+        int tamanyo = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
+        PoolSudokus pool;
+        GestorSudokus gestorSudokus = new GestorSudokus();
+
+        try {
+            puerto = Integer.parseInt(args.length > 1 ? args[1] : Configuracion.getConfiguracion("servidor.puerto", "8080"));
+            hilos = Integer.parseInt(Configuracion.getConfiguracion("servidor.hilos", "4"));
+            pool = new PoolSudokus(
+                    Integer.parseInt(Configuracion.getConfiguracion("servidor.reserva.capacidad", "256")),
+                    Integer.parseInt(Configuracion.getConfiguracion("servidor.reserva.minimo", "64")),
+                    Integer.parseInt(Configuracion.getConfiguracion("servidor.reserva.lote", "32")),
+                    Integer.parseInt(Configuracion.getConfiguracion("servidor.reserva.hilos", "1")),
+                    gestorSudokus::guardarLote, gestorSudokus::descartarRepetidos);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Configuración no válida para el modo servidor {}", e.getMessage());
+            System.err.println(USO);
+            return;
+        }
+
+        ServidorSudokus servidor;
+        try {
+            servidor = new ServidorSudokus(puerto, hilos, tamanyo, pool, gestorSudokus);
+        } catch (IOException e) {
+            LOGGER.error("No se pudo arrancar el servidor en el puerto {}: {}", puerto, e.getMessage());
+            System.err.println("No se pudo arrancar el servidor en el puerto " + puerto);
+            pool.cerrar(0);
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.detener(2);
+            GestorSudokus.cerrarEscritor();
+        }));
+        servidor.iniciar();
+        System.out.println("Servidor de sudokus escuchando en el puerto " + servidor.getPuerto());
+    }
+
+    /**
+     * Muestra un menú por páginas para que el usuario elija un archivo de Sudoku.
+     * Solo se leen del almacén las partidas de la página que se muestra.
+     * @return el UUID del Sudoku seleccionado, o null si no hay partidas o hubo un error.
+     */
+    private static String elegirFichero() {
+
+        int pagina = 0;
+
+        while (true) {
+            List<EntradaSudoku> entradas = GestorSudokus.obtenerPagina(FiltroSudokus.PARTIDAS, pagina, TAMANYO_PAGINA);
+
+            if (entradas.isEmpty()) {
+                if (pagina == 0) {
+                    System.err.println("No hay sudokus guardados");
+                    return null;
+                }
+                pagina = 0;
+                continue;
+            }
+
+            StringBuilder sb = new StringBuilder("--Listado Sudokus (página ").append(pagina + 1).append(")--\n");
+            for (int i = 0; i < entradas.size(); i++) {
+                sb.append((i + 1)).append(". ").append(entradas.get(i).uuid()).append("\n");
+            }
+            sb.append("Elija el sudoku indicando el número de delante, o 0 para ver la página siguiente: ");
+
+            int opcion;
             try {
                 System.out.println(sb);
                 opcion = sc.nextInt();
@@ -84,20 +473,21 @@ public class Main {
                 return null;
             }
 
-            if (opcion < 1 || opcion > listaUUID.size()) {
+            if (opcion == 0) {
+                pagina++;
+            } else if (opcion < 1 || opcion > entradas.size()) {
                 System.err.println("Por favor, elija un número correcto");
+            } else {
+                return entradas.get(opcion - 1).uuid();
             }
-
-        } while (opcion < 1 || opcion > listaUUID.size());
-
-        return listaUUID.get(opcion - 1);
+        }
     }
 
     /**
      * Muestra un menú para que el usuario elija la dificultad del Sudoku.
-     * @return el número de huecos en el tablero según la dificultad elegida.
+     * @return la dificultad elegida.
      */
-    private static int elegirDificultad() {
+    private static Dificultad elegirDificultad() {
         char opcion;
 
         do {
@@ -121,22 +511,20 @@ public class Main {
 
         } while (opcion != '1' && opcion != '2' && opcion != '3' && opcion != '0' && opcion != '4');
 
-        return obtenerNumeroHuecos(opcion);
+        return obtenerDificultad(opcion);
     }
 
     /**
-     * Obtiene el número de huecos en el tablero según la dificultad elegida.
-     * @param dificultad la dificultad elegida.
-     * @return el número de huecos en el tablero.
+     * Obtiene la dificultad correspondiente a la opción elegida en el menú.
+     * @param opcion la opción elegida.
+     * @return la dificultad del Sudoku.
      */
-    private static int obtenerNumeroHuecos(char dificultad) {
-
-        Random random = new Random();
+    private static Dificultad obtenerDificultad(char opcion) {
 
-        return switch (dificultad) {
-            case '1' -> Integer.parseInt(Configuracion.getConfiguracion("sudoku.hueco.facil")) + random.nextInt(5);
-            case '2' -> Integer.parseInt(Configuracion.getConfiguracion("sudoku.hueco.medio")) + random.nextInt(5);
-            default -> Integer.parseInt(Configuracion.getConfiguracion("sudoku.hueco.dificil")) + random.nextInt(8);
+        return switch (opcion) {
+            case '1' -> Dificultad.FACIL;
+            case '2' -> Dificultad.MEDIO;
+            default -> Dificultad.DIFICIL;
         };
     }
 
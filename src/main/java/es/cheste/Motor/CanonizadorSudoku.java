@@ -0,0 +1,517 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.Huella;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Objetos.Tablero;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase CanonizadorSudoku calcula la forma canónica de un Sudoku y su {@link Huella}. Dos Sudokus tienen la
+ * misma forma canónica si y solo si uno se obtiene del otro cambiando los números entre sí, permutando las
+ * bandas, las filas de cada banda, las pilas y las columnas de cada pila, y trasponiendo el tablero.
+ * <p>
+ * La forma canónica de la solución es la menor en orden lexicográfico entre todas sus transformaciones,
+ * numerando las cifras por orden de aparición. En lugar de probar todas las transformaciones:
+ * <ol>
+ *   <li>Se prueban como primeras filas las de cada orientación, y como segunda fila las otras de su banda.
+ *   Con la primera fila numerada de 1 a N, la segunda solo depende del orden de las columnas, que se
+ *   construye posición a posición llevando cada cifra lo más a la izquierda posible y ramificando solo en
+ *   los empates.</li>
+ *   <li>Las transformaciones que empatan en las dos primeras filas se completan ordenando las filas restantes
+ *   de cada banda y las bandas, lo que ya no deja elecciones porque no hay dos filas iguales.</li>
+ * </ol>
+ * Entre las transformaciones que dan la solución canónica se elige la que deja menor el patrón de celdas
+ * visibles, de forma que la forma canónica tiene en cuenta también el tablero de juego.
+ * <p>
+ * Cada instancia reutiliza sus arrays de trabajo, por lo que no se debe compartir entre hilos.
+ */
+public class CanonizadorSudoku {
+
+    private static final long SEMILLA_ALTA = 0x9E3779B97F4A7C15L;
+    private static final long SEMILLA_BAJA = 0xC2B2AE3D27D4EB4FL;
+
+    private final int tamanyo;
+    private final int lado;
+    private final int[][][] rejillas;
+    private final boolean[][][] visibles;
+    private final int[] f;
+    private final int[] posicionEnPrimera;
+    private final int[][] opciones;
+    private final int[] mejorSegunda;
+    private final List<Candidato> candidatos = new ArrayList<>();
+    private final List<Transformacion> empates = new ArrayList<>();
+    private final int[] etiqueta;
+    private final int[] filas;
+    private final byte[] clave;
+    private final byte[] mejorClave;
+    private final byte[] patron;
+    private final byte[] mejorPatron;
+
+    /**
+     * Constructor de la clase CanonizadorSudoku.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public CanonizadorSudoku(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (lado * lado != tamanyo) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.lado = lado;
+        this.rejillas = new int[2][tamanyo][tamanyo];
+        this.visibles = new boolean[2][tamanyo][tamanyo];
+        this.f = new int[tamanyo];
+        this.posicionEnPrimera = new int[tamanyo + 1];
+        this.opciones = new int[tamanyo][tamanyo];
+        this.mejorSegunda = new int[tamanyo];
+        this.etiqueta = new int[tamanyo + 1];
+        this.filas = new int[tamanyo];
+        this.clave = new byte[tamanyo * tamanyo];
+        this.mejorClave = new byte[tamanyo * tamanyo];
+        this.patron = new byte[tamanyo * tamanyo];
+        this.mejorPatron = new byte[tamanyo * tamanyo];
+    }
+
+    /**
+     * Calcula la huella de un Sudoku a partir de su solución y de sus celdas visibles.
+     * @param sudoku el Sudoku, con la solución completa.
+     * @return la huella de su forma canónica.
+     */
+    public Huella calcular(Sudoku sudoku) {
+        canonizar(sudoku);
+        return resumir();
+    }
+
+    /**
+     * Calcula la forma canónica de un Sudoku.
+     * @param sudoku el Sudoku, con la solución completa.
+     * @return un tablero nuevo con la solución canónica, con 0 en las celdas que no son visibles en la
+     * transformación canónica.
+     */
+    public Tablero formaCanonica(Sudoku sudoku) {
+        canonizar(sudoku);
+
+        Tablero canonico = new Tablero(tamanyo);
+        for (int celda = 0; celda < clave.length; celda++) {
+            canonico.poner(celda, mejorPatron[celda] == 1 ? mejorClave[celda] : 0);
+        }
+        return canonico;
+    }
+
+    /**
+     * Deja en {@link #mejorClave} la solución canónica y en {@link #mejorPatron} sus celdas visibles.
+     * @param sudoku el Sudoku a canonizar.
+     */
+    private void canonizar(Sudoku sudoku) {
+        cargar(sudoku);
+
+        Arrays.fill(mejorSegunda, Integer.MAX_VALUE);
+        candidatos.clear();
+        for (int t = 0; t < 2; t++) {
+            int[][] rejilla = rejillas[t];
+            for (int r0 = 0; r0 < tamanyo; r0++) {
+                for (int col = 0; col < tamanyo; col++) {
+                    posicionEnPrimera[rejilla[r0][col]] = col;
+                }
+
+                int banda = r0 / lado * lado;
+                for (int r1 = banda; r1 < banda + lado; r1++) {
+                    if (r1 == r0) {
+                        continue;
+                    }
+                    for (int col = 0; col < tamanyo; col++) {
+                        f[col] = posicionEnPrimera[rejilla[r1][col]];
+                    }
+                    buscar(t, r0, r1, new Estado(tamanyo), 0);
+                }
+            }
+        }
+
+        empates.clear();
+        mejorClave[0] = Byte.MAX_VALUE;
+        for (Candidato candidato : candidatos) {
+            completar(candidato);
+        }
+
+        Arrays.fill(mejorPatron, Byte.MAX_VALUE);
+        for (Transformacion transformacion : empates) {
+            boolean[][] visible = visibles[transformacion.t];
+            for (int i = 0, celda = 0; i < tamanyo; i++) {
+                boolean[] fila = visible[transformacion.filas[i]];
+                for (int j = 0; j < tamanyo; j++) {
+                    patron[celda++] = fila[transformacion.columnas[j]] ? (byte) 1 : 0;
+                }
+            }
+            if (Arrays.compare(patron, mejorPatron) < 0) {
+                System.arraycopy(patron, 0, mejorPatron, 0, patron.length);
+            }
+        }
+    }
+
+    /**
+     * Copia la solución y las celdas visibles del Sudoku en las dos orientaciones.
+     * @param sudoku el Sudoku a copiar.
+     */
+    private void cargar(Sudoku sudoku) {
+        Tablero solucion = sudoku.getSolucion();
+        if (solucion.getTamanyo() != tamanyo) {
+            throw new IllegalArgumentException("El sudoku no es de tamaño " + tamanyo);
+        }
+
+        for (int fila = 0, celda = 0; fila < tamanyo; fila++) {
+            for (int col = 0; col < tamanyo; col++, celda++) {
+                int valor = solucion.get(celda);
+                if (valor < 1 || valor > tamanyo) {
+                    throw new IllegalArgumentException("La solución del sudoku no está completa");
+                }
+                boolean visible = sudoku.esVisible(celda);
+                rejillas[0][fila][col] = valor;
+                rejillas[1][col][fila] = valor;
+                visibles[0][fila][col] = visible;
+                visibles[1][col][fila] = visible;
+            }
+        }
+    }
+
+    /**
+     * Construye el orden de las columnas posición a posición para que la segunda fila, numerada según la
+     * primera, sea lo menor posible, y guarda los órdenes que igualan o mejoran el mejor encontrado.
+     * La cifra de la segunda fila en la columna de la posición p vale la posición que ocupa en la primera fila,
+     * así que se coloca su columna en la primera posición libre donde puede ir.
+     * @param t la orientación.
+     * @param r0 la primera fila.
+     * @param r1 la segunda fila.
+     * @param estado el orden de columnas construido hasta la posición p.
+     * @param p la posición a decidir.
+     */
+    private void buscar(int t, int r0, int r1, Estado estado, int p) {
+        if (p == tamanyo) {
+            int comparacion = Arrays.compare(estado.segunda, mejorSegunda);
+            if (comparacion < 0) {
+                System.arraycopy(estado.segunda, 0, mejorSegunda, 0, tamanyo);
+                candidatos.clear();
+            }
+            if (comparacion <= 0) {
+                candidatos.add(new Candidato(t, r0, r1, estado.columnas, estado.posiciones));
+            }
+            return;
+        }
+
+        int bloque = p / lado;
+
+        if (estado.columnas[p] >= 0) {
+            estado.segunda[p] = forzar(estado, f[estado.columnas[p]]);
+            if (!peorQueMejor(estado.segunda, p)) {
+                buscar(t, r0, r1, estado, p + 1);
+            }
+            return;
+        }
+
+        int pilaBloque = estado.pilaEn[bloque];
+        int desde = pilaBloque >= 0 ? pilaBloque * lado : 0;
+        int hasta = pilaBloque >= 0 ? desde + lado : tamanyo;
+        int minimo = Integer.MAX_VALUE;
+        int empatadas = 0;
+        int[] opciones = this.opciones[p];
+        for (int col = desde; col < hasta; col++) {
+            if (estado.posiciones[col] >= 0 || pilaBloque < 0 && estado.bloqueDe[col / lado] >= 0) {
+                continue;
+            }
+
+            int valor = valorSiguiente(estado, col, p, bloque);
+            if (valor < minimo) {
+                minimo = valor;
+                empatadas = 0;
+            }
+            if (valor == minimo) {
+                opciones[empatadas++] = col;
+            }
+        }
+
+        estado.segunda[p] = minimo;
+        if (peorQueMejor(estado.segunda, p)) {
+            return;
+        }
+        for (int i = 0; i < empatadas; i++) {
+            Estado opcion = i == empatadas - 1 ? estado : estado.copia();
+            opcion.colocar(opciones[i], p, bloque);
+            forzar(opcion, f[opciones[i]]);
+            buscar(t, r0, r1, opcion, p + 1);
+        }
+    }
+
+    /**
+     * Calcula, sin modificar el estado, el valor que tendría la segunda fila en la posición p si se colocara en
+     * ella una columna. Es la posición que ocuparía la columna de la primera fila con la misma cifra.
+     * @param estado el orden de columnas construido hasta la posición p.
+     * @param col la columna a colocar.
+     * @param p la posición a decidir.
+     * @param bloque el bloque de la posición p.
+     * @return el valor de la segunda fila en la posición p.
+     */
+    private int valorSiguiente(Estado estado, int col, int p, int bloque) {
+        int objetivo = f[col];
+        if (estado.posiciones[objetivo] >= 0) {
+            return estado.posiciones[objetivo];
+        }
+
+        int pila = objetivo / lado;
+        int destino = pila == col / lado ? bloque : estado.bloqueDe[pila];
+        if (destino < 0) {
+            destino = 0;
+            while (estado.pilaEn[destino] >= 0 || destino == bloque) {
+                destino++;
+            }
+            return destino * lado;
+        }
+
+        int posicion = destino * lado;
+        while (estado.columnas[posicion] >= 0 || posicion == p) {
+            posicion++;
+        }
+        return posicion;
+    }
+
+    /**
+     * Coloca una columna en la primera posición libre donde puede ir, si todavía no tiene posición.
+     * @param estado el orden de columnas en construcción.
+     * @param col la columna a colocar.
+     * @return la posición de la columna.
+     */
+    private int forzar(Estado estado, int col) {
+        if (estado.posiciones[col] >= 0) {
+            return estado.posiciones[col];
+        }
+
+        int pila = col / lado;
+        int bloque = estado.bloqueDe[pila];
+        if (bloque < 0) {
+            bloque = 0;
+            while (estado.pilaEn[bloque] >= 0) {
+                bloque++;
+            }
+        }
+
+        int posicion = bloque * lado;
+        while (estado.columnas[posicion] >= 0) {
+            posicion++;
+        }
+        estado.colocar(col, posicion, bloque);
+        return posicion;
+    }
+
+    /**
+     * Indica si los primeros valores de una segunda fila ya son mayores que los de la mejor encontrada.
+     * @param segunda la segunda fila en construcción.
+     * @param hasta la última posición decidida.
+     * @return true si la segunda fila ya no puede igualar a la mejor.
+     */
+    private boolean peorQueMejor(int[] segunda, int hasta) {
+        return Arrays.compare(segunda, 0, hasta + 1, mejorSegunda, 0, hasta + 1) > 0;
+    }
+
+    /**
+     * Completa una transformación candidata ordenando las filas restantes y la compara con la mejor.
+     * @param candidato la orientación, las dos primeras filas y el orden de columnas.
+     */
+    private void completar(Candidato candidato) {
+        int[][] rejilla = rejillas[candidato.t];
+        int[] columnas = candidato.columnas;
+
+        for (int col = 0; col < tamanyo; col++) {
+            etiqueta[rejilla[candidato.r0][col]] = candidato.posiciones[col] + 1;
+        }
+
+        int bandaInicial = candidato.r0 / lado;
+        int siguiente = 0;
+        filas[siguiente++] = candidato.r0;
+        filas[siguiente++] = candidato.r1;
+        for (int fila = bandaInicial * lado; fila < (bandaInicial + 1) * lado; fila++) {
+            if (fila != candidato.r0 && fila != candidato.r1) {
+                filas[siguiente++] = fila;
+            }
+        }
+        ordenarFilas(rejilla, columnas, 2, lado);
+
+        for (int banda = 0; banda < lado; banda++) {
+            if (banda == bandaInicial) {
+                continue;
+            }
+            int desde = siguiente;
+            for (int fila = banda * lado; fila < (banda + 1) * lado; fila++) {
+                filas[siguiente++] = fila;
+            }
+            ordenarFilas(rejilla, columnas, desde, siguiente);
+        }
+        ordenarBandas(rejilla, columnas);
+
+        for (int i = 0, celda = 0; i < tamanyo; i++) {
+            int[] fila = rejilla[filas[i]];
+            for (int j = 0; j < tamanyo; j++) {
+                clave[celda++] = (byte) etiqueta[fila[columnas[j]]];
+            }
+        }
+
+        int comparacion = Arrays.compare(clave, mejorClave);
+        if (comparacion < 0) {
+            System.arraycopy(clave, 0, mejorClave, 0, clave.length);
+            empates.clear();
+        }
+        if (comparacion <= 0) {
+            empates.add(new Transformacion(candidato.t, filas.clone(), columnas));
+        }
+    }
+
+    /**
+     * Ordena por inserción un tramo de {@link #filas} según su contenido numerado.
+     * @param rejilla la rejilla de la orientación.
+     * @param columnas el orden de las columnas.
+     * @param desde la primera posición del tramo.
+     * @param hasta la posición siguiente a la última del tramo.
+     */
+    private void ordenarFilas(int[][] rejilla, int[] columnas, int desde, int hasta) {
+        for (int i = desde + 1; i < hasta; i++) {
+            int fila = filas[i];
+            int j = i - 1;
+            while (j >= desde && compararFilas(rejilla, columnas, filas[j], fila) > 0) {
+                filas[j + 1] = filas[j];
+                j--;
+            }
+            filas[j + 1] = fila;
+        }
+    }
+
+    /**
+     * Ordena por inserción las bandas que siguen a la primera según su primera fila, ya ordenada.
+     * @param rejilla la rejilla de la orientación.
+     * @param columnas el orden de las columnas.
+     */
+    private void ordenarBandas(int[][] rejilla, int[] columnas) {
+        int[] aux = new int[lado];
+
+        for (int i = 2; i < lado; i++) {
+            System.arraycopy(filas, i * lado, aux, 0, lado);
+            int j = i - 1;
+            while (j >= 1 && compararFilas(rejilla, columnas, filas[j * lado], aux[0]) > 0) {
+                System.arraycopy(filas, j * lado, filas, (j + 1) * lado, lado);
+                j--;
+            }
+            System.arraycopy(aux, 0, filas, (j + 1) * lado, lado);
+        }
+    }
+
+    /**
+     * Compara dos filas de la rejilla una vez numeradas y con las columnas reordenadas.
+     * @param rejilla la rejilla de la orientación.
+     * @param columnas el orden de las columnas.
+     * @param a la primera fila.
+     * @param b la segunda fila.
+     * @return un número negativo, cero o positivo si la primera es menor, igual o mayor.
+     */
+    private int compararFilas(int[][] rejilla, int[] columnas, int a, int b) {
+        int[] filaA = rejilla[a];
+        int[] filaB = rejilla[b];
+        for (int j = 0; j < tamanyo; j++) {
+            int diferencia = etiqueta[filaA[columnas[j]]] - etiqueta[filaB[columnas[j]]];
+            if (diferencia != 0) {
+                return diferencia;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Resume en 128 bits la solución canónica y su patrón de celdas visibles.
+     * @return la huella.
+     */
+    private Huella resumir() {
+        long alto = SEMILLA_ALTA ^ tamanyo;
+        long bajo = SEMILLA_BAJA ^ tamanyo;
+
+        for (int celda = 0; celda < mejorClave.length; celda++) {
+            long valor = mejorClave[celda] | (long) mejorPatron[celda] << 8;
+            alto = Long.rotateLeft(alto ^ valor * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+            bajo = Long.rotateLeft(bajo ^ valor * 0xFF51AFD7ED558CCDL, 33) * 0xC4CEB9FE1A85EC53L;
+        }
+        return new Huella(mezclar(alto ^ bajo), mezclar(bajo + alto));
+    }
+
+    /**
+     * Mezcla los bits de un valor de 64 bits.
+     * @param h el valor a mezclar.
+     * @return el valor mezclado.
+     */
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Orden de columnas en construcción durante la búsqueda de la segunda fila.
+     */
+    private static final class Estado {
+        private final int[] columnas;
+        private final int[] posiciones;
+        private final int[] pilaEn;
+        private final int[] bloqueDe;
+        private final int[] segunda;
+
+        private Estado(int tamanyo) {
+            int lado = (int) Math.round(Math.sqrt(tamanyo));
+            columnas = new int[tamanyo];
+            posiciones = new int[tamanyo];
+            pilaEn = new int[lado];
+            bloqueDe = new int[lado];
+            segunda = new int[tamanyo];
+            Arrays.fill(columnas, -1);
+            Arrays.fill(posiciones, -1);
+            Arrays.fill(pilaEn, -1);
+            Arrays.fill(bloqueDe, -1);
+        }
+
+        private Estado(Estado origen) {
+            columnas = origen.columnas.clone();
+            posiciones = origen.posiciones.clone();
+            pilaEn = origen.pilaEn.clone();
+            bloqueDe = origen.bloqueDe.clone();
+            segunda = origen.segunda.clone();
+        }
+
+        private Estado copia() {
+            return new Estado(this);
+        }
+
+        private void colocar(int col, int posicion, int bloque) {
+            int lado = pilaEn.length;
+            columnas[posicion] = col;
+            posiciones[col] = posicion;
+            if (pilaEn[bloque] < 0) {
+                pilaEn[bloque] = col / lado;
+                bloqueDe[col / lado] = bloque;
+            }
+        }
+    }
+
+    /**
+     * Transformación que iguala o mejora la mejor segunda fila encontrada.
+     */
+    private record Candidato(int t, int r0, int r1, int[] columnas, int[] posiciones) {
+    }
+
+    /**
+     * Transformación completa que da la solución canónica.
+     */
+    private record Transformacion(int t, int[] filas, int[] columnas) {
+    }
+}
@@ -0,0 +1,87 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.LoteTableros;
+
+import java.util.Arrays;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ComprobadorEscalar comprueba los tableros de un lote celda a celda. Es la referencia de
+ * {@link ComprobadorVectorial} y el comprobador que se usa cuando la Vector API no está disponible.
+ */
+public class ComprobadorEscalar implements ComprobadorTableros {
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final long todos;
+    private final int[] cajaDe;
+    private final long[] unidades;
+
+    /**
+     * Constructor de la clase ComprobadorEscalar.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public ComprobadorEscalar(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (tamanyo < 1 || lado * lado != tamanyo || tamanyo >= Long.SIZE) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.todos = (1L << tamanyo) - 1;
+        this.cajaDe = new int[numCeldas];
+        this.unidades = new long[3 * tamanyo];
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = celda / tamanyo;
+            int col = celda % tamanyo;
+            cajaDe[celda] = 2 * tamanyo + (fila / lado) * lado + col / lado;
+        }
+    }
+
+    @Override
+    public void comprobar(LoteTableros lote) {
+        byte[] jugadores = lote.getJugadores();
+        byte[] soluciones = lote.getSoluciones();
+        long[] aciertos = lote.getAciertos();
+        long[] errores = lote.getErrores();
+        boolean[] validos = lote.getValidos();
+        int palabras = lote.getPalabras();
+
+        for (int t = 0; t < lote.getNumTableros(); t++) {
+            int base = t * numCeldas;
+            int primera = t * palabras;
+            Arrays.fill(aciertos, primera, primera + palabras, 0L);
+            Arrays.fill(errores, primera, primera + palabras, 0L);
+            Arrays.fill(unidades, 0L);
+
+            for (int celda = 0, fila = 0, col = 0; celda < numCeldas; celda++) {
+                int valor = jugadores[base + celda];
+                if (valor == soluciones[base + celda]) {
+                    aciertos[primera + (celda >>> 6)] |= 1L << celda;
+                } else if (valor != 0) {
+                    errores[primera + (celda >>> 6)] |= 1L << celda;
+                }
+
+                if (valor > 0 && valor <= tamanyo) {
+                    long bit = 1L << (valor - 1);
+                    unidades[fila] |= bit;
+                    unidades[tamanyo + col] |= bit;
+                    unidades[cajaDe[celda]] |= bit;
+                }
+                if (++col == tamanyo) {
+                    col = 0;
+                    fila++;
+                }
+            }
+
+            boolean valido = true;
+            for (long unidad : unidades) {
+                valido &= unidad == todos;
+            }
+            validos[t] = valido;
+        }
+    }
+}
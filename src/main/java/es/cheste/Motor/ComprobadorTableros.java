@@ -0,0 +1,42 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.LoteTableros;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La interfaz ComprobadorTableros define un motor que comprueba de una vez todos los tableros de un
+ * {@link LoteTableros}: compara cada uno con su solución, anotando aciertos y errores con el mismo criterio que
+ * {@link es.cheste.Objetos.Sudoku#anotarJugada(int, int)}, y comprueba que esté completo y sin números repetidos
+ * en sus filas, columnas y cajas. Cada implementación reserva sus estructuras para un tamaño de tablero y no es
+ * segura en concurrencia, por lo que cada hilo debe usar su propia instancia.
+ */
+public interface ComprobadorTableros {
+
+    /**
+     * Obtiene el comprobador más rápido para un tamaño de tablero: el vectorial si la JVM se ha arrancado con
+     * {@code --add-modules jdk.incubator.vector} y el procesador tiene vectores para ese tamaño, y si no el escalar.
+     * El vectorial se carga por su nombre, porque se compila aparte, con el módulo en incubación, y sin él no se
+     * puede cargar.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     * @return un comprobador nuevo para ese tamaño.
+     */
+    static ComprobadorTableros para(int tamanyo) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ComprobadorTableros) Class.forName("es.cheste.Motor.ComprobadorVectorial")
+                        .getConstructor(int.class).newInstance(tamanyo);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // El procesador no tiene vectores para este tamaño o la clase no está: se usa el escalar.
+            }
+        }
+        return new ComprobadorEscalar(tamanyo);
+    }
+
+    /**
+     * Comprueba todos los tableros de un lote y deja el resultado en sus aciertos, errores y validez.
+     * @param lote el lote de tableros, del tamaño de este comprobador.
+     */
+    void comprobar(LoteTableros lote);
+}
@@ -0,0 +1,176 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.LoteTableros;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ComprobadorVectorial comprueba los tableros de un lote con la Vector API de Java, que en Java 17 está
+ * en incubación: hay que compilar y arrancar la JVM con {@code --add-modules jdk.incubator.vector}.
+ * <p>
+ * La comparación con la solución recorre cada tablero en vectores de bytes, de hasta 64 celdas a la vez, y solo
+ * baja a celdas sueltas en los vectores con alguna celda distinta, que en un tablero terminado son pocos. La
+ * validez se calcula cargando cada fila en un vector de enteros cortos con la máscara {@code 1 << (n - 1)} de
+ * cada número: las columnas se acumulan con un OR entre filas y las filas y cajas se reducen dentro del vector.
+ * Solo admite tableros de hasta 16x16, para que las máscaras de una fila quepan en un vector de 16 enteros
+ * cortos. Las especies de vectores son constantes para que el compilador JIT pueda convertir las operaciones en
+ * instrucciones del procesador.
+ */
+public class ComprobadorVectorial implements ComprobadorTableros {
+
+    private static final int TAMANYO_MAXIMO = 16;
+    private static final int BITS_PREFERIDOS = VectorShape.preferredShape().vectorBitSize();
+    private static final VectorSpecies<Byte> CELDAS = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.min(BITS_PREFERIDOS, LoteTableros.RELLENO * Byte.SIZE)));
+    private static final VectorSpecies<Byte> FILA = ByteVector.SPECIES_128;
+    private static final VectorSpecies<Short> MASCARAS = ShortVector.SPECIES_256;
+    private static final ShortVector UNOS = ShortVector.broadcast(MASCARAS, (short) 1);
+    private static final ShortVector CEROS = ShortVector.zero(MASCARAS);
+
+    private final int tamanyo;
+    private final int lado;
+    private final int numCeldas;
+    private final short todos;
+    private final List<VectorMask<Byte>> rangos;
+    private final long[] bitsRangos;
+    private final VectorMask<Short> fueraDeFila;
+    private final List<VectorMask<Short>> cajas;
+
+    /**
+     * Constructor de la clase ComprobadorVectorial.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto y estar admitido por {@link #admite(int)}.
+     */
+    public ComprobadorVectorial(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (tamanyo < 1 || lado * lado != tamanyo || !admite(tamanyo)) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.lado = lado;
+        this.numCeldas = tamanyo * tamanyo;
+        this.todos = (short) ((1 << tamanyo) - 1);
+
+        int numVectores = (numCeldas + CELDAS.length() - 1) / CELDAS.length();
+        List<VectorMask<Byte>> mascarasRangos = new ArrayList<>(numVectores);
+        this.bitsRangos = new long[numVectores];
+        for (int v = 0; v < numVectores; v++) {
+            int desde = v * CELDAS.length();
+            int celdasVector = Math.min(CELDAS.length(), numCeldas - desde);
+            mascarasRangos.add(CELDAS.indexInRange(desde, numCeldas));
+            bitsRangos[v] = celdasVector == Long.SIZE ? -1L : (1L << celdasVector) - 1;
+        }
+
+        this.rangos = List.copyOf(mascarasRangos);
+
+        this.fueraDeFila = MASCARAS.indexInRange(0, tamanyo).not();
+        List<VectorMask<Short>> mascarasCajas = new ArrayList<>(lado);
+        for (int k = 0; k < lado; k++) {
+            mascarasCajas.add(MASCARAS.indexInRange(-k * lado, lado));
+        }
+        this.cajas = List.copyOf(mascarasCajas);
+    }
+
+    /**
+     * Indica si el procesador tiene vectores para comprobar tableros de un tamaño.
+     * @param tamanyo el tamaño del tablero.
+     * @return true si se puede crear un comprobador vectorial para ese tamaño.
+     */
+    public static boolean admite(int tamanyo) {
+        return tamanyo >= 1 && tamanyo <= TAMANYO_MAXIMO && MASCARAS.vectorBitSize() <= BITS_PREFERIDOS;
+    }
+
+    @Override
+    public void comprobar(LoteTableros lote) {
+        byte[] jugadores = lote.getJugadores();
+        byte[] soluciones = lote.getSoluciones();
+        long[] aciertos = lote.getAciertos();
+        long[] errores = lote.getErrores();
+        boolean[] validos = lote.getValidos();
+        int palabras = lote.getPalabras();
+
+        for (int t = 0; t < lote.getNumTableros(); t++) {
+            int base = t * numCeldas;
+            int primera = t * palabras;
+            Arrays.fill(aciertos, primera, primera + palabras, 0L);
+            Arrays.fill(errores, primera, primera + palabras, 0L);
+            comparar(jugadores, soluciones, base, aciertos, errores, primera);
+            validos[t] = validar(jugadores, base);
+        }
+    }
+
+    /**
+     * Compara un tablero con su solución y anota sus aciertos y errores.
+     * @param jugadores las celdas de los jugadores del lote.
+     * @param soluciones las celdas de las soluciones del lote.
+     * @param base la posición de la primera celda del tablero.
+     * @param aciertos los aciertos del lote, con las palabras del tablero a 0.
+     * @param errores los errores del lote, con las palabras del tablero a 0.
+     * @param primera la primera palabra del tablero en los aciertos y errores.
+     */
+    private void comparar(byte[] jugadores, byte[] soluciones, int base, long[] aciertos, long[] errores, int primera) {
+        for (int v = 0, desde = 0; desde < numCeldas; v++, desde += CELDAS.length()) {
+            ByteVector jugador = ByteVector.fromArray(CELDAS, jugadores, base + desde);
+            ByteVector solucion = ByteVector.fromArray(CELDAS, soluciones, base + desde);
+            int palabra = primera + (desde >>> 6);
+
+            if (!jugador.compare(VectorOperators.NE, solucion).and(rangos.get(v)).anyTrue()) {
+                aciertos[palabra] |= bitsRangos[v] << desde;
+                continue;
+            }
+
+            int hasta = Math.min(numCeldas, desde + CELDAS.length());
+            for (int celda = desde; celda < hasta; celda++) {
+                int valor = jugadores[base + celda];
+                if (valor == soluciones[base + celda]) {
+                    aciertos[palabra] |= 1L << celda;
+                } else if (valor != 0) {
+                    errores[palabra] |= 1L << celda;
+                }
+            }
+        }
+    }
+
+    /**
+     * Comprueba que un tablero esté completo y sin números repetidos en sus filas, columnas y cajas.
+     * @param jugadores las celdas de los jugadores del lote.
+     * @param base la posición de la primera celda del tablero.
+     * @return true si el tablero es válido.
+     */
+    private boolean validar(byte[] jugadores, int base) {
+        ShortVector columnas = CEROS;
+        ShortVector banda = CEROS;
+        boolean valido = true;
+
+        for (int fila = 0; fila < tamanyo; fila++) {
+            ShortVector valores = (ShortVector) ByteVector.fromArray(FILA, jugadores, base + fila * tamanyo)
+                    .convertShape(VectorOperators.B2S, MASCARAS, 0);
+            VectorMask<Short> descartadas = valores.compare(VectorOperators.LT, (short) 1)
+                    .or(valores.compare(VectorOperators.GT, (short) tamanyo))
+                    .or(fueraDeFila);
+            ShortVector mascaras = UNOS.lanewise(VectorOperators.LSHL, valores.sub((short) 1)).blend(CEROS, descartadas);
+
+            valido &= mascaras.reduceLanes(VectorOperators.OR) == todos;
+            columnas = columnas.or(mascaras);
+            banda = banda.or(mascaras);
+            if (fila % lado == lado - 1) {
+                for (VectorMask<Short> caja : cajas) {
+                    valido &= banda.reduceLanes(VectorOperators.OR, caja) == todos;
+                }
+                banda = CEROS;
+            }
+        }
+        return valido && !columnas.compare(VectorOperators.NE, todos).andNot(fueraDeFila).anyTrue();
+    }
+}
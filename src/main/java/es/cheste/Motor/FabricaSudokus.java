@@ -0,0 +1,103 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.Sudoku;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase FabricaSudokus genera lotes de Sudokus en paralelo usando un ForkJoinPool.
+ * Los Sudokus se califican con {@link ResolutorLogico} para que correspondan a la dificultad pedida.
+ * Cada tarea trabaja con su propio SplittableRandom, obtenido dividiendo el de su tarea padre,
+ * y entrega los Sudokus generados en lotes al destino indicado. Como la división de las tareas solo depende de
+ * la cantidad y del tamaño del lote, con la misma semilla raíz se generan siempre las mismas semillas y, si la
+ * generación es reproducible, los mismos Sudokus.
+ */
+public class FabricaSudokus {
+
+    private final ForkJoinPool pool;
+    private final int tamanyoLote;
+
+    /**
+     * Constructor de la clase FabricaSudokus.
+     * @param hilos el número de hilos a utilizar.
+     * @param tamanyoLote el número de Sudokus que se entregan juntos al destino.
+     */
+    public FabricaSudokus(int hilos, int tamanyoLote) {
+        if (hilos < 1 || tamanyoLote < 1) {
+            throw new IllegalArgumentException("El número de hilos y el tamaño del lote deben ser positivos");
+        }
+        this.pool = new ForkJoinPool(hilos);
+        this.tamanyoLote = tamanyoLote;
+    }
+
+    /**
+     * Genera Sudokus de una dificultad y los entrega por lotes al destino.
+     * El destino se invoca desde varios hilos a la vez, por lo que debe ser seguro en concurrencia.
+     * @param cantidad el número de Sudokus a generar.
+     * @param dificultad la dificultad de los Sudokus.
+     * @param semilla la semilla del generador de números aleatorios raíz.
+     * @param destino el consumidor que recibe cada lote de Sudokus generados.
+     * @return el número de Sudokus generados.
+     */
+    public int producir(int cantidad, Dificultad dificultad, long semilla, Consumer<List<Sudoku>> destino) {
+        return pool.invoke(new TareaLote(0, cantidad, dificultad, new SplittableRandom(semilla), destino));
+    }
+
+    /**
+     * Detiene los hilos de la fábrica.
+     */
+    public void cerrar() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tarea que divide el rango de Sudokus a generar hasta llegar al tamaño de lote.
+     */
+    private final class TareaLote extends RecursiveTask<Integer> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final int desde;
+        private final int hasta;
+        private final Dificultad dificultad;
+        private final SplittableRandom random;
+        private final Consumer<List<Sudoku>> destino;
+
+        private TareaLote(int desde, int hasta, Dificultad dificultad, SplittableRandom random,
+                          Consumer<List<Sudoku>> destino) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.dificultad = dificultad;
+            this.random = random;
+            this.destino = destino;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (hasta - desde <= tamanyoLote) {
+                List<Sudoku> lote = new ArrayList<>(hasta - desde);
+                for (int i = desde; i < hasta; i++) {
+                    lote.add(Sudoku.crear(dificultad, random));
+                }
+                destino.accept(lote);
+                return lote.size();
+            }
+
+            int mitad = (desde + hasta) >>> 1;
+            TareaLote derecha = new TareaLote(mitad, hasta, dificultad, random.split(), destino);
+            derecha.fork();
+            int generados = new TareaLote(desde, mitad, dificultad, random, destino).compute();
+            return generados + derecha.join();
+        }
+    }
+}
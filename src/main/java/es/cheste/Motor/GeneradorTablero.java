@@ -0,0 +1,372 @@
+package es.cheste.Motor;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase GeneradorTablero rellena tableros de Sudoku completos mediante un backtracking iterativo.
+ * Mantiene una máscara de bits con los números usados en cada fila, columna y caja, de forma que los
+ * candidatos de una celda se obtienen con una sola operación y se eligen al azar sin crear objetos.
+ * <p>
+ * Los tableros de hasta 9x9 se rellenan celda a celda en orden. En los tableros mayores ese orden se atasca,
+ * así que se rellena primero la celda con menos candidatos y se reinicia la búsqueda si supera un número de
+ * pasos; si aun así no termina, se parte de un tablero patrón permutado al azar.
+ * <p>
+ * El generador acumula cuántos tableros ha rellenado, cuántas celdas ha colocado y cuántas veces ha tenido que
+ * retroceder, para las métricas de {@link es.cheste.Utilidad.Metricas}.
+ */
+public class GeneradorTablero {
+
+    private static final int TAMANYO_SECUENCIAL = 9;
+    private static final int REINICIOS = 20;
+
+    private final int tamanyo;
+    private final int lado;
+    private final int numCeldas;
+    private final int todos;
+    private final int[] filaDe;
+    private final int[] colDe;
+    private final int[] cajaDe;
+    private final int[] mascaraFilas;
+    private final int[] mascaraCols;
+    private final int[] mascaraCajas;
+    private final int[] valores;
+    private final int[] restantes;
+    private final int[] vacias;
+    private final int[] permutacion;
+    private final RandomGenerator random;
+    private long pasos;
+    private long rellenados;
+    private long nodos;
+    private long retrocesos;
+    private long reinicios;
+    private long patrones;
+
+    /**
+     * Constructor de la clase GeneradorTablero.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     * @param random el generador de números aleatorios a utilizar.
+     */
+    public GeneradorTablero(int tamanyo, RandomGenerator random) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (lado * lado != tamanyo || tamanyo > 31) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.lado = lado;
+        this.numCeldas = tamanyo * tamanyo;
+        this.todos = (1 << tamanyo) - 1;
+        this.filaDe = new int[numCeldas];
+        this.colDe = new int[numCeldas];
+        this.cajaDe = new int[numCeldas];
+        this.mascaraFilas = new int[tamanyo];
+        this.mascaraCols = new int[tamanyo];
+        this.mascaraCajas = new int[tamanyo];
+        this.valores = new int[numCeldas];
+        this.restantes = new int[numCeldas];
+        this.vacias = new int[numCeldas];
+        this.permutacion = new int[tamanyo];
+        this.random = random;
+
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = celda / tamanyo;
+            int col = celda % tamanyo;
+            filaDe[celda] = fila;
+            colDe[celda] = col;
+            cajaDe[celda] = (fila / lado) * lado + col / lado;
+        }
+    }
+
+    /**
+     * Rellena un tablero completo y válido de Sudoku.
+     * @param destino el tablero donde se copiará el resultado.
+     * @return true si el tablero se ha rellenado correctamente, false en caso contrario.
+     */
+    public boolean rellenar(int[][] destino) {
+        boolean relleno = tamanyo <= TAMANYO_SECUENCIAL ? rellenarEnOrden() : rellenarPorCandidatos();
+        rellenados++;
+
+        if (relleno) {
+            for (int i = 0; i < numCeldas; i++) {
+                destino[filaDe[i]][colDe[i]] = valores[i];
+            }
+        }
+        return relleno;
+    }
+
+    /**
+     * Obtiene el número de tableros rellenados por este generador.
+     * @return el número de tableros rellenados.
+     */
+    public long getRellenados() {
+        return rellenados;
+    }
+
+    /**
+     * Obtiene el número de celdas colocadas por este generador, incluidas las que luego se deshicieron.
+     * @return el número de nodos visitados.
+     */
+    public long getNodos() {
+        return nodos;
+    }
+
+    /**
+     * Obtiene el número de veces que este generador ha deshecho una celda al quedarse sin candidatos.
+     * @return el número de retrocesos.
+     */
+    public long getRetrocesos() {
+        return retrocesos;
+    }
+
+    /**
+     * Obtiene el número de búsquedas abandonadas por superar el límite de pasos.
+     * @return el número de reinicios.
+     */
+    public long getReinicios() {
+        return reinicios;
+    }
+
+    /**
+     * Obtiene el número de tableros que se han tenido que rellenar a partir del tablero patrón.
+     * @return el número de tableros patrón.
+     */
+    public long getPatrones() {
+        return patrones;
+    }
+
+    /**
+     * Rellena el tablero celda a celda, en orden, deshaciendo la última celda cuando no quedan candidatos.
+     * @return true si el tablero se ha rellenado.
+     */
+    private boolean rellenarEnOrden() {
+        limpiar();
+
+        int celda = 0;
+        restantes[0] = todos;
+
+        while (celda < numCeldas) {
+            if (celda < 0) {
+                return false;
+            }
+            if (valores[celda] != 0) {
+                quitar(celda);
+            }
+
+            int candidatos = restantes[celda] & ~(mascaraFilas[filaDe[celda]] | mascaraCols[colDe[celda]]
+                    | mascaraCajas[cajaDe[celda]]);
+
+            if (candidatos == 0) {
+                retrocesos++;
+                celda--;
+                continue;
+            }
+
+            int bit = elegirBit(candidatos);
+            restantes[celda] = candidatos & ~bit;
+            poner(celda, bit);
+            nodos++;
+
+            if (++celda < numCeldas) {
+                restantes[celda] = todos;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rellena el tablero empezando siempre por la celda con menos candidatos. Cada intento se abandona al
+     * superar un número de pasos proporcional al tablero, y tras {@value #REINICIOS} intentos se usa un
+     * tablero patrón permutado.
+     * @return true si el tablero se ha rellenado.
+     */
+    private boolean rellenarPorCandidatos() {
+        for (int intento = 0; intento < REINICIOS; intento++) {
+            limpiar();
+            for (int i = 0; i < numCeldas; i++) {
+                vacias[i] = i;
+            }
+            pasos = 0;
+            boolean relleno = buscar(numCeldas, 4L * numCeldas);
+            nodos += Math.min(pasos, 4L * numCeldas);
+            if (relleno) {
+                return true;
+            }
+            reinicios++;
+        }
+        patrones++;
+        rellenarPatron();
+        return true;
+    }
+
+    /**
+     * Busca recursivamente un relleno del tablero, eligiendo al azar el número de la celda con menos candidatos.
+     * @param pendientes el número de celdas vacías que quedan al principio de la lista de vacías.
+     * @param limitePasos el número de celdas colocadas a partir del cual se abandona la búsqueda.
+     * @return true si se ha rellenado el tablero.
+     */
+    private boolean buscar(int pendientes, long limitePasos) {
+        if (pendientes == 0) {
+            return true;
+        }
+        if (++pasos > limitePasos) {
+            return false;
+        }
+
+        int mejorPos = 0;
+        int mejorCandidatos = 0;
+        int mejorCuenta = Integer.MAX_VALUE;
+
+        for (int i = 0; i < pendientes; i++) {
+            int celda = vacias[i];
+            int candidatos = todos & ~(mascaraFilas[filaDe[celda]] | mascaraCols[colDe[celda]]
+                    | mascaraCajas[cajaDe[celda]]);
+            int cuenta = Integer.bitCount(candidatos);
+            if (cuenta < mejorCuenta) {
+                if (cuenta == 0) {
+                    return false;
+                }
+                mejorPos = i;
+                mejorCandidatos = candidatos;
+                mejorCuenta = cuenta;
+                if (cuenta == 1) {
+                    break;
+                }
+            }
+        }
+
+        int celda = vacias[mejorPos];
+        vacias[mejorPos] = vacias[pendientes - 1];
+        vacias[pendientes - 1] = celda;
+
+        while (mejorCandidatos != 0) {
+            int bit = elegirBit(mejorCandidatos);
+            mejorCandidatos &= ~bit;
+
+            poner(celda, bit);
+            if (buscar(pendientes - 1, limitePasos)) {
+                return true;
+            }
+            quitar(celda);
+            retrocesos++;
+            if (pasos > limitePasos) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rellena el tablero a partir del patrón de desplazamientos por cajas, permutando al azar los números,
+     * las filas dentro de cada banda y las columnas dentro de cada pila.
+     */
+    private void rellenarPatron() {
+        barajar();
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = filaDe[celda];
+            int col = colDe[celda];
+            valores[celda] = permutacion[(lado * (fila % lado) + fila / lado + col) % tamanyo] + 1;
+        }
+
+        for (int banda = 0; banda < tamanyo; banda += lado) {
+            for (int i = lado - 1; i > 0; i--) {
+                intercambiarFilas(banda + i, banda + random.nextInt(i + 1));
+                intercambiarColumnas(banda + i, banda + random.nextInt(i + 1));
+            }
+        }
+    }
+
+    /**
+     * Ordena al azar la permutación de los números usada por el tablero patrón.
+     */
+    private void barajar() {
+        for (int i = 0; i < tamanyo; i++) {
+            permutacion[i] = i;
+        }
+        for (int i = tamanyo - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int aux = permutacion[i];
+            permutacion[i] = permutacion[j];
+            permutacion[j] = aux;
+        }
+    }
+
+    /**
+     * Intercambia dos filas del tablero en construcción.
+     * @param a la primera fila.
+     * @param b la segunda fila.
+     */
+    private void intercambiarFilas(int a, int b) {
+        for (int col = 0; col < tamanyo; col++) {
+            int aux = valores[a * tamanyo + col];
+            valores[a * tamanyo + col] = valores[b * tamanyo + col];
+            valores[b * tamanyo + col] = aux;
+        }
+    }
+
+    /**
+     * Intercambia dos columnas del tablero en construcción.
+     * @param a la primera columna.
+     * @param b la segunda columna.
+     */
+    private void intercambiarColumnas(int a, int b) {
+        for (int fila = 0; fila < tamanyo; fila++) {
+            int aux = valores[fila * tamanyo + a];
+            valores[fila * tamanyo + a] = valores[fila * tamanyo + b];
+            valores[fila * tamanyo + b] = aux;
+        }
+    }
+
+    /**
+     * Elige al azar uno de los bits activos de una máscara.
+     * @param mascara la máscara de candidatos, distinta de cero.
+     * @return una máscara con un único bit activo.
+     */
+    private int elegirBit(int mascara) {
+        int salto = random.nextInt(Integer.bitCount(mascara));
+        for (int i = 0; i < salto; i++) {
+            mascara &= mascara - 1;
+        }
+        return Integer.lowestOneBit(mascara);
+    }
+
+    /**
+     * Coloca en una celda el número indicado por el bit y actualiza las máscaras.
+     * @param celda el índice de la celda.
+     * @param bit el bit del número a colocar.
+     */
+    private void poner(int celda, int bit) {
+        valores[celda] = Integer.numberOfTrailingZeros(bit) + 1;
+        mascaraFilas[filaDe[celda]] |= bit;
+        mascaraCols[colDe[celda]] |= bit;
+        mascaraCajas[cajaDe[celda]] |= bit;
+    }
+
+    /**
+     * Quita el número de una celda y actualiza las máscaras.
+     * @param celda el índice de la celda.
+     */
+    private void quitar(int celda) {
+        int bit = ~(1 << (valores[celda] - 1));
+        valores[celda] = 0;
+        mascaraFilas[filaDe[celda]] &= bit;
+        mascaraCols[colDe[celda]] &= bit;
+        mascaraCajas[cajaDe[celda]] &= bit;
+    }
+
+    /**
+     * Deja el generador preparado para rellenar un nuevo tablero.
+     */
+    private void limpiar() {
+        for (int i = 0; i < tamanyo; i++) {
+            mascaraFilas[i] = 0;
+            mascaraCols[i] = 0;
+            mascaraCajas[i] = 0;
+        }
+        for (int i = 0; i < numCeldas; i++) {
+            valores[i] = 0;
+        }
+    }
+}
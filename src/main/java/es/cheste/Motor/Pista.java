@@ -0,0 +1,15 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro Pista describe el siguiente paso lógico en un tablero: el número que se puede colocar en una
+ * celda y la técnica que lo justifica.
+ *
+ * @param celda el índice de la celda, por filas.
+ * @param valor el número que se puede colocar.
+ * @param tecnica la técnica que permite colocarlo.
+ */
+public record Pista(int celda, int valor, Tecnica tecnica) {
+}
@@ -0,0 +1,224 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.Sudoku;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase PoolSudokus mantiene en memoria una reserva de Sudokus ya generados para cada dificultad.
+ * Cuando una reserva baja del mínimo, un hilo en segundo plano la rellena por lotes hasta su capacidad,
+ * entregando cada lote al destino antes de ponerlo a disposición, por ejemplo para guardarlo.
+ * Si una reserva se vacía, el Sudoku se genera en el momento.
+ * <p>
+ * Opcionalmente, cada lote pasa antes por un filtro que puede descartar Sudokus, por ejemplo los equivalentes a
+ * otros ya generados. Si el filtro descarta tantos Sudokus seguidos como la capacidad de la reserva, se avisa en
+ * el log y el resto del relleno se hace sin filtrar, para no quedarse generando sin fin.
+ */
+public class PoolSudokus {
+
+    private static final Logger LOGGER = LogManager.getLogger(PoolSudokus.class);
+    private static final int INTENTOS_FILTRO = 3;
+
+    private final Map<Dificultad, BlockingQueue<Sudoku>> reservas = new EnumMap<>(Dificultad.class);
+    private final Map<Dificultad, AtomicBoolean> rellenando = new EnumMap<>(Dificultad.class);
+    private final int capacidad;
+    private final int minimo;
+    private final int tamanyoLote;
+    private final Consumer<List<Sudoku>> destino;
+    private final UnaryOperator<List<Sudoku>> filtro;
+    private final ExecutorService rellenadores;
+
+    /**
+     * Constructor de la clase PoolSudokus.
+     * @param capacidad el número máximo de Sudokus de cada dificultad.
+     * @param minimo el número de Sudokus por debajo del cual se rellena una reserva.
+     * @param tamanyoLote el número de Sudokus que se generan y entregan juntos.
+     * @param hilos el número de hilos que rellenan las reservas.
+     * @param destino el consumidor que recibe cada lote generado, o cada Sudoku generado en el momento.
+     */
+    public PoolSudokus(int capacidad, int minimo, int tamanyoLote, int hilos, Consumer<List<Sudoku>> destino) {
+        this(capacidad, minimo, tamanyoLote, hilos, destino, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructor de la clase PoolSudokus con un filtro de Sudokus generados.
+     * @param capacidad el número máximo de Sudokus de cada dificultad.
+     * @param minimo el número de Sudokus por debajo del cual se rellena una reserva.
+     * @param tamanyoLote el número de Sudokus que se generan y entregan juntos.
+     * @param hilos el número de hilos que rellenan las reservas.
+     * @param destino el consumidor que recibe cada lote generado, o cada Sudoku generado en el momento.
+     * @param filtro la función que recibe cada lote generado y devuelve los Sudokus que se admiten.
+     */
+    public PoolSudokus(int capacidad, int minimo, int tamanyoLote, int hilos, Consumer<List<Sudoku>> destino,
+                       UnaryOperator<List<Sudoku>> filtro) {
+        if (capacidad < 1 || minimo < 0 || minimo > capacidad || tamanyoLote < 1 || hilos < 1) {
+            throw new IllegalArgumentException("Parámetros de la reserva de sudokus no válidos");
+        }
+
+        this.capacidad = capacidad;
+        this.minimo = minimo;
+        this.tamanyoLote = tamanyoLote;
+        this.destino = destino;
+        this.filtro = filtro;
+        this.rellenadores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "rellenador-sudokus");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        for (Dificultad dificultad : Dificultad.values()) {
+            reservas.put(dificultad, new ArrayBlockingQueue<>(capacidad));
+            rellenando.put(dificultad, new AtomicBoolean());
+        }
+    }
+
+    /**
+     * Empieza a rellenar todas las reservas en segundo plano.
+     */
+    public void iniciar() {
+        for (Dificultad dificultad : Dificultad.values()) {
+            programarRelleno(dificultad);
+        }
+    }
+
+    /**
+     * Obtiene un Sudoku de la dificultad indicada, de la reserva si hay alguno o generándolo si está vacía.
+     * @param dificultad la dificultad del Sudoku.
+     * @return el Sudoku obtenido.
+     */
+    public Sudoku obtener(Dificultad dificultad) {
+        BlockingQueue<Sudoku> reserva = reservas.get(dificultad);
+        Sudoku sudoku = reserva.poll();
+
+        if (reserva.size() < minimo) {
+            programarRelleno(dificultad);
+        }
+        if (sudoku == null) {
+            sudoku = generarEnElMomento(dificultad);
+            destino.accept(List.of(sudoku));
+        }
+        return sudoku;
+    }
+
+    /**
+     * Genera un Sudoku que admita el filtro. Si el filtro lo descarta varias veces seguidas,
+     * se devuelve el último generado.
+     * @param dificultad la dificultad del Sudoku.
+     * @return el Sudoku generado.
+     */
+    private Sudoku generarEnElMomento(Dificultad dificultad) {
+        Sudoku sudoku = null;
+
+        for (int intento = 0; intento < INTENTOS_FILTRO; intento++) {
+            sudoku = Sudoku.crear(dificultad, ThreadLocalRandom.current());
+            if (!filtro.apply(List.of(sudoku)).isEmpty()) {
+                return sudoku;
+            }
+        }
+        LOGGER.warn("El filtro descarto {} sudokus {} seguidos, se entrega uno repetido", INTENTOS_FILTRO, dificultad);
+        return sudoku;
+    }
+
+    /**
+     * Obtiene el número de Sudokus disponibles de una dificultad.
+     * @param dificultad la dificultad a consultar.
+     * @return el número de Sudokus en la reserva.
+     */
+    public int disponibles(Dificultad dificultad) {
+        return reservas.get(dificultad).size();
+    }
+
+    /**
+     * Detiene los hilos que rellenan las reservas, esperando como mucho el tiempo indicado.
+     * @param segundos el tiempo máximo de espera.
+     */
+    public void cerrar(long segundos) {
+        rellenadores.shutdownNow();
+        try {
+            rellenadores.awaitTermination(segundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Programa el relleno de una reserva si no se está rellenando ya.
+     * @param dificultad la dificultad de la reserva.
+     */
+    private void programarRelleno(Dificultad dificultad) {
+        if (rellenando.get(dificultad).compareAndSet(false, true)) {
+            try {
+                rellenadores.execute(() -> rellenar(dificultad));
+            } catch (RuntimeException e) {
+                rellenando.get(dificultad).set(false);
+                LOGGER.error("No se pudo programar el relleno de la reserva {}: {}", dificultad, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rellena una reserva por lotes hasta su capacidad.
+     * @param dificultad la dificultad de la reserva.
+     */
+    private void rellenar(Dificultad dificultad) {
+        BlockingQueue<Sudoku> reserva = reservas.get(dificultad);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try {
+            int faltan;
+            int descartados = 0;
+            boolean filtrar = true;
+            while ((faltan = capacidad - reserva.size()) > 0 && !Thread.currentThread().isInterrupted()) {
+                List<Sudoku> lote = new ArrayList<>(Math.min(faltan, tamanyoLote));
+                for (int i = 0; i < Math.min(faltan, tamanyoLote); i++) {
+                    lote.add(Sudoku.crear(dificultad, random));
+                }
+
+                if (filtrar) {
+                    int generados = lote.size();
+                    lote = filtro.apply(lote);
+                    descartados = lote.isEmpty() ? descartados + generados : 0;
+                    if (descartados >= capacidad) {
+                        LOGGER.warn("El filtro descarto {} sudokus {} seguidos, se rellena la reserva sin filtrar",
+                                descartados, dificultad);
+                        filtrar = false;
+                    }
+                }
+                if (!lote.isEmpty()) {
+                    destino.accept(lote);
+                }
+                for (Sudoku sudoku : lote) {
+                    if (!reserva.offer(sudoku)) {
+                        break;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al rellenar la reserva {}: {}", dificultad, e.getMessage());
+        } finally {
+            rellenando.get(dificultad).set(false);
+        }
+
+        if (reserva.size() < minimo && !Thread.currentThread().isInterrupted()) {
+            programarRelleno(dificultad);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La interfaz Resolutor define un motor capaz de resolver tableros de Sudoku cualesquiera, o de contar sus
+ * soluciones, a partir de una matriz con 0 en las celdas vacías. Cada implementación reserva sus estructuras
+ * para un tamaño de tablero y no es segura en concurrencia, por lo que cada hilo debe usar su propia instancia.
+ * {@link #para(int)} elige el motor más rápido para cada tamaño según las mediciones de ResolucionBenchmark:
+ * las máscaras de bits ganan en todos los tamaños que admiten, así que Dancing Links se usa a partir de 36x36.
+ */
+public interface Resolutor {
+
+    /**
+     * Obtiene el resolutor más rápido para un tamaño de tablero.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     * @return un resolutor nuevo para ese tamaño.
+     */
+    static Resolutor para(int tamanyo) {
+        return tamanyo <= ResolutorMascaras.TAMANYO_MAXIMO ? new ResolutorMascaras(tamanyo) : new ResolutorDLX(tamanyo);
+    }
+
+    /**
+     * Cuenta las soluciones de un tablero, deteniéndose al alcanzar el límite indicado.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. No se modifica.
+     * @param limite el número de soluciones a partir del cual se deja de buscar.
+     * @return el número de soluciones encontradas, como máximo el límite; 0 si el tablero es contradictorio.
+     */
+    default int contarSoluciones(int[][] tablero, int limite) {
+        return contarSoluciones(tablero, limite, Long.MAX_VALUE);
+    }
+
+    /**
+     * Cuenta las soluciones de un tablero sin superar un número máximo de pasos de búsqueda.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. No se modifica.
+     * @param limite el número de soluciones a partir del cual se deja de buscar.
+     * @param limitePasos el número máximo de pasos de búsqueda antes de abandonar.
+     * @return el número de soluciones encontradas, como máximo el límite; 0 si el tablero es contradictorio
+     * y -1 si se ha abandonado la búsqueda.
+     */
+    int contarSoluciones(int[][] tablero, int limite, long limitePasos);
+
+    /**
+     * Resuelve un tablero rellenando sus celdas vacías con la primera solución encontrada.
+     * No comprueba que la solución sea única; para eso está {@link #contarSoluciones(int[][], int)}.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. Si no tiene solución no se modifica.
+     * @return true si se ha encontrado una solución.
+     */
+    boolean resolver(int[][] tablero);
+
+    /**
+     * Obtiene el número de pasos dados por todas las búsquedas de este resolutor.
+     * @return el número total de pasos de búsqueda.
+     */
+    long getPasosTotales();
+}
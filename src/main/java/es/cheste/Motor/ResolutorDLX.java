@@ -0,0 +1,280 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ResolutorDLX resuelve o cuenta las soluciones de un tablero de Sudoku con el Algoritmo X de Knuth
+ * sobre Dancing Links. El Sudoku se plantea como un problema de cobertura exacta con cuatro restricciones por
+ * cada celda y número: la celda tiene un número, y el número aparece una vez en su fila, en su columna y en su caja.
+ * <p>
+ * La matriz completa, con una fila por cada número posible en cada celda, se construye una sola vez en el
+ * constructor. Los nodos no son objetos sino posiciones en arrays de enteros con sus enlaces, por lo que una
+ * instancia puede resolver muchos tableros sin crear objetos: los números dados se cubren al empezar cada
+ * búsqueda y se descubren al terminarla, dejando la matriz como estaba.
+ */
+public class ResolutorDLX implements Resolutor {
+
+    private static final int RAIZ = 0;
+    private static final int RESTRICCIONES = 4;
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final int primerNodo;
+    private final int[] izquierda;
+    private final int[] derecha;
+    private final int[] arriba;
+    private final int[] abajo;
+    private final int[] columna;
+    private final int[] tamanyos;
+    private final boolean[] cubierta;
+    private final int[] dadas;
+    private final int[] elegidas;
+    private int profundidadSolucion;
+    private long pasos;
+    private long limitePasos;
+    private long pasosTotales;
+
+    /**
+     * Constructor de la clase ResolutorDLX.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public ResolutorDLX(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (tamanyo < 1 || lado * lado != tamanyo) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        int numColumnas = RESTRICCIONES * numCeldas;
+        int numFilas = numCeldas * tamanyo;
+        int numNodos = 1 + numColumnas + RESTRICCIONES * numFilas;
+
+        this.primerNodo = 1 + numColumnas;
+        this.izquierda = new int[numNodos];
+        this.derecha = new int[numNodos];
+        this.arriba = new int[numNodos];
+        this.abajo = new int[numNodos];
+        this.columna = new int[numNodos];
+        this.tamanyos = new int[primerNodo];
+        this.cubierta = new boolean[primerNodo];
+        this.dadas = new int[numCeldas];
+        this.elegidas = new int[numCeldas];
+
+        for (int c = RAIZ; c < primerNodo; c++) {
+            izquierda[c] = c == RAIZ ? primerNodo - 1 : c - 1;
+            derecha[c] = c == primerNodo - 1 ? RAIZ : c + 1;
+            arriba[c] = c;
+            abajo[c] = c;
+            columna[c] = c;
+        }
+
+        int[] restricciones = new int[RESTRICCIONES];
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = celda / tamanyo;
+            int col = celda % tamanyo;
+            int caja = (fila / lado) * lado + col / lado;
+
+            for (int valor = 0; valor < tamanyo; valor++) {
+                restricciones[0] = 1 + celda;
+                restricciones[1] = 1 + numCeldas + fila * tamanyo + valor;
+                restricciones[2] = 1 + 2 * numCeldas + col * tamanyo + valor;
+                restricciones[3] = 1 + 3 * numCeldas + caja * tamanyo + valor;
+
+                int base = primerNodo + RESTRICCIONES * (celda * tamanyo + valor);
+                for (int k = 0; k < RESTRICCIONES; k++) {
+                    int nodo = base + k;
+                    int c = restricciones[k];
+                    izquierda[nodo] = base + (k + RESTRICCIONES - 1) % RESTRICCIONES;
+                    derecha[nodo] = base + (k + 1) % RESTRICCIONES;
+                    columna[nodo] = c;
+                    arriba[nodo] = arriba[c];
+                    abajo[nodo] = c;
+                    abajo[arriba[c]] = nodo;
+                    arriba[c] = nodo;
+                    tamanyos[c]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de columnas elegidas por todas las búsquedas de este resolutor.
+     * @return el número total de pasos de búsqueda.
+     */
+    @Override
+    public long getPasosTotales() {
+        return pasosTotales;
+    }
+
+    /**
+     * Cuenta las soluciones de un tablero sin superar un número máximo de pasos de búsqueda.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. No se modifica.
+     * @param limite el número de soluciones a partir del cual se deja de buscar.
+     * @param limitePasos el número máximo de columnas que se eligen antes de abandonar la búsqueda.
+     * @return el número de soluciones encontradas, como máximo el límite; 0 si el tablero es contradictorio
+     * y -1 si se ha abandonado la búsqueda.
+     */
+    @Override
+    public int contarSoluciones(int[][] tablero, int limite, long limitePasos) {
+        int numDadas = cargar(tablero);
+        if (numDadas < 0) {
+            return 0;
+        }
+        this.pasos = 0;
+        this.limitePasos = limitePasos;
+        int encontradas = buscar(0, limite);
+        descargar(numDadas);
+        pasosTotales += Math.min(pasos, limitePasos);
+        return pasos > limitePasos ? -1 : encontradas;
+    }
+
+    /**
+     * Resuelve un tablero rellenando sus celdas vacías con la primera solución encontrada.
+     * Al encontrarla la búsqueda se detiene sin sobrescribir las filas elegidas, por lo que las primeras
+     * posiciones de la pila de filas elegidas forman la solución.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. Si no tiene solución no se modifica.
+     * @return true si se ha encontrado una solución.
+     */
+    @Override
+    public boolean resolver(int[][] tablero) {
+        int numDadas = cargar(tablero);
+        if (numDadas < 0) {
+            return false;
+        }
+        this.pasos = 0;
+        this.limitePasos = Long.MAX_VALUE;
+        int encontradas = buscar(0, 1);
+        descargar(numDadas);
+        pasosTotales += pasos;
+        if (encontradas == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < profundidadSolucion; i++) {
+            int candidato = (elegidas[i] - primerNodo) / RESTRICCIONES;
+            int celda = candidato / tamanyo;
+            tablero[celda / tamanyo][celda % tamanyo] = candidato % tamanyo + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Cubre las columnas de los números dados del tablero.
+     * @param tablero el tablero a cargar.
+     * @return el número de números dados, o -1 si el tablero tiene números repetidos. En ese caso la matriz
+     * queda como estaba.
+     */
+    private int cargar(int[][] tablero) {
+        int numDadas = 0;
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int valor = tablero[celda / tamanyo][celda % tamanyo];
+            if (valor == 0) {
+                continue;
+            }
+
+            int base = primerNodo + RESTRICCIONES * (celda * tamanyo + valor - 1);
+            for (int k = 0; k < RESTRICCIONES; k++) {
+                if (cubierta[columna[base + k]]) {
+                    descargar(numDadas);
+                    return -1;
+                }
+            }
+            for (int k = 0; k < RESTRICCIONES; k++) {
+                cubrir(columna[base + k]);
+            }
+            dadas[numDadas++] = base;
+        }
+        return numDadas;
+    }
+
+    /**
+     * Descubre las columnas de los números dados en orden inverso al que se cubrieron.
+     * @param numDadas el número de números dados cubiertos.
+     */
+    private void descargar(int numDadas) {
+        for (int i = numDadas - 1; i >= 0; i--) {
+            for (int k = RESTRICCIONES - 1; k >= 0; k--) {
+                descubrir(columna[dadas[i] + k]);
+            }
+        }
+    }
+
+    /**
+     * Busca soluciones recursivamente eligiendo siempre la columna con menos filas.
+     * @param profundidad el número de filas elegidas hasta ahora.
+     * @param limite el número de soluciones que faltan por encontrar.
+     * @return el número de soluciones encontradas, como máximo el límite.
+     */
+    private int buscar(int profundidad, int limite) {
+        if (derecha[RAIZ] == RAIZ) {
+            profundidadSolucion = profundidad;
+            return 1;
+        }
+        if (++pasos > limitePasos) {
+            return limite;
+        }
+
+        int elegida = derecha[RAIZ];
+        for (int c = derecha[elegida]; c != RAIZ && tamanyos[elegida] > 1; c = derecha[c]) {
+            if (tamanyos[c] < tamanyos[elegida]) {
+                elegida = c;
+            }
+        }
+        if (tamanyos[elegida] == 0) {
+            return 0;
+        }
+
+        cubrir(elegida);
+        int encontradas = 0;
+        for (int fila = abajo[elegida]; fila != elegida && encontradas < limite; fila = abajo[fila]) {
+            elegidas[profundidad] = fila;
+            for (int nodo = derecha[fila]; nodo != fila; nodo = derecha[nodo]) {
+                cubrir(columna[nodo]);
+            }
+
+            encontradas += buscar(profundidad + 1, limite - encontradas);
+
+            for (int nodo = izquierda[fila]; nodo != fila; nodo = izquierda[nodo]) {
+                descubrir(columna[nodo]);
+            }
+        }
+        descubrir(elegida);
+        return encontradas;
+    }
+
+    /**
+     * Quita una columna de la cabecera y todas las filas que la cubren del resto de columnas.
+     * @param c la cabecera de la columna.
+     */
+    private void cubrir(int c) {
+        cubierta[c] = true;
+        derecha[izquierda[c]] = derecha[c];
+        izquierda[derecha[c]] = izquierda[c];
+        for (int fila = abajo[c]; fila != c; fila = abajo[fila]) {
+            for (int nodo = derecha[fila]; nodo != fila; nodo = derecha[nodo]) {
+                abajo[arriba[nodo]] = abajo[nodo];
+                arriba[abajo[nodo]] = arriba[nodo];
+                tamanyos[columna[nodo]]--;
+            }
+        }
+    }
+
+    /**
+     * Deshace {@link #cubrir(int)}, volviendo a enlazar los nodos en orden inverso.
+     * @param c la cabecera de la columna.
+     */
+    private void descubrir(int c) {
+        for (int fila = arriba[c]; fila != c; fila = arriba[fila]) {
+            for (int nodo = izquierda[fila]; nodo != fila; nodo = izquierda[nodo]) {
+                tamanyos[columna[nodo]]++;
+                abajo[arriba[nodo]] = nodo;
+                arriba[abajo[nodo]] = nodo;
+            }
+        }
+        derecha[izquierda[c]] = c;
+        izquierda[derecha[c]] = c;
+        cubierta[c] = false;
+    }
+}
@@ -0,0 +1,433 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ResolutorLogico resuelve Sudokus como lo haría una persona, aplicando siempre la técnica más
+ * sencilla que permite avanzar, y califica cada tablero por la técnica más difícil que ha necesitado.
+ * Los candidatos de cada celda se guardan como máscaras de bits y todas las estructuras se reservan en el
+ * constructor, por lo que una instancia puede calificar muchos tableros sin crear objetos.
+ */
+public class ResolutorLogico {
+
+    private static final Tecnica[] TECNICAS = {Tecnica.SIMPLE_OCULTO, Tecnica.SIMPLE_DESNUDO, Tecnica.INTERSECCION,
+            Tecnica.PAR_DESNUDO, Tecnica.PAR_OCULTO, Tecnica.X_WING};
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final int todos;
+    private final int[] filaDe;
+    private final int[] colDe;
+    private final int[] cajaDe;
+    private final int[][] unidades;
+    private final int[][] vecinos;
+    private final int[] valores;
+    private final int[] candidatos;
+    private final int[] posiciones;
+    private int pendientes;
+    private boolean contradiccion;
+
+    /**
+     * Constructor de la clase ResolutorLogico.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public ResolutorLogico(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (lado * lado != tamanyo || tamanyo > 31) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.todos = (1 << tamanyo) - 1;
+        this.filaDe = new int[numCeldas];
+        this.colDe = new int[numCeldas];
+        this.cajaDe = new int[numCeldas];
+        this.unidades = new int[3 * tamanyo][tamanyo];
+        this.vecinos = new int[numCeldas][];
+        this.valores = new int[numCeldas];
+        this.candidatos = new int[numCeldas];
+        this.posiciones = new int[tamanyo];
+
+        int[] ocupadas = new int[3 * tamanyo];
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = celda / tamanyo;
+            int col = celda % tamanyo;
+            int caja = (fila / lado) * lado + col / lado;
+            filaDe[celda] = fila;
+            colDe[celda] = col;
+            cajaDe[celda] = caja;
+            unidades[fila][ocupadas[fila]++] = celda;
+            unidades[tamanyo + col][ocupadas[tamanyo + col]++] = celda;
+            unidades[2 * tamanyo + caja][ocupadas[2 * tamanyo + caja]++] = celda;
+        }
+
+        int numVecinos = 3 * (tamanyo - 1) - 2 * (lado - 1);
+        for (int celda = 0; celda < numCeldas; celda++) {
+            vecinos[celda] = new int[numVecinos];
+            int n = 0;
+            for (int otra = 0; otra < numCeldas; otra++) {
+                if (otra != celda && (filaDe[otra] == filaDe[celda] || colDe[otra] == colDe[celda]
+                        || cajaDe[otra] == cajaDe[celda])) {
+                    vecinos[celda][n++] = otra;
+                }
+            }
+        }
+    }
+
+    /**
+     * Califica un tablero según la técnica más difícil necesaria para resolverlo.
+     * Se supone que el tablero tiene una única solución.
+     * @param tablero el tablero a calificar, con 0 en las celdas vacías. No se modifica.
+     * @return la técnica más difícil necesaria, {@link Tecnica#PRUEBA_Y_ERROR} si la lógica no basta,
+     *         o null si el tablero es contradictorio.
+     */
+    public Tecnica calificar(int[][] tablero) {
+        if (!cargar(tablero)) {
+            return null;
+        }
+
+        Tecnica maxima = Tecnica.SIMPLE_OCULTO;
+
+        while (pendientes > 0) {
+            Tecnica aplicada = null;
+            for (Tecnica tecnica : TECNICAS) {
+                if (aplicar(tecnica)) {
+                    aplicada = tecnica;
+                    break;
+                }
+            }
+
+            if (contradiccion) {
+                return null;
+            }
+            if (aplicada == null) {
+                return Tecnica.PRUEBA_Y_ERROR;
+            }
+            if (aplicada.ordinal() > maxima.ordinal()) {
+                maxima = aplicada;
+            }
+        }
+        return maxima;
+    }
+
+    /**
+     * Carga un tablero y calcula los candidatos de cada celda.
+     * @param tablero el tablero a cargar.
+     * @return false si el tablero tiene números repetidos en alguna unidad.
+     */
+    private boolean cargar(int[][] tablero) {
+        contradiccion = false;
+        pendientes = numCeldas;
+
+        for (int celda = 0; celda < numCeldas; celda++) {
+            valores[celda] = 0;
+            candidatos[celda] = todos;
+        }
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int valor = tablero[filaDe[celda]][colDe[celda]];
+            if (valor != 0) {
+                int bit = 1 << (valor - 1);
+                if ((candidatos[celda] & bit) == 0) {
+                    return false;
+                }
+                colocar(celda, bit);
+            }
+        }
+        return !contradiccion;
+    }
+
+    /**
+     * Aplica una técnica en todo el tablero.
+     * @param tecnica la técnica a aplicar.
+     * @return true si se ha colocado algún número o eliminado algún candidato.
+     */
+    private boolean aplicar(Tecnica tecnica) {
+        return switch (tecnica) {
+            case SIMPLE_OCULTO -> simplesOcultos();
+            case SIMPLE_DESNUDO -> simplesDesnudos();
+            case INTERSECCION -> intersecciones();
+            case PAR_DESNUDO -> paresDesnudos();
+            case PAR_OCULTO -> paresOcultos();
+            case X_WING -> xWing();
+            case PRUEBA_Y_ERROR -> false;
+        };
+    }
+
+    /**
+     * Coloca los números que solo caben en una celda de alguna unidad.
+     * @return true si se ha colocado algún número.
+     */
+    private boolean simplesOcultos() {
+        boolean progreso = false;
+
+        for (int[] unidad : unidades) {
+            int una = 0;
+            int varias = 0;
+            for (int celda : unidad) {
+                varias |= una & candidatos[celda];
+                una |= candidatos[celda];
+            }
+            una &= ~varias;
+
+            while (una != 0) {
+                int bit = Integer.lowestOneBit(una);
+                una ^= bit;
+                for (int celda : unidad) {
+                    if ((candidatos[celda] & bit) != 0) {
+                        colocar(celda, bit);
+                        progreso = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Coloca el número de las celdas que solo tienen un candidato.
+     * @return true si se ha colocado algún número.
+     */
+    private boolean simplesDesnudos() {
+        boolean progreso = false;
+
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int mascara = candidatos[celda];
+            if (valores[celda] == 0 && mascara != 0 && (mascara & (mascara - 1)) == 0) {
+                colocar(celda, mascara);
+                progreso = true;
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Aplica las intersecciones entre cajas y líneas: si un número de una caja solo está en una fila o columna,
+     * se elimina del resto de esa línea; si un número de una línea solo está en una caja, se elimina del resto
+     * de la caja.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean intersecciones() {
+        boolean progreso = false;
+
+        for (int caja = 0; caja < tamanyo; caja++) {
+            int[] unidad = unidades[2 * tamanyo + caja];
+            for (int bit = 1; bit <= todos; bit <<= 1) {
+                int filas = 0;
+                int cols = 0;
+                for (int celda : unidad) {
+                    if ((candidatos[celda] & bit) != 0) {
+                        filas |= 1 << filaDe[celda];
+                        cols |= 1 << colDe[celda];
+                    }
+                }
+                if (Integer.bitCount(filas) == 1) {
+                    progreso |= eliminarFueraDeCaja(unidades[Integer.numberOfTrailingZeros(filas)], caja, bit);
+                }
+                if (Integer.bitCount(cols) == 1) {
+                    progreso |= eliminarFueraDeCaja(unidades[tamanyo + Integer.numberOfTrailingZeros(cols)], caja, bit);
+                }
+            }
+        }
+
+        for (int u = 0; u < 2 * tamanyo; u++) {
+            for (int bit = 1; bit <= todos; bit <<= 1) {
+                int cajas = 0;
+                for (int celda : unidades[u]) {
+                    if ((candidatos[celda] & bit) != 0) {
+                        cajas |= 1 << cajaDe[celda];
+                    }
+                }
+                if (Integer.bitCount(cajas) == 1) {
+                    for (int celda : unidades[2 * tamanyo + Integer.numberOfTrailingZeros(cajas)]) {
+                        if (!estaEnUnidad(celda, u)) {
+                            progreso |= eliminar(celda, bit);
+                        }
+                    }
+                }
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Elimina los pares desnudos: dos celdas de una unidad con los mismos dos candidatos.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean paresDesnudos() {
+        boolean progreso = false;
+
+        for (int[] unidad : unidades) {
+            for (int i = 0; i < tamanyo; i++) {
+                int par = candidatos[unidad[i]];
+                if (Integer.bitCount(par) != 2) {
+                    continue;
+                }
+                for (int j = i + 1; j < tamanyo; j++) {
+                    if (candidatos[unidad[j]] == par) {
+                        for (int k = 0; k < tamanyo; k++) {
+                            if (k != i && k != j) {
+                                progreso |= eliminar(unidad[k], par);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Elimina los pares ocultos: dos números que en una unidad solo caben en las mismas dos celdas.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean paresOcultos() {
+        boolean progreso = false;
+
+        for (int[] unidad : unidades) {
+            calcularPosiciones(unidad);
+            for (int d1 = 0; d1 < tamanyo; d1++) {
+                if (Integer.bitCount(posiciones[d1]) != 2) {
+                    continue;
+                }
+                for (int d2 = d1 + 1; d2 < tamanyo; d2++) {
+                    if (posiciones[d2] == posiciones[d1]) {
+                        int par = (1 << d1) | (1 << d2);
+                        for (int indices = posiciones[d1]; indices != 0; indices &= indices - 1) {
+                            int celda = unidad[Integer.numberOfTrailingZeros(indices)];
+                            progreso |= eliminar(celda, candidatos[celda] & ~par);
+                        }
+                    }
+                }
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Aplica el X-Wing por filas y por columnas.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean xWing() {
+        return xWing(0, tamanyo) || xWing(tamanyo, 0);
+    }
+
+    /**
+     * Aplica el X-Wing tomando como base un tipo de línea: si un número solo está en las mismas dos posiciones
+     * de dos líneas base, se elimina de esas posiciones en las demás líneas base.
+     * @param base el índice de la primera unidad base (0 para filas, tamaño para columnas).
+     * @param cruce el índice de la primera unidad que cruza las bases.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean xWing(int base, int cruce) {
+        boolean progreso = false;
+
+        for (int bit = 1; bit <= todos; bit <<= 1) {
+            for (int l = 0; l < tamanyo; l++) {
+                posiciones[l] = 0;
+                for (int k = 0; k < tamanyo; k++) {
+                    if ((candidatos[unidades[base + l][k]] & bit) != 0) {
+                        posiciones[l] |= 1 << k;
+                    }
+                }
+            }
+
+            for (int l1 = 0; l1 < tamanyo; l1++) {
+                if (Integer.bitCount(posiciones[l1]) != 2) {
+                    continue;
+                }
+                for (int l2 = l1 + 1; l2 < tamanyo; l2++) {
+                    if (posiciones[l2] != posiciones[l1]) {
+                        continue;
+                    }
+                    for (int indices = posiciones[l1]; indices != 0; indices &= indices - 1) {
+                        for (int celda : unidades[cruce + Integer.numberOfTrailingZeros(indices)]) {
+                            int linea = base == 0 ? filaDe[celda] : colDe[celda];
+                            if (linea != l1 && linea != l2) {
+                                progreso |= eliminar(celda, bit);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Calcula, para cada número, la máscara de posiciones de la unidad donde es candidato.
+     * @param unidad las celdas de la unidad.
+     */
+    private void calcularPosiciones(int[] unidad) {
+        for (int d = 0; d < tamanyo; d++) {
+            posiciones[d] = 0;
+        }
+        for (int k = 0; k < tamanyo; k++) {
+            for (int mascara = candidatos[unidad[k]]; mascara != 0; mascara &= mascara - 1) {
+                posiciones[Integer.numberOfTrailingZeros(mascara)] |= 1 << k;
+            }
+        }
+    }
+
+    /**
+     * Elimina un candidato de las celdas de una línea que no pertenecen a una caja.
+     * @param linea las celdas de la línea.
+     * @param caja la caja que se respeta.
+     * @param bit el candidato a eliminar.
+     * @return true si se ha eliminado algún candidato.
+     */
+    private boolean eliminarFueraDeCaja(int[] linea, int caja, int bit) {
+        boolean progreso = false;
+        for (int celda : linea) {
+            if (cajaDe[celda] != caja) {
+                progreso |= eliminar(celda, bit);
+            }
+        }
+        return progreso;
+    }
+
+    /**
+     * Indica si una celda pertenece a una fila o columna.
+     * @param celda el índice de la celda.
+     * @param unidad el índice de la unidad, menor que dos veces el tamaño.
+     * @return true si la celda está en la unidad.
+     */
+    private boolean estaEnUnidad(int celda, int unidad) {
+        return unidad < tamanyo ? filaDe[celda] == unidad : colDe[celda] == unidad - tamanyo;
+    }
+
+    /**
+     * Elimina candidatos de una celda vacía.
+     * @param celda el índice de la celda.
+     * @param mascara los candidatos a eliminar.
+     * @return true si la celda tenía alguno de esos candidatos.
+     */
+    private boolean eliminar(int celda, int mascara) {
+        if ((candidatos[celda] & mascara) == 0) {
+            return false;
+        }
+        candidatos[celda] &= ~mascara;
+        if (candidatos[celda] == 0 && valores[celda] == 0) {
+            contradiccion = true;
+        }
+        return true;
+    }
+
+    /**
+     * Coloca un número en una celda y lo elimina de los candidatos de sus vecinas.
+     * @param celda el índice de la celda.
+     * @param bit el bit del número a colocar.
+     */
+    private void colocar(int celda, int bit) {
+        valores[celda] = Integer.numberOfTrailingZeros(bit) + 1;
+        candidatos[celda] = 0;
+        pendientes--;
+        for (int vecina : vecinos[celda]) {
+            if (valores[vecina] == 0) {
+                eliminar(vecina, bit);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ResolutorMascaras resuelve o cuenta las soluciones de un tablero de Sudoku mediante backtracking sobre
+ * máscaras de bits, eligiendo siempre la celda vacía con menos candidatos o, si lo hay, un número que solo
+ * cabe en una celda de su fila, columna o caja. Esto último solo se busca en tableros mayores de 9x9, donde
+ * compensa su coste y evita que la búsqueda se dispare.
+ * Todas las estructuras se reservan en el constructor, por lo que una misma instancia puede reutilizarse
+ * para comprobar muchos tableros sin crear objetos.
+ */
+public class ResolutorMascaras implements Resolutor {
+
+    /**
+     * El tamaño de tablero máximo, limitado por los bits de las máscaras.
+     */
+    public static final int TAMANYO_MAXIMO = 31;
+
+    private static final int TAMANYO_SIN_UNICOS = 9;
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final int todos;
+    private final int[] filaDe;
+    private final int[] colDe;
+    private final int[] cajaDe;
+    private final int[] mascaraFilas;
+    private final int[] mascaraCols;
+    private final int[] mascaraCajas;
+    private final int[] vacias;
+    private final boolean buscarUnicos;
+    private final int[] candidatosVacias;
+    private final int[] una;
+    private final int[] dos;
+    private final int[] valores;
+    private long pasos;
+    private long limitePasos;
+    private long pasosTotales;
+
+    /**
+     * Constructor de la clase ResolutorMascaras.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public ResolutorMascaras(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (lado * lado != tamanyo || tamanyo > TAMANYO_MAXIMO) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.todos = (1 << tamanyo) - 1;
+        this.filaDe = new int[numCeldas];
+        this.colDe = new int[numCeldas];
+        this.cajaDe = new int[numCeldas];
+        this.mascaraFilas = new int[tamanyo];
+        this.mascaraCols = new int[tamanyo];
+        this.mascaraCajas = new int[tamanyo];
+        this.vacias = new int[numCeldas];
+        this.buscarUnicos = tamanyo > TAMANYO_SIN_UNICOS;
+        this.candidatosVacias = new int[numCeldas];
+        this.una = new int[3 * tamanyo];
+        this.dos = new int[3 * tamanyo];
+        this.valores = new int[numCeldas];
+
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int fila = celda / tamanyo;
+            int col = celda % tamanyo;
+            filaDe[celda] = fila;
+            colDe[celda] = col;
+            cajaDe[celda] = (fila / lado) * lado + col / lado;
+        }
+    }
+
+    /**
+     * Obtiene el número de celdas probadas por todas las búsquedas de este resolutor.
+     * @return el número total de pasos de búsqueda.
+     */
+    @Override
+    public long getPasosTotales() {
+        return pasosTotales;
+    }
+
+    /**
+     * Cuenta las soluciones de un tablero sin superar un número máximo de pasos de búsqueda.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. No se modifica.
+     * @param limite el número de soluciones a partir del cual se deja de buscar.
+     * @param limitePasos el número máximo de celdas que se prueban antes de abandonar la búsqueda.
+     * @return el número de soluciones encontradas, como máximo el límite; 0 si el tablero es contradictorio
+     * y -1 si se ha abandonado la búsqueda.
+     */
+    @Override
+    public int contarSoluciones(int[][] tablero, int limite, long limitePasos) {
+        int pendientes = cargar(tablero);
+        if (pendientes < 0) {
+            return 0;
+        }
+        this.pasos = 0;
+        this.limitePasos = limitePasos;
+        int encontradas = buscar(pendientes, limite);
+        pasosTotales += Math.min(pasos, limitePasos);
+        return pasos > limitePasos ? -1 : encontradas;
+    }
+
+    /**
+     * Resuelve un tablero rellenando sus celdas vacías con la primera solución encontrada.
+     * Al encontrarla la búsqueda se detiene sin deshacer los números elegidos, por lo que el último número
+     * probado en cada celda vacía es el de la solución.
+     * @param tablero el tablero a resolver, con 0 en las celdas vacías. Si no tiene solución no se modifica.
+     * @return true si se ha encontrado una solución.
+     */
+    @Override
+    public boolean resolver(int[][] tablero) {
+        int pendientes = cargar(tablero);
+        if (pendientes < 0) {
+            return false;
+        }
+        this.pasos = 0;
+        this.limitePasos = Long.MAX_VALUE;
+        int encontradas = buscar(pendientes, 1);
+        pasosTotales += pasos;
+        if (encontradas == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < pendientes; i++) {
+            int celda = vacias[i];
+            tablero[filaDe[celda]][colDe[celda]] = valores[celda];
+        }
+        return true;
+    }
+
+    /**
+     * Carga un tablero en las máscaras internas.
+     * @param tablero el tablero a cargar.
+     * @return el número de celdas vacías, o -1 si el tablero tiene números repetidos.
+     */
+    private int cargar(int[][] tablero) {
+        for (int i = 0; i < tamanyo; i++) {
+            mascaraFilas[i] = 0;
+            mascaraCols[i] = 0;
+            mascaraCajas[i] = 0;
+        }
+
+        int pendientes = 0;
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int valor = tablero[filaDe[celda]][colDe[celda]];
+            if (valor == 0) {
+                vacias[pendientes++] = celda;
+                continue;
+            }
+
+            int bit = 1 << (valor - 1);
+            if (((mascaraFilas[filaDe[celda]] | mascaraCols[colDe[celda]] | mascaraCajas[cajaDe[celda]]) & bit) != 0) {
+                return -1;
+            }
+            mascaraFilas[filaDe[celda]] |= bit;
+            mascaraCols[colDe[celda]] |= bit;
+            mascaraCajas[cajaDe[celda]] |= bit;
+        }
+        return pendientes;
+    }
+
+    /**
+     * Busca soluciones recursivamente rellenando primero la celda más restringida.
+     * @param pendientes el número de celdas vacías que quedan al principio de la lista de vacías.
+     * @param limite el número de soluciones que faltan por encontrar.
+     * @return el número de soluciones encontradas, como máximo el límite.
+     */
+    private int buscar(int pendientes, int limite) {
+        if (pendientes == 0) {
+            return 1;
+        }
+        if (++pasos > limitePasos) {
+            return limite;
+        }
+
+        if (buscarUnicos) {
+            for (int u = 0; u < una.length; u++) {
+                una[u] = 0;
+                dos[u] = 0;
+            }
+        }
+
+        int mejorPos = 0;
+        int mejorCandidatos = 0;
+        int mejorCuenta = Integer.MAX_VALUE;
+
+        for (int i = 0; i < pendientes; i++) {
+            int celda = vacias[i];
+            int candidatos = todos & ~(mascaraFilas[filaDe[celda]] | mascaraCols[colDe[celda]] | mascaraCajas[cajaDe[celda]]);
+            int cuenta = Integer.bitCount(candidatos);
+            if (cuenta < mejorCuenta) {
+                if (cuenta == 0) {
+                    return 0;
+                }
+                mejorPos = i;
+                mejorCandidatos = candidatos;
+                mejorCuenta = cuenta;
+                if (cuenta == 1) {
+                    break;
+                }
+            }
+            if (!buscarUnicos) {
+                continue;
+            }
+            candidatosVacias[i] = candidatos;
+            acumular(filaDe[celda], candidatos);
+            acumular(tamanyo + colDe[celda], candidatos);
+            acumular(2 * tamanyo + cajaDe[celda], candidatos);
+        }
+
+        if (buscarUnicos && mejorCuenta > 1) {
+            for (int u = 0; u < una.length; u++) {
+                int libres = todos & ~colocados(u);
+                if ((libres & ~una[u]) != 0) {
+                    return 0;
+                }
+                int unicos = una[u] & ~dos[u] & libres;
+                if (unicos != 0) {
+                    int bit = Integer.lowestOneBit(unicos);
+                    for (int i = 0; i < pendientes; i++) {
+                        if ((candidatosVacias[i] & bit) != 0 && estaEnUnidad(vacias[i], u)) {
+                            mejorPos = i;
+                            mejorCandidatos = bit;
+                            break;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        int celda = vacias[mejorPos];
+        vacias[mejorPos] = vacias[pendientes - 1];
+        vacias[pendientes - 1] = celda;
+
+        int fila = filaDe[celda];
+        int col = colDe[celda];
+        int caja = cajaDe[celda];
+        int encontradas = 0;
+
+        while (mejorCandidatos != 0 && encontradas < limite) {
+            int bit = Integer.lowestOneBit(mejorCandidatos);
+            mejorCandidatos ^= bit;
+
+            mascaraFilas[fila] |= bit;
+            mascaraCols[col] |= bit;
+            mascaraCajas[caja] |= bit;
+            valores[celda] = Integer.numberOfTrailingZeros(bit) + 1;
+
+            encontradas += buscar(pendientes - 1, limite - encontradas);
+
+            mascaraFilas[fila] &= ~bit;
+            mascaraCols[col] &= ~bit;
+            mascaraCajas[caja] &= ~bit;
+        }
+        return encontradas;
+    }
+
+    /**
+     * Anota los candidatos de una celda vacía en los contadores de su unidad.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @param candidatos la máscara de candidatos de la celda.
+     */
+    private void acumular(int unidad, int candidatos) {
+        dos[unidad] |= una[unidad] & candidatos;
+        una[unidad] |= candidatos;
+    }
+
+    /**
+     * Obtiene la máscara de números ya colocados en una unidad.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @return la máscara de números colocados.
+     */
+    private int colocados(int unidad) {
+        if (unidad < tamanyo) {
+            return mascaraFilas[unidad];
+        }
+        if (unidad < 2 * tamanyo) {
+            return mascaraCols[unidad - tamanyo];
+        }
+        return mascaraCajas[unidad - 2 * tamanyo];
+    }
+
+    /**
+     * Indica si una celda pertenece a una unidad.
+     * @param celda el índice de la celda.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @return true si la celda pertenece a la unidad.
+     */
+    private boolean estaEnUnidad(int celda, int unidad) {
+        if (unidad < tamanyo) {
+            return filaDe[celda] == unidad;
+        }
+        if (unidad < 2 * tamanyo) {
+            return colDe[celda] == unidad - tamanyo;
+        }
+        return cajaDe[celda] == unidad - 2 * tamanyo;
+    }
+}
@@ -0,0 +1,305 @@
+package es.cheste.Motor;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase TableroCandidatos mantiene el tablero de un jugador junto con los candidatos de cada celda,
+ * las celdas en conflicto y los simples desnudos y ocultos disponibles, actualizándolos jugada a jugada.
+ * <p>
+ * Cada jugada solo recalcula las celdas de su fila, su columna y su caja, por lo que cuesta lo mismo
+ * con el tablero vacío que casi lleno. A cambio, las consultas no recorren el tablero: los candidatos
+ * de una celda y si está en conflicto se leen directamente, y los conflictos y el siguiente paso se
+ * obtienen de conjuntos de bits. No es segura en concurrencia.
+ */
+public class TableroCandidatos {
+
+    private final int tamanyo;
+    private final int lado;
+    private final int todos;
+    private final byte[] valores;
+    private final int[] candidatos;
+    private final int[] cuentas;
+    private final int[] colocados;
+    private final int[] posibles;
+    private final long[] conflictos;
+    private final long[] desnudos;
+    private final long[] ocultos;
+    private int numConflictos;
+
+    /**
+     * Constructor de la clase TableroCandidatos. Crea un tablero vacío.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     */
+    public TableroCandidatos(int tamanyo) {
+        int lado = (int) Math.round(Math.sqrt(tamanyo));
+        if (tamanyo < 1 || lado * lado != tamanyo || tamanyo > ResolutorMascaras.TAMANYO_MAXIMO) {
+            throw new IllegalArgumentException("Tamaño de tablero no soportado: " + tamanyo);
+        }
+
+        int numCeldas = tamanyo * tamanyo;
+        int numUnidades = 3 * tamanyo;
+        this.tamanyo = tamanyo;
+        this.lado = lado;
+        this.todos = (1 << tamanyo) - 1;
+        this.valores = new byte[numCeldas];
+        this.candidatos = new int[numCeldas];
+        this.cuentas = new int[numUnidades * tamanyo];
+        this.colocados = new int[numUnidades];
+        this.posibles = new int[numUnidades * tamanyo];
+        this.conflictos = new long[(numCeldas + 63) >>> 6];
+        this.desnudos = new long[(numCeldas + 63) >>> 6];
+        this.ocultos = new long[(numUnidades * tamanyo + 63) >>> 6];
+
+        for (int celda = 0; celda < numCeldas; celda++) {
+            candidatos[celda] = todos;
+            marcar(desnudos, celda, tamanyo == 1);
+        }
+        for (int i = 0; i < posibles.length; i++) {
+            posibles[i] = tamanyo;
+            marcar(ocultos, i, tamanyo == 1);
+        }
+    }
+
+    /**
+     * Constructor de la clase TableroCandidatos. Crea una copia de otro tablero, que después se actualiza por
+     * separado.
+     * @param origen el tablero a copiar.
+     */
+    public TableroCandidatos(TableroCandidatos origen) {
+        this.tamanyo = origen.tamanyo;
+        this.lado = origen.lado;
+        this.todos = origen.todos;
+        this.valores = origen.valores.clone();
+        this.candidatos = origen.candidatos.clone();
+        this.cuentas = origen.cuentas.clone();
+        this.colocados = origen.colocados.clone();
+        this.posibles = origen.posibles.clone();
+        this.conflictos = origen.conflictos.clone();
+        this.desnudos = origen.desnudos.clone();
+        this.ocultos = origen.ocultos.clone();
+        this.numConflictos = origen.numConflictos;
+    }
+
+    /**
+     * Obtiene el número de una celda.
+     * @param celda el índice de la celda, por filas.
+     * @return el número de la celda, o 0 si está vacía.
+     */
+    public int get(int celda) {
+        return valores[celda];
+    }
+
+    /**
+     * Pone un número en una celda y actualiza las celdas de su fila, su columna y su caja.
+     * @param celda el índice de la celda, por filas.
+     * @param valor el número a poner, o 0 para vaciarla.
+     */
+    public void poner(int celda, int valor) {
+        int anterior = valores[celda];
+        if (anterior == valor) {
+            return;
+        }
+
+        int fila = celda / tamanyo;
+        int col = celda % tamanyo;
+        int caja = (fila / lado) * lado + col / lado;
+
+        valores[celda] = (byte) valor;
+        contar(fila, anterior, valor);
+        contar(tamanyo + col, anterior, valor);
+        contar(2 * tamanyo + caja, anterior, valor);
+        refrescarUnidad(fila, anterior, valor);
+        refrescarUnidad(tamanyo + col, anterior, valor);
+        refrescarUnidad(2 * tamanyo + caja, anterior, valor);
+    }
+
+    /**
+     * Obtiene los candidatos de una celda vacía: los números que no están ya en su fila, su columna ni su caja.
+     * @param celda el índice de la celda, por filas.
+     * @return la máscara de candidatos, con el bit {@code n - 1} para el número {@code n}; 0 si la celda está llena.
+     */
+    public int getCandidatos(int celda) {
+        return candidatos[celda];
+    }
+
+    /**
+     * Indica si el número de una celda se repite en su fila, su columna o su caja.
+     * @param celda el índice de la celda, por filas.
+     * @return true si la celda está en conflicto.
+     */
+    public boolean estaEnConflicto(int celda) {
+        return (conflictos[celda >>> 6] & (1L << celda)) != 0;
+    }
+
+    /**
+     * Obtiene el número de celdas en conflicto.
+     * @return el número de celdas cuyo número se repite en alguna de sus unidades.
+     */
+    public int getNumConflictos() {
+        return numConflictos;
+    }
+
+    /**
+     * Obtiene las celdas en conflicto.
+     * @return los índices de las celdas cuyo número se repite en alguna de sus unidades, por filas y en orden.
+     */
+    public int[] getConflictos() {
+        int[] celdas = new int[numConflictos];
+        int n = 0;
+        for (int p = 0; p < conflictos.length; p++) {
+            long bits = conflictos[p];
+            while (bits != 0) {
+                celdas[n++] = (p << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return celdas;
+    }
+
+    /**
+     * Obtiene el siguiente paso lógico, buscando primero un número que solo cabe en una celda de alguna
+     * unidad y después una celda con un solo candidato, en el mismo orden que {@link ResolutorLogico}.
+     * @return la pista con el siguiente paso, o null si hay conflictos o ningún simple permite avanzar.
+     */
+    public Pista siguientePaso() {
+        if (numConflictos > 0) {
+            return null;
+        }
+
+        for (int p = 0; p < ocultos.length; p++) {
+            if (ocultos[p] != 0) {
+                int i = (p << 6) + Long.numberOfTrailingZeros(ocultos[p]);
+                int unidad = i / tamanyo;
+                int bit = 1 << (i % tamanyo);
+                for (int j = 0; j < tamanyo; j++) {
+                    int celda = celdaDe(unidad, j);
+                    if ((candidatos[celda] & bit) != 0) {
+                        return new Pista(celda, i % tamanyo + 1, Tecnica.SIMPLE_OCULTO);
+                    }
+                }
+            }
+        }
+
+        for (int p = 0; p < desnudos.length; p++) {
+            if (desnudos[p] != 0) {
+                int celda = (p << 6) + Long.numberOfTrailingZeros(desnudos[p]);
+                return new Pista(celda, Integer.numberOfTrailingZeros(candidatos[celda]) + 1, Tecnica.SIMPLE_DESNUDO);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cambia un número por otro en los contadores de una unidad.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @param anterior el número que se quita, o 0.
+     * @param valor el número que se pone, o 0.
+     */
+    private void contar(int unidad, int anterior, int valor) {
+        if (anterior != 0 && --cuentas[unidad * tamanyo + anterior - 1] == 0) {
+            colocados[unidad] &= ~(1 << (anterior - 1));
+        }
+        if (valor != 0 && cuentas[unidad * tamanyo + valor - 1]++ == 0) {
+            colocados[unidad] |= 1 << (valor - 1);
+        }
+    }
+
+    /**
+     * Recalcula todas las celdas de una unidad después de cambiar uno de sus números.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @param anterior el número que se ha quitado, o 0.
+     * @param valor el número que se ha puesto, o 0.
+     */
+    private void refrescarUnidad(int unidad, int anterior, int valor) {
+        for (int i = 0; i < tamanyo; i++) {
+            refrescar(celdaDe(unidad, i));
+        }
+        if (anterior != 0) {
+            actualizarOculto(unidad, anterior - 1);
+        }
+        if (valor != 0) {
+            actualizarOculto(unidad, valor - 1);
+        }
+    }
+
+    /**
+     * Recalcula los candidatos de una celda y si está en conflicto, y anota los cambios en sus unidades.
+     * @param celda el índice de la celda, por filas.
+     */
+    private void refrescar(int celda) {
+        int fila = celda / tamanyo;
+        int col = celda % tamanyo;
+        int caja = (fila / lado) * lado + col / lado;
+        int valor = valores[celda];
+
+        boolean conflicto = valor != 0 && (cuentas[fila * tamanyo + valor - 1] > 1
+                || cuentas[(tamanyo + col) * tamanyo + valor - 1] > 1
+                || cuentas[(2 * tamanyo + caja) * tamanyo + valor - 1] > 1);
+        if (conflicto != estaEnConflicto(celda)) {
+            marcar(conflictos, celda, conflicto);
+            numConflictos += conflicto ? 1 : -1;
+        }
+
+        int nuevos = valor != 0 ? 0
+                : todos & ~(colocados[fila] | colocados[tamanyo + col] | colocados[2 * tamanyo + caja]);
+        int cambios = nuevos ^ candidatos[celda];
+        if (cambios == 0) {
+            return;
+        }
+
+        candidatos[celda] = nuevos;
+        marcar(desnudos, celda, Integer.bitCount(nuevos) == 1);
+        while (cambios != 0) {
+            int numero = Integer.numberOfTrailingZeros(cambios);
+            int diferencia = (nuevos & (1 << numero)) != 0 ? 1 : -1;
+            cambios &= cambios - 1;
+
+            posibles[fila * tamanyo + numero] += diferencia;
+            posibles[(tamanyo + col) * tamanyo + numero] += diferencia;
+            posibles[(2 * tamanyo + caja) * tamanyo + numero] += diferencia;
+            actualizarOculto(fila, numero);
+            actualizarOculto(tamanyo + col, numero);
+            actualizarOculto(2 * tamanyo + caja, numero);
+        }
+    }
+
+    /**
+     * Anota si un número que todavía no está en una unidad solo cabe en una de sus celdas.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @param numero el número menos uno.
+     */
+    private void actualizarOculto(int unidad, int numero) {
+        int i = unidad * tamanyo + numero;
+        marcar(ocultos, i, posibles[i] == 1 && (colocados[unidad] & (1 << numero)) == 0);
+    }
+
+    /**
+     * Obtiene una celda de una unidad.
+     * @param unidad el índice de la unidad: filas, después columnas y después cajas.
+     * @param i la posición de la celda dentro de la unidad.
+     * @return el índice de la celda, por filas.
+     */
+    private int celdaDe(int unidad, int i) {
+        if (unidad < tamanyo) {
+            return unidad * tamanyo + i;
+        }
+        if (unidad < 2 * tamanyo) {
+            return i * tamanyo + unidad - tamanyo;
+        }
+        int caja = unidad - 2 * tamanyo;
+        return ((caja / lado) * lado + i / lado) * tamanyo + (caja % lado) * lado + i % lado;
+    }
+
+    /**
+     * Pone o quita un bit de un conjunto de bits.
+     * @param bits el conjunto de bits.
+     * @param i la posición del bit.
+     * @param valor true para ponerlo y false para quitarlo.
+     */
+    private static void marcar(long[] bits, int i, boolean valor) {
+        if (valor) {
+            bits[i >>> 6] |= 1L << i;
+        } else bits[i >>> 6] &= ~(1L << i);
+    }
+}
@@ -0,0 +1,46 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.Dificultad;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La enumeración Tecnica recoge las técnicas de resolución que aplica {@link ResolutorLogico},
+ * ordenadas de más fácil a más difícil, y la dificultad que corresponde a cada una.
+ */
+public enum Tecnica {
+
+    /** Un número solo cabe en una celda de una fila, columna o caja. */
+    SIMPLE_OCULTO(Dificultad.FACIL),
+    /** Una celda solo admite un número. */
+    SIMPLE_DESNUDO(Dificultad.FACIL),
+    /** Un número de una caja está en una sola fila o columna, o al revés. */
+    INTERSECCION(Dificultad.MEDIO),
+    /** Dos celdas de una unidad admiten solo los mismos dos números. */
+    PAR_DESNUDO(Dificultad.MEDIO),
+    /** Dos números de una unidad solo caben en las mismas dos celdas. */
+    PAR_OCULTO(Dificultad.MEDIO),
+    /** Un número ocupa las mismas dos columnas en dos filas, o al revés. */
+    X_WING(Dificultad.DIFICIL),
+    /** El tablero no se puede terminar con las técnicas anteriores. */
+    PRUEBA_Y_ERROR(Dificultad.DIFICIL);
+
+    private final Dificultad dificultad;
+
+    /**
+     * Constructor de la enumeración Tecnica.
+     * @param dificultad la dificultad de un Sudoku que necesita esta técnica.
+     */
+    Tecnica(Dificultad dificultad) {
+        this.dificultad = dificultad;
+    }
+
+    /**
+     * Obtiene la dificultad de un Sudoku cuya técnica más difícil es esta.
+     * @return la dificultad correspondiente.
+     */
+    public Dificultad getDificultad() {
+        return dificultad;
+    }
+}
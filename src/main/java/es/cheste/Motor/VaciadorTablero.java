@@ -0,0 +1,146 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.Dificultad;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase VaciadorTablero vacía celdas de un tablero resuelto garantizando que el Sudoku resultante
+ * sigue teniendo una única solución.
+ * <p>
+ * Cada comprobación tiene un límite de pasos proporcional al tablero: si la búsqueda lo supera, la celda
+ * se conserva. Así la solución sigue siendo única y los tableros grandes no se quedan atascados en una celda.
+ */
+public class VaciadorTablero {
+
+    private static final int PASOS_POR_CELDA = 8;
+
+    private final int tamanyo;
+    private final int[] orden;
+    private final ResolutorMascaras resolutor;
+    private final RandomGenerator random;
+    private final long limitePasos;
+    private long comprobaciones;
+    private long abandonadas;
+
+    /**
+     * Constructor de la clase VaciadorTablero.
+     * @param tamanyo el tamaño del tablero.
+     * @param random el generador de números aleatorios a utilizar.
+     */
+    public VaciadorTablero(int tamanyo, RandomGenerator random) {
+        this.tamanyo = tamanyo;
+        this.orden = new int[tamanyo * tamanyo];
+        this.resolutor = new ResolutorMascaras(tamanyo);
+        this.random = random;
+        this.limitePasos = (long) PASOS_POR_CELDA * orden.length;
+    }
+
+    /**
+     * Obtiene el número de comprobaciones de solución única realizadas por este vaciador.
+     * @return el número de comprobaciones.
+     */
+    public long getComprobaciones() {
+        return comprobaciones;
+    }
+
+    /**
+     * Obtiene el número de comprobaciones abandonadas por superar el límite de pasos.
+     * @return el número de comprobaciones abandonadas.
+     */
+    public long getAbandonadas() {
+        return abandonadas;
+    }
+
+    /**
+     * Obtiene el número de celdas probadas por todas las comprobaciones de este vaciador.
+     * @return el número total de pasos de búsqueda.
+     */
+    public long getPasos() {
+        return resolutor.getPasosTotales();
+    }
+
+    /**
+     * Vacía celdas en orden aleatorio, deshaciendo cada vaciado que provoque más de una solución.
+     * @param tablero el tablero completo a vaciar. Se modifica en el sitio.
+     * @param numCeldas el número de celdas que se desea vaciar.
+     * @return el número de celdas vaciadas, que puede ser menor si no caben más huecos con solución única.
+     */
+    public int vaciar(int[][] tablero, int numCeldas) {
+        barajar();
+
+        int vaciadas = 0;
+        for (int i = 0; i < orden.length && vaciadas < numCeldas; i++) {
+            if (vaciarSiUnica(tablero, orden[i])) {
+                vaciadas++;
+            }
+        }
+        return vaciadas;
+    }
+
+    /**
+     * Vacía al menos el número de celdas indicado y sigue vaciando, manteniendo la solución única,
+     * hasta que el tablero alcanza la dificultad deseada o ya no caben más huecos.
+     * @param tablero el tablero completo a vaciar. Se modifica en el sitio.
+     * @param numCeldas el número mínimo de celdas a vaciar.
+     * @param calificador el resolutor que califica el tablero.
+     * @param objetivo la dificultad deseada.
+     * @return la técnica más difícil que necesita el tablero resultante.
+     */
+    public Tecnica vaciar(int[][] tablero, int numCeldas, ResolutorLogico calificador, Dificultad objetivo) {
+        barajar();
+
+        int vaciadas = 0;
+        for (int i = 0; i < orden.length; i++) {
+            if (vaciarSiUnica(tablero, orden[i]) && ++vaciadas >= numCeldas) {
+                Tecnica tecnica = calificador.calificar(tablero);
+                if (tecnica.getDificultad().compareTo(objetivo) >= 0) {
+                    return tecnica;
+                }
+            }
+        }
+        return calificador.calificar(tablero);
+    }
+
+    /**
+     * Vacía una celda si el tablero sigue teniendo una única solución, y la restaura en caso contrario.
+     * @param tablero el tablero a vaciar.
+     * @param celda el índice de la celda, por filas.
+     * @return true si la celda se ha vaciado.
+     */
+    private boolean vaciarSiUnica(int[][] tablero, int celda) {
+        int fila = celda / tamanyo;
+        int col = celda % tamanyo;
+        int valor = tablero[fila][col];
+
+        tablero[fila][col] = 0;
+        int soluciones = resolutor.contarSoluciones(tablero, 2, limitePasos);
+        comprobaciones++;
+        if (soluciones == 1) {
+            return true;
+        }
+        if (soluciones < 0) {
+            abandonadas++;
+        }
+        tablero[fila][col] = valor;
+        return false;
+    }
+
+    /**
+     * Ordena al azar las celdas del tablero.
+     */
+    private void barajar() {
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        for (int i = orden.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int aux = orden[i];
+            orden[i] = orden[j];
+            orden[j] = aux;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package es.cheste.Objetos;
+
+import java.util.UUID;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro CodigoSudoku identifica un Sudoku generado de forma reproducible: con la misma versión del
+ * generador, el mismo tamaño, la misma dificultad y la misma semilla, {@link Sudoku#regenerar(CodigoSudoku)}
+ * obtiene siempre el mismo tablero, siempre que no cambien los huecos de cada dificultad en la configuración.
+ * <p>
+ * El código se guarda dentro del propio UUID del Sudoku, que es un UUID de versión 8 (RFC 9562) con los 64 bits
+ * de la semilla, una firma, la versión del generador, el tamaño y la dificultad. Así las partidas y el almacén
+ * siguen usando UUIDs, y un Sudoku reproducible se puede regenerar a partir de su UUID sin haber guardado
+ * sus tableros. En texto se escribe de forma compacta, por ejemplo {@code M1-3w5e11264sgsf}: la inicial de la
+ * dificultad, la versión del generador y la semilla en base 36.
+ *
+ * @param version la versión del generador.
+ * @param tamanyo el tamaño del tablero.
+ * @param dificultad la dificultad del Sudoku.
+ * @param semilla la semilla del generador de números aleatorios.
+ */
+public record CodigoSudoku(int version, int tamanyo, Dificultad dificultad, long semilla) {
+
+    /**
+     * La versión actual del generador. Se debe incrementar con cualquier cambio que haga que una misma semilla
+     * genere otro tablero.
+     */
+    public static final int VERSION_GENERADOR = 1;
+
+    private static final long FIRMA = 0x5D0CL;
+    private static final int UUID_VERSION = 8;
+    private static final int UUID_VARIANTE = 2;
+    private static final long BITS_LIBRES = (1L << 22) - 1;
+    private static final int BASE = 36;
+
+    /**
+     * Constructor del registro CodigoSudoku.
+     * @throws IllegalArgumentException si la versión o el tamaño no caben en el UUID.
+     */
+    public CodigoSudoku {
+        if (version < 0 || version > 0xFF || tamanyo < 1 || tamanyo > 0xFF || dificultad == null) {
+            throw new IllegalArgumentException("Código de sudoku no válido");
+        }
+    }
+
+    /**
+     * Crea el código de un Sudoku generado con la versión actual del generador.
+     * @param tamanyo el tamaño del tablero.
+     * @param dificultad la dificultad del Sudoku.
+     * @param semilla la semilla del generador de números aleatorios.
+     * @return el código del Sudoku.
+     */
+    public static CodigoSudoku actual(int tamanyo, Dificultad dificultad, long semilla) {
+        return new CodigoSudoku(VERSION_GENERADOR, tamanyo, dificultad, semilla);
+    }
+
+    /**
+     * Obtiene el UUID que corresponde a este código.
+     * @return el UUID de versión 8 con el código.
+     */
+    public UUID aUuid() {
+        long msb = (semilla >>> 16) << 16 | (long) UUID_VERSION << 12 | (semilla >>> 4) & 0xFFF;
+        long lsb = 1L << 63 | (semilla & 0xF) << 58 | FIRMA << 42 | (long) version << 34 | (long) tamanyo << 26
+                | (long) dificultad.ordinal() << 22;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Obtiene el código guardado en un UUID.
+     * @param uuid el UUID de un Sudoku.
+     * @return el código del Sudoku, o null si el UUID no es de un Sudoku reproducible.
+     */
+    public static CodigoSudoku desdeUuid(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        if (uuid.version() != UUID_VERSION || uuid.variant() != UUID_VARIANTE || (lsb >>> 42 & 0xFFFF) != FIRMA
+                || (lsb & BITS_LIBRES) != 0) {
+            return null;
+        }
+
+        int ordinal = (int) (lsb >>> 22 & 0xF);
+        if (ordinal >= Dificultad.values().length) {
+            return null;
+        }
+
+        long semilla = (msb >>> 16) << 16 | (msb & 0xFFF) << 4 | lsb >>> 58 & 0xF;
+        return new CodigoSudoku((int) (lsb >>> 34 & 0xFF), (int) (lsb >>> 26 & 0xFF), Dificultad.values()[ordinal],
+                semilla);
+    }
+
+    /**
+     * Obtiene un código a partir de su forma compacta en texto.
+     * @param texto el código en texto, por ejemplo {@code M1-3w5e11264sgsf}.
+     * @param tamanyo el tamaño del tablero, que no forma parte del texto.
+     * @return el código del Sudoku.
+     * @throws IllegalArgumentException si el texto no es un código válido.
+     */
+    public static CodigoSudoku desdeTexto(String texto, int tamanyo) {
+        String limpio = texto.trim().toLowerCase();
+        int guion = limpio.indexOf('-');
+
+        if (guion < 2) {
+            throw new IllegalArgumentException("Código de sudoku no válido: " + texto);
+        }
+
+        Dificultad dificultad = null;
+        for (Dificultad candidata : Dificultad.values()) {
+            if (Character.toLowerCase(candidata.name().charAt(0)) == limpio.charAt(0)) {
+                dificultad = candidata;
+            }
+        }
+        if (dificultad == null) {
+            throw new IllegalArgumentException("Dificultad no válida en el código de sudoku: " + texto);
+        }
+
+        return new CodigoSudoku(Integer.parseInt(limpio.substring(1, guion)), tamanyo, dificultad,
+                Long.parseUnsignedLong(limpio.substring(guion + 1), BASE));
+    }
+
+    @Override
+    public String toString() {
+        return dificultad.name().charAt(0) + Integer.toString(version) + '-' + Long.toUnsignedString(semilla, BASE);
+    }
+}
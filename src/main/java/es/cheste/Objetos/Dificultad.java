@@ -0,0 +1,59 @@
+package es.cheste.Objetos;
+
+import es.cheste.Utilidad.Configuracion;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La enumeración Dificultad representa los niveles de dificultad de un Sudoku y el número de huecos
+ * asociado a cada uno en el fichero de configuración.
+ * <p>
+ * Los huecos de la configuración se refieren a un tablero de 9x9; para otros tamaños se escalan
+ * en proporción al número de celdas.
+ */
+public enum Dificultad {
+
+    FACIL("sudoku.hueco.facil", 5),
+    MEDIO("sudoku.hueco.medio", 5),
+    DIFICIL("sudoku.hueco.dificil", 8);
+
+    private static final int CELDAS_REFERENCIA = 81;
+
+    private final int huecosBase;
+    private final int variacion;
+
+    /**
+     * Constructor de la enumeración Dificultad.
+     * @param clave la clave de configuración con el número mínimo de huecos.
+     * @param variacion el número de huecos extra que se pueden añadir al azar.
+     */
+    Dificultad(String clave, int variacion) {
+        int tamanyo = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
+        int celdas = tamanyo * tamanyo;
+        this.huecosBase = Integer.parseInt(Configuracion.getConfiguracion(clave)) * celdas / CELDAS_REFERENCIA;
+        this.variacion = Math.max(1, variacion * celdas / CELDAS_REFERENCIA);
+    }
+
+    /**
+     * Obtiene un número de huecos para esta dificultad.
+     * @param random el generador de números aleatorios a utilizar.
+     * @return el número de huecos del tablero.
+     */
+    public int obtenerHuecos(RandomGenerator random) {
+        return huecosBase + random.nextInt(variacion);
+    }
+
+    /**
+     * Obtiene la dificultad a partir de su nombre, sin distinguir mayúsculas ni tildes.
+     * @param nombre el nombre de la dificultad, por ejemplo "facil" o "difícil".
+     * @return la dificultad correspondiente.
+     * @throws IllegalArgumentException si el nombre no corresponde a ninguna dificultad.
+     */
+    public static Dificultad desdeNombre(String nombre) {
+        String normalizado = nombre.trim().toUpperCase().replace('Á', 'A').replace('Í', 'I');
+        return Dificultad.valueOf(normalizado);
+    }
+}
@@ -0,0 +1,40 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro EstadisticasJugadas resume el {@link HistorialJugadas} de un jugador. El tiempo de juego suma
+ * los intervalos entre anotaciones seguidas, pero cada uno cuenta como mucho {@link HistorialJugadas#PAUSA_MAXIMA}
+ * milisegundos, para que las pausas largas no cuenten como tiempo jugado.
+ *
+ * @param jugadas el número de jugadas.
+ * @param deshechas el número de jugadas deshechas.
+ * @param rehechas el número de jugadas rehechas.
+ * @param primera el momento de la primera anotación, en milisegundos desde 1970, o 0 si no hay ninguna.
+ * @param ultima el momento de la última anotación, en milisegundos desde 1970, o 0 si no hay ninguna.
+ * @param tiempoJugado el tiempo de juego en milisegundos.
+ */
+public record EstadisticasJugadas(int jugadas, int deshechas, int rehechas, long primera, long ultima,
+                                  long tiempoJugado) {
+
+    /** Estadísticas de un historial sin anotaciones. */
+    public static final EstadisticasJugadas VACIAS = new EstadisticasJugadas(0, 0, 0, 0L, 0L, 0L);
+
+    /**
+     * Obtiene las estadísticas tras una anotación más.
+     * @param tipo el tipo de la anotación.
+     * @param instante el momento de la anotación.
+     * @return las estadísticas nuevas.
+     */
+    public EstadisticasJugadas anotar(TipoJugada tipo, long instante) {
+        long intervalo = primera == 0 ? 0L : Math.max(0L, Math.min(instante - ultima, HistorialJugadas.PAUSA_MAXIMA));
+        return new EstadisticasJugadas(
+                jugadas + (tipo == TipoJugada.JUGADA ? 1 : 0),
+                deshechas + (tipo == TipoJugada.DESHACER ? 1 : 0),
+                rehechas + (tipo == TipoJugada.REHACER ? 1 : 0),
+                primera == 0 ? instante : primera,
+                instante,
+                tiempoJugado + intervalo);
+    }
+}
@@ -0,0 +1,32 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La enumeración EstadoSudoku indica en qué punto de su vida se encuentra un Sudoku guardado.
+ */
+public enum EstadoSudoku {
+
+    /** Generado por adelantado, todavía sin partida de texto para el jugador. */
+    GENERADO,
+    /** Entregado al jugador, con su partida en el directorio de partidas. */
+    EN_JUEGO,
+    /** Comprobado al menos una vez. */
+    COMPROBADO;
+
+    private static final EstadoSudoku[] VALORES = values();
+
+    /**
+     * Obtiene el estado a partir de su posición en la enumeración.
+     * @param ordinal la posición del estado.
+     * @return el estado correspondiente.
+     * @throws IllegalArgumentException si la posición no corresponde a ningún estado.
+     */
+    public static EstadoSudoku desdeOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALORES.length) {
+            throw new IllegalArgumentException("Estado de Sudoku desconocido: " + ordinal);
+        }
+        return VALORES[ordinal];
+    }
+}
@@ -0,0 +1,347 @@
+package es.cheste.Objetos;
+
+import es.cheste.Utilidad.Configuracion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase HistorialJugadas guarda el tablero de un jugador tal como lo ha escrito, con sus errores, y las
+ * jugadas que puede deshacer y rehacer.
+ * <p>
+ * Las pilas de deshacer y rehacer son listas enlazadas que no se modifican, así que {@link #copiar()} solo
+ * copia el tablero y comparte las pilas con el original. Se pueden deshacer como mucho las últimas
+ * {@code jugadas.deshacer.maximo} jugadas de la configuración. Cada anotación queda además pendiente de
+ * guardar hasta que se toma con {@link #tomarPendientes()}; {@link es.cheste.Utilidad.DiarioJugadas} las
+ * añade al diario de la partida.
+ */
+public class HistorialJugadas {
+
+    public static final long PAUSA_MAXIMA = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAXIMO_DESHACER =
+            Integer.parseInt(Configuracion.getConfiguracion("jugadas.deshacer.maximo", "256"));
+    private static final int MAXIMO_PENDIENTES = 4096;
+
+    private final Tablero tablero;
+    private Nodo deshacer;
+    private Nodo rehacer;
+    private EstadisticasJugadas estadisticas;
+    private Jugada ultima;
+    private List<Jugada> pendientes = new ArrayList<>();
+    private int registrosDiario = Integer.MAX_VALUE;
+    private long longitudDiario = -1;
+
+    /**
+     * Constructor de la clase HistorialJugadas. Crea un historial sin jugadas.
+     * @param tablero el tablero de partida del jugador; el historial se queda con una copia.
+     */
+    public HistorialJugadas(Tablero tablero) {
+        this(tablero, List.of(), List.of(), EstadisticasJugadas.VACIAS);
+    }
+
+    /**
+     * Constructor de la clase HistorialJugadas a partir de un historial guardado.
+     * @param tablero el tablero del jugador; el historial se queda con una copia.
+     * @param deshacer las jugadas que se pueden deshacer, de la más antigua a la más reciente.
+     * @param rehacer las jugadas que se pueden rehacer, de la última en rehacerse a la primera.
+     * @param estadisticas las estadísticas del historial.
+     */
+    public HistorialJugadas(Tablero tablero, List<Jugada> deshacer, List<Jugada> rehacer,
+                            EstadisticasJugadas estadisticas) {
+        this.tablero = new Tablero(tablero.getTamanyo());
+        this.tablero.copiarDe(tablero);
+        this.deshacer = apilar(null, deshacer);
+        this.rehacer = apilar(null, rehacer);
+        this.estadisticas = estadisticas;
+    }
+
+    /**
+     * Constructor de la clase HistorialJugadas que copia otro historial, sin sus anotaciones pendientes.
+     * @param origen el historial a copiar.
+     */
+    private HistorialJugadas(HistorialJugadas origen) {
+        this.tablero = new Tablero(origen.tablero.getTamanyo());
+        this.tablero.copiarDe(origen.tablero);
+        this.deshacer = origen.deshacer;
+        this.rehacer = origen.rehacer;
+        this.estadisticas = origen.estadisticas;
+        this.ultima = origen.ultima;
+        this.registrosDiario = origen.registrosDiario;
+        this.longitudDiario = origen.longitudDiario;
+    }
+
+    /**
+     * Crea una copia del historial que se puede modificar sin afectar al original.
+     * @return la copia del historial.
+     */
+    public HistorialJugadas copiar() {
+        return new HistorialJugadas(this);
+    }
+
+    /**
+     * Obtiene el número de una celda del tablero del jugador.
+     * @param celda el índice de la celda, por filas.
+     * @return el número de la celda, o 0 si está vacía.
+     */
+    public int get(int celda) {
+        return tablero.get(celda);
+    }
+
+    /**
+     * Obtiene una copia del tablero del jugador.
+     * @return el tablero del jugador.
+     */
+    public Tablero getTablero() {
+        Tablero copia = new Tablero(tablero.getTamanyo());
+        copia.copiarDe(tablero);
+        return copia;
+    }
+
+    /**
+     * Anota una jugada si cambia la celda, y descarta las jugadas que se podían rehacer.
+     * @param celda el índice de la celda, por filas.
+     * @param valor el número jugado, o 0 si el jugador vacía la celda.
+     * @param instante el momento de la jugada, en milisegundos desde 1970.
+     * @return la jugada anotada, o null si la celda ya tenía ese número.
+     */
+    public Jugada jugar(int celda, int valor, long instante) {
+        int anterior = tablero.get(celda);
+        if (anterior == valor) {
+            return null;
+        }
+
+        Jugada jugada = new Jugada(TipoJugada.JUGADA, celda, valor, anterior, instante);
+        tablero.poner(celda, valor);
+        deshacer = recortar(new Nodo(jugada, deshacer));
+        rehacer = null;
+        return anotar(jugada);
+    }
+
+    /**
+     * Deshace la última jugada, que pasa a poder rehacerse.
+     * @param instante el momento en que se deshace, en milisegundos desde 1970.
+     * @return la anotación de la jugada deshecha, o null si no hay jugadas que deshacer.
+     */
+    public Jugada deshacer(long instante) {
+        if (deshacer == null) {
+            return null;
+        }
+
+        Jugada jugada = deshacer.jugada;
+        tablero.poner(jugada.celda(), jugada.anterior());
+        deshacer = deshacer.siguiente;
+        rehacer = new Nodo(jugada, rehacer);
+        return anotar(jugada.como(TipoJugada.DESHACER, instante));
+    }
+
+    /**
+     * Rehace la última jugada deshecha.
+     * @param instante el momento en que se rehace, en milisegundos desde 1970.
+     * @return la anotación de la jugada rehecha, o null si no hay jugadas que rehacer.
+     */
+    public Jugada rehacer(long instante) {
+        if (rehacer == null) {
+            return null;
+        }
+
+        Jugada jugada = rehacer.jugada;
+        tablero.poner(jugada.celda(), jugada.valor());
+        rehacer = rehacer.siguiente;
+        deshacer = recortar(new Nodo(jugada, deshacer));
+        return anotar(jugada.como(TipoJugada.REHACER, instante));
+    }
+
+    /**
+     * Anota una jugada en las estadísticas y la deja pendiente de guardar. Si hay demasiadas pendientes, se
+     * descartan y el próximo guardado escribe el historial completo.
+     * @param jugada la anotación.
+     * @return la misma anotación.
+     */
+    private Jugada anotar(Jugada jugada) {
+        estadisticas = estadisticas.anotar(jugada.tipo(), jugada.instante());
+        ultima = jugada;
+        if (pendientes.size() == MAXIMO_PENDIENTES) {
+            pendientes.clear();
+            registrosDiario = Integer.MAX_VALUE;
+        }
+        pendientes.add(jugada);
+        if (registrosDiario < Integer.MAX_VALUE) {
+            registrosDiario++;
+        }
+        return jugada;
+    }
+
+    /**
+     * Indica si hay alguna jugada que deshacer.
+     * @return true si se puede deshacer.
+     */
+    public boolean puedeDeshacer() {
+        return deshacer != null;
+    }
+
+    /**
+     * Indica si hay alguna jugada deshecha que rehacer.
+     * @return true si se puede rehacer.
+     */
+    public boolean puedeRehacer() {
+        return rehacer != null;
+    }
+
+    /**
+     * Obtiene el número de jugadas que se pueden deshacer.
+     * @return el número de jugadas.
+     */
+    public int getNumDeshacer() {
+        return deshacer == null ? 0 : deshacer.profundidad;
+    }
+
+    /**
+     * Obtiene el número de jugadas deshechas que se pueden rehacer.
+     * @return el número de jugadas.
+     */
+    public int getNumRehacer() {
+        return rehacer == null ? 0 : rehacer.profundidad;
+    }
+
+    /**
+     * Obtiene las jugadas que se pueden deshacer.
+     * @return las jugadas, de la más antigua a la más reciente.
+     */
+    public List<Jugada> getDeshacer() {
+        return desapilar(deshacer);
+    }
+
+    /**
+     * Obtiene las jugadas que se pueden rehacer.
+     * @return las jugadas, de la última en rehacerse a la primera.
+     */
+    public List<Jugada> getRehacer() {
+        return desapilar(rehacer);
+    }
+
+    /**
+     * Obtiene la última anotación de este historial desde que se cargó.
+     * @return la última anotación, o null si no hay ninguna.
+     */
+    public Jugada getUltima() {
+        return ultima;
+    }
+
+    /**
+     * Obtiene las estadísticas del historial.
+     * @return las estadísticas.
+     */
+    public EstadisticasJugadas getEstadisticas() {
+        return estadisticas;
+    }
+
+    /**
+     * Toma las anotaciones pendientes de guardar, que dejan de estar pendientes.
+     * @return las anotaciones pendientes, en orden.
+     */
+    public List<Jugada> tomarPendientes() {
+        List<Jugada> tomadas = pendientes;
+        pendientes = new ArrayList<>();
+        return tomadas;
+    }
+
+    /**
+     * Obtiene el número de anotaciones desde que se escribió el historial completo, guardadas o pendientes.
+     * @return el número de anotaciones, o {@link Integer#MAX_VALUE} si el historial no se ha escrito completo
+     *         nunca o se descartaron anotaciones pendientes.
+     */
+    public int getRegistrosDiario() {
+        return registrosDiario;
+    }
+
+    /**
+     * Fija el número de anotaciones desde que se escribió el historial completo.
+     * @param registrosDiario el número de anotaciones; 0 justo después de escribirlo.
+     */
+    public void setRegistrosDiario(int registrosDiario) {
+        this.registrosDiario = registrosDiario;
+    }
+
+    /**
+     * Obtiene la longitud que tiene el diario del que parte este historial, con sus anotaciones ya guardadas.
+     * @return la longitud en bytes, o -1 si el historial no parte de ningún diario.
+     */
+    public long getLongitudDiario() {
+        return longitudDiario;
+    }
+
+    /**
+     * Fija la longitud del diario del que parte este historial.
+     * @param longitudDiario la longitud en bytes, o -1 si no parte de ningún diario.
+     */
+    public void setLongitudDiario(long longitudDiario) {
+        this.longitudDiario = longitudDiario;
+    }
+
+    /**
+     * Apila unas jugadas sobre una pila.
+     * @param pila la pila de partida.
+     * @param jugadas las jugadas a apilar, la última queda en la cima.
+     * @return la pila nueva.
+     */
+    private static Nodo apilar(Nodo pila, List<Jugada> jugadas) {
+        for (Jugada jugada : jugadas) {
+            pila = new Nodo(jugada, pila);
+        }
+        return pila;
+    }
+
+    /**
+     * Obtiene las jugadas de una pila.
+     * @param pila la pila.
+     * @return las jugadas, de la del fondo a la de la cima.
+     */
+    private static List<Jugada> desapilar(Nodo pila) {
+        List<Jugada> jugadas = new ArrayList<>(pila == null ? 0 : pila.profundidad);
+        for (Nodo nodo = pila; nodo != null; nodo = nodo.siguiente) {
+            jugadas.add(nodo.jugada);
+        }
+        Collections.reverse(jugadas);
+        return jugadas;
+    }
+
+    /**
+     * Deja en una pila de deshacer solo las {@code jugadas.deshacer.maximo} jugadas más recientes. Para no
+     * copiar la pila en cada jugada, solo se recorta cuando tiene el doble.
+     * @param pila la pila de deshacer.
+     * @return la pila recortada, o la misma si no hacía falta.
+     */
+    private static Nodo recortar(Nodo pila) {
+        if (pila.profundidad <= 2 * MAXIMO_DESHACER) {
+            return pila;
+        }
+
+        List<Jugada> recientes = new ArrayList<>(MAXIMO_DESHACER);
+        for (Nodo nodo = pila; recientes.size() < MAXIMO_DESHACER; nodo = nodo.siguiente) {
+            recientes.add(nodo.jugada);
+        }
+        Collections.reverse(recientes);
+        return apilar(null, recientes);
+    }
+
+    /**
+     * Elemento de una pila de jugadas, que no se modifica una vez creado.
+     */
+    private static final class Nodo {
+
+        private final Jugada jugada;
+        private final Nodo siguiente;
+        private final int profundidad;
+
+        private Nodo(Jugada jugada, Nodo siguiente) {
+            this.jugada = jugada;
+            this.siguiente = siguiente;
+            this.profundidad = siguiente == null ? 1 : siguiente.profundidad + 1;
+        }
+    }
+}
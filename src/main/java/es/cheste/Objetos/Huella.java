@@ -0,0 +1,19 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro Huella es un resumen de 128 bits de la forma canónica de un Sudoku, calculado por
+ * {@link es.cheste.Motor.CanonizadorSudoku}. Dos Sudokus equivalentes por simetría tienen la misma huella.
+ *
+ * @param alto los 64 bits más significativos.
+ * @param bajo los 64 bits menos significativos.
+ */
+public record Huella(long alto, long bajo) {
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", alto, bajo);
+    }
+}
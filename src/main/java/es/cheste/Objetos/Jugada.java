@@ -0,0 +1,27 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro Jugada es una anotación del {@link HistorialJugadas} de un jugador: un cambio en una celda de su
+ * tablero, o deshacer o rehacer uno anterior, con el momento en que ocurrió.
+ *
+ * @param tipo lo que hizo el jugador.
+ * @param celda el índice de la celda, por filas.
+ * @param valor el número jugado en la celda, o 0 si se vació; al deshacer, el de la jugada deshecha.
+ * @param anterior el número que tenía la celda antes de la jugada.
+ * @param instante el momento de la anotación, en milisegundos desde 1970.
+ */
+public record Jugada(TipoJugada tipo, int celda, int valor, int anterior, long instante) {
+
+    /**
+     * Crea la anotación de un tipo distinto para la misma jugada, por ejemplo al deshacerla.
+     * @param tipo el tipo de la anotación nueva.
+     * @param instante el momento de la anotación nueva.
+     * @return la anotación creada.
+     */
+    public Jugada como(TipoJugada tipo, long instante) {
+        return new Jugada(tipo, celda, valor, anterior, instante);
+    }
+}
@@ -0,0 +1,193 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase LoteTableros guarda seguidos los tableros de muchos jugadores y sus soluciones para comprobarlos
+ * juntos con un {@link es.cheste.Motor.ComprobadorTableros}, y recoge el resultado de cada uno.
+ * <p>
+ * El tablero {@code i} ocupa las posiciones {@code [i * numCeldas, (i + 1) * numCeldas)} de los arrays de
+ * jugadores y soluciones, por filas. Los arrays tienen {@link #RELLENO} bytes de más al final, de forma que se
+ * puede leer un vector entero a partir de cualquier celda sin salirse. Los aciertos y errores de cada tablero
+ * ocupan {@link #getPalabras()} palabras seguidas, con el mismo formato que los de {@link Sudoku}.
+ */
+public class LoteTableros {
+
+    public static final int RELLENO = 64;
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final int palabras;
+    private final int capacidad;
+    private final byte[] jugadores;
+    private final byte[] soluciones;
+    private final long[] aciertos;
+    private final long[] errores;
+    private final boolean[] validos;
+    private int numTableros;
+
+    /**
+     * Constructor de la clase LoteTableros. Crea un lote vacío.
+     * @param tamanyo el tamaño de los tableros.
+     * @param capacidad el número máximo de tableros del lote.
+     */
+    public LoteTableros(int tamanyo, int capacidad) {
+        if (tamanyo < 1 || capacidad < 1) {
+            throw new IllegalArgumentException("Parámetros del lote de tableros no válidos");
+        }
+
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.palabras = (numCeldas + 63) >>> 6;
+        this.capacidad = capacidad;
+        this.jugadores = new byte[capacidad * numCeldas + RELLENO];
+        this.soluciones = new byte[capacidad * numCeldas + RELLENO];
+        this.aciertos = new long[capacidad * palabras];
+        this.errores = new long[capacidad * palabras];
+        this.validos = new boolean[capacidad];
+    }
+
+    /**
+     * Añade al lote el tablero de un jugador con su solución.
+     * @param celdasJugador las celdas del tablero del jugador, por filas.
+     * @param solucion el tablero de solución.
+     * @return la posición del tablero en el lote.
+     * @throws IllegalStateException si el lote está lleno.
+     */
+    public int anyadir(int[] celdasJugador, Tablero solucion) {
+        if (numTableros == capacidad) {
+            throw new IllegalStateException("El lote de tableros está lleno");
+        }
+
+        int desde = numTableros * numCeldas;
+        for (int celda = 0; celda < numCeldas; celda++) {
+            jugadores[desde + celda] = (byte) celdasJugador[celda];
+        }
+        solucion.copiarEn(soluciones, desde);
+        return numTableros++;
+    }
+
+    /**
+     * Vacía el lote para volver a llenarlo.
+     */
+    public void vaciar() {
+        numTableros = 0;
+    }
+
+    /**
+     * Obtiene el tamaño de los tableros.
+     * @return el número de filas de cada tablero.
+     */
+    public int getTamanyo() {
+        return tamanyo;
+    }
+
+    /**
+     * Obtiene el número de palabras de los aciertos y errores de cada tablero.
+     * @return el número de palabras por tablero.
+     */
+    public int getPalabras() {
+        return palabras;
+    }
+
+    /**
+     * Obtiene el número de tableros del lote.
+     * @return el número de tableros añadidos.
+     */
+    public int getNumTableros() {
+        return numTableros;
+    }
+
+    /**
+     * Indica si el lote está lleno.
+     * @return true si no caben más tableros.
+     */
+    public boolean estaLleno() {
+        return numTableros == capacidad;
+    }
+
+    /**
+     * Obtiene los tableros de los jugadores, seguidos y por filas.
+     * @return el array de celdas de los jugadores.
+     */
+    public byte[] getJugadores() {
+        return jugadores;
+    }
+
+    /**
+     * Obtiene las soluciones de los tableros, seguidas y por filas.
+     * @return el array de celdas de las soluciones.
+     */
+    public byte[] getSoluciones() {
+        return soluciones;
+    }
+
+    /**
+     * Obtiene los aciertos de los tableros: las celdas que coinciden con la solución.
+     * @return el array de aciertos, {@link #getPalabras()} palabras por tablero.
+     */
+    public long[] getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene los errores de los tableros: las celdas con un número que no coincide con la solución.
+     * @return el array de errores, {@link #getPalabras()} palabras por tablero.
+     */
+    public long[] getErrores() {
+        return errores;
+    }
+
+    /**
+     * Obtiene si cada tablero está completo y sin números repetidos en sus filas, columnas y cajas.
+     * @return el array con la validez de cada tablero.
+     */
+    public boolean[] getValidos() {
+        return validos;
+    }
+
+    /**
+     * Obtiene el número de una celda del tablero de un jugador.
+     * @param indice la posición del tablero en el lote.
+     * @param celda el índice de la celda, por filas.
+     * @return el número de la celda, o 0 si está vacía.
+     */
+    public int getJugada(int indice, int celda) {
+        return jugadores[indice * numCeldas + celda];
+    }
+
+    /**
+     * Obtiene el número de celdas erróneas de un tablero comprobado.
+     * @param indice la posición del tablero en el lote.
+     * @return el número de errores.
+     */
+    public int getNumErrores(int indice) {
+        int total = 0;
+        for (int p = indice * palabras; p < (indice + 1) * palabras; p++) {
+            total += Long.bitCount(errores[p]);
+        }
+        return total;
+    }
+
+    /**
+     * Indica si un tablero comprobado está completo y sin números repetidos en sus filas, columnas y cajas,
+     * sin compararlo con la solución.
+     * @param indice la posición del tablero en el lote.
+     * @return true si el tablero es válido.
+     */
+    public boolean esValido(int indice) {
+        return validos[indice];
+    }
+
+    /**
+     * Copia los aciertos y errores de un tablero comprobado.
+     * @param indice la posición del tablero en el lote.
+     * @param aciertosDestino el array donde se copian los aciertos.
+     * @param erroresDestino el array donde se copian los errores.
+     */
+    public void copiarResultado(int indice, long[] aciertosDestino, long[] erroresDestino) {
+        System.arraycopy(aciertos, indice * palabras, aciertosDestino, 0, palabras);
+        System.arraycopy(errores, indice * palabras, erroresDestino, 0, palabras);
+    }
+}
@@ -1,39 +1,122 @@
 package es.cheste.Objetos;
 
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Motor.Pista;
+import es.cheste.Motor.ResolutorLogico;
+import es.cheste.Motor.TableroCandidatos;
+import es.cheste.Motor.Tecnica;
+import es.cheste.Motor.VaciadorTablero;
 import es.cheste.Utilidad.Configuracion;
+import es.cheste.Utilidad.Metricas;
+import es.cheste.Utilidad.RenderizadorTablero;
 
-import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * @author Hugo Almodóvar Fuster
  * @version 1.0.1
  *
  * La clase Sudoku representa un juego de Sudoku y proporciona métodos para generar y comprobar tableros de Sudoku.
- * Implementa la interfaz Serializable para permitir la serialización de objetos Sudoku.
+ * Su almacenamiento en binario se realiza con {@link es.cheste.Utilidad.CodecSudoku}.
+ * <p>
+ * La solución se guarda como un {@link Tablero} compacto; las celdas visibles del tablero de juego y el resultado
+ * de la comprobación, con las celdas acertadas y las erróneas, se guardan como conjuntos de bits que se
+ * actualizan jugada a jugada. Los tableros de juego y comprobado solo se construyen cuando se piden.
+ * <p>
+ * Cada jugada que cambia una celda se anota además en un {@link HistorialJugadas}, que conserva el tablero del
+ * jugador con sus errores y permite deshacer y rehacer. El historial se crea con la primera jugada, a partir de
+ * las celdas visibles y acertadas: el número de las celdas erróneas anotadas antes no se conserva.
+ * <p>
+ * Las pistas salen de un {@link TableroCandidatos} con el tablero del jugador, que se crea la primera vez que
+ * se pide una pista, a partir del historial si lo hay, y desde entonces se actualiza con cada jugada.
+ * <p>
+ * Un Sudoku no es seguro en concurrencia. Los que guarda {@link es.cheste.Utilidad.GestorSudokus} en su caché
+ * no se modifican: se leen sin cerrojos y cada cambio se hace sobre una {@link #copiar() copia}, que sustituye
+ * a la anterior. Las pistas de un Sudoku que no se modifica sí se pueden pedir desde varios hilos.
  */
-public class Sudoku implements Serializable {
+public class Sudoku {
 
     private static final int TAMANYO = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
-    private final int[][] tableroSolucion;
-    private final int[][] tablero;
-    private int[][] tableroComprobado;
-    private final String uuid;
+    private static final int INTENTOS_CALIFICACION = 200;
+    private static final boolean REPRODUCIBLE =
+            Boolean.parseBoolean(Configuracion.getConfiguracion("sudoku.reproducible", "true"));
+    private static final ThreadLocal<RenderizadorTablero> RENDERIZADOR =
+            ThreadLocal.withInitial(() -> new RenderizadorTablero(TAMANYO));
+    private final Tablero tableroSolucion;
+    private final long[] visibles;
+    private final long[] aciertos;
+    private final long[] errores;
+    private final UUID uuid;
+    private volatile TableroCandidatos candidatos;
+    private HistorialJugadas historial;
 
     /**
      * Constructor de la clase Sudoku.
      * Inicializa los tableros de solución y juego, y genera un UUID único para el Sudoku.
      */
     public Sudoku() {
-        this.tableroSolucion = new int[TAMANYO][TAMANYO];
-        this.tablero = new int[TAMANYO][TAMANYO];
-        this.tableroComprobado = new int[TAMANYO][TAMANYO];
-        this.uuid = UUID.randomUUID().toString();
+        this(UUID.randomUUID(), new Tablero(TAMANYO), new Tablero(TAMANYO));
+    }
+
+    /**
+     * Constructor de la clase Sudoku a partir de unos tableros ya existentes.
+     * Se utiliza al recuperar un Sudoku guardado.
+     * @param uuid el UUID del Sudoku.
+     * @param tableroSolucion el tablero de solución.
+     * @param tablero el tablero de juego.
+     */
+    public Sudoku(String uuid, int[][] tableroSolucion, int[][] tablero) {
+        this(UUID.fromString(uuid), Tablero.desdeMatriz(tableroSolucion), Tablero.desdeMatriz(tablero));
+    }
+
+    /**
+     * Constructor de la clase Sudoku a partir de unos tableros compactos ya existentes.
+     * Del tablero de juego solo se conservan las celdas que no están vacías.
+     * @param uuid el UUID del Sudoku.
+     * @param tableroSolucion el tablero de solución.
+     * @param tablero el tablero de juego.
+     */
+    public Sudoku(UUID uuid, Tablero tableroSolucion, Tablero tablero) {
+        int palabras = (tableroSolucion.getNumCeldas() + 63) >>> 6;
+        this.tableroSolucion = tableroSolucion;
+        this.visibles = new long[palabras];
+        this.aciertos = new long[palabras];
+        this.errores = new long[palabras];
+        this.uuid = uuid;
+        guardarVisibles(tablero);
+    }
+
+    /**
+     * Constructor de la clase Sudoku que copia otro Sudoku.
+     * @param origen el Sudoku a copiar.
+     */
+    private Sudoku(Sudoku origen) {
+        Tablero solucion = new Tablero(origen.getTamanyo());
+        solucion.copiarDe(origen.tableroSolucion);
+        TableroCandidatos candidatosOrigen = origen.candidatos;
+        this.tableroSolucion = solucion;
+        this.visibles = origen.visibles.clone();
+        this.aciertos = origen.aciertos.clone();
+        this.errores = origen.errores.clone();
+        this.uuid = origen.uuid;
+        this.candidatos = candidatosOrigen == null ? null : new TableroCandidatos(candidatosOrigen);
+        this.historial = origen.historial == null ? null : origen.historial.copiar();
+    }
+
+    /**
+     * Crea una copia del Sudoku con su comprobación, sus pistas y su historial, que se puede modificar sin
+     * afectar al original.
+     * @return la copia del Sudoku.
+     */
+    public Sudoku copiar() {
+        return new Sudoku(this);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(tableroSolucion);
+        return tableroSolucion.hashCode();
     }
 
     @Override
@@ -41,7 +124,7 @@ public class Sudoku implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Sudoku sudoku = (Sudoku) o;
-        return Objects.deepEquals(tableroSolucion, sudoku.tableroSolucion);
+        return tableroSolucion.equals(sudoku.tableroSolucion);
     }
 
     /**
@@ -49,38 +132,115 @@ public class Sudoku implements Serializable {
      * @return el UUID del Sudoku.
      */
     public String getUuid() {
+        return uuid.toString();
+    }
+
+    /**
+     * Obtiene el UUID del Sudoku como objeto.
+     * @return el UUID del Sudoku.
+     */
+    public UUID getIdentificador() {
         return uuid;
     }
 
+    /**
+     * Obtiene el código con el que se puede regenerar el Sudoku.
+     * @return el código del Sudoku, o null si no se generó de forma reproducible.
+     */
+    public CodigoSudoku getCodigo() {
+        return CodigoSudoku.desdeUuid(uuid);
+    }
+
+    /**
+     * Obtiene el tamaño del tablero del Sudoku.
+     * @return el tamaño del tablero.
+     */
+    public int getTamanyo() {
+        return tableroSolucion.getTamanyo();
+    }
+
     /**
      * Obtiene el tablero de solución del Sudoku.
      * @return el tablero de solución.
      */
-    public int[][] getTableroSolucion() {
+    public Tablero getSolucion() {
         return tableroSolucion;
     }
 
     /**
-     * Obtiene el tablero del Sudoku.
+     * Indica si una celda se entrega rellena al jugador.
+     * @param celda el índice de la celda, por filas.
+     * @return true si la celda forma parte del tablero de juego.
+     */
+    public boolean esVisible(int celda) {
+        return (visibles[celda >>> 6] & (1L << celda)) != 0;
+    }
+
+    /**
+     * Obtiene el tablero de juego del Sudoku, con las celdas que se entregan al jugador.
+     * Se construye en el momento a partir de la solución y las celdas visibles.
+     * @return un tablero nuevo con el tablero de juego.
+     */
+    public Tablero getEnunciado() {
+        return filtrarSolucion(visibles);
+    }
+
+    /**
+     * Obtiene el tablero comprobado del Sudoku: la solución en las celdas acertadas y vacío en el resto.
+     * Se construye en el momento a partir de las jugadas anotadas.
+     * @return un tablero nuevo con el resultado de la comprobación.
+     */
+    public Tablero getComprobado() {
+        return filtrarSolucion(aciertos);
+    }
+
+    /**
+     * Crea un tablero con los números de la solución en las celdas marcadas y vacío en el resto.
+     * @param marcadas el conjunto de bits de las celdas a rellenar.
+     * @return el tablero creado.
+     */
+    private Tablero filtrarSolucion(long[] marcadas) {
+        Tablero filtrado = new Tablero(getTamanyo());
+        for (int p = 0; p < marcadas.length; p++) {
+            long bits = marcadas[p];
+            while (bits != 0) {
+                int celda = (p << 6) + Long.numberOfTrailingZeros(bits);
+                filtrado.poner(celda, tableroSolucion.get(celda));
+                bits &= bits - 1;
+            }
+        }
+        return filtrado;
+    }
+
+    /**
+     * Obtiene una copia del tablero de solución del Sudoku como matriz.
+     * @return el tablero de solución.
+     */
+    public int[][] getTableroSolucion() {
+        return tableroSolucion.aMatriz();
+    }
+
+    /**
+     * Obtiene una copia del tablero del Sudoku como matriz.
      * @return el tablero del Sudoku.
      */
     public int[][] getTablero() {
-        return tablero;
+        return getEnunciado().aMatriz();
     }
 
     /**
-     * Obtiene el tablero comprobado del Sudoku.
+     * Obtiene el tablero comprobado del Sudoku como matriz.
      * @return el tablero comprobado del Sudoku.
      */
     public int[][] getTableroComprobado() {
-        return tableroComprobado;
+        return getComprobado().aMatriz();
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("Sudoku{");
-        sb.append("tableroSolucion=").append(Arrays.toString(tableroSolucion));
-        sb.append(", tablero=").append(Arrays.toString(tablero));
+        sb.append("tableroSolucion=").append(tableroSolucion);
+        sb.append(", tablero=").append(getEnunciado());
         sb.append(", uuid='").append(uuid).append('\'');
         sb.append('}');
         return sb.toString();
@@ -92,129 +252,444 @@ public class Sudoku implements Serializable {
      * @return una representación en cadena del tablero.
      */
     public static String mostrarTablero(int[][] tableroMostrar) {
-        final StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < TAMANYO; i++) {
-            if (i % 3 == 0 && i != 0) {
-                sb.append(String.format("%4s", "-").repeat(6)).append(String.format("%4s", "+"))
-                        .append(String.format("%4s", "-").repeat(6)).append(String.format("%4s", "+"))
-                        .append(String.format("%4s", "-").repeat(5)).append("\n");
-            }
-            for (int j = 0; j < TAMANYO; j++) {
-                if (j % 3 == 0 && j != 0) {
-                    sb.append(String.format("%4s", "|"));
-                }
-                sb.append(String.format("%4s", tableroMostrar[i][j] == 0 ? "." : tableroMostrar[i][j]));
-                sb.append(String.format("%4s", " "));
-            }
-            sb.append("\n");
-        }
-        return sb.toString();
+        return RENDERIZADOR.get().mostrar(tableroMostrar);
     }
 
     /**
-     * Genera un tablero de Sudoku con un número específico de celdas vacías.
+     * Muestra un tablero compacto de Sudoku en formato de cadena.
+     * @param tableroMostrar el tablero a mostrar.
+     * @return una representación en cadena del tablero.
+     */
+    public static String mostrarTablero(Tablero tableroMostrar) {
+        return RENDERIZADOR.get().mostrar(tableroMostrar);
+    }
+
+    /**
+     * Genera un tablero de Sudoku con un número específico de celdas vacías y solución única.
      * @param celdasVaciar el número de celdas a vaciar.
      */
     public void generar(int celdasVaciar) {
-        rellenarTablero();
-        copiarTableroSolucion();
-        vaciarCeldas(celdasVaciar);
-    }
-
-    /**
-     * Rellena el tablero de solución con números válidos de Sudoku.
-     * @return true si el tablero se ha rellenado correctamente, false en caso contrario.
-     */
-    private boolean rellenarTablero() {
-        for (int fila = 0; fila < TAMANYO; fila++) {
-            for (int col = 0; col < TAMANYO; col++) {
-                if (tableroSolucion[fila][col] == 0) {
-                    List<Integer> numeros = new ArrayList<>();
-                    for (int num = 1; num <= TAMANYO; num++) {
-                        numeros.add(num);
-                    }
-                    Collections.shuffle(numeros);
-                    for (int num : numeros) {
-                        if (esValido(fila, col, num)) {
-                            tableroSolucion[fila][col] = num;
-                            if (rellenarTablero()) {
-                                return true;
-                            }
-                            tableroSolucion[fila][col] = 0;
-                        }
-                    }
-                    return false;
-                }
+        generar(celdasVaciar, Boolean.TRUE);
+    }
+
+    /**
+     * Genera un tablero de Sudoku con un número específico de celdas vacías.
+     * @param celdasVaciar el número de celdas a vaciar.
+     * @param solucionUnica true para vaciar solo las celdas que mantienen una única solución.
+     */
+    public void generar(int celdasVaciar, boolean solucionUnica) {
+        generar(celdasVaciar, solucionUnica, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Genera un tablero de Sudoku usando el generador de números aleatorios indicado.
+     * Permite que cada hilo trabaje con su propio generador sin compartir estado.
+     * @param celdasVaciar el número de celdas a vaciar.
+     * @param solucionUnica true para vaciar solo las celdas que mantienen una única solución.
+     * @param random el generador de números aleatorios a utilizar.
+     */
+    public void generar(int celdasVaciar, boolean solucionUnica, RandomGenerator random) {
+        int tamanyo = getTamanyo();
+        int[][] solucion = new int[tamanyo][tamanyo];
+        int[][] juego = new int[tamanyo][tamanyo];
+
+        new GeneradorTablero(tamanyo, random).rellenar(solucion);
+        copiarMatriz(solucion, juego);
+        if (solucionUnica) {
+            new VaciadorTablero(tamanyo, random).vaciar(juego, celdasVaciar);
+        } else vaciarCeldas(juego, celdasVaciar, random);
+        guardarTableros(solucion, juego);
+    }
+
+    /**
+     * Genera un tablero de Sudoku con solución única cuya calificación coincide con la dificultad indicada.
+     * La calificación la realiza {@link ResolutorLogico} según la técnica más difícil necesaria para resolverlo:
+     * se vacían al menos los huecos de la dificultad y se siguen vaciando hasta alcanzarla. Si tras
+     * {@value #INTENTOS_CALIFICACION} intentos no se consigue, se conserva el último tablero generado.
+     * @param dificultad la dificultad deseada.
+     * @param random el generador de números aleatorios a utilizar.
+     * @return la técnica más difícil que necesita el tablero generado.
+     */
+    public Tecnica generar(Dificultad dificultad, RandomGenerator random) {
+        long inicio = Metricas.ACTIVAS ? System.nanoTime() : 0L;
+        int tamanyo = getTamanyo();
+        int[][] solucion = new int[tamanyo][tamanyo];
+        int[][] juego = new int[tamanyo][tamanyo];
+        GeneradorTablero generador = new GeneradorTablero(tamanyo, random);
+        VaciadorTablero vaciador = new VaciadorTablero(tamanyo, random);
+        ResolutorLogico calificador = new ResolutorLogico(tamanyo);
+        Tecnica tecnica = null;
+
+        for (int intento = 0; intento < INTENTOS_CALIFICACION; intento++) {
+            generador.rellenar(solucion);
+            copiarMatriz(solucion, juego);
+            tecnica = vaciador.vaciar(juego, dificultad.obtenerHuecos(random), calificador, dificultad);
+            if (tecnica.getDificultad() == dificultad) {
+                break;
             }
         }
-        return true;
+        guardarTableros(solucion, juego);
+
+        if (Metricas.ACTIVAS) {
+            Metricas.anotarGeneracion(dificultad, System.nanoTime() - inicio, tecnica.getDificultad() == dificultad,
+                    generador, vaciador);
+        }
+        return tecnica;
     }
 
     /**
-     * Verifica si un número es válido en una posición específica del tablero de solución.
-     * @param fila la fila de la posición.
-     * @param col la columna de la posición.
-     * @param num el número a verificar.
-     * @return true si el número es válido, false en caso contrario.
+     * Crea y genera un Sudoku nuevo de la dificultad indicada. Si la clave {@code sudoku.reproducible} de la
+     * configuración está activada, el Sudoku se genera a partir de una semilla tomada del generador indicado
+     * y se puede regenerar con su {@link CodigoSudoku}.
+     * @param dificultad la dificultad deseada.
+     * @param random el generador de números aleatorios a utilizar.
+     * @return el Sudoku generado.
      */
-    private boolean esValido(int fila, int col, int num) {
-        for (int i = 0; i < TAMANYO; i++) {
-            if (tableroSolucion[fila][i] == num || tableroSolucion[i][col] == num) {
-                return false;
-            }
+    public static Sudoku crear(Dificultad dificultad, RandomGenerator random) {
+        if (REPRODUCIBLE) {
+            return regenerar(CodigoSudoku.actual(TAMANYO, dificultad, random.nextLong()));
         }
 
-        int boxFila = fila - fila % 3;
-        int boxCol = col - col % 3;
-        for (int i = boxFila; i < boxFila + 3; i++) {
-            for (int j = boxCol; j < boxCol + 3; j++) {
-                if (tableroSolucion[i][j] == num) {
-                    return false;
-                }
-            }
+        Sudoku sudoku = new Sudoku();
+        sudoku.generar(dificultad, random);
+        return sudoku;
+    }
+
+    /**
+     * Genera el Sudoku que corresponde a un código. El UUID del Sudoku es el del código, y el generador de
+     * números aleatorios es un {@link SplittableRandom} con la semilla del código, cuya secuencia no depende
+     * de la versión de Java.
+     * @param codigo el código del Sudoku.
+     * @return el Sudoku generado, siempre el mismo para el mismo código.
+     * @throws IllegalArgumentException si el código es de otra versión del generador o de otro tamaño.
+     */
+    public static Sudoku regenerar(CodigoSudoku codigo) {
+        if (codigo.version() != CodigoSudoku.VERSION_GENERADOR || codigo.tamanyo() != TAMANYO) {
+            throw new IllegalArgumentException("El código " + codigo + " es de la versión " + codigo.version()
+                    + " y tamaño " + codigo.tamanyo() + ", no se puede regenerar");
+        }
+
+        Sudoku sudoku = new Sudoku(codigo.aUuid(), new Tablero(TAMANYO), new Tablero(TAMANYO));
+        sudoku.generar(codigo.dificultad(), new SplittableRandom(codigo.semilla()));
+        return sudoku;
+    }
+
+    /**
+     * Copia una matriz en otra del mismo tamaño.
+     * @param origen la matriz de origen.
+     * @param destino la matriz de destino.
+     */
+    private static void copiarMatriz(int[][] origen, int[][] destino) {
+        for (int i = 0; i < origen.length; i++) {
+            System.arraycopy(origen[i], 0, destino[i], 0, origen[i].length);
         }
-        return true;
     }
 
     /**
-     * Copia el tablero de solución al tablero de juego.
+     * Guarda en los tableros compactos el resultado de una generación y reinicia la comprobación.
+     * @param solucion la matriz de solución generada.
+     * @param juego la matriz de juego generada.
+     */
+    private void guardarTableros(int[][] solucion, int[][] juego) {
+        tableroSolucion.copiarDe(solucion);
+        guardarVisibles(Tablero.desdeMatriz(juego));
+    }
+
+    /**
+     * Marca como visibles las celdas no vacías de un tablero de juego y reinicia la comprobación.
+     * @param juego el tablero de juego.
      */
-    private void copiarTableroSolucion() {
-        for (int i = 0; i < TAMANYO; i++) {
-            System.arraycopy(tableroSolucion[i], 0, tablero[i], 0, TAMANYO);
+    private void guardarVisibles(Tablero juego) {
+        Arrays.fill(visibles, 0L);
+        for (int celda = 0; celda < juego.getNumCeldas(); celda++) {
+            if (juego.get(celda) != 0) {
+                visibles[celda >>> 6] |= 1L << celda;
+            }
         }
+        reiniciarComprobacion();
     }
 
     /**
-     * Vacía un número específico de celdas en el tablero de juego.
+     * Vacía un número específico de celdas en un tablero.
+     * @param juego el tablero a vaciar.
      * @param numCeldas el número de celdas a vaciar.
+     * @param random el generador de números aleatorios a utilizar.
      */
-    private void vaciarCeldas(int numCeldas) {
+    private static void vaciarCeldas(int[][] juego, int numCeldas, RandomGenerator random) {
         int vaciadas = 0;
         while (vaciadas < numCeldas) {
-            int fila = (int) (Math.random() * TAMANYO);
-            int col = (int) (Math.random() * TAMANYO);
-            if (tablero[fila][col] != 0) {
-                tablero[fila][col] = 0;
+            int fila = random.nextInt(juego.length);
+            int col = random.nextInt(juego.length);
+            if (juego[fila][col] != 0) {
+                juego[fila][col] = 0;
                 vaciadas++;
             }
         }
     }
 
+    /**
+     * Deja la comprobación en su estado inicial: solo las celdas del tablero de juego cuentan como acertadas.
+     * También se descarta el historial de jugadas.
+     */
+    public void reiniciarComprobacion() {
+        System.arraycopy(visibles, 0, aciertos, 0, visibles.length);
+        Arrays.fill(errores, 0L);
+        candidatos = null;
+        historial = null;
+    }
+
+    /**
+     * Sustituye la comprobación por la de un historial de jugadas guardado, sin anotar ninguna jugada nueva.
+     * @param guardado el historial del jugador, con un tablero del mismo tamaño que este Sudoku.
+     */
+    public void restaurarHistorial(HistorialJugadas guardado) {
+        reiniciarComprobacion();
+        for (int celda = 0; celda < tableroSolucion.getNumCeldas(); celda++) {
+            if (!esVisible(celda)) {
+                marcar(celda, guardado.get(celda));
+            }
+        }
+        historial = guardado;
+    }
+
+    /**
+     * Obtiene el historial de jugadas del Sudoku, que no se debe modificar si el Sudoku está compartido.
+     * @return el historial, o null si todavía no se ha anotado ninguna jugada.
+     */
+    public HistorialJugadas getHistorial() {
+        return historial;
+    }
+
+    /**
+     * Obtiene el tablero del jugador tal como lo ha escrito, con sus errores.
+     * @return un tablero nuevo con el tablero del jugador, o con el tablero de juego si no hay historial.
+     */
+    public Tablero getTableroJugador() {
+        return historial == null ? getEnunciado() : historial.getTablero();
+    }
+
+    /**
+     * Obtiene el historial de jugadas, creándolo la primera vez a partir de las celdas visibles y acertadas.
+     * @return el historial de jugadas.
+     */
+    private HistorialJugadas historial() {
+        if (historial == null) {
+            historial = new HistorialJugadas(getComprobado());
+        }
+        return historial;
+    }
+
+    /**
+     * Deshace la última jugada del historial.
+     * @return la anotación de la jugada deshecha, o null si no hay jugadas que deshacer.
+     */
+    public Jugada deshacer() {
+        Jugada jugada = historial == null ? null : historial.deshacer(System.currentTimeMillis());
+        if (jugada != null) {
+            marcar(jugada.celda(), jugada.anterior());
+        }
+        return jugada;
+    }
+
+    /**
+     * Rehace la última jugada deshecha del historial.
+     * @return la anotación de la jugada rehecha, o null si no hay jugadas que rehacer.
+     */
+    public Jugada rehacer() {
+        Jugada jugada = historial == null ? null : historial.rehacer(System.currentTimeMillis());
+        if (jugada != null) {
+            marcar(jugada.celda(), jugada.valor());
+        }
+        return jugada;
+    }
+
+    /**
+     * Anota una jugada y actualiza solo el estado de esa celda. Si cambia la celda, se anota también en el
+     * historial.
+     * @param celda el índice de la celda, por filas.
+     * @param valor el número jugado, o 0 si el jugador vacía la celda.
+     * @return true si el número coincide con la solución.
+     */
+    public boolean anotarJugada(int celda, int valor) {
+        HistorialJugadas jugadas = historial();
+        if (jugadas.get(celda) != valor) {
+            jugadas.jugar(celda, valor, System.currentTimeMillis());
+        }
+        return marcar(celda, valor);
+    }
+
+    /**
+     * Actualiza la comprobación y los candidatos de una celda, sin anotarla en el historial.
+     * @param celda el índice de la celda, por filas.
+     * @param valor el número de la celda, o 0 si está vacía.
+     * @return true si el número coincide con la solución.
+     */
+    private boolean marcar(int celda, int valor) {
+        int palabra = celda >>> 6;
+        long bit = 1L << celda;
+        boolean correcta = valor == tableroSolucion.get(celda);
+
+        if (correcta) {
+            aciertos[palabra] |= bit;
+            errores[palabra] &= ~bit;
+        } else {
+            aciertos[palabra] &= ~bit;
+            if (valor != 0) {
+                errores[palabra] |= bit;
+            } else errores[palabra] &= ~bit;
+        }
+        if (candidatos != null && !esVisible(celda)) {
+            candidatos.poner(celda, valor);
+        }
+        return correcta;
+    }
+
+    /**
+     * Anota una jugada y actualiza solo el estado de esa celda.
+     * @param fila la fila de la celda.
+     * @param col la columna de la celda.
+     * @param valor el número jugado, o 0 si el jugador vacía la celda.
+     * @return true si el número coincide con la solución.
+     */
+    public boolean anotarJugada(int fila, int col, int valor) {
+        return anotarJugada(fila * getTamanyo() + col, valor);
+    }
+
+    /**
+     * Obtiene las celdas con un número que no coincide con la solución.
+     * @return los índices de las celdas erróneas, por filas y en orden.
+     */
+    public int[] getErrores() {
+        int[] celdas = new int[getNumErrores()];
+        int n = 0;
+        for (int p = 0; p < errores.length; p++) {
+            long bits = errores[p];
+            while (bits != 0) {
+                celdas[n++] = (p << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return celdas;
+    }
+
+    /**
+     * Obtiene el número de celdas con un número que no coincide con la solución.
+     * @return el número de errores.
+     */
+    public int getNumErrores() {
+        int total = 0;
+        for (long palabra : errores) {
+            total += Long.bitCount(palabra);
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene los candidatos de una celda en el tablero del jugador: los números que no están ya en su fila,
+     * su columna ni su caja.
+     * @param celda el índice de la celda, por filas.
+     * @return la máscara de candidatos, con el bit {@code n - 1} para el número {@code n}; 0 si la celda está llena.
+     */
+    public int getCandidatos(int celda) {
+        return getTableroCandidatos().getCandidatos(celda);
+    }
+
+    /**
+     * Obtiene el siguiente paso lógico en el tablero del jugador. Si el jugador ha cometido errores que no
+     * causan conflictos, el paso es lógico para su tablero aunque no coincida con la solución.
+     * @return la pista con el siguiente paso, o null si hay conflictos o ningún simple permite avanzar.
+     */
+    public Pista getSiguientePaso() {
+        return getTableroCandidatos().siguientePaso();
+    }
+
+    /**
+     * Obtiene las celdas del tablero del jugador cuyo número se repite en su fila, su columna o su caja.
+     * A diferencia de {@link #getErrores()}, no compara con la solución.
+     * @return los índices de las celdas en conflicto, por filas y en orden.
+     */
+    public int[] getConflictos() {
+        return getTableroCandidatos().getConflictos();
+    }
+
+    /**
+     * Obtiene el tablero del jugador con sus candidatos, creándolo la primera vez a partir del historial o, si no
+     * lo hay, de las celdas visibles y acertadas.
+     * @return el tablero de candidatos.
+     */
+    private TableroCandidatos getTableroCandidatos() {
+        TableroCandidatos actual = candidatos;
+        if (actual == null) {
+            TableroCandidatos nuevo = new TableroCandidatos(getTamanyo());
+            Tablero jugador = historial == null ? getComprobado() : historial.getTablero();
+            for (int celda = 0; celda < jugador.getNumCeldas(); celda++) {
+                if (jugador.get(celda) != 0) {
+                    nuevo.poner(celda, jugador.get(celda));
+                }
+            }
+            candidatos = nuevo;
+            actual = nuevo;
+        }
+        return actual;
+    }
+
+    /**
+     * Indica si todas las celdas coinciden con la solución.
+     * @return true si el Sudoku está resuelto.
+     */
+    public boolean estaResuelto() {
+        int total = 0;
+        for (long palabra : aciertos) {
+            total += Long.bitCount(palabra);
+        }
+        return total == tableroSolucion.getNumCeldas();
+    }
+
     /**
      * Comprueba el resultado del tablero del jugador comparándolo con el tablero de solución.
      * @param tableroJugador el tablero del jugador.
-     * @return un tablero que muestra las celdas correctas e incorrectas.
      */
     public void comprobarResultado(int[][] tableroJugador) {
 
+        int tamanyo = getTamanyo();
+        for (int i = 0; i < tamanyo; i++) {
+            for (int j = 0; j < tamanyo; j++) {
+                anotarJugada(i * tamanyo + j, tableroJugador[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Comprueba el resultado del tablero del jugador, leído por filas en un array plano.
+     * @param celdasJugador las celdas del tablero del jugador, por filas.
+     */
+    public void comprobarResultado(int[] celdasJugador) {
+
+        for (int celda = 0; celda < tableroSolucion.getNumCeldas(); celda++) {
+            anotarJugada(celda, celdasJugador[celda]);
+        }
+    }
+
+    /**
+     * Toma el resultado del tablero del jugador ya comprobado en un lote, con el mismo efecto que
+     * {@link #comprobarResultado(int[])} sobre sus celdas.
+     * @param lote el lote comprobado, con tableros del mismo tamaño que este Sudoku.
+     * @param indice la posición del tablero del jugador en el lote.
+     */
+    public void comprobarResultado(LoteTableros lote, int indice) {
+
+        HistorialJugadas jugadas = historial();
+        long instante = System.currentTimeMillis();
 
-        for (int i = 0; i < TAMANYO; i++) {
-            for (int j = 0; j < TAMANYO; j++) {
-                if (tableroJugador[i][j] != tableroSolucion[i][j]) {
-                    tableroComprobado[i][j] = 0;
-                } else tableroComprobado[i][j] = tableroSolucion[i][j];
+        lote.copiarResultado(indice, aciertos, errores);
+        for (int celda = 0; celda < tableroSolucion.getNumCeldas(); celda++) {
+            int valor = lote.getJugada(indice, celda);
+            if (jugadas.get(celda) != valor) {
+                jugadas.jugar(celda, valor, instante);
+            }
+            if (candidatos != null && !esVisible(celda)) {
+                candidatos.poner(celda, valor);
             }
         }
     }
-}
\ No newline at end of file
+}
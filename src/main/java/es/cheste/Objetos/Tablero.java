@@ -0,0 +1,162 @@
+package es.cheste.Objetos;
+
+import java.util.Arrays;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase Tablero guarda un tablero de Sudoku en un único array de bytes, con las celdas por filas
+ * y 0 en las celdas vacías. Ocupa un byte por celda en lugar de un int, y evita los objetos y las
+ * indirecciones de una matriz {@code int[][]}.
+ */
+public final class Tablero {
+
+    private final int tamanyo;
+    private final byte[] celdas;
+
+    /**
+     * Constructor de la clase Tablero. Crea un tablero vacío.
+     * @param tamanyo el tamaño del tablero.
+     */
+    public Tablero(int tamanyo) {
+        this.tamanyo = tamanyo;
+        this.celdas = new byte[tamanyo * tamanyo];
+    }
+
+    /**
+     * Crea un tablero a partir de una matriz.
+     * @param matriz la matriz con los números del tablero.
+     * @return el tablero creado.
+     */
+    public static Tablero desdeMatriz(int[][] matriz) {
+        Tablero tablero = new Tablero(matriz.length);
+        tablero.copiarDe(matriz);
+        return tablero;
+    }
+
+    /**
+     * Obtiene el tamaño del tablero.
+     * @return el tamaño del tablero.
+     */
+    public int getTamanyo() {
+        return tamanyo;
+    }
+
+    /**
+     * Obtiene el número de celdas del tablero.
+     * @return el número de celdas.
+     */
+    public int getNumCeldas() {
+        return celdas.length;
+    }
+
+    /**
+     * Obtiene el número de una celda.
+     * @param celda el índice de la celda, por filas.
+     * @return el número de la celda, o 0 si está vacía.
+     */
+    public int get(int celda) {
+        return celdas[celda];
+    }
+
+    /**
+     * Obtiene el número de una celda.
+     * @param fila la fila de la celda.
+     * @param col la columna de la celda.
+     * @return el número de la celda, o 0 si está vacía.
+     */
+    public int get(int fila, int col) {
+        return celdas[fila * tamanyo + col];
+    }
+
+    /**
+     * Pone un número en una celda.
+     * @param celda el índice de la celda, por filas.
+     * @param valor el número a poner, o 0 para vaciarla.
+     */
+    public void poner(int celda, int valor) {
+        celdas[celda] = (byte) valor;
+    }
+
+    /**
+     * Pone un número en una celda.
+     * @param fila la fila de la celda.
+     * @param col la columna de la celda.
+     * @param valor el número a poner, o 0 para vaciarla.
+     */
+    public void poner(int fila, int col, int valor) {
+        celdas[fila * tamanyo + col] = (byte) valor;
+    }
+
+    /**
+     * Copia en este tablero los números de una matriz del mismo tamaño.
+     * @param origen la matriz de origen.
+     */
+    public void copiarDe(int[][] origen) {
+        for (int i = 0, celda = 0; i < tamanyo; i++) {
+            int[] fila = origen[i];
+            for (int j = 0; j < tamanyo; j++) {
+                celdas[celda++] = (byte) fila[j];
+            }
+        }
+    }
+
+    /**
+     * Copia en este tablero los números de otro tablero del mismo tamaño.
+     * @param origen el tablero de origen.
+     */
+    public void copiarDe(Tablero origen) {
+        System.arraycopy(origen.celdas, 0, celdas, 0, celdas.length);
+    }
+
+    /**
+     * Copia los números de este tablero en una matriz del mismo tamaño.
+     * @param destino la matriz de destino.
+     */
+    public void copiarEn(int[][] destino) {
+        for (int i = 0, celda = 0; i < tamanyo; i++) {
+            int[] fila = destino[i];
+            for (int j = 0; j < tamanyo; j++) {
+                fila[j] = celdas[celda++];
+            }
+        }
+    }
+
+    /**
+     * Copia los números de este tablero, por filas, en una parte de un array de bytes.
+     * @param destino el array de destino.
+     * @param desde la posición del array donde se copia la primera celda.
+     */
+    public void copiarEn(byte[] destino, int desde) {
+        System.arraycopy(celdas, 0, destino, desde, celdas.length);
+    }
+
+    /**
+     * Crea una matriz nueva con los números del tablero.
+     * @return la matriz creada.
+     */
+    public int[][] aMatriz() {
+        int[][] matriz = new int[tamanyo][tamanyo];
+        copiarEn(matriz);
+        return matriz;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Tablero otro = (Tablero) o;
+        return Arrays.equals(celdas, otro.celdas);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(celdas);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(celdas);
+    }
+}
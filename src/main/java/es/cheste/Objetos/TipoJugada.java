@@ -0,0 +1,32 @@
+package es.cheste.Objetos;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La enumeración TipoJugada indica qué hizo el jugador en cada anotación de su {@link HistorialJugadas}.
+ */
+public enum TipoJugada {
+
+    /** Un número nuevo en una celda, o la celda vaciada. */
+    JUGADA,
+    /** La última jugada deshecha: la celda vuelve a su número anterior. */
+    DESHACER,
+    /** La última jugada deshecha, rehecha. */
+    REHACER;
+
+    private static final TipoJugada[] VALORES = values();
+
+    /**
+     * Obtiene el tipo a partir de su posición en la enumeración.
+     * @param ordinal la posición del tipo.
+     * @return el tipo correspondiente.
+     * @throws IllegalArgumentException si la posición no corresponde a ningún tipo.
+     */
+    public static TipoJugada desdeOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALORES.length) {
+            throw new IllegalArgumentException("Tipo de jugada desconocido: " + ordinal);
+        }
+        return VALORES[ordinal];
+    }
+}
@@ -0,0 +1,646 @@
+package es.cheste.Servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import es.cheste.Motor.Pista;
+import es.cheste.Motor.PoolSudokus;
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.EstadisticasJugadas;
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.HistorialJugadas;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Utilidad.EntradaSudoku;
+import es.cheste.Utilidad.FiltroSudokus;
+import es.cheste.Utilidad.GestorSudokus;
+import es.cheste.Utilidad.LectorTablero;
+import es.cheste.Utilidad.RenderizadorTablero;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ServidorSudokus atiende peticiones HTTP locales para jugar sin arrancar la aplicación cada vez.
+ * Los Sudokus nuevos salen de un {@link PoolSudokus}, por lo que se entregan sin esperar a generarlos.
+ * <ul>
+ *   <li>{@code GET /sudoku?dificultad=facil|medio|dificil}: devuelve un tablero nuevo, con su UUID en la
+ *   cabecera {@code X-Sudoku-UUID} y, si es reproducible, su código en {@code X-Sudoku-Codigo}.</li>
+ *   <li>{@code POST /comprobar?uuid=...}: recibe el tablero del jugador y devuelve el tablero corregido, con
+ *   el número de errores en la cabecera {@code X-Sudoku-Errores}.</li>
+ *   <li>{@code GET /estado}: devuelve el número de Sudokus disponibles de cada dificultad y los contadores
+ *   de la caché de Sudokus cargados.</li>
+ *   <li>{@code GET /partidas?estado=en_juego,comprobado&dificultad=...&desde=AAAA-MM-DD&hasta=AAAA-MM-DD&pagina=0}:
+ *   devuelve una página del listado de Sudokus guardados, una línea por Sudoku. Todos los parámetros son
+ *   opcionales; sin estado se listan las partidas del jugador.</li>
+ *   <li>{@code POST /jugada?uuid=...&celda=...&valor=...}: anota una sola jugada, con la celda por filas desde 0
+ *   y el valor 0 para vaciarla, y devuelve las pistas como {@code GET /pistas}.</li>
+ *   <li>{@code GET /pistas?uuid=...&celda=...}: devuelve los candidatos de la celda, si se indica, el siguiente
+ *   paso lógico y las celdas en conflicto del tablero del jugador. Se actualizan jugada a jugada, así que
+ *   responder no depende del tamaño del tablero.</li>
+ *   <li>{@code POST /deshacer?uuid=...} y {@code POST /rehacer?uuid=...}: deshacen la última jugada o rehacen
+ *   la última deshecha, y devuelven las pistas de su celda como {@code POST /jugada}.</li>
+ *   <li>{@code GET /historial?uuid=...}: devuelve las estadísticas de las jugadas y cuántas se pueden deshacer
+ *   y rehacer.</li>
+ * </ul>
+ * Si falta el parámetro {@code uuid} o no es un UUID, se responde con 400 antes de buscar el Sudoku.
+ * Los tableros viajan en el mismo formato de texto que los ficheros de partida. Los resultados de las comprobaciones
+ * se guardan en segundo plano, sin que la respuesta espere al disco. Las jugadas solo se añaden al diario de la
+ * partida; los datos del Sudoku se guardan con la primera, para que pase a estar en juego. Las jugadas y
+ * comprobaciones de un mismo
+ * Sudoku se aplican de una en una con {@link GestorSudokus#modificarSudoku}; las consultas no esperan a nadie.
+ * <p>
+ * Las conexiones solo usan {@code TCP_NODELAY} si la propiedad {@code sun.net.httpserver.nodelay} vale true antes
+ * de crear el primer servidor; sin ella las respuestas pequeñas esperan al ACK retardado del cliente. El modo
+ * servidor de {@link es.cheste.Main} la activa al arrancar, salvo que se indique otro valor con {@code -D}.
+ */
+public class ServidorSudokus {
+
+    private static final Logger LOGGER = LogManager.getLogger(ServidorSudokus.class);
+    private static final int MAXIMO_PETICION = 64 * 1024;
+    private static final String TIPO_TEXTO = "text/plain; charset=UTF-8";
+    private static final int TAMANYO_PAGINA = 50;
+    private static final int MAXIMO_PAGINA = 1000;
+
+    private final HttpServer servidor;
+    private final ExecutorService atendedores;
+    private final PoolSudokus pool;
+    private final GestorSudokus gestor;
+    private final int tamanyo;
+    private final ThreadLocal<LectorTablero> lector;
+    private final ThreadLocal<RenderizadorTablero> renderizador;
+
+    /**
+     * Constructor de la clase ServidorSudokus.
+     * @param puerto el puerto en el que escucha el servidor.
+     * @param hilos el número de hilos que atienden peticiones.
+     * @param tamanyo el tamaño de los tableros.
+     * @param pool la reserva de Sudokus ya generados.
+     * @param gestor el gestor con el que se cargan y guardan los Sudokus.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public ServidorSudokus(int puerto, int hilos, int tamanyo, PoolSudokus pool, GestorSudokus gestor) throws IOException {
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+        this.atendedores = Executors.newFixedThreadPool(hilos);
+        this.pool = pool;
+        this.gestor = gestor;
+        this.tamanyo = tamanyo;
+        this.lector = ThreadLocal.withInitial(() -> new LectorTablero(tamanyo));
+        this.renderizador = ThreadLocal.withInitial(() -> new RenderizadorTablero(tamanyo));
+
+        servidor.setExecutor(atendedores);
+        servidor.createContext("/sudoku", this::atenderNuevo);
+        servidor.createContext("/comprobar", this::atenderComprobar);
+        servidor.createContext("/estado", this::atenderEstado);
+        servidor.createContext("/partidas", this::atenderPartidas);
+        servidor.createContext("/jugada", this::atenderJugada);
+        servidor.createContext("/pistas", this::atenderPistas);
+        servidor.createContext("/deshacer", intercambio -> atenderDeshacer(intercambio, false));
+        servidor.createContext("/rehacer", intercambio -> atenderDeshacer(intercambio, true));
+        servidor.createContext("/historial", this::atenderHistorial);
+    }
+
+    /**
+     * Empieza a rellenar la reserva y a atender peticiones.
+     */
+    public void iniciar() {
+        pool.iniciar();
+        servidor.start();
+        LOGGER.info("Servidor de sudokus escuchando en el puerto {}", getPuerto());
+    }
+
+    /**
+     * Detiene el servidor, esperando como mucho el tiempo indicado a que terminen las peticiones en curso.
+     * @param segundos el tiempo máximo de espera.
+     */
+    public void detener(int segundos) {
+        servidor.stop(segundos);
+        atendedores.shutdown();
+        pool.cerrar(segundos);
+        try {
+            atendedores.awaitTermination(segundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Servidor de sudokus detenido");
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor.
+     * @return el puerto del servidor.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Atiende la petición de un Sudoku nuevo.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderNuevo(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            Dificultad dificultad;
+            try {
+                dificultad = Dificultad.desdeNombre(leerParametros(intercambio).getOrDefault("dificultad", "facil"));
+            } catch (IllegalArgumentException e) {
+                responder(intercambio, 400, "Dificultad no válida, use facil, medio o dificil");
+                return;
+            }
+
+            Sudoku sudoku = pool.obtener(dificultad);
+            RenderizadorTablero texto = renderizador.get();
+            int longitud = texto.renderizar(sudoku.getEnunciado());
+
+            intercambio.getResponseHeaders().set("X-Sudoku-UUID", sudoku.getUuid());
+            CodigoSudoku codigo = sudoku.getCodigo();
+            if (codigo != null) {
+                intercambio.getResponseHeaders().set("X-Sudoku-Codigo", codigo.toString());
+            }
+            responder(intercambio, 200, texto.getBytes(), longitud);
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al entregar un sudoku nuevo {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la comprobación del tablero de un jugador.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al leer la petición o al responder.
+     */
+    private void atenderComprobar(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"POST".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            String uuid = leerUuid(leerParametros(intercambio));
+            if (uuid == null) {
+                responder(intercambio, 400, "Falta el parámetro uuid o no es un UUID válido");
+                return;
+            }
+            Sudoku sudoku = gestor.cargarDatosSudoku(uuid);
+            if (sudoku == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            byte[] cuerpo = leerCuerpo(intercambio.getRequestBody());
+            if (cuerpo == null) {
+                responder(intercambio, 413, "El tablero es demasiado grande");
+                return;
+            }
+
+            LectorTablero lectorTablero = lector.get();
+            int[] celdas = new int[tamanyo * tamanyo];
+            boolean completo = lectorTablero.leer(ByteBuffer.wrap(cuerpo), celdas);
+            if (!completo || lectorTablero.getMalformadas() > 0) {
+                responder(intercambio, 400, "El tablero no tiene el formato esperado. Celdas no válidas: "
+                        + lectorTablero.describirCeldas(LectorTablero.MALFORMADA));
+                return;
+            }
+
+            Sudoku comprobado = gestor.modificarSudoku(uuid, copia -> copia.comprobarResultado(celdas),
+                    EstadoSudoku.COMPROBADO);
+            if (comprobado == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            RenderizadorTablero texto = renderizador.get();
+            int longitud = texto.renderizar(comprobado.getComprobado());
+            intercambio.getResponseHeaders().set("X-Sudoku-Errores", Integer.toString(comprobado.getNumErrores()));
+            responder(intercambio, 200, texto.getBytes(), longitud);
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al comprobar un sudoku {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la consulta del número de Sudokus disponibles.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderEstado(HttpExchange intercambio) throws IOException {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (Dificultad dificultad : Dificultad.values()) {
+                sb.append(dificultad).append(": ").append(pool.disponibles(dificultad)).append('\n');
+            }
+            sb.append(GestorSudokus.getCache()).append('\n');
+            responder(intercambio, 200, sb.toString());
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la consulta de una página del listado de Sudokus guardados.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderPartidas(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            Map<String, String> parametros = leerParametros(intercambio);
+            FiltroSudokus filtro;
+            int pagina;
+            int tamanyoPagina;
+            try {
+                filtro = leerFiltro(parametros);
+                pagina = Integer.parseInt(parametros.getOrDefault("pagina", "0"));
+                tamanyoPagina = Integer.parseInt(parametros.getOrDefault("tamanyo", Integer.toString(TAMANYO_PAGINA)));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                responder(intercambio, 400, "Parámetros no válidos: " + e.getMessage());
+                return;
+            }
+            if (pagina < 0 || tamanyoPagina < 1 || tamanyoPagina > MAXIMO_PAGINA) {
+                responder(intercambio, 400, "La página debe ser positiva y su tamaño estar entre 1 y " + MAXIMO_PAGINA);
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (EntradaSudoku entrada : GestorSudokus.obtenerPagina(filtro, pagina, tamanyoPagina)) {
+                sb.append(entrada).append('\n');
+            }
+            responder(intercambio, 200, sb.toString());
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al listar los sudokus {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende una jugada en una sola celda y responde con las pistas actualizadas.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderJugada(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"POST".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            Map<String, String> parametros = leerParametros(intercambio);
+            String uuid = leerUuid(parametros);
+            if (uuid == null) {
+                responder(intercambio, 400, "Falta el parámetro uuid o no es un UUID válido");
+                return;
+            }
+            Sudoku sudoku = gestor.cargarDatosSudoku(uuid);
+            if (sudoku == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            int celda;
+            int valor;
+            try {
+                celda = Integer.parseInt(parametros.getOrDefault("celda", "-1"));
+                valor = Integer.parseInt(parametros.getOrDefault("valor", "-1"));
+            } catch (NumberFormatException e) {
+                responder(intercambio, 400, "Parámetros no válidos: " + e.getMessage());
+                return;
+            }
+            if (celda < 0 || celda >= tamanyo * tamanyo || valor < 0 || valor > tamanyo) {
+                responder(intercambio, 400, "La celda debe estar entre 0 y " + (tamanyo * tamanyo - 1)
+                        + " y el valor entre 0 y " + tamanyo);
+                return;
+            }
+            if (sudoku.esVisible(celda)) {
+                responder(intercambio, 409, "La celda " + celda + " forma parte del tablero de juego");
+                return;
+            }
+
+            Sudoku jugado = gestor.modificarSudoku(uuid, copia -> copia.anotarJugada(celda, valor),
+                    sudoku.getHistorial() == null ? EstadoSudoku.EN_JUEGO : null);
+            if (jugado == null) {
+                responder(intercambio, 500, "Hubo un error inesperado");
+                return;
+            }
+
+            intercambio.getResponseHeaders().set("X-Sudoku-Errores", Integer.toString(jugado.getNumErrores()));
+            responder(intercambio, 200, describirPistas(jugado, celda));
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al anotar una jugada {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la petición de deshacer la última jugada o de rehacer la última deshecha, y responde con las
+     * pistas actualizadas de su celda.
+     * @param intercambio la petición HTTP.
+     * @param rehacer true para rehacer, false para deshacer.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderDeshacer(HttpExchange intercambio, boolean rehacer) throws IOException {
+        try {
+            if (!"POST".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            String uuid = leerUuid(leerParametros(intercambio));
+            if (uuid == null) {
+                responder(intercambio, 400, "Falta el parámetro uuid o no es un UUID válido");
+                return;
+            }
+            Sudoku sudoku = gestor.cargarDatosSudoku(uuid);
+            if (sudoku == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            boolean[] hecha = new boolean[1];
+            Sudoku jugado = gestor.modificarSudoku(uuid,
+                    copia -> hecha[0] = (rehacer ? copia.rehacer() : copia.deshacer()) != null, null);
+            if (jugado == null) {
+                responder(intercambio, 500, "Hubo un error inesperado");
+                return;
+            }
+            if (!hecha[0]) {
+                responder(intercambio, 409, rehacer ? "No hay jugadas que rehacer" : "No hay jugadas que deshacer");
+                return;
+            }
+
+            intercambio.getResponseHeaders().set("X-Sudoku-Errores", Integer.toString(jugado.getNumErrores()));
+            responder(intercambio, 200, describirPistas(jugado, jugado.getHistorial().getUltima().celda()));
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al deshacer o rehacer una jugada {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la consulta de las estadísticas de las jugadas de un Sudoku.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderHistorial(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            String uuid = leerUuid(leerParametros(intercambio));
+            if (uuid == null) {
+                responder(intercambio, 400, "Falta el parámetro uuid o no es un UUID válido");
+                return;
+            }
+            Sudoku sudoku = gestor.cargarDatosSudoku(uuid);
+            if (sudoku == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            HistorialJugadas historial = sudoku.getHistorial();
+            EstadisticasJugadas estadisticas = historial == null ? EstadisticasJugadas.VACIAS
+                    : historial.getEstadisticas();
+            StringBuilder sb = new StringBuilder();
+            sb.append("jugadas: ").append(estadisticas.jugadas())
+                    .append("\ndeshechas: ").append(estadisticas.deshechas())
+                    .append("\nrehechas: ").append(estadisticas.rehechas())
+                    .append("\nsegundos: ").append(TimeUnit.MILLISECONDS.toSeconds(estadisticas.tiempoJugado()))
+                    .append("\ndeshacer: ").append(historial == null ? 0 : historial.getNumDeshacer())
+                    .append("\nrehacer: ").append(historial == null ? 0 : historial.getNumRehacer())
+                    .append('\n');
+            responder(intercambio, 200, sb.toString());
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al consultar el historial de un sudoku {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende la consulta de las pistas del tablero de un jugador.
+     * @param intercambio la petición HTTP.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private void atenderPistas(HttpExchange intercambio) throws IOException {
+        try {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                responder(intercambio, 405, "Método no permitido");
+                return;
+            }
+
+            Map<String, String> parametros = leerParametros(intercambio);
+            String uuid = leerUuid(parametros);
+            if (uuid == null) {
+                responder(intercambio, 400, "Falta el parámetro uuid o no es un UUID válido");
+                return;
+            }
+            Sudoku sudoku = gestor.cargarDatosSudoku(uuid);
+            if (sudoku == null) {
+                responder(intercambio, 404, "No existe el sudoku indicado");
+                return;
+            }
+
+            int celda;
+            try {
+                celda = Integer.parseInt(parametros.getOrDefault("celda", "-1"));
+            } catch (NumberFormatException e) {
+                responder(intercambio, 400, "Parámetros no válidos: " + e.getMessage());
+                return;
+            }
+            if (celda >= tamanyo * tamanyo) {
+                responder(intercambio, 400, "La celda debe estar entre 0 y " + (tamanyo * tamanyo - 1));
+                return;
+            }
+
+            responder(intercambio, 200, describirPistas(sudoku, celda));
+        } catch (RuntimeException e) {
+            LOGGER.error("Hubo un error al calcular las pistas de un sudoku {}", e.getMessage());
+            responder(intercambio, 500, "Hubo un error inesperado");
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Describe las pistas del tablero de un jugador, una por línea: los candidatos de una celda, el siguiente
+     * paso lógico y las celdas en conflicto.
+     * @param sudoku el Sudoku del jugador.
+     * @param celda la celda cuyos candidatos se describen, o un número negativo para omitirlos.
+     * @return el texto con las pistas.
+     */
+    private static String describirPistas(Sudoku sudoku, int celda) {
+        StringBuilder sb = new StringBuilder();
+        if (celda >= 0) {
+            sb.append("candidatos:");
+            int candidatos = sudoku.getCandidatos(celda);
+            while (candidatos != 0) {
+                sb.append(' ').append(Integer.numberOfTrailingZeros(candidatos) + 1);
+                candidatos &= candidatos - 1;
+            }
+            sb.append('\n');
+        }
+
+        Pista pista = sudoku.getSiguientePaso();
+        sb.append("siguiente:");
+        if (pista != null) {
+            sb.append(" celda ").append(pista.celda()).append(" valor ").append(pista.valor())
+                    .append(' ').append(pista.tecnica());
+        }
+        sb.append("\nconflictos:");
+        for (int conflicto : sudoku.getConflictos()) {
+            sb.append(' ').append(conflicto);
+        }
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * Construye el filtro del listado de Sudokus a partir de los parámetros de una petición.
+     * Las fechas se interpretan como días completos en la zona horaria del servidor.
+     * @param parametros los parámetros de la petición.
+     * @return el filtro de los Sudokus a listar.
+     * @throws IllegalArgumentException si un estado o la dificultad no son válidos.
+     * @throws DateTimeParseException si una fecha no tiene el formato AAAA-MM-DD.
+     */
+    private static FiltroSudokus leerFiltro(Map<String, String> parametros) {
+        Set<EstadoSudoku> estados = FiltroSudokus.PARTIDAS.estados();
+        if (parametros.containsKey("estado")) {
+            estados = EnumSet.noneOf(EstadoSudoku.class);
+            for (String estado : parametros.get("estado").split(",")) {
+                estados.add(EstadoSudoku.valueOf(estado.trim().toUpperCase()));
+            }
+        }
+
+        Dificultad dificultad = parametros.containsKey("dificultad")
+                ? Dificultad.desdeNombre(parametros.get("dificultad")) : null;
+        ZoneId zona = ZoneId.systemDefault();
+        long desde = parametros.containsKey("desde")
+                ? LocalDate.parse(parametros.get("desde")).atStartOfDay(zona).toInstant().toEpochMilli()
+                : Long.MIN_VALUE;
+        long hasta = parametros.containsKey("hasta")
+                ? LocalDate.parse(parametros.get("hasta")).plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli() - 1
+                : Long.MAX_VALUE;
+        return new FiltroSudokus(estados, dificultad, desde, hasta);
+    }
+
+    /**
+     * Obtiene el UUID de una petición en forma canónica. Se comprueba antes de buscar el Sudoku, porque con él se
+     * forman las rutas de sus ficheros.
+     * @param parametros los parámetros de la petición.
+     * @return el UUID en minúsculas y con sus 36 caracteres, o null si falta o no es un UUID válido.
+     */
+    private static String leerUuid(Map<String, String> parametros) {
+        String uuid = parametros.get("uuid");
+
+        if (uuid == null) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(uuid).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lee el cuerpo de una petición sin superar el tamaño máximo admitido.
+     * @param entrada el flujo del cuerpo de la petición.
+     * @return los bytes del cuerpo, o null si supera el tamaño máximo.
+     * @throws IOException si ocurre un error al leer.
+     */
+    private static byte[] leerCuerpo(InputStream entrada) throws IOException {
+        byte[] cuerpo = entrada.readNBytes(MAXIMO_PETICION + 1);
+        return cuerpo.length > MAXIMO_PETICION ? null : cuerpo;
+    }
+
+    /**
+     * Obtiene los parámetros de la URL de una petición.
+     * @param intercambio la petición HTTP.
+     * @return los parámetros por nombre.
+     */
+    private static Map<String, String> leerParametros(HttpExchange intercambio) {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = intercambio.getRequestURI().getRawQuery();
+
+        if (consulta != null) {
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual > 0) {
+                    parametros.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                            URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parametros;
+    }
+
+    /**
+     * Envía una respuesta de texto.
+     * @param intercambio la petición HTTP.
+     * @param codigo el código de estado HTTP.
+     * @param mensaje el texto de la respuesta.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private static void responder(HttpExchange intercambio, int codigo, String mensaje) throws IOException {
+        byte[] bytes = mensaje.getBytes(StandardCharsets.UTF_8);
+        responder(intercambio, codigo, bytes, bytes.length);
+    }
+
+    /**
+     * Envía una respuesta con los primeros bytes de un buffer.
+     * @param intercambio la petición HTTP.
+     * @param codigo el código de estado HTTP.
+     * @param bytes el buffer con la respuesta.
+     * @param longitud el número de bytes a enviar.
+     * @throws IOException si ocurre un error al responder.
+     */
+    private static void responder(HttpExchange intercambio, int codigo, byte[] bytes, int longitud) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", TIPO_TEXTO);
+        intercambio.sendResponseHeaders(codigo, longitud);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes, 0, longitud);
+        }
+    }
+}
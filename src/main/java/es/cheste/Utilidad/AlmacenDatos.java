@@ -0,0 +1,56 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La interfaz AlmacenDatos define dónde y cómo se guardan los datos binarios de los Sudokus.
+ * GestorSudokus elige la implementación según la propiedad {@code almacen.tipo} de la configuración.
+ */
+public interface AlmacenDatos {
+
+    /**
+     * Guarda un grupo de Sudokus con el estado indicado.
+     * Si un Sudoku ya estaba guardado, la nueva versión sustituye a la anterior.
+     * @param sudokus los Sudokus a guardar.
+     * @param estado el estado con el que se guardan.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    void guardar(List<Sudoku> sudokus, EstadoSudoku estado) throws IOException;
+
+    /**
+     * Carga un Sudoku a partir de su UUID.
+     * @param uuid el UUID del Sudoku.
+     * @return el Sudoku cargado, o null si no está guardado.
+     * @throws IOException si ocurre un error al leer.
+     */
+    Sudoku cargar(String uuid) throws IOException;
+
+    /**
+     * Recorre los Sudokus guardados que admite un filtro. El recorrido es perezoso: los datos se leen por
+     * bloques a medida que se consumen, por lo que la memoria usada no depende del número de Sudokus guardados
+     * y las primeras entradas se obtienen sin leer el resto. El flujo se debe cerrar al terminar.
+     * @param filtro el filtro de los Sudokus a recorrer.
+     * @return el flujo de entradas, una por Sudoku, en el orden en que se guardaron.
+     * @throws IOException si ocurre un error al empezar a leer.
+     */
+    Stream<EntradaSudoku> recorrer(FiltroSudokus filtro) throws IOException;
+
+    /**
+     * Obtiene los UUIDs de los Sudokus que tienen una partida para el jugador.
+     * @return la lista de UUIDs.
+     * @throws IOException si ocurre un error al leer.
+     */
+    default List<String> listarUUID() throws IOException {
+        try (Stream<EntradaSudoku> entradas = recorrer(FiltroSudokus.PARTIDAS)) {
+            return entradas.map(EntradaSudoku::uuid).toList();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase AlmacenFicheros guarda los datos de cada Sudoku en su propio fichero {@code .dat}.
+ * El estado no se guarda: las partidas se enumeran a partir del directorio de partidas. Cada fichero se
+ * sustituye con {@link EscrituraAtomica}, así que nunca se lee a medio escribir.
+ */
+public class AlmacenFicheros implements AlmacenDatos {
+
+    private final String directorioPartidas;
+    private final String rutaDatos;
+
+    /**
+     * Constructor de la clase AlmacenFicheros.
+     * @param directorioPartidas el directorio con las partidas de texto.
+     * @param rutaDatos el prefijo de ruta de los ficheros de datos.
+     */
+    public AlmacenFicheros(String directorioPartidas, String rutaDatos) {
+        this.directorioPartidas = directorioPartidas;
+        this.rutaDatos = rutaDatos;
+    }
+
+    @Override
+    public void guardar(List<Sudoku> sudokus, EstadoSudoku estado) throws IOException {
+        for (Sudoku sudoku : sudokus) {
+            EscrituraAtomica.escribir(Paths.get(rutaDatos + sudoku.getUuid() + ".dat"), CodecSudoku.codificar(sudoku,
+                    estado == EstadoSudoku.GENERADO));
+        }
+    }
+
+    @Override
+    public Sudoku cargar(String uuid) throws IOException {
+        Path pathDatos = Paths.get(rutaDatos + uuid + ".dat");
+
+        if (!Files.exists(pathDatos)) {
+            return null;
+        }
+        return CodecSudoku.leer(Files.readAllBytes(pathDatos));
+    }
+
+    @Override
+    public Stream<EntradaSudoku> recorrer(FiltroSudokus filtro) throws IOException {
+
+        if (!filtro.admiteEstado(EstadoSudoku.EN_JUEGO) || !Files.isDirectory(Paths.get(directorioPartidas))) {
+            return Stream.empty();
+        }
+
+        DirectoryStream<Path> ficheros = Files.newDirectoryStream(Paths.get(directorioPartidas), "*.txt");
+        return StreamSupport.stream(ficheros.spliterator(), false)
+                .onClose(() -> cerrar(ficheros))
+                .map(AlmacenFicheros::entrada)
+                .filter(entrada -> entrada != null && filtro.admite(entrada));
+    }
+
+    /**
+     * Crea la entrada de una partida a partir de su fichero. Como el estado no se guarda, todas las partidas
+     * se consideran en juego, con la fecha de la última modificación del fichero.
+     * @param partida el fichero de partida.
+     * @return la entrada de la partida, o null si el nombre del fichero no corresponde a una partida.
+     */
+    private static EntradaSudoku entrada(Path partida) {
+        String uuid = GestorSudokus.uuidPartida(partida);
+
+        if (uuid == null) {
+            return null;
+        }
+
+        try {
+            return EntradaSudoku.de(UUID.fromString(uuid), EstadoSudoku.EN_JUEGO,
+                    Files.getLastModifiedTime(partida).toMillis());
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Cierra el recorrido de un directorio.
+     * @param ficheros el recorrido a cerrar.
+     */
+    private static void cerrar(DirectoryStream<Path> ficheros) {
+        try {
+            ficheros.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase AlmacenSegmento guarda todos los Sudokus en un único fichero de segmento al que solo se añaden
+ * registros de tamaño fijo, y mantiene un índice UUID → posición en un fichero proyectado en memoria.
+ * <p>
+ * Cada registro contiene el estado, la fecha, los datos de {@link CodecSudoku} y un CRC32. Los Sudokus generados
+ * por adelantado de forma reproducible se codifican en forma compacta y el resto del registro queda a cero, así
+ * que se pueden listar y exportar aunque su tablero se regenere al cargarlos. Al abrir el almacén se descartan
+ * los registros incompletos o corruptos del final del segmento, y el índice se reconstruye recorriendo el segmento
+ * si no existe o no se corresponde con él; los registros corruptos de en medio se saltan sin perder los
+ * siguientes. Cuando un Sudoku se guarda varias veces, el índice apunta siempre a su último registro válido.
+ */
+public class AlmacenSegmento implements AlmacenDatos, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(AlmacenSegmento.class);
+    private static final int FIRMA_SEGMENTO = 0x53445347;
+    private static final int FIRMA_INDICE = 0x53444958;
+    private static final int VERSION = 1;
+    private static final int CABECERA_SEGMENTO = 16;
+    private static final int CABECERA_INDICE = 32;
+    private static final int TAMANYO_RANURA = 24;
+    private static final int CAPACIDAD_INICIAL = 1 << 14;
+    private static final int REGISTROS_POR_LECTURA = 1024;
+    private static final int POS_DATOS = 9;
+    private static final int POS_UUID = POS_DATOS + 4;
+
+    private final Path rutaSegmento;
+    private final Path rutaIndice;
+    private final int tamanyoDatos;
+    private final int tamanyoRegistro;
+    private final FileChannel segmento;
+    private final ByteBuffer registro;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer indice;
+    private int capacidad;
+    private int ocupados;
+    private long registros;
+
+    /**
+     * Constructor de la clase AlmacenSegmento. Abre o crea el segmento y su índice.
+     * @param rutaSegmento la ruta del fichero de segmento.
+     * @param rutaIndice la ruta del fichero de índice.
+     * @param tamanyo el tamaño de los tableros que se guardan.
+     * @throws IOException si los ficheros no se pueden abrir o no corresponden a este tamaño de tablero.
+     */
+    public AlmacenSegmento(Path rutaSegmento, Path rutaIndice, int tamanyo) throws IOException {
+        this.rutaSegmento = rutaSegmento;
+        this.rutaIndice = rutaIndice;
+        this.tamanyoDatos = CodecSudoku.tamanyoCodificado(tamanyo);
+        this.tamanyoRegistro = POS_DATOS + tamanyoDatos + 4;
+        this.registro = ByteBuffer.allocate(tamanyoRegistro);
+
+        Path directorio = rutaSegmento.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+
+        this.segmento = FileChannel.open(rutaSegmento, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            abrirSegmento(tamanyo);
+            abrirIndice();
+        } catch (IOException e) {
+            segmento.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Indica si el almacén no contiene ningún registro.
+     * @return true si el almacén está vacío.
+     */
+    public synchronized boolean estaVacio() {
+        return registros == 0;
+    }
+
+    @Override
+    public synchronized void guardar(List<Sudoku> sudokus, EstadoSudoku estado) throws IOException {
+
+        if (sudokus.isEmpty()) {
+            return;
+        }
+
+        long inicio = posicionRegistro(registros);
+        long fecha = System.currentTimeMillis();
+        ByteBuffer lote = ByteBuffer.allocate(tamanyoRegistro * sudokus.size());
+
+        for (Sudoku sudoku : sudokus) {
+            int base = lote.position();
+            lote.put((byte) estado.ordinal()).putLong(fecha);
+            CodecSudoku.codificar(sudoku, lote, estado == EstadoSudoku.GENERADO);
+            lote.position(base + POS_DATOS + tamanyoDatos);
+            crc.reset();
+            crc.update(lote.array(), base, POS_DATOS + tamanyoDatos);
+            lote.putInt((int) crc.getValue());
+        }
+
+        lote.flip();
+        escribirCompleto(lote, inicio);
+        segmento.force(false);
+
+        for (int i = 0; i < sudokus.size(); i++) {
+            UUID uuid = sudokus.get(i).getIdentificador();
+            insertar(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), inicio + (long) i * tamanyoRegistro);
+        }
+        registros += sudokus.size();
+        indice.force();
+        escribirCabeceraIndice();
+    }
+
+    @Override
+    public synchronized Sudoku cargar(String uuid) throws IOException {
+
+        UUID clave = UUID.fromString(uuid);
+        long posicion = buscar(clave.getMostSignificantBits(), clave.getLeastSignificantBits());
+
+        if (posicion < 0) {
+            return null;
+        }
+
+        registro.clear();
+        leerCompleto(registro, posicion);
+        if (!crcValido(registro.array(), 0)) {
+            throw new IOException("El registro del Sudoku " + uuid + " está dañado");
+        }
+
+        return CodecSudoku.decodificar(registro.position(POS_DATOS).limit(POS_DATOS + tamanyoDatos));
+    }
+
+    @Override
+    public Stream<EntradaSudoku> recorrer(FiltroSudokus filtro) {
+        return StreamSupport.stream(new Recorrido(filtro), false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        indice.force();
+        segmento.force(true);
+        segmento.close();
+    }
+
+    /**
+     * Escribe la cabecera de un segmento nuevo, o valida la de uno existente y descarta su final incompleto.
+     * @param tamanyo el tamaño de los tableros que se guardan.
+     * @throws IOException si el segmento no corresponde a este tamaño de tablero.
+     */
+    private void abrirSegmento(int tamanyo) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_SEGMENTO);
+
+        if (segmento.size() == 0) {
+            cabecera.putInt(FIRMA_SEGMENTO).putInt(VERSION).putInt(tamanyo).putInt(tamanyoRegistro).flip();
+            escribirCompleto(cabecera, 0);
+            segmento.force(true);
+            return;
+        }
+
+        leerCompleto(cabecera, 0);
+        if (cabecera.getInt(0) != FIRMA_SEGMENTO || cabecera.getInt(4) != VERSION
+                || cabecera.getInt(8) != tamanyo || cabecera.getInt(12) != tamanyoRegistro) {
+            throw new IOException("El fichero " + rutaSegmento + " no es un segmento de Sudokus de tamaño " + tamanyo);
+        }
+
+        registros = (segmento.size() - CABECERA_SEGMENTO) / tamanyoRegistro;
+        if (posicionRegistro(registros) != segmento.size()) {
+            LOGGER.warn("Se descarta un registro incompleto al final de {}", rutaSegmento);
+            segmento.truncate(posicionRegistro(registros));
+        }
+    }
+
+    /**
+     * Proyecta el índice en memoria, reconstruyéndolo si no existe o no corresponde al segmento,
+     * e indexa los registros añadidos desde la última vez que se guardó.
+     * @throws IOException si ocurre un error al leer o escribir los ficheros.
+     */
+    private void abrirIndice() throws IOException {
+        long indexados = -1;
+
+        if (Files.exists(rutaIndice)) {
+            try (FileChannel canal = FileChannel.open(rutaIndice, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (canal.size() >= CABECERA_INDICE) {
+                    indice = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+                    int capacidadLeida = indice.getInt(8);
+                    if (indice.getInt(0) == FIRMA_INDICE && indice.getInt(4) == VERSION
+                            && Integer.bitCount(capacidadLeida) == 1
+                            && canal.size() == CABECERA_INDICE + (long) capacidadLeida * TAMANYO_RANURA
+                            && indice.getLong(16) <= registros) {
+                        capacidad = capacidadLeida;
+                        ocupados = indice.getInt(12);
+                        indexados = indice.getLong(16);
+                    }
+                }
+            }
+        }
+
+        if (indexados < 0) {
+            LOGGER.warn("Se reconstruye el índice {} a partir del segmento", rutaIndice);
+            int nuevaCapacidad = CAPACIDAD_INICIAL;
+            while (nuevaCapacidad < registros * 2) {
+                nuevaCapacidad <<= 1;
+            }
+            indice = crearIndice(rutaIndice, nuevaCapacidad);
+            capacidad = nuevaCapacidad;
+            ocupados = 0;
+            indexados = 0;
+        }
+
+        if (indexados < registros) {
+            indexarDesde(indexados);
+        }
+    }
+
+    /**
+     * Recorre el segmento desde un registro comprobando su CRC y añadiéndolo al índice. Los registros dañados
+     * se saltan, de modo que el índice sigue apuntando a la copia anterior del Sudoku si la hay; si los dañados
+     * llegan hasta el final del segmento, son una escritura cortada y el segmento se trunca donde empiezan.
+     * @param desde el primer registro a indexar.
+     * @throws IOException si ocurre un error al leer o escribir los ficheros.
+     */
+    private void indexarDesde(long desde) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate(tamanyoRegistro * REGISTROS_POR_LECTURA);
+        long primerDanyado = -1;
+
+        for (long actual = desde; actual < registros; ) {
+            int cuantos = (int) Math.min(REGISTROS_POR_LECTURA, registros - actual);
+            lectura.clear().limit(cuantos * tamanyoRegistro);
+            leerCompleto(lectura, posicionRegistro(actual));
+
+            for (int i = 0; i < cuantos; i++, actual++) {
+                int base = i * tamanyoRegistro;
+                if (!crcValido(lectura.array(), base)) {
+                    if (primerDanyado < 0) {
+                        primerDanyado = actual;
+                    }
+                    continue;
+                }
+                if (primerDanyado >= 0) {
+                    LOGGER.error("Se saltan los registros dañados {} a {} de {}", primerDanyado, actual - 1, rutaSegmento);
+                    primerDanyado = -1;
+                }
+                insertar(lectura.getLong(base + POS_UUID), lectura.getLong(base + POS_UUID + 8), posicionRegistro(actual));
+            }
+        }
+
+        if (primerDanyado >= 0) {
+            LOGGER.warn("Se descartan los registros dañados del final de {} desde el {}", rutaSegmento, primerDanyado);
+            segmento.truncate(posicionRegistro(primerDanyado));
+            registros = primerDanyado;
+        }
+        indice.force();
+        escribirCabeceraIndice();
+    }
+
+    /**
+     * Busca la posición del último registro de un UUID.
+     * @param msb los bits más significativos del UUID.
+     * @param lsb los bits menos significativos del UUID.
+     * @return la posición del registro en el segmento, o -1 si no está indexado.
+     */
+    private long buscar(long msb, long lsb) {
+        int mascara = capacidad - 1;
+
+        for (int ranura = dispersar(msb, lsb) & mascara; ; ranura = (ranura + 1) & mascara) {
+            int base = CABECERA_INDICE + ranura * TAMANYO_RANURA;
+            long posicion = indice.getLong(base + 16);
+            if (posicion == 0) {
+                return -1;
+            }
+            if (indice.getLong(base) == msb && indice.getLong(base + 8) == lsb) {
+                return posicion;
+            }
+        }
+    }
+
+    /**
+     * Añade o actualiza la posición de un UUID en el índice, ampliándolo si está demasiado lleno.
+     * @param msb los bits más significativos del UUID.
+     * @param lsb los bits menos significativos del UUID.
+     * @param posicion la posición del registro en el segmento.
+     * @throws IOException si hay que ampliar el índice y no se puede escribir.
+     */
+    private void insertar(long msb, long lsb, long posicion) throws IOException {
+        if (ponerEnRanura(indice, capacidad, msb, lsb, posicion)) {
+            ocupados++;
+            if (ocupados > capacidad / 4 * 3) {
+                ampliarIndice();
+            }
+        }
+    }
+
+    /**
+     * Duplica la capacidad del índice escribiéndolo en un fichero nuevo que sustituye al actual.
+     * @throws IOException si ocurre un error al escribir el nuevo índice.
+     */
+    private void ampliarIndice() throws IOException {
+        int nuevaCapacidad = capacidad << 1;
+        Path temporal = rutaIndice.resolveSibling(rutaIndice.getFileName() + ".tmp");
+        MappedByteBuffer nuevo = crearIndice(temporal, nuevaCapacidad);
+
+        for (int ranura = 0; ranura < capacidad; ranura++) {
+            int base = CABECERA_INDICE + ranura * TAMANYO_RANURA;
+            long posicion = indice.getLong(base + 16);
+            if (posicion != 0) {
+                ponerEnRanura(nuevo, nuevaCapacidad, indice.getLong(base), indice.getLong(base + 8), posicion);
+            }
+        }
+
+        nuevo.putInt(12, ocupados).putLong(16, registros);
+        nuevo.force();
+        Files.move(temporal, rutaIndice, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indice = nuevo;
+        capacidad = nuevaCapacidad;
+    }
+
+    /**
+     * Escribe un UUID y su posición en la primera ranura libre o en la que ya ocupaba.
+     * @param tabla el índice proyectado en memoria.
+     * @param capacidadTabla el número de ranuras del índice.
+     * @param msb los bits más significativos del UUID.
+     * @param lsb los bits menos significativos del UUID.
+     * @param posicion la posición del registro en el segmento.
+     * @return true si se ha ocupado una ranura nueva, false si se ha actualizado una existente.
+     */
+    private static boolean ponerEnRanura(MappedByteBuffer tabla, int capacidadTabla, long msb, long lsb, long posicion) {
+        int mascara = capacidadTabla - 1;
+
+        for (int ranura = dispersar(msb, lsb) & mascara; ; ranura = (ranura + 1) & mascara) {
+            int base = CABECERA_INDICE + ranura * TAMANYO_RANURA;
+            if (tabla.getLong(base + 16) == 0) {
+                tabla.putLong(base, msb).putLong(base + 8, lsb).putLong(base + 16, posicion);
+                return true;
+            }
+            if (tabla.getLong(base) == msb && tabla.getLong(base + 8) == lsb) {
+                tabla.putLong(base + 16, posicion);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Crea un fichero de índice vacío y lo proyecta en memoria.
+     * @param ruta la ruta del fichero.
+     * @param capacidadIndice el número de ranuras.
+     * @return el índice proyectado en memoria.
+     * @throws IOException si no se puede crear el fichero.
+     */
+    private static MappedByteBuffer crearIndice(Path ruta, int capacidadIndice) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer tabla = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    CABECERA_INDICE + (long) capacidadIndice * TAMANYO_RANURA);
+            tabla.putInt(0, FIRMA_INDICE).putInt(4, VERSION).putInt(8, capacidadIndice).putInt(12, 0).putLong(16, 0);
+            return tabla;
+        }
+    }
+
+    /**
+     * Actualiza en la cabecera del índice el número de ranuras ocupadas y de registros indexados.
+     */
+    private void escribirCabeceraIndice() {
+        indice.putInt(12, ocupados).putLong(16, registros);
+    }
+
+    /**
+     * Comprueba el CRC de un registro.
+     * @param datos el array que contiene el registro.
+     * @param base la posición del registro en el array.
+     * @return true si el CRC coincide.
+     */
+    private boolean crcValido(byte[] datos, int base) {
+        int longitud = POS_DATOS + tamanyoDatos;
+        crc.reset();
+        crc.update(datos, base, longitud);
+        return (int) crc.getValue() == ByteBuffer.wrap(datos, base + longitud, 4).getInt();
+    }
+
+    /**
+     * Calcula la posición de un registro en el segmento.
+     * @param numero el número de registro.
+     * @return la posición en bytes.
+     */
+    private long posicionRegistro(long numero) {
+        return CABECERA_SEGMENTO + numero * tamanyoRegistro;
+    }
+
+    /**
+     * Escribe todo el contenido de un buffer en el segmento.
+     * @param buffer el buffer a escribir.
+     * @param posicion la posición del segmento donde se empieza a escribir.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    private void escribirCompleto(ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicion += segmento.write(buffer, posicion);
+        }
+    }
+
+    /**
+     * Lee del segmento hasta llenar el espacio restante de un buffer.
+     * @param buffer el buffer a llenar.
+     * @param posicion la posición del segmento donde se empieza a leer.
+     * @throws IOException si ocurre un error al leer o el segmento se acaba antes.
+     */
+    private void leerCompleto(ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            int leidos = segmento.read(buffer, posicion);
+            if (leidos < 0) {
+                throw new IOException("Fin inesperado del segmento " + rutaSegmento);
+            }
+            posicion += leidos;
+        }
+    }
+
+    /**
+     * Mezcla los bits de un UUID para repartirlo por las ranuras del índice.
+     * @param msb los bits más significativos del UUID.
+     * @param lsb los bits menos significativos del UUID.
+     * @return el valor de dispersión.
+     */
+    private static int dispersar(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Lee un bloque de registros a partir de uno dado y añade a una lista las entradas de los que el filtro
+     * admite y no han sido sustituidos por un registro posterior del mismo Sudoku.
+     * @param desde el primer registro a leer.
+     * @param filtro el filtro de los Sudokus.
+     * @param lectura el buffer de lectura, con espacio para {@value #REGISTROS_POR_LECTURA} registros.
+     * @param entradas la lista donde se añaden las entradas.
+     * @return el número de registros leídos, 0 si no quedan registros.
+     * @throws IOException si ocurre un error al leer.
+     */
+    private synchronized int leerEntradas(long desde, FiltroSudokus filtro, ByteBuffer lectura,
+                                          List<EntradaSudoku> entradas) throws IOException {
+
+        int cuantos = (int) Math.min(REGISTROS_POR_LECTURA, registros - desde);
+        if (cuantos <= 0) {
+            return 0;
+        }
+
+        lectura.clear().limit(cuantos * tamanyoRegistro);
+        leerCompleto(lectura, posicionRegistro(desde));
+
+        for (int i = 0; i < cuantos; i++) {
+            int base = i * tamanyoRegistro;
+            long msb = lectura.getLong(base + POS_UUID);
+            long lsb = lectura.getLong(base + POS_UUID + 8);
+            if (buscar(msb, lsb) != posicionRegistro(desde + i)) {
+                continue;
+            }
+            EstadoSudoku estado = EstadoSudoku.desdeOrdinal(lectura.get(base));
+            if (!filtro.admiteEstado(estado)) {
+                continue;
+            }
+            EntradaSudoku entrada = EntradaSudoku.de(new UUID(msb, lsb), estado, lectura.getLong(base + 1));
+            if (filtro.admite(entrada)) {
+                entradas.add(entrada);
+            }
+        }
+        return cuantos;
+    }
+
+    /**
+     * Recorrido perezoso del segmento por bloques de {@value #REGISTROS_POR_LECTURA} registros. Cada bloque se
+     * lee con el almacén bloqueado, pero entre un bloque y el siguiente se pueden guardar otros Sudokus; los que
+     * se añaden al final del segmento durante el recorrido también se recorren.
+     */
+    private final class Recorrido extends Spliterators.AbstractSpliterator<EntradaSudoku> {
+
+        private final FiltroSudokus filtro;
+        private final List<EntradaSudoku> pendientes = new ArrayList<>();
+        private final ByteBuffer lectura = ByteBuffer.allocate(tamanyoRegistro * REGISTROS_POR_LECTURA);
+        private long siguiente;
+        private int posicion;
+
+        private Recorrido(FiltroSudokus filtro) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.filtro = filtro;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super EntradaSudoku> accion) {
+            while (posicion == pendientes.size()) {
+                pendientes.clear();
+                posicion = 0;
+                try {
+                    int leidos = leerEntradas(siguiente, filtro, lectura, pendientes);
+                    if (leidos == 0) {
+                        return false;
+                    }
+                    siguiente += leidos;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            accion.accept(pendientes.get(posicion++));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.Sudoku;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase CacheSudokus guarda en memoria los últimos Sudokus cargados, por UUID, para no leerlos del almacén
+ * en cada comprobación. Tiene un número máximo de entradas, expulsando las usadas hace más tiempo, y un tiempo
+ * de vida a partir del cual una entrada deja de ser válida. Cuenta los aciertos, los fallos, las expulsiones
+ * y las entradas caducadas.
+ * <p>
+ * Las consultas no usan cerrojos. Al superar la capacidad, un solo hilo expulsa de una vez las entradas usadas
+ * hace más tiempo hasta dejar un margen libre, mientras los demás siguen guardando sin esperarle; solo esperan
+ * si, durante la expulsión, la caché supera la capacidad en más de ese margen. Los Sudokus guardados no deben
+ * modificarse: quien quiera cambiar uno guarda una copia con {@link #poner(Sudoku)}.
+ */
+public class CacheSudokus {
+
+    private static final int FRACCION_MARGEN = 16;
+
+    private final int capacidad;
+    private final int margen;
+    private final long vidaNanos;
+    private final ConcurrentHashMap<String, Entrada> entradas;
+    private final ReentrantLock expulsando = new ReentrantLock();
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+    private final LongAdder caducadas = new LongAdder();
+
+    /**
+     * Constructor de la clase CacheSudokus.
+     * @param capacidad el número máximo de Sudokus en memoria; con 0 la caché no guarda nada.
+     * @param segundosVida el tiempo de vida de cada entrada en segundos; con 0 no caducan.
+     */
+    public CacheSudokus(int capacidad, long segundosVida) {
+        if (capacidad < 0 || segundosVida < 0) {
+            throw new IllegalArgumentException("La capacidad y el tiempo de vida de la caché no pueden ser negativos");
+        }
+
+        this.capacidad = capacidad;
+        this.margen = Math.max(1, capacidad / FRACCION_MARGEN);
+        this.vidaNanos = segundosVida == 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(segundosVida);
+        this.entradas = new ConcurrentHashMap<>(Math.min(capacidad, 1 << 16));
+    }
+
+    /**
+     * Obtiene un Sudoku de la caché.
+     * @param uuid el UUID del Sudoku.
+     * @return el Sudoku, o null si no está o ha caducado.
+     */
+    public Sudoku obtener(String uuid) {
+        long ahora = System.nanoTime();
+
+        Entrada entrada = entradas.get(uuid);
+        if (entrada != null && ahora - entrada.guardado <= vidaNanos) {
+            if (ahora - entrada.usado > 0) {
+                entrada.usado = ahora;
+            }
+            aciertos.increment();
+            return entrada.sudoku;
+        }
+        if (entrada != null && entradas.remove(uuid, entrada)) {
+            caducadas.increment();
+        }
+        fallos.increment();
+        return null;
+    }
+
+    /**
+     * Guarda un Sudoku en la caché, sustituyendo el que hubiera con el mismo UUID.
+     * @param sudoku el Sudoku a guardar.
+     */
+    public void poner(Sudoku sudoku) {
+        if (capacidad == 0) {
+            return;
+        }
+
+        entradas.put(sudoku.getUuid(), new Entrada(sudoku, System.nanoTime()));
+        expulsarSobrantes();
+    }
+
+    /**
+     * Guarda un Sudoku en la caché solo si no hay ya uno vigente con el mismo UUID. Sirve para guardar un
+     * Sudoku leído del almacén sin pisar una versión más reciente guardada mientras se leía.
+     * @param sudoku el Sudoku a guardar.
+     * @return el Sudoku que queda en la caché para ese UUID, o el indicado si la caché no guarda nada.
+     */
+    public Sudoku ponerSiFalta(Sudoku sudoku) {
+        if (capacidad == 0) {
+            return sudoku;
+        }
+
+        long ahora = System.nanoTime();
+        Entrada nueva = new Entrada(sudoku, ahora);
+        Entrada resultado = entradas.compute(sudoku.getUuid(),
+                (uuid, actual) -> actual != null && ahora - actual.guardado <= vidaNanos ? actual : nueva);
+        if (resultado == nueva) {
+            expulsarSobrantes();
+        }
+        return resultado.sudoku;
+    }
+
+    /**
+     * Sustituye un Sudoku de la caché solo si ya estaba guardado.
+     * @param sudoku la versión nueva del Sudoku.
+     */
+    public void reemplazar(Sudoku sudoku) {
+        if (capacidad == 0) {
+            return;
+        }
+
+        long ahora = System.nanoTime();
+        entradas.computeIfPresent(sudoku.getUuid(), (uuid, actual) -> new Entrada(sudoku, ahora));
+    }
+
+    /**
+     * Expulsa las entradas usadas hace más tiempo si se ha superado la capacidad, dejando libre un margen para
+     * no repetir la expulsión en cada inserción. Si otro hilo ya está expulsando, solo espera a que termine
+     * cuando la capacidad se ha superado en más de ese margen.
+     */
+    private void expulsarSobrantes() {
+        int tamanyo = entradas.size();
+        if (tamanyo <= capacidad) {
+            return;
+        }
+        if (tamanyo <= capacidad + margen) {
+            if (!expulsando.tryLock()) {
+                return;
+            }
+        } else expulsando.lock();
+
+        try {
+            int sobrantes = entradas.size() - capacidad;
+            if (sobrantes <= 0) {
+                return;
+            }
+
+            int aQuitar = Math.min(entradas.size(), sobrantes + margen);
+            long[] usos = new long[entradas.size()];
+            int n = 0;
+            for (Entrada entrada : entradas.values()) {
+                if (n == usos.length) break;
+                usos[n++] = entrada.usado;
+            }
+            if (n == 0) {
+                return;
+            }
+            Arrays.sort(usos, 0, n);
+            long umbral = usos[Math.min(aQuitar, n) - 1];
+
+            int quitadas = 0;
+            for (var it = entradas.entrySet().iterator(); it.hasNext() && quitadas < aQuitar; ) {
+                var mapeo = it.next();
+                if (mapeo.getValue().usado - umbral <= 0 && entradas.remove(mapeo.getKey(), mapeo.getValue())) {
+                    quitadas++;
+                }
+            }
+            expulsiones.add(quitadas);
+        } finally {
+            expulsando.unlock();
+        }
+    }
+
+    /**
+     * Quita un Sudoku de la caché.
+     * @param uuid el UUID del Sudoku.
+     */
+    public void quitar(String uuid) {
+        entradas.remove(uuid);
+    }
+
+    /**
+     * Obtiene el número de Sudokus en la caché, incluidos los caducados que todavía no se han quitado.
+     * @return el número de entradas.
+     */
+    public int getTamanyo() {
+        return entradas.size();
+    }
+
+    /**
+     * Obtiene el número de veces que un Sudoku se ha encontrado en la caché.
+     * @return el contador.
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * Obtiene el número de veces que un Sudoku no estaba en la caché o había caducado.
+     * @return el contador.
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * Obtiene el número de Sudokus expulsados por superar la capacidad.
+     * @return el contador.
+     */
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /**
+     * Obtiene el número de entradas quitadas por superar su tiempo de vida.
+     * @return el contador.
+     */
+    public long getCaducadas() {
+        return caducadas.sum();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CacheSudokus{");
+        sb.append("tamanyo=").append(getTamanyo());
+        sb.append(", capacidad=").append(capacidad);
+        sb.append(", aciertos=").append(getAciertos());
+        sb.append(", fallos=").append(getFallos());
+        sb.append(", expulsiones=").append(getExpulsiones());
+        sb.append(", caducadas=").append(getCaducadas());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Sudoku guardado en la caché junto al momento en que se guardó y al de su último uso.
+     */
+    private static final class Entrada {
+
+        private final Sudoku sudoku;
+        private final long guardado;
+        private volatile long usado;
+
+        private Entrada(Sudoku sudoku, long guardado) {
+            this.sudoku = sudoku;
+            this.guardado = guardado;
+            this.usado = guardado;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package es.cheste.Utilidad;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase CerrojosSudokus reparte los UUIDs de los Sudokus entre un número fijo de cerrojos, de forma que las
+ * modificaciones de un mismo Sudoku se hacen de una en una y las de Sudokus distintos casi nunca se esperan
+ * entre sí. Dos UUIDs pueden compartir cerrojo, así que quien tiene uno no debe pedir otro.
+ */
+public class CerrojosSudokus {
+
+    private final ReentrantLock[] cerrojos;
+    private final int mascara;
+
+    /**
+     * Constructor de la clase CerrojosSudokus.
+     * @param franjas el número mínimo de cerrojos; se redondea a la siguiente potencia de dos.
+     */
+    public CerrojosSudokus(int franjas) {
+        if (franjas < 1 || franjas > 1 << 16) {
+            throw new IllegalArgumentException("El número de cerrojos debe estar entre 1 y 65536");
+        }
+
+        int numCerrojos = Integer.highestOneBit(franjas - 1) << 1;
+        this.cerrojos = new ReentrantLock[Math.max(1, numCerrojos)];
+        this.mascara = cerrojos.length - 1;
+        for (int i = 0; i < cerrojos.length; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Obtiene el cerrojo de un Sudoku.
+     * @param uuid el UUID del Sudoku.
+     * @return el cerrojo que protege las modificaciones del Sudoku.
+     */
+    public ReentrantLock obtener(String uuid) {
+        int hash = uuid.hashCode();
+        return cerrojos[(hash ^ (hash >>> 16)) & mascara];
+    }
+
+    /**
+     * Obtiene el número de cerrojos.
+     * @return el número de cerrojos entre los que se reparten los UUIDs.
+     */
+    public int getNumCerrojos() {
+        return cerrojos.length;
+    }
+}
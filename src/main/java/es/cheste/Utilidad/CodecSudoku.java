@@ -0,0 +1,305 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Objetos.Tablero;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase CodecSudoku codifica y decodifica Sudokus en un formato binario compacto y versionado.
+ * <p>
+ * Formato de la versión 1:
+ * <pre>
+ *   2 bytes  firma 'S' 'D'
+ *   1 byte   versión del formato
+ *   1 byte   tamaño del tablero
+ *   16 bytes UUID como dos long
+ *   n bytes  tablero de solución, con los bits justos por celda (4 para 9x9)
+ *   m bytes  máscara de celdas visibles del tablero de juego, un bit por celda
+ * </pre>
+ * Un Sudoku de 9x9 ocupa 72 bytes. Los Sudokus generados de forma reproducible se pueden codificar en forma
+ * compacta, con la versión {@value #VERSION_COMPACTA}: solo los 20 bytes de la cabecera, y el tablero se regenera
+ * a partir del UUID al decodificarlo. También se pueden leer los ficheros antiguos escritos con serialización de
+ * Java.
+ */
+public final class CodecSudoku {
+
+    public static final byte VERSION = 1;
+    public static final byte VERSION_COMPACTA = 2;
+    private static final byte FIRMA_0 = 'S';
+    private static final byte FIRMA_1 = 'D';
+    private static final int TAMANYO_CABECERA = 20;
+    private static final byte SERIALIZACION_0 = (byte) 0xAC;
+    private static final byte SERIALIZACION_1 = (byte) 0xED;
+
+    private CodecSudoku() {
+    }
+
+    /**
+     * Calcula el número de bytes que ocupa un Sudoku codificado.
+     * @param tamanyo el tamaño del tablero.
+     * @return el número de bytes del Sudoku codificado.
+     */
+    public static int tamanyoCodificado(int tamanyo) {
+        int celdas = tamanyo * tamanyo;
+        return TAMANYO_CABECERA + (celdas * bitsPorCelda(tamanyo) + 7) / 8 + (celdas + 7) / 8;
+    }
+
+    /**
+     * Indica si un Sudoku se puede codificar en forma compacta, porque se generó de forma reproducible con la
+     * versión actual del generador.
+     * @param sudoku el Sudoku.
+     * @return true si el Sudoku se puede regenerar a partir de su UUID.
+     */
+    public static boolean esRegenerable(Sudoku sudoku) {
+        CodigoSudoku codigo = sudoku.getCodigo();
+        return codigo != null && codigo.version() == CodigoSudoku.VERSION_GENERADOR
+                && codigo.tamanyo() == sudoku.getTamanyo();
+    }
+
+    /**
+     * Codifica un Sudoku en un array de bytes nuevo.
+     * @param sudoku el Sudoku a codificar.
+     * @return los bytes del Sudoku codificado.
+     */
+    public static byte[] codificar(Sudoku sudoku) {
+        return codificar(sudoku, false);
+    }
+
+    /**
+     * Codifica un Sudoku en un array de bytes nuevo, en forma compacta si se pide y se puede regenerar.
+     * @param sudoku el Sudoku a codificar.
+     * @param compacto true para codificarlo en forma compacta si es {@link #esRegenerable regenerable}.
+     * @return los bytes del Sudoku codificado.
+     */
+    public static byte[] codificar(Sudoku sudoku, boolean compacto) {
+        boolean cabecera = compacto && esRegenerable(sudoku);
+        byte[] datos = new byte[cabecera ? TAMANYO_CABECERA : tamanyoCodificado(sudoku.getTamanyo())];
+        codificar(sudoku, ByteBuffer.wrap(datos), cabecera);
+        return datos;
+    }
+
+    /**
+     * Codifica un Sudoku en el buffer indicado, a partir de su posición actual.
+     * @param sudoku el Sudoku a codificar.
+     * @param destino el buffer donde se escriben los bytes.
+     */
+    public static void codificar(Sudoku sudoku, ByteBuffer destino) {
+        codificar(sudoku, destino, false);
+    }
+
+    /**
+     * Codifica un Sudoku en el buffer indicado, a partir de su posición actual. En forma compacta solo se escribe
+     * la cabecera, de {@value #TAMANYO_CABECERA} bytes.
+     * @param sudoku el Sudoku a codificar.
+     * @param destino el buffer donde se escriben los bytes.
+     * @param compacto true para codificarlo en forma compacta si es {@link #esRegenerable regenerable}.
+     * @return true si se ha codificado en forma compacta.
+     */
+    public static boolean codificar(Sudoku sudoku, ByteBuffer destino, boolean compacto) {
+        Tablero solucion = sudoku.getSolucion();
+        int tamanyo = solucion.getTamanyo();
+        int numCeldas = solucion.getNumCeldas();
+        int bits = bitsPorCelda(tamanyo);
+        UUID uuid = sudoku.getIdentificador();
+        boolean cabecera = compacto && esRegenerable(sudoku);
+
+        destino.put(FIRMA_0).put(FIRMA_1).put(cabecera ? VERSION_COMPACTA : VERSION).put((byte) tamanyo);
+        destino.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        if (cabecera) {
+            return true;
+        }
+
+        long acumulador = 0;
+        int pendientes = 0;
+        for (int celda = 0; celda < numCeldas; celda++) {
+            acumulador = (acumulador << bits) | solucion.get(celda);
+            pendientes += bits;
+            while (pendientes >= 8) {
+                pendientes -= 8;
+                destino.put((byte) (acumulador >>> pendientes));
+            }
+        }
+        if (pendientes > 0) {
+            destino.put((byte) (acumulador << (8 - pendientes)));
+        }
+
+        int mascara = 0;
+        for (int celda = 0; celda < numCeldas; celda++) {
+            mascara = (mascara << 1) | (sudoku.esVisible(celda) ? 1 : 0);
+            if (((celda + 1) & 7) == 0) {
+                destino.put((byte) mascara);
+                mascara = 0;
+            }
+        }
+        if ((numCeldas & 7) != 0) {
+            destino.put((byte) (mascara << (8 - (numCeldas & 7))));
+        }
+        return false;
+    }
+
+    /**
+     * Decodifica un Sudoku desde el buffer indicado, a partir de su posición actual.
+     * @param origen el buffer con los bytes del Sudoku.
+     * @return el Sudoku decodificado.
+     * @throws IOException si los datos no tienen un formato válido.
+     */
+    public static Sudoku decodificar(ByteBuffer origen) throws IOException {
+        try {
+            if (origen.get() != FIRMA_0 || origen.get() != FIRMA_1) {
+                throw new IOException("Los datos no tienen la firma de un Sudoku");
+            }
+            byte version = origen.get();
+            if (version != VERSION && version != VERSION_COMPACTA) {
+                throw new IOException("Versión de formato no soportada: " + version);
+            }
+
+            int tamanyo = origen.get() & 0xFF;
+            if (version == VERSION_COMPACTA) {
+                return regenerar(new UUID(origen.getLong(), origen.getLong()), tamanyo);
+            }
+
+            int bits = bitsPorCelda(tamanyo);
+            int mascaraValor = (1 << bits) - 1;
+            UUID uuid = new UUID(origen.getLong(), origen.getLong());
+            int numCeldas = tamanyo * tamanyo;
+            Tablero solucion = new Tablero(tamanyo);
+            Tablero tablero = new Tablero(tamanyo);
+
+            long acumulador = 0;
+            int disponibles = 0;
+            for (int celda = 0; celda < numCeldas; celda++) {
+                while (disponibles < bits) {
+                    acumulador = (acumulador << 8) | (origen.get() & 0xFF);
+                    disponibles += 8;
+                }
+                disponibles -= bits;
+                solucion.poner(celda, (int) (acumulador >>> disponibles) & mascaraValor);
+            }
+
+            int mascara = 0;
+            for (int celda = 0; celda < numCeldas; celda++) {
+                if ((celda & 7) == 0) {
+                    mascara = origen.get() & 0xFF;
+                }
+                if ((mascara & 0x80) != 0) {
+                    tablero.poner(celda, solucion.get(celda));
+                }
+                mascara <<= 1;
+            }
+
+            return new Sudoku(uuid, solucion, tablero);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Los datos del Sudoku están incompletos", e);
+        }
+    }
+
+    /**
+     * Regenera un Sudoku codificado en forma compacta.
+     * @param uuid el UUID del Sudoku, que contiene su código.
+     * @param tamanyo el tamaño del tablero indicado en la cabecera.
+     * @return el Sudoku regenerado.
+     * @throws IOException si el UUID no es de un Sudoku regenerable de ese tamaño.
+     */
+    private static Sudoku regenerar(UUID uuid, int tamanyo) throws IOException {
+        CodigoSudoku codigo = CodigoSudoku.desdeUuid(uuid);
+        if (codigo == null || codigo.tamanyo() != tamanyo) {
+            throw new IOException("El Sudoku compacto " + uuid + " no tiene un código de tamaño " + tamanyo);
+        }
+        try {
+            return Sudoku.regenerar(codigo);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("No se pudo regenerar el Sudoku " + uuid + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodifica un Sudoku a partir del contenido completo de un fichero de datos.
+     * Acepta tanto el formato actual como los ficheros antiguos escritos con serialización de Java.
+     * @param datos el contenido del fichero.
+     * @return el Sudoku decodificado.
+     * @throws IOException si los datos no tienen un formato válido.
+     */
+    public static Sudoku leer(byte[] datos) throws IOException {
+        if (datos.length >= 2 && datos[0] == SERIALIZACION_0 && datos[1] == SERIALIZACION_1) {
+            return leerLegado(new ByteArrayInputStream(datos));
+        }
+        return decodificar(ByteBuffer.wrap(datos));
+    }
+
+    /**
+     * Lee un Sudoku guardado con serialización de Java por versiones anteriores de la aplicación.
+     * Se ignora el serialVersionUID del fichero, de modo que se pueden leer todas las versiones antiguas.
+     * @param entrada el flujo con los datos serializados.
+     * @return el Sudoku leído.
+     * @throws IOException si los datos no se pueden leer.
+     */
+    private static Sudoku leerLegado(InputStream entrada) throws IOException {
+        try (ObjectInputStream ois = new LectorLegado(entrada)) {
+            SudokuLegado legado = (SudokuLegado) ois.readObject();
+            return new Sudoku(legado.uuid, legado.tableroSolucion, legado.tablero);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("No se pudo leer el Sudoku antiguo: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Calcula los bits necesarios para guardar un número del tablero.
+     * @param tamanyo el tamaño del tablero.
+     * @return el número de bits por celda.
+     */
+    private static int bitsPorCelda(int tamanyo) {
+        return 32 - Integer.numberOfLeadingZeros(tamanyo);
+    }
+
+    /**
+     * Copia de los campos que tenía la clase Sudoku cuando se guardaba con serialización de Java.
+     */
+    private static final class SudokuLegado implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private int[][] tableroSolucion;
+        private int[][] tablero;
+        private int[][] tableroComprobado;
+        private String uuid;
+    }
+
+    /**
+     * ObjectInputStream que lee la antigua clase Sudoku como {@link SudokuLegado}.
+     */
+    private static final class LectorLegado extends ObjectInputStream {
+
+        private static final String CLASE_LEGADA = "es.cheste.Objetos.Sudoku";
+        private static final ObjectInputFilter FILTRO = ObjectInputFilter.Config.createFilter(
+                SudokuLegado.class.getName() + ";java.lang.String;!*");
+
+        private LectorLegado(InputStream entrada) throws IOException {
+            super(entrada);
+            setObjectInputFilter(FILTRO);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if (descriptor.getName().equals(CLASE_LEGADA)) {
+                return ObjectStreamClass.lookup(SudokuLegado.class);
+            }
+            return descriptor;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Motor.ComprobadorTableros;
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.LoteTableros;
+import es.cheste.Objetos.Sudoku;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ComprobadorLote comprueba muchas partidas a la vez repartiendo el trabajo en tres etapas unidas
+ * por colas acotadas:
+ * <ol>
+ *   <li>Un hilo lee los ficheros de partida.</li>
+ *   <li>Varios hilos leen cada tablero, cargan los datos de su Sudoku, lo comprueban y preparan el texto corregido.
+ *   Los tableros que esperan juntos en la cola se comprueban de una vez con un {@link ComprobadorTableros}.</li>
+ *   <li>El hilo que llama sustituye las partidas por los tableros corregidos y pide guardar sus datos, con el
+ *   cerrojo de cada Sudoku, de modo que el {@link EscritorSudokus} los guarda por lotes en el mismo orden que
+ *   cualquier otro cambio del Sudoku. Cada cierto número de partidas espera a que esos datos estén guardados. Si
+ *   un Sudoku ha cambiado desde que se cargó en la segunda etapa, se vuelve a comprobar con el cerrojo tomado
+ *   sobre el Sudoku vigente.</li>
+ * </ol>
+ * Las colas acotadas frenan la lectura cuando las etapas siguientes van más lentas, de forma que la memoria
+ * usada no depende del número de partidas. Igual que {@link GestorSudokus#comprobarSudokus(String)}, las partidas
+ * incompletas o mal escritas no se corrigen. Los Sudokus cargados no se modifican: se comprueba una copia.
+ */
+public class ComprobadorLote {
+
+    private static final Logger LOGGER = LogManager.getLogger(ComprobadorLote.class);
+    private static final Leida FIN_LECTURA = new Leida(null, null, null);
+    private static final Corregida FIN_CORRECCION = new Corregida(null, null, null, null, null);
+    private static final int TAMANYO_BLOQUE = 64;
+
+    private final GestorSudokus gestor;
+    private final int tamanyo;
+    private final int hilos;
+    private final int capacidadCola;
+    private final int tamanyoLote;
+    private final ExecutorService etapas;
+
+    /**
+     * Constructor de la clase ComprobadorLote.
+     * @param gestor el gestor con el que se cargan y guardan los Sudokus.
+     * @param tamanyo el tamaño de los tableros.
+     * @param hilos el número de hilos que comprueban los tableros.
+     * @param capacidadCola el número máximo de partidas en espera entre dos etapas.
+     * @param tamanyoLote el número de Sudokus cuyos datos se piden guardar antes de esperar a que se guarden.
+     */
+    public ComprobadorLote(GestorSudokus gestor, int tamanyo, int hilos, int capacidadCola, int tamanyoLote) {
+        if (hilos < 1 || capacidadCola < 1 || tamanyoLote < 1) {
+            throw new IllegalArgumentException("Parámetros de la comprobación por lotes no válidos");
+        }
+
+        this.gestor = gestor;
+        this.tamanyo = tamanyo;
+        this.hilos = hilos;
+        this.capacidadCola = capacidadCola;
+        this.tamanyoLote = tamanyoLote;
+        this.etapas = Executors.newFixedThreadPool(hilos + 1, tarea -> {
+            Thread hilo = new Thread(tarea, "comprobador-sudokus");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Comprueba las partidas indicadas. Las rutas repetidas se comprueban una sola vez.
+     * @param partidas los ficheros de partida a comprobar.
+     * @return el resumen de la comprobación.
+     */
+    public ResumenComprobacion comprobar(Collection<Path> partidas) {
+
+        long inicio = System.nanoTime();
+        List<Path> pendientes = new ArrayList<>(new LinkedHashSet<>(partidas));
+        BlockingQueue<Leida> leidas = new ArrayBlockingQueue<>(capacidadCola);
+        BlockingQueue<Corregida> corregidas = new ArrayBlockingQueue<>(capacidadCola);
+        Contadores contadores = new Contadores();
+        AtomicInteger activos = new AtomicInteger(hilos);
+
+        etapas.execute(() -> leer(pendientes, leidas, contadores));
+        for (int i = 0; i < hilos; i++) {
+            etapas.execute(() -> corregir(leidas, corregidas, contadores, activos));
+        }
+
+        try {
+            escribir(corregidas, contadores);
+        } catch (InterruptedException e) {
+            LOGGER.error("Se interrumpió la comprobación por lotes tras {} partidas", contadores.total());
+            Thread.currentThread().interrupt();
+        }
+
+        return new ResumenComprobacion(contadores.correctas, contadores.conErrores, contadores.incompletas.get(),
+                contadores.noValidas.get(), contadores.fallidas.get(), contadores.celdasErroneas,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Detiene los hilos del comprobador.
+     */
+    public void cerrar() {
+        etapas.shutdownNow();
+    }
+
+    /**
+     * Primera etapa: lee los ficheros de partida y avisa del final a cada hilo de la segunda etapa. El aviso se da
+     * aunque la lectura termine por un error inesperado, para que la segunda etapa no se quede esperando.
+     * @param partidas los ficheros de partida a leer.
+     * @param leidas la cola de partidas leídas.
+     * @param contadores los contadores de la comprobación.
+     */
+    private void leer(List<Path> partidas, BlockingQueue<Leida> leidas, Contadores contadores) {
+        try {
+            for (Path partida : partidas) {
+                String uuid = GestorSudokus.uuidPartida(partida);
+                if (uuid == null) {
+                    LOGGER.error("El fichero {} no es una partida de sudoku", partida);
+                    contadores.fallidas.incrementAndGet();
+                    continue;
+                }
+
+                try {
+                    leidas.put(new Leida(uuid, partida, Files.readAllBytes(partida)));
+                } catch (IOException e) {
+                    LOGGER.error("Hubo un error al leer la partida {} {}", partida, e.getMessage());
+                    contadores.fallidas.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            avisarFin(leidas, FIN_LECTURA, hilos);
+        }
+    }
+
+    /**
+     * Segunda etapa: comprueba las partidas leídas por bloques. Cada hilo toma todas las partidas que ya esperan
+     * en la cola, hasta llenar su lote de tableros, y las comprueba juntas con un {@link ComprobadorTableros}.
+     * El último hilo en terminar avisa del final a la tercera etapa, también si alguno termina por un error
+     * inesperado.
+     * @param leidas la cola de partidas leídas.
+     * @param corregidas la cola de partidas corregidas.
+     * @param contadores los contadores de la comprobación.
+     * @param activos el número de hilos de la segunda etapa que no han terminado.
+     */
+    private void corregir(BlockingQueue<Leida> leidas, BlockingQueue<Corregida> corregidas, Contadores contadores,
+                          AtomicInteger activos) {
+        LectorTablero lector = new LectorTablero(tamanyo);
+        RenderizadorTablero renderizador = new RenderizadorTablero(tamanyo);
+        ComprobadorTableros comprobador = ComprobadorTableros.para(tamanyo);
+        LoteTableros lote = new LoteTableros(tamanyo, TAMANYO_BLOQUE);
+        List<Leida> bloque = new ArrayList<>(TAMANYO_BLOQUE);
+        int[] celdas = new int[tamanyo * tamanyo];
+
+        try {
+            boolean terminar = false;
+            while (!terminar) {
+                bloque.add(leidas.take());
+                leidas.drainTo(bloque, TAMANYO_BLOQUE - 1);
+
+                int finales = 0;
+                while (bloque.remove(FIN_LECTURA)) {
+                    finales++;
+                }
+                for (int i = 1; i < finales; i++) {
+                    leidas.put(FIN_LECTURA);
+                }
+                terminar = finales > 0;
+
+                corregir(bloque, corregidas, lector, renderizador, comprobador, lote, celdas, contadores);
+                bloque.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activos.decrementAndGet() == 0) {
+                avisarFin(corregidas, FIN_CORRECCION, 1);
+            }
+        }
+    }
+
+    /**
+     * Deja en una cola las marcas de final que espera la etapa siguiente.
+     * @param cola la cola de la etapa siguiente.
+     * @param fin la marca de final.
+     * @param veces el número de marcas, una por cada hilo de la etapa siguiente.
+     * @param <T> el tipo de los elementos de la cola.
+     */
+    private static <T> void avisarFin(BlockingQueue<T> cola, T fin, int veces) {
+        try {
+            for (int i = 0; i < veces; i++) {
+                cola.put(fin);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Comprueba un bloque de partidas leídas: lee sus tableros, los comprueba juntos y entrega las corregidas.
+     * @param bloque las partidas leídas, como mucho tantas como caben en el lote.
+     * @param corregidas la cola de partidas corregidas.
+     * @param lector el lector de tableros del hilo.
+     * @param renderizador el renderizador de tableros del hilo.
+     * @param comprobador el comprobador de tableros del hilo.
+     * @param lote el lote de tableros del hilo.
+     * @param celdas el array donde se leen las celdas del jugador.
+     * @param contadores los contadores de la comprobación.
+     * @throws InterruptedException si se interrumpe la espera para entregar una partida corregida.
+     */
+    private void corregir(List<Leida> bloque, BlockingQueue<Corregida> corregidas, LectorTablero lector,
+                          RenderizadorTablero renderizador, ComprobadorTableros comprobador, LoteTableros lote,
+                          int[] celdas, Contadores contadores) throws InterruptedException {
+        List<Leida> admitidas = new ArrayList<>(bloque.size());
+        List<Sudoku> sudokus = new ArrayList<>(bloque.size());
+
+        lote.vaciar();
+        for (Leida leida : bloque) {
+            try {
+                Sudoku sudoku = preparar(leida, lector, celdas, contadores);
+                if (sudoku != null) {
+                    lote.anyadir(celdas, sudoku.getSolucion());
+                    admitidas.add(leida);
+                    sudokus.add(sudoku);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Hubo un error al comprobar la partida {} {}", leida.partida, e.getMessage());
+                contadores.fallidas.incrementAndGet();
+            }
+        }
+        if (admitidas.isEmpty()) {
+            return;
+        }
+
+        comprobador.comprobar(lote);
+        for (int i = 0; i < admitidas.size(); i++) {
+            Leida leida = admitidas.get(i);
+            try {
+                Sudoku base = sudokus.get(i);
+                Sudoku sudoku = base.copiar();
+                sudoku.comprobarResultado(lote, i);
+                int longitud = renderizador.renderizar(sudoku.getComprobado());
+                corregidas.put(new Corregida(leida.partida, base, sudoku,
+                        Arrays.copyOf(renderizador.getBytes(), longitud), jugadas(lote, i)));
+            } catch (RuntimeException e) {
+                LOGGER.error("Hubo un error al comprobar la partida {} {}", leida.partida, e.getMessage());
+                contadores.fallidas.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Copia las celdas de un tablero del jugador de un lote.
+     * @param lote el lote de tableros.
+     * @param indice la posición del tablero en el lote.
+     * @return las celdas del jugador, por filas.
+     */
+    private int[] jugadas(LoteTableros lote, int indice) {
+        int[] celdas = new int[tamanyo * tamanyo];
+        for (int celda = 0; celda < celdas.length; celda++) {
+            celdas[celda] = lote.getJugada(indice, celda);
+        }
+        return celdas;
+    }
+
+    /**
+     * Lee el tablero de una partida y carga los datos de su Sudoku.
+     * @param leida la partida leída.
+     * @param lector el lector de tableros del hilo.
+     * @param celdas el array donde se leen las celdas del jugador.
+     * @param contadores los contadores de la comprobación.
+     * @return el Sudoku de la partida, o null si no se puede corregir.
+     */
+    private Sudoku preparar(Leida leida, LectorTablero lector, int[] celdas, Contadores contadores) {
+        boolean completo = lector.leer(ByteBuffer.wrap(leida.contenido), celdas);
+
+        if (!completo || lector.getMalformadas() > 0) {
+            contadores.noValidas.incrementAndGet();
+            return null;
+        }
+        if (lector.getVacias() > 0) {
+            contadores.incompletas.incrementAndGet();
+            return null;
+        }
+
+        Sudoku sudoku = gestor.cargarDatosSudoku(leida.uuid);
+        if (sudoku == null) {
+            contadores.fallidas.incrementAndGet();
+        }
+        return sudoku;
+    }
+
+    /**
+     * Tercera etapa: escribe los tableros corregidos y pide guardar sus datos con el cerrojo de cada Sudoku.
+     * @param corregidas la cola de partidas corregidas.
+     * @param contadores los contadores de la comprobación.
+     * @throws InterruptedException si se interrumpe la espera de partidas corregidas.
+     */
+    private void escribir(BlockingQueue<Corregida> corregidas, Contadores contadores) throws InterruptedException {
+        List<GestorSudokus.Sustitucion> lote = new ArrayList<>(tamanyoLote);
+        Corregida corregida;
+
+        try {
+            while ((corregida = corregidas.take()) != FIN_CORRECCION) {
+                int[] celdas = corregida.celdas;
+                try {
+                    lote.add(gestor.sustituirPartida(corregida.base, corregida.sudoku, corregida.partida,
+                            corregida.texto, copia -> copia.comprobarResultado(celdas), EstadoSudoku.COMPROBADO));
+                } catch (IOException e) {
+                    LOGGER.error("Hubo un error al guardar la partida corregida {} {}", corregida.partida, e.getMessage());
+                    contadores.fallidas.incrementAndGet();
+                    continue;
+                }
+
+                if (lote.size() == tamanyoLote) {
+                    contar(lote, contadores);
+                }
+            }
+        } finally {
+            contar(lote, contadores);
+        }
+    }
+
+    /**
+     * Espera a que se guarden los datos de un lote de partidas corregidas y las cuenta. Las que no se pudieron
+     * guardar cuentan como fallidas.
+     * @param lote las partidas corregidas, que se vacía al terminar.
+     * @param contadores los contadores de la comprobación.
+     */
+    private static void contar(List<GestorSudokus.Sustitucion> lote, Contadores contadores) {
+        for (GestorSudokus.Sustitucion sustitucion : lote) {
+            Sudoku sudoku = sustitucion.sudoku();
+            if (!sustitucion.guardado().join()) {
+                LOGGER.error("No se pudieron guardar los datos del sudoku corregido {}", sudoku.getUuid());
+                contadores.fallidas.incrementAndGet();
+                continue;
+            }
+
+            int errores = sudoku.getNumErrores();
+            if (errores == 0) {
+                contadores.correctas++;
+            } else {
+                contadores.conErrores++;
+                contadores.celdasErroneas += errores;
+            }
+        }
+        lote.clear();
+    }
+
+    /**
+     * Contenido de un fichero de partida leído en la primera etapa.
+     */
+    private record Leida(String uuid, Path partida, byte[] contenido) {
+    }
+
+    /**
+     * Tablero corregido en la segunda etapa, listo para escribirse, con el Sudoku del que se copió y las celdas del
+     * jugador para repetir la comprobación si ha cambiado.
+     */
+    private record Corregida(Path partida, Sudoku base, Sudoku sudoku, byte[] texto, int[] celdas) {
+    }
+
+    /**
+     * Contadores de una comprobación. Los de la tercera etapa solo los modifica el hilo que escribe.
+     */
+    private static final class Contadores {
+        private final AtomicInteger incompletas = new AtomicInteger();
+        private final AtomicInteger noValidas = new AtomicInteger();
+        private final AtomicInteger fallidas = new AtomicInteger();
+        private int correctas;
+        private int conErrores;
+        private long celdasErroneas;
+
+        private int total() {
+            return correctas + conErrores + incompletas.get() + noValidas.get() + fallidas.get();
+        }
+    }
+}
@@ -5,24 +5,63 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Properties;
 
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.1
+ *
+ * La clase Configuracion carga la configuración de la aplicación una sola vez, al usarse por primera vez.
+ * Se lee el fichero del directorio del proyecto si existe y, si no, el que va dentro del classpath, de forma
+ * que la aplicación también arranca desde un jar o desde otro directorio de trabajo.
+ */
 public class Configuracion {
 
     private static final Properties CONFIGURACION = new Properties();
     private static final String RUTA_CONFIGURACION = "src/main/resources/properties/configuracion_sudoku.properties";
+    private static final String RECURSO_CONFIGURACION = "/properties/configuracion_sudoku.properties";
     private static final Logger LOGGER = LogManager.getLogger(Configuracion.class);
 
     static {
-        try (FileInputStream fis = new FileInputStream(RUTA_CONFIGURACION)) {
-            CONFIGURACION.load(fis);
+        try (InputStream entrada = abrirConfiguracion()) {
+            CONFIGURACION.load(entrada);
         } catch (IOException e) {
             LOGGER.error("Hubo un error al intentar cargar la configuracion.\nPath: {}\nMensaje: {}", RUTA_CONFIGURACION, e.getMessage());
             throw new ExceptionInInitializerError("No se pudo cargar la configuración");
         }
     }
 
+    /**
+     * Abre el fichero de configuración del directorio del proyecto o, si no existe, el del classpath.
+     * @return el flujo con la configuración.
+     * @throws IOException si no se encuentra ninguno de los dos.
+     */
+    private static InputStream abrirConfiguracion() throws IOException {
+        if (Files.isRegularFile(Paths.get(RUTA_CONFIGURACION))) {
+            return new FileInputStream(RUTA_CONFIGURACION);
+        }
+
+        InputStream recurso = Configuracion.class.getResourceAsStream(RECURSO_CONFIGURACION);
+        if (recurso == null) {
+            throw new IOException("No se encontró la configuración ni en " + RUTA_CONFIGURACION + " ni en el classpath");
+        }
+        return recurso;
+    }
+
     public static String getConfiguracion(String key) {
         return CONFIGURACION.getProperty(key);
     }
+
+    /**
+     * Obtiene un valor de la configuración, o el valor por defecto si la clave no existe.
+     * @param key la clave a buscar.
+     * @param porDefecto el valor que se devuelve si la clave no existe.
+     * @return el valor de la clave.
+     */
+    public static String getConfiguracion(String key, String porDefecto) {
+        return CONFIGURACION.getProperty(key, porDefecto);
+    }
 }
@@ -0,0 +1,315 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.EstadisticasJugadas;
+import es.cheste.Objetos.HistorialJugadas;
+import es.cheste.Objetos.Jugada;
+import es.cheste.Objetos.Tablero;
+import es.cheste.Objetos.TipoJugada;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase DiarioJugadas guarda el {@link HistorialJugadas} de cada partida en su propio fichero
+ * {@code Sudoku_<uuid>.jug}, de forma que cada jugada cuesta unos pocos bytes escritos al final del fichero en
+ * lugar de volver a escribir el tablero.
+ * <p>
+ * El fichero empieza con una instantánea del historial: una cabecera con las estadísticas, el tablero del
+ * jugador y las pilas de deshacer y rehacer. Detrás van las anotaciones posteriores, de {@value #REGISTRO}
+ * bytes cada una. Al cargarlo se parte de la instantánea y se repiten las anotaciones. Cuando hay más de
+ * {@code compactarCada} anotaciones se vuelve a escribir la instantánea, con {@link EscrituraAtomica}, y se
+ * empieza de nuevo. Si el fichero acaba en una anotación incompleta, por ejemplo porque se cortó una escritura,
+ * se descarta; si no empieza con una instantánea válida o alguna anotación completa no se puede repetir, se
+ * aparta entero, sin cambiarlo, como {@code .danyado}.
+ * <p>
+ * Cada historial recuerda la longitud del diario del que parte. Si al guardarlo el diario tiene otra longitud,
+ * el historial no parte de lo que hay en el disco, por ejemplo porque es una copia anterior a otro cambio, y se
+ * rechaza en lugar de añadir sus anotaciones sobre otras que no conoce.
+ * <p>
+ * No es segura en concurrencia para una misma partida: {@link GestorSudokus} la usa con el cerrojo del UUID.
+ */
+public class DiarioJugadas {
+
+    private static final Logger LOGGER = LogManager.getLogger(DiarioJugadas.class);
+    private static final int FIRMA = 0x53444A55;
+    private static final int VERSION = 1;
+    private static final int CABECERA = 64;
+    private static final int REGISTRO = 16;
+
+    private final Path directorio;
+    private final int tamanyo;
+    private final int numCeldas;
+    private final int compactarCada;
+
+    /**
+     * Constructor de la clase DiarioJugadas.
+     * @param directorio el directorio de los diarios; se crea con el primer diario.
+     * @param tamanyo el tamaño de los tableros.
+     * @param compactarCada el número de anotaciones a partir del cual se vuelve a escribir la instantánea.
+     */
+    public DiarioJugadas(Path directorio, int tamanyo, int compactarCada) {
+        if (compactarCada < 1) {
+            throw new IllegalArgumentException("El número de anotaciones entre instantáneas debe ser positivo");
+        }
+
+        this.directorio = directorio;
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.compactarCada = compactarCada;
+    }
+
+    /**
+     * Obtiene la ruta del diario de una partida.
+     * @param uuid el UUID del Sudoku.
+     * @return la ruta del diario.
+     */
+    public Path ruta(String uuid) {
+        return directorio.resolve("Sudoku_" + uuid + ".jug");
+    }
+
+    /**
+     * Guarda las anotaciones pendientes de un historial: las añade al final del diario o, si el diario no existe
+     * o ya tiene demasiadas, escribe una instantánea nueva.
+     * @param uuid el UUID del Sudoku.
+     * @param historial el historial, que deja de tener anotaciones pendientes.
+     * @throws IOException si el diario no tiene la longitud de la que parte el historial, o si ocurre un error al
+     *                     escribir; en ese caso el diario puede acabar en una anotación incompleta, que se descarta
+     *                     al volver a cargarlo.
+     */
+    public void guardar(String uuid, HistorialJugadas historial) throws IOException {
+        Path ruta = ruta(uuid);
+        long longitud = Files.exists(ruta) ? Files.size(ruta) : -1;
+
+        if (longitud != historial.getLongitudDiario()) {
+            throw new IOException("El diario " + ruta + " tiene " + longitud + " bytes y el historial parte de "
+                    + historial.getLongitudDiario());
+        }
+
+        if (historial.getRegistrosDiario() > compactarCada || longitud < 0) {
+            try {
+                historial.setLongitudDiario(escribirInstantanea(ruta, historial));
+            } catch (IOException e) {
+                historial.setRegistrosDiario(Integer.MAX_VALUE);
+                throw e;
+            }
+            historial.tomarPendientes();
+            historial.setRegistrosDiario(0);
+            return;
+        }
+
+        List<Jugada> pendientes = historial.tomarPendientes();
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(pendientes.size() * REGISTRO);
+        for (Jugada jugada : pendientes) {
+            escribirRegistro(buffer, jugada);
+        }
+        buffer.flip();
+
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            historial.setRegistrosDiario(Integer.MAX_VALUE);
+            throw e;
+        }
+        historial.setLongitudDiario(longitud + buffer.limit());
+    }
+
+    /**
+     * Carga el historial de una partida a partir de su diario.
+     * @param uuid el UUID del Sudoku.
+     * @return el historial, o null si la partida no tiene diario o este no se puede repetir y se ha apartado.
+     * @throws IOException si ocurre un error al leer.
+     */
+    public HistorialJugadas cargar(String uuid) throws IOException {
+        Path ruta = ruta(uuid);
+        ByteBuffer datos;
+
+        try {
+            datos = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        if (datos.remaining() < CABECERA + numCeldas || datos.getInt(0) != FIRMA || datos.getInt(4) != VERSION
+                || datos.getInt(8) != tamanyo) {
+            return apartar(ruta, "no es un diario de jugadas de tamaño " + tamanyo);
+        }
+
+        int numDeshacer = datos.getInt(12);
+        int numRehacer = datos.getInt(16);
+        EstadisticasJugadas estadisticas = new EstadisticasJugadas(datos.getInt(20), datos.getInt(24),
+                datos.getInt(28), datos.getLong(32), datos.getLong(40), datos.getLong(48));
+        Tablero tablero = new Tablero(tamanyo);
+        datos.position(CABECERA);
+        for (int celda = 0; celda < numCeldas; celda++) {
+            int valor = datos.get();
+            if (valor < 0 || valor > tamanyo) {
+                return apartar(ruta, "tiene un tablero no válido");
+            }
+            tablero.poner(celda, valor);
+        }
+
+        if (numDeshacer < 0 || numRehacer < 0
+                || datos.remaining() < ((long) numDeshacer + numRehacer) * REGISTRO) {
+            return apartar(ruta, "tiene la instantánea incompleta");
+        }
+        List<Jugada> deshacer = leerRegistros(datos, numDeshacer);
+        List<Jugada> rehacer = leerRegistros(datos, numRehacer);
+        if (deshacer == null || rehacer == null) {
+            return apartar(ruta, "tiene una instantánea no válida");
+        }
+        HistorialJugadas historial = new HistorialJugadas(tablero, deshacer, rehacer, estadisticas);
+
+        int repetidas = 0;
+        while (datos.remaining() >= REGISTRO) {
+            if (!repetir(historial, leerRegistro(datos))) {
+                return apartar(ruta, "tiene la anotación " + (repetidas + 1) + " no válida");
+            }
+            repetidas++;
+        }
+        long valido = datos.position();
+        if (valido != datos.capacity()) {
+            LOGGER.warn("Se descarta la anotación incompleta del final del diario {}", ruta);
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+                canal.truncate(valido);
+            }
+        }
+
+        historial.tomarPendientes();
+        historial.setRegistrosDiario(repetidas);
+        historial.setLongitudDiario(valido);
+        return historial;
+    }
+
+    /**
+     * Aparta un diario que no se puede cargar, para que la partida empiece uno nuevo sin perderlo.
+     * @param ruta la ruta del diario.
+     * @param motivo el motivo por el que no se puede cargar.
+     * @return siempre null.
+     * @throws IOException si no se puede apartar.
+     */
+    private static HistorialJugadas apartar(Path ruta, String motivo) throws IOException {
+        Path apartado = ruta.resolveSibling(ruta.getFileName() + ".danyado");
+        LOGGER.error("El diario {} {}; se aparta como {}", ruta, motivo, apartado);
+        Files.move(ruta, apartado, StandardCopyOption.REPLACE_EXISTING);
+        return null;
+    }
+
+    /**
+     * Repite una anotación del diario sobre un historial.
+     * @param historial el historial.
+     * @param anotada la anotación leída.
+     * @return true si la anotación se pudo repetir y coincide con la leída.
+     */
+    private static boolean repetir(HistorialJugadas historial, Jugada anotada) {
+        if (anotada == null) {
+            return false;
+        }
+
+        Jugada repetida = switch (anotada.tipo()) {
+            case JUGADA -> historial.jugar(anotada.celda(), anotada.valor(), anotada.instante());
+            case DESHACER -> historial.deshacer(anotada.instante());
+            case REHACER -> historial.rehacer(anotada.instante());
+        };
+        return anotada.equals(repetida);
+    }
+
+    /**
+     * Escribe la instantánea de un historial, sustituyendo el diario anterior.
+     * @param ruta la ruta del diario.
+     * @param historial el historial.
+     * @return la longitud de la instantánea escrita, en bytes.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    private long escribirInstantanea(Path ruta, HistorialJugadas historial) throws IOException {
+        List<Jugada> deshacer = historial.getDeshacer();
+        List<Jugada> rehacer = historial.getRehacer();
+        EstadisticasJugadas estadisticas = historial.getEstadisticas();
+        Tablero tablero = historial.getTablero();
+
+        ByteBuffer buffer = ByteBuffer.allocate(CABECERA + numCeldas + (deshacer.size() + rehacer.size()) * REGISTRO);
+        buffer.putInt(FIRMA).putInt(VERSION).putInt(tamanyo).putInt(deshacer.size()).putInt(rehacer.size())
+                .putInt(estadisticas.jugadas()).putInt(estadisticas.deshechas()).putInt(estadisticas.rehechas())
+                .putLong(estadisticas.primera()).putLong(estadisticas.ultima()).putLong(estadisticas.tiempoJugado())
+                .position(CABECERA);
+        for (int celda = 0; celda < numCeldas; celda++) {
+            buffer.put((byte) tablero.get(celda));
+        }
+        for (Jugada jugada : deshacer) {
+            escribirRegistro(buffer, jugada);
+        }
+        for (Jugada jugada : rehacer) {
+            escribirRegistro(buffer, jugada);
+        }
+
+        Files.createDirectories(directorio);
+        EscrituraAtomica.escribir(ruta, buffer.array());
+        return buffer.capacity();
+    }
+
+    /**
+     * Escribe una anotación en un buffer.
+     * @param buffer el buffer de destino.
+     * @param jugada la anotación.
+     */
+    private static void escribirRegistro(ByteBuffer buffer, Jugada jugada) {
+        buffer.put((byte) jugada.tipo().ordinal()).put((byte) jugada.valor()).put((byte) jugada.anterior())
+                .put((byte) 0).putInt(jugada.celda()).putLong(jugada.instante());
+    }
+
+    /**
+     * Lee varias anotaciones seguidas de un buffer.
+     * @param buffer el buffer de origen.
+     * @param cuantas el número de anotaciones.
+     * @return las anotaciones leídas, o null si alguna no es válida.
+     */
+    private List<Jugada> leerRegistros(ByteBuffer buffer, int cuantas) {
+        List<Jugada> jugadas = new ArrayList<>(cuantas);
+        for (int i = 0; i < cuantas; i++) {
+            Jugada jugada = leerRegistro(buffer);
+            if (jugada == null) {
+                return null;
+            }
+            jugadas.add(jugada);
+        }
+        return jugadas;
+    }
+
+    /**
+     * Lee una anotación de un buffer.
+     * @param buffer el buffer de origen, con al menos {@value #REGISTRO} bytes.
+     * @return la anotación leída, o null si no es válida.
+     */
+    private Jugada leerRegistro(ByteBuffer buffer) {
+        int tipo = buffer.get();
+        int valor = buffer.get();
+        int anterior = buffer.get();
+        buffer.get();
+        int celda = buffer.getInt();
+        long instante = buffer.getLong();
+
+        if (tipo < 0 || tipo >= TipoJugada.values().length || celda < 0 || celda >= numCeldas
+                || valor < 0 || valor > tamanyo || anterior < 0 || anterior > tamanyo) {
+            return null;
+        }
+        return new Jugada(TipoJugada.desdeOrdinal(tipo), celda, valor, anterior, instante);
+    }
+}
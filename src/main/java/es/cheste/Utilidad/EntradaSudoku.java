@@ -0,0 +1,40 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.EstadoSudoku;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro EntradaSudoku describe un Sudoku guardado en el listado de {@link AlmacenDatos#recorrer}, sin
+ * cargar sus tableros.
+ *
+ * @param uuid el UUID del Sudoku.
+ * @param estado el estado con el que se guardó por última vez.
+ * @param fecha el momento del último guardado, en milisegundos desde 1970.
+ * @param dificultad la dificultad del Sudoku, o null si no se generó de forma reproducible.
+ */
+public record EntradaSudoku(String uuid, EstadoSudoku estado, long fecha, Dificultad dificultad) {
+
+    /**
+     * Crea una entrada obteniendo la dificultad del código guardado en el UUID.
+     * @param uuid el UUID del Sudoku.
+     * @param estado el estado con el que se guardó por última vez.
+     * @param fecha el momento del último guardado, en milisegundos desde 1970.
+     * @return la entrada del Sudoku.
+     */
+    public static EntradaSudoku de(UUID uuid, EstadoSudoku estado, long fecha) {
+        CodigoSudoku codigo = CodigoSudoku.desdeUuid(uuid);
+        return new EntradaSudoku(uuid.toString(), estado, fecha, codigo == null ? null : codigo.dificultad());
+    }
+
+    @Override
+    public String toString() {
+        return uuid + " " + estado + " " + (dificultad == null ? "-" : dificultad) + " " + Instant.ofEpochMilli(fecha);
+    }
+}
@@ -0,0 +1,239 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase EscritorSudokus guarda Sudokus en segundo plano. Las peticiones se dejan en una cola acotada y un
+ * único hilo las recoge por lotes: sustituye las partidas de texto con {@link EscrituraAtomica} y guarda los datos
+ * de cada tramo de peticiones con el mismo estado en una sola llamada al almacén. Con {@link AlmacenSegmento} esa
+ * llamada hace un único {@code force} para todo el tramo, así que el coste de sincronizar con el disco se reparte
+ * entre todo el lote; {@link AlmacenFicheros} no sincroniza. Las partidas de texto tampoco se sincronizan: se
+ * sustituyen de forma atómica, pero si se cae el sistema operativo pueden no haber llegado al disco. Los datos de
+ * una petición solo se guardan si su partida de texto se ha escrito antes.
+ * <p>
+ * Quien guarda solo espera si la cola está llena, y recibe un {@link CompletableFuture} que se completa con
+ * true cuando la partida y los datos se han escrito, con la durabilidad que dé el almacén, o con false si hubo
+ * un error. Los datos del Sudoku se codifican en el hilo escritor, así que no se debe modificar el Sudoku después
+ * de pedir el guardado: {@link GestorSudokus} guarda siempre una copia que ya no cambia.
+ */
+public class EscritorSudokus implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(EscritorSudokus.class);
+    private static final Peticion FIN = new Peticion(null, null, null, null, null);
+
+    private final AlmacenDatos almacen;
+    private final int tamanyo;
+    private final int tamanyoLote;
+    private final BlockingQueue<Peticion> cola;
+    private final Thread escritor;
+    private boolean cerrado;
+
+    /**
+     * Constructor de la clase EscritorSudokus. Arranca el hilo escritor.
+     * @param almacen el almacén donde se guardan los datos.
+     * @param tamanyo el tamaño de los tableros, para las métricas.
+     * @param capacidad el número máximo de peticiones en espera.
+     * @param tamanyoLote el número máximo de peticiones que se escriben juntas.
+     */
+    public EscritorSudokus(AlmacenDatos almacen, int tamanyo, int capacidad, int tamanyoLote) {
+        if (capacidad < 1 || tamanyoLote < 1) {
+            throw new IllegalArgumentException("La capacidad y el tamaño del lote del escritor deben ser positivos");
+        }
+
+        this.almacen = almacen;
+        this.tamanyo = tamanyo;
+        this.tamanyoLote = tamanyoLote;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.escritor = new Thread(this::escribir, "escritor-sudokus");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Pide guardar los datos de un Sudoku y, opcionalmente, su partida de texto.
+     * @param sudoku el Sudoku a guardar.
+     * @param estado el estado con el que se guardan los datos.
+     * @param partida la ruta de la partida de texto, o null para guardar solo los datos.
+     * @param texto el contenido de la partida de texto, o null para guardar solo los datos.
+     * @return un futuro que se completa con true si todo se guardó correctamente, false en caso contrario.
+     */
+    public synchronized CompletableFuture<Boolean> guardar(Sudoku sudoku, EstadoSudoku estado, Path partida, byte[] texto) {
+        CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+
+        if (cerrado) {
+            LOGGER.error("No se puede guardar el sudoku {}, el escritor esta cerrado", sudoku.getUuid());
+            resultado.complete(Boolean.FALSE);
+            return resultado;
+        }
+
+        try {
+            cola.put(new Peticion(sudoku, estado, partida, texto, resultado));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.complete(Boolean.FALSE);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene el número de peticiones en espera.
+     * @return el número de peticiones en la cola.
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera a que se escriban las que están en la cola.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            try {
+                cola.put(FIN);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: espera una petición, recoge las que haya detrás hasta completar un lote y las escribe.
+     */
+    private void escribir() {
+        List<Peticion> lote = new ArrayList<>(tamanyoLote);
+        boolean fin = false;
+
+        while (!fin) {
+            try {
+                lote.add(cola.take());
+            } catch (InterruptedException e) {
+                LOGGER.error("Se interrumpió el escritor de sudokus con {} peticiones pendientes", cola.size());
+                break;
+            }
+            cola.drainTo(lote, tamanyoLote - 1);
+
+            fin = lote.removeIf(peticion -> peticion == FIN);
+            try {
+                procesar(lote);
+            } catch (RuntimeException e) {
+                LOGGER.error("Hubo un error inesperado al guardar un lote de {} sudokus {}", lote.size(), e.getMessage());
+                lote.forEach(peticion -> peticion.resultado.complete(Boolean.FALSE));
+            }
+            lote.clear();
+        }
+
+        cola.drainTo(lote);
+        for (Peticion peticion : lote) {
+            if (peticion != FIN) {
+                peticion.resultado.complete(Boolean.FALSE);
+            }
+        }
+    }
+
+    /**
+     * Escribe un lote de peticiones y completa sus futuros.
+     * @param lote las peticiones a escribir, en el orden en que llegaron.
+     */
+    private void procesar(List<Peticion> lote) {
+        boolean[] fallidas = new boolean[lote.size()];
+
+        for (int i = 0; i < lote.size(); i++) {
+            Peticion peticion = lote.get(i);
+            if (peticion.partida != null && !escribirPartida(peticion.partida, peticion.texto)) {
+                fallidas[i] = true;
+            }
+        }
+
+        for (int desde = 0; desde < lote.size(); ) {
+            EstadoSudoku estado = lote.get(desde).estado;
+            int hasta = desde + 1;
+            while (hasta < lote.size() && lote.get(hasta).estado == estado) {
+                hasta++;
+            }
+
+            // Los datos de una petición cuya partida no se pudo escribir no se guardan, para que el almacén no
+            // tenga en juego un Sudoku sin partida.
+            List<Sudoku> tramo = new ArrayList<>(hasta - desde);
+            for (int i = desde; i < hasta; i++) {
+                if (!fallidas[i]) {
+                    tramo.add(lote.get(i).sudoku);
+                }
+            }
+            if (tramo.isEmpty()) {
+                desde = hasta;
+                continue;
+            }
+
+            long inicio = Metricas.ACTIVAS ? System.nanoTime() : 0L;
+            boolean guardado = true;
+            try {
+                almacen.guardar(tramo, estado);
+            } catch (IOException e) {
+                LOGGER.error("Ocurrio un error al guardar un lote de {} sudokus {}", tramo.size(), e.getMessage());
+                guardado = false;
+                for (int i = desde; i < hasta; i++) {
+                    fallidas[i] = true;
+                }
+            }
+            if (Metricas.ACTIVAS) {
+                Metricas.anotarGuardado(tramo.size(), tamanyo, System.nanoTime() - inicio, guardado);
+            }
+            desde = hasta;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i).resultado.complete(!fallidas[i]);
+        }
+    }
+
+    /**
+     * Escribe el contenido de una partida de texto, sustituyendo el anterior de forma atómica. No se sincroniza con
+     * el disco: la partida se puede volver a escribir a partir de los datos del Sudoku.
+     * @param partida la ruta de la partida.
+     * @param texto el contenido de la partida.
+     * @return true si la partida se escribió correctamente.
+     */
+    private static boolean escribirPartida(Path partida, byte[] texto) {
+        try {
+            EscrituraAtomica.escribir(partida, texto);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al guardar la partida {} {}", partida, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Petición de guardado pendiente.
+     */
+    private record Peticion(Sudoku sudoku, EstadoSudoku estado, Path partida, byte[] texto,
+                            CompletableFuture<Boolean> resultado) {
+    }
+}
@@ -0,0 +1,79 @@
+package es.cheste.Utilidad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase EscrituraAtomica sustituye el contenido de un fichero sin que nadie pueda leerlo a medias: escribe
+ * el contenido nuevo en un fichero temporal del mismo directorio y después lo renombra sobre el original, que
+ * en el mismo sistema de ficheros es una operación atómica. Quien lee el fichero a la vez ve el contenido
+ * anterior o el nuevo completo. Los temporales terminan en {@code .tmp}, para que no coincidan con los
+ * patrones de las partidas ni de los datos.
+ */
+public final class EscrituraAtomica {
+
+    private static final AtomicLong CONTADOR = new AtomicLong();
+    private static final long PROCESO = ProcessHandle.current().pid();
+
+    private EscrituraAtomica() {
+    }
+
+    /**
+     * Sustituye el contenido de un fichero, o lo crea si no existe.
+     * @param destino el fichero a escribir.
+     * @param datos el contenido nuevo.
+     * @throws IOException si ocurre un error al escribir o al renombrar; el fichero original no cambia.
+     */
+    public static void escribir(Path destino, byte[] datos) throws IOException {
+        escribir(destino, datos, datos.length);
+    }
+
+    /**
+     * Sustituye el contenido de un fichero por el principio de un array, o lo crea si no existe.
+     * @param destino el fichero a escribir.
+     * @param datos el array con el contenido nuevo.
+     * @param longitud el número de bytes del contenido.
+     * @throws IOException si ocurre un error al escribir o al renombrar; el fichero original no cambia.
+     */
+    public static void escribir(Path destino, byte[] datos, int longitud) throws IOException {
+        Path temporal = destino.resolveSibling(destino.getFileName() + "." + PROCESO + "."
+                + CONTADOR.incrementAndGet() + ".tmp");
+
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(datos, 0, longitud);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+            }
+            mover(temporal, destino);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    /**
+     * Renombra el temporal sobre el destino, de forma atómica si el sistema de ficheros lo permite.
+     * @param temporal el fichero temporal.
+     * @param destino el fichero a sustituir.
+     * @throws IOException si ocurre un error al renombrar.
+     */
+    private static void mover(Path temporal, Path destino) throws IOException {
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Motor.ResolutorLogico;
+import es.cheste.Motor.Tecnica;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.Sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ExportadorLineas escribe los Sudokus guardados con un Sudoku por línea, en el formato que lee
+ * {@link ImportadorLineas}: el enunciado y, si se piden, la solución y la dificultad, separados por comas.
+ * Los Sudokus se recorren de forma perezosa y las líneas se escriben desde un buffer que se reutiliza, así que
+ * la memoria usada no depende del número de Sudokus. La dificultad de los Sudokus que no se generaron de forma
+ * reproducible se calcula con {@link ResolutorLogico}.
+ */
+public class ExportadorLineas {
+
+    private static final int TAMANYO_BUFFER = 1 << 20;
+    private static final byte SEPARADOR = ',';
+    private static final byte[][] NOMBRES_DIFICULTAD = new byte[Dificultad.values().length][];
+
+    static {
+        for (Dificultad dificultad : Dificultad.values()) {
+            NOMBRES_DIFICULTAD[dificultad.ordinal()] = dificultad.name().toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final GestorSudokus gestor;
+    private final int tamanyo;
+    private final boolean conSolucion;
+    private final boolean conDificultad;
+
+    /**
+     * Constructor de la clase ExportadorLineas.
+     * @param gestor el gestor con el que se leen los Sudokus.
+     * @param tamanyo el tamaño de los tableros.
+     * @param conSolucion true para escribir la solución detrás del enunciado.
+     * @param conDificultad true para escribir la dificultad al final de la línea.
+     */
+    public ExportadorLineas(GestorSudokus gestor, int tamanyo, boolean conSolucion, boolean conDificultad) {
+        this.gestor = gestor;
+        this.tamanyo = tamanyo;
+        this.conSolucion = conSolucion;
+        this.conDificultad = conDificultad;
+    }
+
+    /**
+     * Exporta los Sudokus guardados que admite un filtro, en el orden en que se guardaron.
+     * @param filtro el filtro de los Sudokus a exportar.
+     * @param destino el fichero de destino, que se sobrescribe si ya existe.
+     * @return el número de Sudokus exportados.
+     * @throws IOException si ocurre un error al recorrer el almacén o al escribir.
+     */
+    public long exportar(FiltroSudokus filtro, Path destino) throws IOException {
+
+        RenderizadorTablero renderizador = new RenderizadorTablero(tamanyo);
+        ResolutorLogico calificador = conDificultad ? new ResolutorLogico(tamanyo) : null;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANYO_BUFFER);
+        int longitudMaxima = 2 * (tamanyo * tamanyo + 1) + 16;
+        long exportados = 0;
+
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Stream<EntradaSudoku> entradas = GestorSudokus.recorrerSudokus(filtro)) {
+
+            Iterator<EntradaSudoku> iterador = entradas.iterator();
+            while (iterador.hasNext()) {
+                EntradaSudoku entrada = iterador.next();
+                Sudoku sudoku = gestor.leerDatosSudoku(entrada.uuid());
+                if (sudoku == null) {
+                    continue;
+                }
+
+                if (buffer.remaining() < longitudMaxima) {
+                    vaciar(canal, buffer);
+                }
+                renderizador.escribirLinea(sudoku.getEnunciado(), buffer);
+                if (conSolucion) {
+                    buffer.put(SEPARADOR);
+                    renderizador.escribirLinea(sudoku.getSolucion(), buffer);
+                }
+                if (conDificultad) {
+                    buffer.put(SEPARADOR);
+                    Dificultad dificultad = entrada.dificultad() != null ? entrada.dificultad()
+                            : calificar(calificador, sudoku);
+                    if (dificultad != null) {
+                        buffer.put(NOMBRES_DIFICULTAD[dificultad.ordinal()]);
+                    }
+                }
+                buffer.put((byte) '\n');
+                exportados++;
+            }
+            vaciar(canal, buffer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return exportados;
+    }
+
+    /**
+     * Calcula la dificultad de un Sudoku por la técnica más difícil que necesita.
+     * @param calificador el resolutor que califica el tablero.
+     * @param sudoku el Sudoku a calificar.
+     * @return la dificultad del Sudoku, o null si su enunciado es contradictorio.
+     */
+    private static Dificultad calificar(ResolutorLogico calificador, Sudoku sudoku) {
+        Tecnica tecnica = calificador.calificar(sudoku.getTablero());
+        return tecnica == null ? null : tecnica.getDificultad();
+    }
+
+    /**
+     * Escribe en el fichero el contenido del buffer y lo deja vacío.
+     * @param canal el canal del fichero.
+     * @param buffer el buffer con las líneas compuestas.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    private static void vaciar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,56 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.EstadoSudoku;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro FiltroSudokus indica qué Sudokus guardados se quieren listar. Los almacenes lo aplican mientras
+ * recorren sus datos, antes de crear las entradas.
+ *
+ * @param estados los estados admitidos.
+ * @param dificultad la dificultad admitida, o null para admitir cualquiera, también las desconocidas.
+ * @param desde el primer momento de guardado admitido, en milisegundos desde 1970.
+ * @param hasta el último momento de guardado admitido, en milisegundos desde 1970.
+ */
+public record FiltroSudokus(Set<EstadoSudoku> estados, Dificultad dificultad, long desde, long hasta) {
+
+    /** Admite todos los Sudokus guardados. */
+    public static final FiltroSudokus TODOS = new FiltroSudokus(EnumSet.allOf(EstadoSudoku.class), null,
+            Long.MIN_VALUE, Long.MAX_VALUE);
+
+    /** Admite los Sudokus que tienen una partida para el jugador. */
+    public static final FiltroSudokus PARTIDAS = new FiltroSudokus(EnumSet.of(EstadoSudoku.EN_JUEGO,
+            EstadoSudoku.COMPROBADO), null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+    /**
+     * Constructor del registro FiltroSudokus.
+     */
+    public FiltroSudokus {
+        estados = estados.isEmpty() ? EnumSet.noneOf(EstadoSudoku.class) : EnumSet.copyOf(estados);
+    }
+
+    /**
+     * Comprueba si el filtro admite un estado, antes de leer el resto de los datos.
+     * @param estado el estado del Sudoku.
+     * @return true si el estado está entre los admitidos.
+     */
+    public boolean admiteEstado(EstadoSudoku estado) {
+        return estados.contains(estado);
+    }
+
+    /**
+     * Comprueba si el filtro admite un Sudoku guardado.
+     * @param entrada la entrada del Sudoku.
+     * @return true si el Sudoku cumple todas las condiciones del filtro.
+     */
+    public boolean admite(EntradaSudoku entrada) {
+        return estados.contains(entrada.estado()) && (dificultad == null || dificultad == entrada.dificultad())
+                && entrada.fecha() >= desde && entrada.fecha() <= hasta;
+    }
+}
@@ -1,22 +1,49 @@
 package es.cheste.Utilidad;
 
+import es.cheste.Motor.CanonizadorSudoku;
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.HistorialJugadas;
+import es.cheste.Objetos.Huella;
 import es.cheste.Objetos.Sudoku;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * @author Hugo Almodóvar Fuster
  * @version 1.1
  * La clase GestorSudokus proporciona métodos para cargar y guardar tableros de Sudoku,
  * así como para gestionar los datos de los Sudokus.
+ * <p>
+ * Se puede usar desde varios hilos. Los Sudokus de la caché no se modifican nunca, así que se leen sin
+ * cerrojos; cada modificación se hace sobre una copia con el cerrojo del UUID tomado, y la copia sustituye a la
+ * anterior en la caché y se guarda en ese mismo orden: los datos se piden a {@link EscritorSudokus} antes de soltar
+ * el cerrojo, y como el escritor los guarda en el orden en que llegan, una versión anterior nunca pisa a otra
+ * posterior. Los cerrojos se reparten por UUID con {@link CerrojosSudokus}, de forma que los cambios en Sudokus
+ * distintos no se esperan, y las partidas y los datos se sustituyen con {@link EscrituraAtomica}, así que nunca
+ * se leen a medio escribir.
+ * <p>
+ * Los métodos públicos que reciben un UUID lo pasan a su forma canónica con {@link #normalizarUuid(String)}
+ * antes de usarlo, de modo que un mismo Sudoku escrito en mayúsculas o en minúsculas tiene un solo cerrojo, una
+ * sola entrada en la caché y una sola partida, y rechazan lo que no es un UUID.
+ * <p>
+ * Las jugadas se guardan en el diario de cada partida con {@link DiarioJugadas}, así que anotar una jugada solo
+ * añade unos bytes al final de un fichero. Al cargar un Sudoku se recupera su historial del diario.
  */
 public class GestorSudokus {
 
@@ -24,7 +51,34 @@ public class GestorSudokus {
     private static final String RUTA_PARTIDAS = Configuracion.getConfiguracion("directorio.partidas.sudoku");
     private static final String DIRECTORIO_DATOS = Configuracion.getConfiguracion("directorio.datos");
     private static final String RUTA_DATOS = Configuracion.getConfiguracion("directorio.datos.sudoku");
+    private static final int TAMANYO = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
     private static final Logger LOGGER = LogManager.getLogger(GestorSudokus.class);
+    private static final AlmacenDatos ALMACEN = crearAlmacen();
+    private static final CacheSudokus CACHE = new CacheSudokus(
+            Integer.parseInt(Configuracion.getConfiguracion("cache.sudokus.capacidad", "1024")),
+            Long.parseLong(Configuracion.getConfiguracion("cache.sudokus.vida.segundos", "600")));
+
+    private static final CerrojosSudokus CERROJOS = new CerrojosSudokus(
+            Integer.parseInt(Configuracion.getConfiguracion("cerrojos.franjas", "64")));
+
+    private static final EscritorSudokus ESCRITOR = new EscritorSudokus(ALMACEN, TAMANYO,
+            Integer.parseInt(Configuracion.getConfiguracion("escritor.capacidad", "4096")),
+            Integer.parseInt(Configuracion.getConfiguracion("escritor.lote", "512")));
+
+    private static final IndiceHuellas HUELLAS = crearIndiceHuellas();
+    private static final DiarioJugadas DIARIO = new DiarioJugadas(
+            Paths.get(Configuracion.getConfiguracion("directorio.jugadas", "src/main/resources/jugadas/")), TAMANYO,
+            Integer.parseInt(Configuracion.getConfiguracion("jugadas.instantanea.cada", "64")));
+
+    static {
+        Metricas.vigilarCache(CACHE);
+    }
+
+    private static final ThreadLocal<RenderizadorTablero> RENDERIZADOR =
+            ThreadLocal.withInitial(() -> new RenderizadorTablero(TAMANYO));
+    private static final ThreadLocal<LectorTablero> LECTOR = ThreadLocal.withInitial(() -> new LectorTablero(TAMANYO));
+    private static final ThreadLocal<CanonizadorSudoku> CANONIZADOR =
+            ThreadLocal.withInitial(() -> new CanonizadorSudoku(TAMANYO));
 
     /**
      * Obtiene una lista de UUIDs de los Sudokus guardados.
@@ -32,119 +86,548 @@ public class GestorSudokus {
      */
     public static List<String> obtenerUUIDSudoku() {
 
-        File[] listaFicheros = obtenerListadoPartidas();
+        try {
+            return ALMACEN.listarUUID();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Hubo un error al obtener el listado de sudokus {}", e.getMessage());
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Recorre de forma perezosa los Sudokus guardados que admite un filtro, sin cargar sus tableros.
+     * El flujo se debe cerrar al terminar, por ejemplo con un try-with-resources.
+     * @param filtro el filtro de los Sudokus a recorrer.
+     * @return el flujo de entradas, en el orden en que se guardaron.
+     * @throws IOException si ocurre un error al empezar a leer.
+     */
+    public static Stream<EntradaSudoku> recorrerSudokus(FiltroSudokus filtro) throws IOException {
+        return ALMACEN.recorrer(filtro);
+    }
+
+    /**
+     * Obtiene una página del listado de Sudokus guardados que admite un filtro. Solo se leen los Sudokus
+     * hasta el final de la página pedida.
+     * @param filtro el filtro de los Sudokus a listar.
+     * @param pagina el número de página, empezando en 0.
+     * @param tamanyoPagina el número máximo de entradas por página.
+     * @return las entradas de la página, vacía si no hay más o si hubo un error.
+     */
+    public static List<EntradaSudoku> obtenerPagina(FiltroSudokus filtro, int pagina, int tamanyoPagina) {
+
+        try (Stream<EntradaSudoku> entradas = ALMACEN.recorrer(filtro)) {
+            return entradas.skip((long) pagina * tamanyoPagina).limit(tamanyoPagina).toList();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Hubo un error al obtener la pagina {} del listado de sudokus {}", pagina, e.getMessage());
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Pasa un UUID recibido de fuera a la forma con la que se guardan los Sudokus: en minúsculas y con sus 36
+     * caracteres.
+     * @param uuidSudoku el UUID recibido.
+     * @return el UUID en forma canónica, o null si no es un UUID válido.
+     */
+    public static String normalizarUuid(String uuidSudoku) {
+
+        if (uuidSudoku == null) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(uuidSudoku).toString();
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("El UUID {} no es valido", uuidSudoku);
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene la ruta del fichero de partida de un Sudoku.
+     * @param uuidSudoku el UUID del Sudoku.
+     * @return la ruta de su fichero de partida.
+     */
+    public static Path rutaPartida(String uuidSudoku) {
+        return Paths.get(RUTA_PARTIDAS + uuidSudoku + ".txt");
+    }
+
+    /**
+     * Obtiene el UUID de un Sudoku a partir del nombre de su fichero de partida.
+     * @param partida la ruta del fichero de partida.
+     * @return el UUID del Sudoku, o null si el nombre no tiene el formato de una partida.
+     */
+    public static String uuidPartida(Path partida) {
+        String prefijo = Paths.get(RUTA_PARTIDAS).getFileName().toString();
+        Path nombre = partida.getFileName();
+
+        if (nombre == null) {
+            return null;
+        }
+
+        String fichero = nombre.toString();
+        if (!fichero.startsWith(prefijo) || !fichero.endsWith(".txt") || fichero.length() == prefijo.length() + 4) {
+            return null;
+        }
+        return fichero.substring(prefijo.length(), fichero.length() - 4);
+    }
+
+    /**
+     * Obtiene los ficheros de partida del directorio de partidas de la configuración.
+     * @return la lista de ficheros de partida.
+     */
+    public static List<Path> listarPartidas() {
+        return listarPartidas(Paths.get(DIRECTORIO_PARTIDAS));
+    }
+
+    /**
+     * Obtiene los ficheros de partida de un directorio.
+     * @param directorio el directorio a recorrer.
+     * @return la lista de ficheros de partida, vacía si hubo un error al recorrer el directorio.
+     */
+    public static List<Path> listarPartidas(Path directorio) {
+
+        List<Path> partidas = new ArrayList<>();
+        String patron = Paths.get(RUTA_PARTIDAS).getFileName() + "*.txt";
+
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(directorio, patron)) {
+            for (Path fichero : ficheros) {
+                partidas.add(fichero);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al listar las partidas del directorio {} {}", directorio, e.getMessage());
+        }
 
-        if (listaFicheros != null) {
+        return partidas;
+    }
+
+    /**
+     * Obtiene la caché de Sudokus cargados, para consultar sus contadores.
+     * @return la caché de Sudokus.
+     */
+    public static CacheSudokus getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Espera a que se escriban los guardados asíncronos pendientes y deja de aceptar otros nuevos.
+     * Se debe llamar antes de terminar la aplicación si se ha usado algún guardado asíncrono.
+     */
+    public static void cerrarEscritor() {
+        ESCRITOR.close();
+    }
 
-            List<String> uuidFichero = new ArrayList<>();
+    /**
+     * Crea el almacén de datos indicado en la configuración.
+     * Si el almacén de segmento no se puede abrir, se utilizan ficheros sueltos.
+     * @return el almacén de datos a utilizar.
+     */
+    private static AlmacenDatos crearAlmacen() {
 
-            for (File fichero : listaFicheros) {
+        AlmacenFicheros ficheros = new AlmacenFicheros(DIRECTORIO_PARTIDAS, RUTA_DATOS);
 
-                String[] ficheroSplit;
+        if (!"segmento".equals(Configuracion.getConfiguracion("almacen.tipo"))) {
+            return ficheros;
+        }
 
-                ficheroSplit = fichero.getName().split("_");
-                uuidFichero.add(ficheroSplit[1].replace(".txt","").trim());
+        try {
+            AlmacenSegmento segmento = new AlmacenSegmento(Paths.get(Configuracion.getConfiguracion("almacen.segmento")),
+                    Paths.get(Configuracion.getConfiguracion("almacen.indice")), TAMANYO);
+            if (segmento.estaVacio()) {
+                importarFicheros(segmento);
             }
+            return segmento;
+        } catch (IOException e) {
+            LOGGER.error("No se pudo abrir el almacen de segmento, se usaran ficheros sueltos {}", e.getMessage());
+            return ficheros;
+        }
+    }
 
-            return uuidFichero;
+    /**
+     * Abre el índice de huellas indicado en la configuración, si está activado.
+     * @return el índice de huellas, o null si está desactivado o no se puede abrir.
+     */
+    private static IndiceHuellas crearIndiceHuellas() {
+
+        if (!Boolean.parseBoolean(Configuracion.getConfiguracion("dedup.activo", "true"))) {
+            return null;
         }
 
-        return new ArrayList<>();
+        try {
+            return new IndiceHuellas(Paths.get(Configuracion.getConfiguracion("dedup.indice",
+                    "src/main/resources/datos/huellas.idx")), TAMANYO);
+        } catch (IOException e) {
+            LOGGER.error("No se pudo abrir el indice de huellas, no se descartaran sudokus repetidos {}", e.getMessage());
+            return null;
+        }
     }
 
     /**
-     * Obtiene una lista de archivos de partidas guardadas en el directorio de partidas.
-     * @return un array de archivos que representan las partidas guardadas.
+     * Copia en un almacén de segmento nuevo los datos guardados antes en ficheros sueltos,
+     * para que las partidas anteriores sigan disponibles. Los ficheros originales no se borran.
+     * @param segmento el almacén de segmento vacío.
+     * @throws IOException si ocurre un error al escribir en el segmento.
      */
-    private static File[] obtenerListadoPartidas() {
+    private static void importarFicheros(AlmacenSegmento segmento) throws IOException {
 
-        File directorio = new File(DIRECTORIO_PARTIDAS);
+        Path directorio = Paths.get(DIRECTORIO_DATOS);
 
-        if (directorio.isDirectory()) {
-            return directorio.listFiles();
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(directorio, "Sudoku_*.dat")) {
+            for (Path fichero : ficheros) {
+                try {
+                    Sudoku sudoku = CodecSudoku.leer(Files.readAllBytes(fichero));
+                    boolean enJuego = Files.exists(rutaPartida(sudoku.getUuid()));
+                    segmento.guardar(List.of(sudoku), enJuego ? EstadoSudoku.EN_JUEGO : EstadoSudoku.GENERADO);
+                } catch (IOException | IllegalArgumentException e) {
+                    LOGGER.error("No se pudo importar el fichero {} al segmento {}", fichero, e.getMessage());
+                }
+            }
         }
-        return null;
     }
+
     /**
      * Comprueba un Sudoku resuelto por el jugador comparándolo con la solución almacenada.
      *
      * @param uuidSudoku el UUID del Sudoku que se desea comprobar.
      * @return un mensaje indicando el resultado de la comprobación:
-     *         - "Hubo un error inesperado" si ocurre un problema al cargar el Sudoku o sus datos.
+     *         - "Hubo un error inesperado" si el UUID no es válido o si ocurre un problema al cargar o al guardar el
+     *           Sudoku o sus datos.
+     *         - "El tablero no tiene el formato esperado..." si faltan celdas o alguna está mal escrita, indicando cuáles.
      *         - "Por favor rellene todas las celdas, y elimine los puntos (.)" si el tablero del jugador no está completo.
      *         - "Se mostrará el sudoku corregido en el archivo correspondiente, se marcarán con (.) los errores" si la comprobación se realiza correctamente.
      */
     public String comprobarSudokus(String uuidSudoku) {
 
-        int[][] sudokuJugador = cargarSudoku(uuidSudoku);
-        Sudoku sudoku = cargarDatosSudoku(uuidSudoku);
+        String uuid = normalizarUuid(uuidSudoku);
+
+        if (uuid == null) {
+            return "Hubo un error inesperado";
+        }
+
+        ReentrantLock cerrojo = CERROJOS.obtener(uuid);
+        cerrojo.lock();
+        try {
+            return comprobarConCerrojo(uuid);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Comprueba un Sudoku con su cerrojo ya tomado, de forma que nadie cambia la partida ni los datos entre que
+     * se leen y se sustituyen por los corregidos. Los datos se guardan con {@link EscritorSudokus}, esperando a que
+     * se escriban, para que queden detrás de los guardados anteriores del mismo Sudoku.
+     * @param uuidSudoku el UUID del Sudoku que se desea comprobar, en forma canónica.
+     * @return el mensaje con el resultado de la comprobación, el mismo que {@link #comprobarSudokus(String)}.
+     */
+    private String comprobarConCerrojo(String uuidSudoku) {
+
+        LectorTablero lector = LECTOR.get();
+        int[] sudokuJugador = new int[TAMANYO * TAMANYO];
+        boolean completo;
+
+        try {
+            completo = lector.leer(rutaPartida(uuidSudoku), sudokuJugador);
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al cargar el sudoku.\nUUID: {}\nMensaje: {}", uuidSudoku, e.getMessage());
+            return "Hubo un error inesperado";
+        }
+
+        Sudoku guardado = cargarDatosSudoku(uuidSudoku);
 
-        if(sudokuJugador == null || sudoku == null){
+        if (guardado == null) {
             return "Hubo un error inesperado";
         }
-        if (Arrays.stream(sudokuJugador).findAny().isEmpty()){
-            return "Por favor rellene todas las celdas, y elimine los puntos (.)";
+        if (!completo || lector.getMalformadas() > 0) {
+            return "El tablero no tiene el formato esperado (" + lector.getCeldasLeidas() + " de " + TAMANYO * TAMANYO
+                    + " celdas). Celdas no válidas: " + lector.describirCeldas(LectorTablero.MALFORMADA);
+        }
+        if (lector.getVacias() > 0) {
+            return "Por favor rellene todas las celdas, y elimine los puntos (.)\nCeldas vacías: "
+                    + lector.describirCeldas(LectorTablero.VACIA);
         }
 
+        Sudoku sudoku = guardado.copiar();
         sudoku.comprobarResultado(sudokuJugador);
-        guardarSudoku(sudoku, Boolean.TRUE);
+        if (!guardarHistorial(sudoku) || !guardarSudoku(sudoku, Boolean.TRUE)
+                || !guardarDatosAsincrono(sudoku, EstadoSudoku.COMPROBADO).join()) {
+            return "Hubo un error inesperado";
+        }
 
         return "Se mostrará el sudoku corregido en el archivo correspondiente, se marcarán con (.) los errores";
     }
 
     /**
-     * Obtiene los números de una línea de texto que representa una fila del tablero de Sudoku.
-     * @param linea la línea de texto.
-     * @param tamanyo el tamaño del tablero de Sudoku.
-     * @return un array de enteros que representa los números de la fila.
+     * Modifica un Sudoku con su cerrojo tomado. El cambio se aplica a una copia del Sudoku cargado, que
+     * sustituye a la anterior en la caché; quien tenga la versión anterior la sigue viendo sin cambios.
+     * @param uuidSudoku el UUID del Sudoku a modificar.
+     * @param cambio el cambio a aplicar sobre la copia.
+     * @param estado el estado con el que se guardan en segundo plano los datos modificados, o null para
+     *               dejar la copia solo en la caché. Las jugadas se guardan en el diario en cualquier caso.
+     * @return la copia modificada, o null si el UUID no es válido, el Sudoku no existe o hubo un error al cargarlo o
+     *         al guardar sus jugadas.
+     */
+    public Sudoku modificarSudoku(String uuidSudoku, Consumer<Sudoku> cambio, EstadoSudoku estado) {
+
+        String uuid = normalizarUuid(uuidSudoku);
+
+        if (uuid == null) {
+            return null;
+        }
+
+        ReentrantLock cerrojo = CERROJOS.obtener(uuid);
+        cerrojo.lock();
+        try {
+            Sudoku guardado = cargarDatosSudoku(uuid);
+            if (guardado == null) {
+                return null;
+            }
+
+            Sudoku sudoku = guardado.copiar();
+            cambio.accept(sudoku);
+            if (!guardarHistorial(sudoku)) {
+                return null;
+            }
+            if (estado != null) {
+                guardarDatosAsincrono(sudoku, estado);
+            } else CACHE.poner(sudoku);
+            return sudoku;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Sustituye la partida de texto de un Sudoku modificado fuera de {@link #modificarSudoku} con su cerrojo
+     * tomado, junto con sus jugadas nuevas, y si el Sudoku estaba en la caché lo sustituye también. Si desde que
+     * se copió el Sudoku otro hilo lo ha cambiado, el cambio se vuelve a aplicar sobre una copia del vigente y la
+     * partida se escribe con su tablero comprobado, para no perder lo que hizo el otro hilo. Los datos se piden a
+     * {@link EscritorSudokus} antes de soltar el cerrojo, así que se guardan por lotes en segundo plano pero en el
+     * mismo orden que los cambios.
+     * @param base el Sudoku cargado a partir del cual se hizo la copia modificada.
+     * @param sudoku la copia modificada del Sudoku.
+     * @param partida la ruta de la partida.
+     * @param texto el contenido nuevo de la partida.
+     * @param cambio el cambio que se aplicó a la copia, para repetirlo si el Sudoku ha cambiado.
+     * @param estado el estado con el que se guardan los datos.
+     * @return el Sudoku que ha quedado guardado, que es la copia recibida o, si se ha repetido el cambio, la nueva,
+     *         y el futuro del guardado de sus datos.
+     * @throws IOException si el Sudoku ya no se puede cargar o si ocurre un error al escribir; la partida anterior
+     *                     y la caché no cambian.
      */
-    private int[] obtenerNumerosDeLinea(String linea, int tamanyo) {
-        int[] numeros = new int[tamanyo];
-        String[] valores = linea.trim().split("\\s+");
-        for (int j = 0; j < tamanyo; j++) {
-            if (!valores[j].contains(".")) {
-                numeros[j] = Integer.parseInt(valores[j]);
-            } else return new int[tamanyo];
+    public Sustitucion sustituirPartida(Sudoku base, Sudoku sudoku, Path partida, byte[] texto,
+                                        Consumer<Sudoku> cambio, EstadoSudoku estado) throws IOException {
+
+        ReentrantLock cerrojo = CERROJOS.obtener(sudoku.getUuid());
+        cerrojo.lock();
+        try {
+            Sudoku vigente = cargarDatosSudoku(sudoku.getUuid());
+            if (vigente == null) {
+                throw new IOException("No se pudieron cargar los datos del sudoku " + sudoku.getUuid());
+            }
+
+            byte[] contenido = texto;
+            int longitud = texto.length;
+            if (vigente != base) {
+                sudoku = vigente.copiar();
+                cambio.accept(sudoku);
+                RenderizadorTablero renderizador = RENDERIZADOR.get();
+                longitud = renderizador.renderizar(sudoku.getComprobado());
+                contenido = renderizador.getBytes();
+            }
+
+            escribirHistorial(sudoku);
+            EscrituraAtomica.escribir(partida, contenido, longitud);
+            CACHE.reemplazar(sudoku);
+            return new Sustitucion(sudoku, vigilarGuardado(sudoku, ESCRITOR.guardar(sudoku, estado, null, null)));
+        } finally {
+            cerrojo.unlock();
         }
-        return numeros;
     }
 
     /**
-     * Guarda los datos de un objeto Sudoku en un archivo binario.
+     * Deshace o rehace varias jugadas de un Sudoku y vuelve a escribir su partida con el tablero del jugador.
+     * @param uuidSudoku el UUID del Sudoku.
+     * @param jugadas el número de jugadas a deshacer o rehacer.
+     * @param rehacer true para rehacer jugadas deshechas, false para deshacerlas.
+     * @return el número de jugadas deshechas o rehechas, que puede ser menor si no había tantas, o -1 si hubo
+     *         un error.
+     */
+    public int deshacerJugadas(String uuidSudoku, int jugadas, boolean rehacer) {
+
+        String uuid = normalizarUuid(uuidSudoku);
+
+        if (uuid == null) {
+            return -1;
+        }
+
+        int[] hechas = new int[1];
+        ReentrantLock cerrojo = CERROJOS.obtener(uuid);
+        cerrojo.lock();
+        try {
+            Sudoku sudoku = modificarSudoku(uuid, copia -> {
+                while (hechas[0] < jugadas && (rehacer ? copia.rehacer() : copia.deshacer()) != null) {
+                    hechas[0]++;
+                }
+            }, null);
+            if (sudoku == null) {
+                return -1;
+            }
+            if (hechas[0] > 0) {
+                RenderizadorTablero renderizador = RENDERIZADOR.get();
+                int longitud = renderizador.renderizar(sudoku.getTableroJugador());
+                EscrituraAtomica.escribir(rutaPartida(uuid), renderizador.getBytes(), longitud);
+            }
+            return hechas[0];
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al escribir la partida.\nUUID: {}\nMensaje: {}", uuid, e.getMessage());
+            return -1;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Guarda en el diario las jugadas nuevas de un Sudoku modificado, con su cerrojo tomado.
+     * @param sudoku la copia modificada del Sudoku.
+     * @return true si no había jugadas nuevas o se guardaron correctamente, false en caso contrario.
+     */
+    private static boolean guardarHistorial(Sudoku sudoku) {
+        try {
+            escribirHistorial(sudoku);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al guardar las jugadas del sudoku.\nUUID: {}\nMensaje: {}",
+                    sudoku.getUuid(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Guarda en el diario las jugadas nuevas de un Sudoku modificado, con su cerrojo tomado. Si no se pueden
+     * guardar, el Sudoku sale de la caché, para que la siguiente carga parta de lo que haya en el diario.
+     * @param sudoku la copia modificada del Sudoku.
+     * @throws IOException si el diario ha cambiado desde que se cargó el Sudoku o si ocurre un error al escribir.
+     */
+    private static void escribirHistorial(Sudoku sudoku) throws IOException {
+
+        HistorialJugadas historial = sudoku.getHistorial();
+
+        if (historial != null) {
+            try {
+                DIARIO.guardar(sudoku.getUuid(), historial);
+            } catch (IOException e) {
+                CACHE.quitar(sudoku.getUuid());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Guarda los datos de un objeto Sudoku cuya partida se entrega al jugador.
      * @param sudoku el objeto Sudoku a guardar.
      * @return true si los datos se guardaron correctamente, false en caso contrario.
      */
     public boolean guardarDatosSudoku(Sudoku sudoku) {
+        return guardarDatosSudoku(sudoku, EstadoSudoku.EN_JUEGO);
+    }
 
-        boolean esValido = Boolean.TRUE;
-
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(RUTA_DATOS + sudoku.getUuid() + ".dat"))) {
+    /**
+     * Guarda los datos de un objeto Sudoku en el almacén de datos con el formato de {@link CodecSudoku}.
+     * El Sudoku guardado también se deja en la caché.
+     * @param sudoku el objeto Sudoku a guardar.
+     * @param estado el estado con el que se guarda el Sudoku.
+     * @return true si los datos se guardaron correctamente, false en caso contrario.
+     */
+    public boolean guardarDatosSudoku(Sudoku sudoku, EstadoSudoku estado) {
 
-            oos.writeObject(sudoku);
+        boolean esValido = Boolean.TRUE;
+        long inicio = Metricas.ACTIVAS ? System.nanoTime() : 0L;
 
-        } catch (FileNotFoundException e) {
-            LOGGER.error("No se ha encontrado el fichero en el método 'guardarDatosSudoku' {}", e.getMessage());
-            esValido = Boolean.FALSE;
+        try {
+            ALMACEN.guardar(List.of(sudoku), estado);
+            CACHE.poner(sudoku);
         } catch (IOException e) {
             LOGGER.error("Ocurrio un error al guardar el objeto {}", e.getMessage());
+            CACHE.quitar(sudoku.getUuid());
             esValido = Boolean.FALSE;
         }
 
+        if (Metricas.ACTIVAS) {
+            Metricas.anotarGuardado(1, TAMANYO, System.nanoTime() - inicio, esValido);
+        }
+
         return esValido;
     }
 
     /**
-     * Guarda un tablero de Sudoku en un archivo de texto.
+     * Pide guardar en segundo plano la partida de texto de un Sudoku nuevo y sus datos, con el estado
+     * {@link EstadoSudoku#EN_JUEGO}. El tablero se renderiza en el hilo que llama. Los datos solo se guardan si la
+     * partida se ha escrito, y el Sudoku no entra en la caché hasta que los dos se han escrito.
+     * @param sudoku el objeto Sudoku a guardar.
+     * @return un futuro que se completa con true si la partida y los datos se guardaron correctamente.
+     */
+    public CompletableFuture<Boolean> guardarSudokuAsincrono(Sudoku sudoku) {
+
+        RenderizadorTablero renderizador = RENDERIZADOR.get();
+        int longitud = renderizador.renderizar(sudoku.getEnunciado());
+
+        return ESCRITOR.guardar(sudoku, EstadoSudoku.EN_JUEGO, rutaPartida(sudoku.getUuid()),
+                Arrays.copyOf(renderizador.getBytes(), longitud)).thenApply(correcto -> {
+            if (correcto) {
+                CACHE.ponerSiFalta(sudoku);
+            }
+            return correcto;
+        });
+    }
+
+    /**
+     * Pide guardar en segundo plano los datos de un Sudoku. El Sudoku queda en la caché desde ese momento,
+     * por lo que las cargas posteriores lo encuentran aunque todavía no se haya escrito.
+     * @param sudoku el objeto Sudoku a guardar.
+     * @param estado el estado con el que se guarda el Sudoku.
+     * @return un futuro que se completa con true si los datos se guardaron correctamente.
+     */
+    public CompletableFuture<Boolean> guardarDatosAsincrono(Sudoku sudoku, EstadoSudoku estado) {
+        CACHE.poner(sudoku);
+        return vigilarGuardado(sudoku, ESCRITOR.guardar(sudoku, estado, null, null));
+    }
+
+    /**
+     * Quita un Sudoku de la caché si su guardado asíncrono falla, para que no se sirva una versión que no está en disco.
+     * @param sudoku el Sudoku guardado.
+     * @param guardado el futuro del guardado.
+     * @return el mismo futuro.
+     */
+    private static CompletableFuture<Boolean> vigilarGuardado(Sudoku sudoku, CompletableFuture<Boolean> guardado) {
+        guardado.thenAccept(correcto -> {
+            if (!correcto) {
+                CACHE.quitar(sudoku.getUuid());
+            }
+        });
+        return guardado;
+    }
+
+    /**
+     * Guarda un tablero de Sudoku en un archivo de texto, sustituyendo el anterior de forma atómica.
      * @param sudoku el objeto Sudoku a guardar.
      * @return true si el Sudoku se guardó correctamente, false en caso contrario.
      */
     public boolean guardarSudoku(Sudoku sudoku, boolean estaComprobado) {
 
-        Path pathPartida = Paths.get(RUTA_PARTIDAS + sudoku.getUuid() + ".txt");
+        Path pathPartida = rutaPartida(sudoku.getUuid());
+        RenderizadorTablero renderizador = RENDERIZADOR.get();
+        int longitud = renderizador.renderizar(estaComprobado ? sudoku.getComprobado() : sudoku.getEnunciado());
 
         try {
-            Files.writeString(pathPartida, Sudoku.mostrarTablero(estaComprobado ? sudoku.getTableroComprobado() : sudoku.getTablero()));
-        } catch (FileNotFoundException e) {
+            EscrituraAtomica.escribir(pathPartida, renderizador.getBytes(), longitud);
+        } catch (NoSuchFileException e) {
             LOGGER.error("No se ha encontrado el fichero en el método 'guardarSudoku' {}", e.getMessage());
             return Boolean.FALSE;
         } catch (IOException e) {
@@ -154,55 +637,221 @@ public class GestorSudokus {
         return Boolean.TRUE;
     }
 
+    /**
+     * Anota las huellas de un lote de Sudokus generados y descarta los equivalentes por simetría a uno anterior
+     * o a otro del mismo lote. Si el índice de huellas está desactivado o no se puede escribir, no se descarta
+     * ninguno.
+     * @param lote la lista de Sudokus generados.
+     * @return la lista de Sudokus nuevos, en el mismo orden.
+     */
+    public List<Sudoku> descartarRepetidos(List<Sudoku> lote) {
+
+        if (HUELLAS == null || lote.isEmpty()) {
+            return lote;
+        }
+
+        CanonizadorSudoku canonizador = CANONIZADOR.get();
+        List<Huella> huellas = new ArrayList<>(lote.size());
+        for (Sudoku sudoku : lote) {
+            huellas.add(canonizador.calcular(sudoku));
+        }
+
+        boolean[] nuevos;
+        try {
+            nuevos = HUELLAS.anotarTodas(huellas);
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al anotar las huellas de un lote de sudokus {}", e.getMessage());
+            return lote;
+        }
+
+        List<Sudoku> admitidos = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            if (nuevos[i]) {
+                admitidos.add(lote.get(i));
+            } else {
+                LOGGER.info("Se descarta el sudoku {}, equivalente a uno ya generado ({})", lote.get(i).getUuid(),
+                        huellas.get(i));
+            }
+        }
+        return admitidos;
+    }
+
+    /**
+     * Guarda los datos de un lote de Sudokus generados por adelantado, sin crear su partida de texto.
+     * @param lote la lista de Sudokus a guardar.
+     * @return el número de Sudokus guardados correctamente.
+     */
+    public int guardarLote(List<Sudoku> lote) {
+        return guardarLote(lote, EstadoSudoku.GENERADO);
+    }
+
+    /**
+     * Guarda los datos de un lote de Sudokus con el mismo estado en una sola escritura del almacén.
+     * Los Sudokus recién generados de forma reproducible se guardan en forma compacta, solo con su UUID, y su
+     * tablero se regenera al cargarlos.
+     * @param lote la lista de Sudokus a guardar.
+     * @param estado el estado con el que se guardan los Sudokus.
+     * @return el número de Sudokus guardados correctamente.
+     */
+    public int guardarLote(List<Sudoku> lote, EstadoSudoku estado) {
+
+        if (lote.isEmpty()) {
+            return 0;
+        }
+
+        long inicio = Metricas.ACTIVAS ? System.nanoTime() : 0L;
+        int guardados = lote.size();
+
+        try {
+            ALMACEN.guardar(lote, estado);
+        } catch (IOException e) {
+            LOGGER.error("Ocurrio un error al guardar el lote de sudokus {}", e.getMessage());
+            guardados = 0;
+        }
+
+        if (Metricas.ACTIVAS) {
+            Metricas.anotarGuardado(lote.size(), TAMANYO, System.nanoTime() - inicio, guardados == lote.size());
+        }
+        return guardados;
+    }
+
     /**
      * Carga un tablero de Sudoku desde un archivo de texto.
      *
      * @param uuidSudoku el UUID del Sudoku a cargar.
-     * @return una matriz bidimensional que representa el tablero de Sudoku.
+     * @return una matriz bidimensional que representa el tablero de Sudoku, vacía si el tablero no está completo,
+     *         o null si el UUID no es válido o hubo un error al leer el archivo.
      */
     public int[][] cargarSudoku(String uuidSudoku) {
-        final int tamanyo = Integer.parseInt(Configuracion.getConfiguracion("sudoku.tamanyo"));
-        Path pathPartida = Paths.get(RUTA_PARTIDAS + uuidSudoku + ".txt");
-        List<String> lineas;
-        int[][] tablero = new int[tamanyo][tamanyo];
+        String uuid = normalizarUuid(uuidSudoku);
 
-        try {
-            lineas = Files.readAllLines(pathPartida);
-            lineas = lineas.stream()
-                    .map(linea -> linea.replaceAll("[|\\-+]", " "))
-                    .filter(linea -> !linea.trim().isEmpty())
-                    .toList();
-            for (int i = 0; i < tamanyo; i++) {
+        if (uuid == null) {
+            return null;
+        }
 
-                int[] numeros = obtenerNumerosDeLinea(lineas.get(i), tamanyo);
-                if (Arrays.stream(numeros).count() != 0) {
+        LectorTablero lector = LECTOR.get();
+        int[] celdas = new int[TAMANYO * TAMANYO];
+        int[][] tablero = new int[TAMANYO][TAMANYO];
 
-                    System.arraycopy(numeros, 0, tablero[i], 0, tamanyo);
-                } else return new int[tamanyo][tamanyo];
+        try {
+            if (!lector.leer(rutaPartida(uuid), celdas)
+                    || lector.getVacias() > 0 || lector.getMalformadas() > 0) {
+                return tablero;
             }
         } catch (IOException e) {
             LOGGER.error("Hubo un error al cargar el sudoku.\nUUID: {}\nMensaje: {}", uuidSudoku, e.getMessage());
             return null;
         }
+
+        for (int i = 0; i < TAMANYO; i++) {
+            System.arraycopy(celdas, i * TAMANYO, tablero[i], 0, TAMANYO);
+        }
         return tablero;
     }
 
     /**
-     * Carga los datos de un objeto Sudoku desde un archivo binario.
+     * Carga los datos de un objeto Sudoku desde la caché o, si no está, desde el almacén de datos.
+     * Si tampoco está en el almacén pero se generó de forma reproducible, se regenera a partir de su UUID.
+     * El Sudoku devuelto no se debe modificar; para cambiarlo se usa {@link #modificarSudoku}.
      * @param uuidSudoku el UUID del Sudoku a cargar.
-     * @return el objeto Sudoku cargado, o null si hubo un error.
+     * @return el objeto Sudoku cargado, o null si el UUID no es válido o hubo un error.
      */
     public Sudoku cargarDatosSudoku(String uuidSudoku) {
 
-        Sudoku sudoku = null;
+        String uuid = normalizarUuid(uuidSudoku);
+
+        if (uuid == null) {
+            return null;
+        }
+
+        Sudoku sudoku = CACHE.obtener(uuid);
+
+        if (sudoku != null) {
+            return sudoku;
+        }
+
+        long inicio = Metricas.ACTIVAS ? System.nanoTime() : 0L;
+
+        try {
+            sudoku = ALMACEN.cargar(uuid);
+            if (sudoku == null) {
+                sudoku = regenerar(uuid);
+            }
+            if (sudoku == null) {
+                LOGGER.error("No se encontraron los datos del sudoku.\nUUID: {}", uuid);
+            } else {
+                HistorialJugadas historial = DIARIO.cargar(uuid);
+                if (historial != null) {
+                    sudoku.restaurarHistorial(historial);
+                }
+                sudoku = CACHE.ponerSiFalta(sudoku);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Hubo un error al cargar los datos del sudoku.\nUUID: {}\nMensaje: {}", uuid, e.getMessage());
+        }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(RUTA_DATOS + uuidSudoku + ".dat"))) {
-            sudoku = (Sudoku) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            LOGGER.error("Hubo un error al cargar los datos del sudoku.\nUUID: {}\nMensaje: {}", uuidSudoku, e.getMessage());
+        if (Metricas.ACTIVAS) {
+            Metricas.anotarCarga(TAMANYO, System.nanoTime() - inicio, sudoku != null);
         }
 
         return sudoku;
     }
 
-}
\ No newline at end of file
+    /**
+     * Carga los datos de un Sudoku para leerlo una sola vez, como al exportar todo el almacén. Si está en la
+     * caché se usa esa copia, pero si no, se lee del almacén sin meterlo en ella, para no desplazar a los
+     * Sudokus que se están jugando.
+     * @param uuidSudoku el UUID del Sudoku a cargar.
+     * @return el objeto Sudoku cargado, o null si el UUID no es válido, no está guardado o hubo un error.
+     */
+    public Sudoku leerDatosSudoku(String uuidSudoku) {
+
+        String uuid = normalizarUuid(uuidSudoku);
+
+        if (uuid == null) {
+            return null;
+        }
+
+        Sudoku sudoku = CACHE.obtener(uuid);
+
+        if (sudoku != null) {
+            return sudoku;
+        }
+
+        try {
+            sudoku = ALMACEN.cargar(uuid);
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al leer los datos del sudoku.\nUUID: {}\nMensaje: {}", uuid, e.getMessage());
+        }
+
+        return sudoku;
+    }
+
+    /**
+     * Regenera un Sudoku generado de forma reproducible a partir de su UUID.
+     * @param uuidSudoku el UUID del Sudoku.
+     * @return el Sudoku regenerado, o null si el UUID no es de un Sudoku reproducible de esta versión.
+     */
+    private static Sudoku regenerar(String uuidSudoku) {
+
+        CodigoSudoku codigo = CodigoSudoku.desdeUuid(UUID.fromString(uuidSudoku));
+
+        if (codigo == null) {
+            return null;
+        }
+
+        try {
+            return Sudoku.regenerar(codigo);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("No se pudo regenerar el sudoku {} {}", uuidSudoku, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Resultado de {@link #sustituirPartida}: el Sudoku que ha quedado en la partida y el guardado de sus datos,
+     * que se completa con true cuando están en el almacén.
+     */
+    public record Sustitucion(Sudoku sudoku, CompletableFuture<Boolean> guardado) {
+    }
+}
@@ -0,0 +1,129 @@
+package es.cheste.Utilidad;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase Histograma cuenta valores no negativos, como tiempos en nanosegundos, en cubos de potencias de dos.
+ * Anotar un valor solo incrementa contadores {@link LongAdder}, sin bloqueos ni objetos nuevos, por lo que se
+ * puede usar desde varios hilos en los caminos calientes. Los percentiles son aproximados: se devuelve el límite
+ * superior del cubo en el que caen, como mucho el doble del valor real.
+ */
+public class Histograma {
+
+    private static final int CUBOS = 64;
+
+    private final LongAdder[] cubos = new LongAdder[CUBOS];
+    private final LongAdder cuenta = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Constructor de la clase Histograma.
+     */
+    public Histograma() {
+        for (int i = 0; i < CUBOS; i++) {
+            cubos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Anota un valor. Los valores negativos se anotan como 0.
+     * @param valor el valor a anotar.
+     */
+    public void anotar(long valor) {
+        long positivo = Math.max(valor, 0L);
+        cubos[CUBOS - Long.numberOfLeadingZeros(positivo)].increment();
+        cuenta.increment();
+        suma.add(positivo);
+        maximo.accumulate(positivo);
+    }
+
+    /**
+     * Obtiene el número de valores anotados.
+     * @return el número de valores.
+     */
+    public long getCuenta() {
+        return cuenta.sum();
+    }
+
+    /**
+     * Obtiene la suma de los valores anotados.
+     * @return la suma de los valores.
+     */
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    /**
+     * Obtiene el mayor valor anotado.
+     * @return el valor máximo, o 0 si no hay valores.
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Obtiene la media de los valores anotados.
+     * @return la media, o 0 si no hay valores.
+     */
+    public double getMedia() {
+        long n = getCuenta();
+        return n == 0 ? 0.0 : (double) getSuma() / n;
+    }
+
+    /**
+     * Obtiene un percentil aproximado de los valores anotados.
+     * @param percentil el percentil, entre 0 y 100.
+     * @return el límite superior del cubo que contiene el percentil, sin superar el máximo; 0 si no hay valores.
+     */
+    public long percentil(double percentil) {
+        long total = getCuenta();
+        if (total == 0) {
+            return 0L;
+        }
+
+        long objetivo = Math.max(1L, (long) Math.ceil(total * Math.min(Math.max(percentil, 0.0), 100.0) / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBOS; i++) {
+            acumulado += cubos[i].sum();
+            if (acumulado >= objetivo) {
+                long limite = i == CUBOS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(limite, getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /**
+     * Deja el histograma vacío.
+     */
+    public void reiniciar() {
+        for (LongAdder cubo : cubos) {
+            cubo.reset();
+        }
+        cuenta.reset();
+        suma.reset();
+        maximo.reset();
+    }
+
+    /**
+     * Describe el histograma dividiendo los valores por una unidad, por ejemplo para pasar de nanosegundos a
+     * milisegundos.
+     * @param divisor el valor de la unidad.
+     * @return el número de valores, la media, los percentiles 50, 90 y 99 y el máximo.
+     */
+    public String describir(double divisor) {
+        return String.format("n=%d media=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f", getCuenta(),
+                getMedia() / divisor, percentil(50) / divisor, percentil(90) / divisor, percentil(99) / divisor,
+                getMaximo() / divisor);
+    }
+
+    @Override
+    public String toString() {
+        return describir(1.0);
+    }
+}
@@ -0,0 +1,382 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Motor.Resolutor;
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Objetos.Tablero;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase ImportadorLineas importa ficheros con un Sudoku por línea, en el formato compacto de
+ * {@link RenderizadorTablero#escribirLinea}: el enunciado con un carácter por celda y, opcionalmente, separadas
+ * por una coma, un punto y coma, una barra, un tabulador o un espacio, la solución y una calificación, que se
+ * ignora. Las líneas vacías y las que empiezan por {@code #} se saltan. Como {@link ComprobadorLote}, reparte
+ * el trabajo en tres etapas unidas por colas acotadas:
+ * <ol>
+ *   <li>Un hilo proyecta el fichero en memoria por ventanas y lo parte en bloques de líneas completas.</li>
+ *   <li>Varios hilos leen cada línea, comprueban que el Sudoku tenga solución única, la calculan si la línea
+ *   no la trae y descartan los Sudokus repetidos con {@link GestorSudokus#descartarRepetidos(List)}.</li>
+ *   <li>El hilo que llama guarda los Sudokus en el almacén por lotes, con el estado {@link EstadoSudoku#GENERADO}.</li>
+ * </ol>
+ * Los bloques son vistas de la proyección, no copias, y las colas acotadas frenan la lectura, así que la
+ * memoria usada no depende del tamaño del fichero.
+ */
+public class ImportadorLineas {
+
+    private static final Logger LOGGER = LogManager.getLogger(ImportadorLineas.class);
+    private static final long TAMANYO_VENTANA = 64L << 20;
+    private static final int TAMANYO_BLOQUE = 256 << 10;
+    private static final ByteBuffer FIN_LECTURA = ByteBuffer.allocate(0);
+    private static final List<Sudoku> FIN_VALIDACION = new ArrayList<>();
+
+    private final GestorSudokus gestor;
+    private final int tamanyo;
+    private final int hilos;
+    private final int capacidadCola;
+    private final int tamanyoLote;
+    private final ExecutorService etapas;
+
+    /**
+     * Constructor de la clase ImportadorLineas.
+     * @param gestor el gestor con el que se descartan los repetidos y se guardan los Sudokus.
+     * @param tamanyo el tamaño de los tableros.
+     * @param hilos el número de hilos que validan y resuelven los Sudokus.
+     * @param capacidadCola el número máximo de bloques en espera entre dos etapas.
+     * @param tamanyoLote el número máximo de Sudokus que se guardan juntos en el almacén.
+     */
+    public ImportadorLineas(GestorSudokus gestor, int tamanyo, int hilos, int capacidadCola, int tamanyoLote) {
+        if (hilos < 1 || capacidadCola < 1 || tamanyoLote < 1) {
+            throw new IllegalArgumentException("Parámetros de la importación no válidos");
+        }
+
+        this.gestor = gestor;
+        this.tamanyo = tamanyo;
+        this.hilos = hilos;
+        this.capacidadCola = capacidadCola;
+        this.tamanyoLote = tamanyoLote;
+        this.etapas = Executors.newFixedThreadPool(hilos + 1, tarea -> {
+            Thread hilo = new Thread(tarea, "importador-sudokus");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Importa los Sudokus de un fichero.
+     * @param fichero el fichero a importar, con un Sudoku por línea.
+     * @return el resumen de la importación.
+     * @throws IOException si no se puede abrir el fichero.
+     */
+    public ResumenImportacion importar(Path fichero) throws IOException {
+
+        long inicio = System.nanoTime();
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ);
+        BlockingQueue<ByteBuffer> bloques = new ArrayBlockingQueue<>(capacidadCola);
+        BlockingQueue<List<Sudoku>> validados = new ArrayBlockingQueue<>(capacidadCola);
+        Contadores contadores = new Contadores();
+        AtomicInteger activos = new AtomicInteger(hilos);
+
+        etapas.execute(() -> leer(fichero, canal, bloques, contadores));
+        for (int i = 0; i < hilos; i++) {
+            etapas.execute(() -> validar(bloques, validados, contadores, activos));
+        }
+
+        try {
+            guardar(validados, contadores);
+        } catch (InterruptedException e) {
+            LOGGER.error("Se interrumpió la importación de {} tras {} sudokus", fichero, contadores.importados);
+            Thread.currentThread().interrupt();
+        }
+
+        return new ResumenImportacion(contadores.importados, contadores.repetidos.sum(), contadores.noValidos.sum(),
+                contadores.sinSolucionUnica.sum(), contadores.fallidos, contadores.bytes,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Detiene los hilos del importador.
+     */
+    public void cerrar() {
+        etapas.shutdownNow();
+    }
+
+    /**
+     * Primera etapa: proyecta el fichero por ventanas y entrega bloques de líneas completas. Cada ventana
+     * empieza donde empieza la primera línea que no cabía entera en la anterior.
+     * @param fichero el fichero a leer, para los mensajes de error.
+     * @param canal el canal del fichero, que se cierra al terminar.
+     * @param bloques la cola de bloques leídos.
+     * @param contadores los contadores de la importación.
+     */
+    private void leer(Path fichero, FileChannel canal, BlockingQueue<ByteBuffer> bloques, Contadores contadores) {
+        try (canal) {
+            long tamanyoFichero = canal.size();
+            long posicion = 0;
+
+            while (posicion < tamanyoFichero) {
+                long longitud = Math.min(TAMANYO_VENTANA, tamanyoFichero - posicion);
+                MappedByteBuffer ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+                boolean ultima = posicion + longitud == tamanyoFichero;
+
+                int fin = (int) longitud;
+                if (!ultima) {
+                    while (fin > 0 && ventana.get(fin - 1) != '\n') {
+                        fin--;
+                    }
+                    if (fin == 0) {
+                        LOGGER.error("El fichero {} tiene una línea de más de {} bytes", fichero, TAMANYO_VENTANA);
+                        break;
+                    }
+                }
+
+                int desde = 0;
+                while (desde < fin) {
+                    int hasta = Math.min(fin, desde + TAMANYO_BLOQUE);
+                    while (hasta < fin && ventana.get(hasta - 1) != '\n') {
+                        hasta++;
+                    }
+                    bloques.put(ventana.slice(desde, hasta - desde));
+                    desde = hasta;
+                }
+                posicion += fin;
+                contadores.bytes = posicion;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Hubo un error al leer el fichero {} {}", fichero, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (int i = 0; i < hilos; i++) {
+                try {
+                    bloques.put(FIN_LECTURA);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Segunda etapa: valida cada línea de los bloques leídos. El último hilo en terminar avisa del final a la
+     * tercera etapa.
+     * @param bloques la cola de bloques leídos.
+     * @param validados la cola de lotes de Sudokus validados.
+     * @param contadores los contadores de la importación.
+     * @param activos el número de hilos de la segunda etapa que no han terminado.
+     */
+    private void validar(BlockingQueue<ByteBuffer> bloques, BlockingQueue<List<Sudoku>> validados,
+                         Contadores contadores, AtomicInteger activos) {
+        Validador validador = new Validador();
+
+        try {
+            ByteBuffer bloque;
+            while ((bloque = bloques.take()) != FIN_LECTURA) {
+                List<Sudoku> nuevos;
+                try {
+                    nuevos = validar(bloque, validador, contadores);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Hubo un error al validar un bloque de sudokus {}", e.getMessage());
+                    continue;
+                }
+                if (!nuevos.isEmpty()) {
+                    validados.put(nuevos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activos.decrementAndGet() == 0) {
+                try {
+                    validados.put(FIN_VALIDACION);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Valida todas las líneas de un bloque y descarta los Sudokus repetidos.
+     * @param bloque el bloque de líneas completas.
+     * @param validador el validador del hilo.
+     * @param contadores los contadores de la importación.
+     * @return los Sudokus válidos y nuevos del bloque.
+     */
+    private List<Sudoku> validar(ByteBuffer bloque, Validador validador, Contadores contadores) {
+        List<Sudoku> lote = new ArrayList<>();
+        int inicio = 0;
+        for (int i = 0; i < bloque.limit(); i++) {
+            if (bloque.get(i) == '\n') {
+                validador.validar(bloque, inicio, i, lote, contadores);
+                inicio = i + 1;
+            }
+        }
+        if (inicio < bloque.limit()) {
+            validador.validar(bloque, inicio, bloque.limit(), lote, contadores);
+        }
+
+        List<Sudoku> nuevos = gestor.descartarRepetidos(lote);
+        contadores.repetidos.add(lote.size() - nuevos.size());
+        return nuevos;
+    }
+
+    /**
+     * Tercera etapa: guarda los Sudokus validados en el almacén en lotes de como mucho el tamaño indicado.
+     * @param validados la cola de lotes de Sudokus validados.
+     * @param contadores los contadores de la importación.
+     * @throws InterruptedException si se interrumpe la espera de Sudokus validados.
+     */
+    private void guardar(BlockingQueue<List<Sudoku>> validados, Contadores contadores) throws InterruptedException {
+        List<Sudoku> lote;
+
+        while ((lote = validados.take()) != FIN_VALIDACION) {
+            for (int desde = 0; desde < lote.size(); desde += tamanyoLote) {
+                List<Sudoku> parte = lote.subList(desde, Math.min(lote.size(), desde + tamanyoLote));
+                int guardados = gestor.guardarLote(parte, EstadoSudoku.GENERADO);
+                contadores.importados += guardados;
+                contadores.fallidos += parte.size() - guardados;
+            }
+        }
+    }
+
+    /**
+     * Lee y valida las líneas de un hilo de la segunda etapa, reutilizando sus buffers entre líneas.
+     */
+    private final class Validador {
+
+        private final LectorTablero lector = new LectorTablero(tamanyo);
+        private final Resolutor resolutor = Resolutor.para(tamanyo);
+        private final int numCeldas = tamanyo * tamanyo;
+        private final int[] celdas = new int[numCeldas];
+        private final int[] celdasSolucion = new int[numCeldas];
+        private final int[][] tablero = new int[tamanyo][tamanyo];
+
+        /**
+         * Valida una línea y, si es correcta, añade su Sudoku al lote.
+         * @param bloque el bloque con la línea.
+         * @param inicio la posición del primer carácter de la línea.
+         * @param fin la posición del salto de línea, o el final del bloque.
+         * @param lote la lista donde se añade el Sudoku.
+         * @param contadores los contadores de la importación.
+         */
+        private void validar(ByteBuffer bloque, int inicio, int fin, List<Sudoku> lote, Contadores contadores) {
+            if (fin > inicio && bloque.get(fin - 1) == '\r') {
+                fin--;
+            }
+            if (fin == inicio || bloque.get(inicio) == '#') {
+                return;
+            }
+
+            int finEnunciado = inicio + numCeldas;
+            if (!lector.leerLinea(bloque, inicio, fin, celdas)
+                    || (finEnunciado < fin && !esSeparador(bloque.get(finEnunciado)))) {
+                contadores.noValidos.increment();
+                return;
+            }
+
+            int finSolucion = finEnunciado + 1;
+            while (finSolucion < fin && !esSeparador(bloque.get(finSolucion))) {
+                finSolucion++;
+            }
+            boolean conSolucion = finSolucion - finEnunciado - 1 == numCeldas;
+            if (conSolucion && !leerSolucion(bloque, finEnunciado + 1, finSolucion)) {
+                contadores.noValidos.increment();
+                return;
+            }
+
+            copiar(celdas);
+            int soluciones = resolutor.contarSoluciones(tablero, 2);
+            if (soluciones != 1) {
+                contadores.sinSolucionUnica.increment();
+                return;
+            }
+            if (!conSolucion) {
+                resolutor.resolver(tablero);
+                for (int celda = 0; celda < numCeldas; celda++) {
+                    celdasSolucion[celda] = tablero[celda / tamanyo][celda % tamanyo];
+                }
+            }
+
+            Tablero solucion = new Tablero(tamanyo);
+            Tablero enunciado = new Tablero(tamanyo);
+            for (int celda = 0; celda < numCeldas; celda++) {
+                solucion.poner(celda, celdasSolucion[celda]);
+                enunciado.poner(celda, celdas[celda]);
+            }
+            lote.add(new Sudoku(UUID.randomUUID(), solucion, enunciado));
+        }
+
+        /**
+         * Lee la solución de una línea y comprueba que sea un tablero completo y válido con los mismos números
+         * que el enunciado en sus celdas.
+         * @param bloque el bloque con la línea.
+         * @param inicio la posición del primer carácter de la solución.
+         * @param fin la posición donde termina la solución.
+         * @return true si la solución es válida para el enunciado.
+         */
+        private boolean leerSolucion(ByteBuffer bloque, int inicio, int fin) {
+            if (!lector.leerLinea(bloque, inicio, fin, celdasSolucion) || lector.getVacias() > 0) {
+                return false;
+            }
+            for (int celda = 0; celda < numCeldas; celda++) {
+                if (celdas[celda] != 0 && celdas[celda] != celdasSolucion[celda]) {
+                    return false;
+                }
+            }
+            copiar(celdasSolucion);
+            return resolutor.contarSoluciones(tablero, 1) == 1;
+        }
+
+        /**
+         * Copia unas celdas leídas en la matriz que recibe el resolutor.
+         * @param origen las celdas por filas.
+         */
+        private void copiar(int[] origen) {
+            for (int fila = 0; fila < tamanyo; fila++) {
+                System.arraycopy(origen, fila * tamanyo, tablero[fila], 0, tamanyo);
+            }
+        }
+    }
+
+    /**
+     * Indica si un carácter separa las columnas de una línea.
+     * @param b el carácter.
+     * @return true si es una coma, un punto y coma, una barra, un tabulador o un espacio.
+     */
+    private static boolean esSeparador(byte b) {
+        return b == ',' || b == ';' || b == '|' || b == '\t' || b == ' ';
+    }
+
+    /**
+     * Contadores de una importación. Los de la segunda etapa se suman desde varios hilos; los de la tercera
+     * solo los modifica el hilo que guarda, y los bytes leídos solo el que lee.
+     */
+    private static final class Contadores {
+        private final LongAdder repetidos = new LongAdder();
+        private final LongAdder noValidos = new LongAdder();
+        private final LongAdder sinSolucionUnica = new LongAdder();
+        private volatile long bytes;
+        private long importados;
+        private long fallidos;
+    }
+}
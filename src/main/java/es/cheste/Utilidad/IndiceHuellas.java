@@ -0,0 +1,294 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.Huella;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase IndiceHuellas guarda las {@link Huella}s de los Sudokus ya generados para descartar los repetidos,
+ * aunque estén transformados por simetría.
+ * <p>
+ * Las huellas se guardan en un fichero al que solo se añaden entradas de 16 bytes, y al abrirlo se cargan en
+ * una tabla de dispersión en memoria con direccionamiento abierto, sin un objeto por huella, de forma que cada
+ * consulta cuesta unos pocos accesos a arrays. Si el fichero acaba en una entrada incompleta, se descarta.
+ */
+public class IndiceHuellas implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(IndiceHuellas.class);
+    private static final int FIRMA = 0x53444855;
+    private static final int VERSION = 1;
+    private static final int CABECERA = 16;
+    private static final int TAMANYO_ENTRADA = 16;
+    private static final int CAPACIDAD_INICIAL = 1 << 14;
+    private static final int ENTRADAS_POR_LECTURA = 4096;
+
+    private final Path ruta;
+    private final FileChannel fichero;
+    private long[] altos;
+    private long[] bajos;
+    private boolean[] ocupadas;
+    private int capacidad;
+    private int tamanyo;
+
+    /**
+     * Constructor de la clase IndiceHuellas. Abre o crea el fichero y carga sus huellas.
+     * @param ruta la ruta del fichero de huellas.
+     * @param tamanyoTablero el tamaño de los tableros cuyas huellas se guardan.
+     * @throws IOException si el fichero no se puede abrir o no corresponde a este tamaño de tablero.
+     */
+    public IndiceHuellas(Path ruta, int tamanyoTablero) throws IOException {
+        this.ruta = ruta;
+
+        Path directorio = ruta.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+
+        crearTabla(CAPACIDAD_INICIAL);
+        this.fichero = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            cargar(tamanyoTablero);
+        } catch (IOException e) {
+            fichero.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Comprueba si una huella está en el índice.
+     * @param huella la huella a buscar.
+     * @return true si la huella ya se había anotado.
+     */
+    public synchronized boolean contiene(Huella huella) {
+        return ocupadas[buscarRanura(huella.alto(), huella.bajo())];
+    }
+
+    /**
+     * Anota una huella si no estaba en el índice y la guarda en el fichero.
+     * @param huella la huella a anotar.
+     * @return true si la huella es nueva, false si ya estaba.
+     * @throws IOException si no se puede escribir en el fichero.
+     */
+    public synchronized boolean anotar(Huella huella) throws IOException {
+        return anotarTodas(List.of(huella))[0];
+    }
+
+    /**
+     * Anota varias huellas con una sola escritura en el fichero.
+     * @param huellas las huellas a anotar.
+     * @return para cada huella, true si es nueva, false si ya estaba o está repetida antes en la lista.
+     * @throws IOException si no se puede escribir en el fichero; en ese caso el índice no cambia.
+     */
+    public synchronized boolean[] anotarTodas(List<Huella> huellas) throws IOException {
+        boolean[] nuevas = new boolean[huellas.size()];
+        ByteBuffer entradas = ByteBuffer.allocate(huellas.size() * TAMANYO_ENTRADA);
+        int anteriores = tamanyo;
+
+        for (int i = 0; i < huellas.size(); i++) {
+            Huella huella = huellas.get(i);
+            nuevas[i] = insertar(huella.alto(), huella.bajo());
+            if (nuevas[i]) {
+                entradas.putLong(huella.alto()).putLong(huella.bajo());
+            }
+        }
+
+        if (tamanyo == anteriores) {
+            return nuevas;
+        }
+
+        entradas.flip();
+        long posicion = CABECERA + (long) anteriores * TAMANYO_ENTRADA;
+        try {
+            while (entradas.hasRemaining()) {
+                posicion += fichero.write(entradas, posicion);
+            }
+        } catch (IOException e) {
+            for (int i = 0; i < huellas.size(); i++) {
+                if (nuevas[i]) {
+                    quitar(huellas.get(i).alto(), huellas.get(i).bajo());
+                }
+            }
+            fichero.truncate(CABECERA + (long) tamanyo * TAMANYO_ENTRADA);
+            throw e;
+        }
+        return nuevas;
+    }
+
+    /**
+     * Obtiene el número de huellas del índice.
+     * @return el número de huellas.
+     */
+    public synchronized int getTamanyo() {
+        return tamanyo;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        fichero.force(true);
+        fichero.close();
+    }
+
+    /**
+     * Escribe la cabecera de un fichero nuevo, o valida la de uno existente y carga sus huellas.
+     * @param tamanyoTablero el tamaño de los tableros cuyas huellas se guardan.
+     * @throws IOException si el fichero no corresponde a este tamaño de tablero.
+     */
+    private void cargar(int tamanyoTablero) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+
+        if (fichero.size() == 0) {
+            cabecera.putInt(FIRMA).putInt(VERSION).putInt(tamanyoTablero).putInt(TAMANYO_ENTRADA).flip();
+            while (cabecera.hasRemaining()) {
+                fichero.write(cabecera, cabecera.position());
+            }
+            fichero.force(true);
+            return;
+        }
+
+        leerCompleto(cabecera, 0);
+        if (cabecera.getInt(0) != FIRMA || cabecera.getInt(4) != VERSION || cabecera.getInt(8) != tamanyoTablero
+                || cabecera.getInt(12) != TAMANYO_ENTRADA) {
+            throw new IOException("El fichero " + ruta + " no es un índice de huellas de tamaño " + tamanyoTablero);
+        }
+
+        long entradas = (fichero.size() - CABECERA) / TAMANYO_ENTRADA;
+        if (CABECERA + entradas * TAMANYO_ENTRADA != fichero.size()) {
+            LOGGER.warn("Se descarta una huella incompleta al final de {}", ruta);
+            fichero.truncate(CABECERA + entradas * TAMANYO_ENTRADA);
+        }
+
+        ByteBuffer lectura = ByteBuffer.allocate(TAMANYO_ENTRADA * ENTRADAS_POR_LECTURA);
+        for (long desde = 0; desde < entradas; desde += ENTRADAS_POR_LECTURA) {
+            int cuantas = (int) Math.min(ENTRADAS_POR_LECTURA, entradas - desde);
+            lectura.clear().limit(cuantas * TAMANYO_ENTRADA);
+            leerCompleto(lectura, CABECERA + desde * TAMANYO_ENTRADA);
+            for (int i = 0; i < cuantas; i++) {
+                insertar(lectura.getLong(i * TAMANYO_ENTRADA), lectura.getLong(i * TAMANYO_ENTRADA + 8));
+            }
+        }
+
+        if (tamanyo != entradas) {
+            LOGGER.warn("El índice de huellas {} tenía {} huellas repetidas", ruta, entradas - tamanyo);
+        }
+    }
+
+    /**
+     * Añade una huella a la tabla en memoria, ampliándola si está demasiado llena.
+     * @param alto los bits más significativos de la huella.
+     * @param bajo los bits menos significativos de la huella.
+     * @return true si la huella es nueva.
+     */
+    private boolean insertar(long alto, long bajo) {
+        int ranura = buscarRanura(alto, bajo);
+        if (ocupadas[ranura]) {
+            return false;
+        }
+
+        altos[ranura] = alto;
+        bajos[ranura] = bajo;
+        ocupadas[ranura] = true;
+        tamanyo++;
+        if (tamanyo > capacidad / 4 * 3) {
+            ampliar();
+        }
+        return true;
+    }
+
+    /**
+     * Quita una huella de la tabla en memoria, recolocando las que la siguen en su grupo de ranuras.
+     * @param alto los bits más significativos de la huella.
+     * @param bajo los bits menos significativos de la huella.
+     */
+    private void quitar(long alto, long bajo) {
+        int mascara = capacidad - 1;
+        int ranura = buscarRanura(alto, bajo);
+        if (!ocupadas[ranura]) {
+            return;
+        }
+
+        ocupadas[ranura] = false;
+        tamanyo--;
+        for (int siguiente = (ranura + 1) & mascara; ocupadas[siguiente]; siguiente = (siguiente + 1) & mascara) {
+            ocupadas[siguiente] = false;
+            int destino = buscarRanura(altos[siguiente], bajos[siguiente]);
+            altos[destino] = altos[siguiente];
+            bajos[destino] = bajos[siguiente];
+            ocupadas[destino] = true;
+        }
+    }
+
+    /**
+     * Busca la ranura de una huella o, si no está, la ranura libre donde iría.
+     * @param alto los bits más significativos de la huella.
+     * @param bajo los bits menos significativos de la huella.
+     * @return la ranura.
+     */
+    private int buscarRanura(long alto, long bajo) {
+        int mascara = capacidad - 1;
+        int ranura = (int) (alto ^ bajo >>> 32) & mascara;
+
+        while (ocupadas[ranura] && (altos[ranura] != alto || bajos[ranura] != bajo)) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+
+    /**
+     * Duplica la capacidad de la tabla en memoria.
+     */
+    private void ampliar() {
+        long[] altosAnteriores = altos;
+        long[] bajosAnteriores = bajos;
+        boolean[] ocupadasAnteriores = ocupadas;
+
+        crearTabla(capacidad << 1);
+        for (int i = 0; i < ocupadasAnteriores.length; i++) {
+            if (ocupadasAnteriores[i]) {
+                int ranura = buscarRanura(altosAnteriores[i], bajosAnteriores[i]);
+                altos[ranura] = altosAnteriores[i];
+                bajos[ranura] = bajosAnteriores[i];
+                ocupadas[ranura] = true;
+            }
+        }
+    }
+
+    /**
+     * Sustituye la tabla en memoria por una vacía.
+     * @param nuevaCapacidad el número de ranuras, potencia de dos.
+     */
+    private void crearTabla(int nuevaCapacidad) {
+        capacidad = nuevaCapacidad;
+        altos = new long[nuevaCapacidad];
+        bajos = new long[nuevaCapacidad];
+        ocupadas = new boolean[nuevaCapacidad];
+    }
+
+    /**
+     * Lee del fichero hasta llenar el espacio restante de un buffer.
+     * @param buffer el buffer a llenar.
+     * @param posicion la posición del fichero donde se empieza a leer.
+     * @throws IOException si ocurre un error al leer o el fichero se acaba antes.
+     */
+    private void leerCompleto(ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            int leidos = fichero.read(buffer, posicion);
+            if (leidos < 0) {
+                throw new IOException("Fin inesperado del índice de huellas " + ruta);
+            }
+            posicion += leidos;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package es.cheste.Utilidad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase LectorTablero lee los tableros de texto escritos por {@link es.cheste.Objetos.Sudoku#mostrarTablero}
+ * byte a byte, sin crear cadenas ni usar expresiones regulares.
+ * <p>
+ * Los separadores {@code | - +} y los espacios se ignoran; cada número es una celda y cada punto una celda vacía.
+ * Cualquier otra cosa, o un número fuera de rango, cuenta como una celda mal escrita. El lector reutiliza su buffer
+ * entre lecturas, por lo que no es seguro compartir una instancia entre hilos.
+ * <p>
+ * También lee el formato compacto de una línea de {@link RenderizadorTablero}, con un carácter por celda.
+ */
+public class LectorTablero {
+
+    public static final byte CORRECTA = 0;
+    public static final byte VACIA = 1;
+    public static final byte MALFORMADA = 2;
+    private static final int CAPACIDAD_INICIAL = 4096;
+
+    private final int tamanyo;
+    private final int numCeldas;
+    private final byte[] estados;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(CAPACIDAD_INICIAL);
+    private int celdasLeidas;
+    private int vacias;
+    private int malformadas;
+
+    /**
+     * Constructor de la clase LectorTablero.
+     * @param tamanyo el tamaño del tablero.
+     */
+    public LectorTablero(int tamanyo) {
+        this.tamanyo = tamanyo;
+        this.numCeldas = tamanyo * tamanyo;
+        this.estados = new byte[numCeldas];
+    }
+
+    /**
+     * Lee un tablero desde un fichero de texto.
+     * @param fichero el fichero a leer.
+     * @param celdas el array donde se guardan los números leídos por filas, con 0 en las celdas vacías o mal escritas.
+     * @return true si el fichero contiene exactamente el número de celdas del tablero.
+     * @throws IOException si ocurre un error al leer el fichero.
+     */
+    public boolean leer(Path fichero, int[] celdas) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            long tamanyoFichero = canal.size();
+            if (tamanyoFichero > Integer.MAX_VALUE) {
+                throw new IOException("El fichero " + fichero + " es demasiado grande para ser un tablero");
+            }
+            if (tamanyoFichero > buffer.capacity()) {
+                buffer = ByteBuffer.allocateDirect((int) tamanyoFichero);
+            }
+
+            buffer.clear();
+            while (canal.read(buffer) > 0) {
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+        return leer(buffer, celdas);
+    }
+
+    /**
+     * Lee un tablero desde los bytes restantes de un buffer.
+     * @param datos el buffer con el texto del tablero.
+     * @param celdas el array donde se guardan los números leídos por filas, con 0 en las celdas vacías o mal escritas.
+     * @return true si el texto contiene exactamente el número de celdas del tablero.
+     */
+    public boolean leer(ByteBuffer datos, int[] celdas) {
+        celdasLeidas = 0;
+        vacias = 0;
+        malformadas = 0;
+
+        int posicion = datos.position();
+        int limite = datos.limit();
+
+        while (posicion < limite) {
+            byte b = datos.get(posicion);
+
+            if (esSeparador(b)) {
+                posicion++;
+                continue;
+            }
+
+            int valor = 0;
+            byte estado = CORRECTA;
+            boolean hayDigitos = false;
+
+            while (posicion < limite && !esSeparador(b = datos.get(posicion))) {
+                if (b >= '0' && b <= '9' && estado == CORRECTA) {
+                    valor = valor * 10 + (b - '0');
+                    hayDigitos = true;
+                    if (valor > tamanyo) {
+                        estado = MALFORMADA;
+                    }
+                } else if (b == '.' && !hayDigitos && estado == CORRECTA) {
+                    estado = VACIA;
+                } else {
+                    estado = MALFORMADA;
+                }
+                posicion++;
+            }
+
+            if (estado == CORRECTA && valor == 0) {
+                estado = MALFORMADA;
+            }
+            anotarCelda(celdas, estado == CORRECTA ? valor : 0, estado);
+        }
+
+        for (int i = celdasLeidas; i < numCeldas; i++) {
+            celdas[i] = 0;
+            estados[i] = VACIA;
+        }
+
+        return celdasLeidas == numCeldas;
+    }
+
+    /**
+     * Lee un tablero en el formato compacto de una línea de {@link RenderizadorTablero#escribirLinea}: un carácter
+     * por celda, 1-9 y después A-Z, con un punto o un 0 en las celdas vacías. Solo se leen los caracteres
+     * del tablero; lo que haya detrás en la línea no se mira.
+     * @param datos el buffer con el texto. No se cambia su posición.
+     * @param posicion la posición del primer carácter del tablero.
+     * @param limite la posición donde termina la línea.
+     * @param celdas el array donde se guardan los números leídos por filas, con 0 en las celdas vacías o mal escritas.
+     * @return true si la línea tiene al menos el número de celdas del tablero y ninguna está mal escrita.
+     */
+    public boolean leerLinea(ByteBuffer datos, int posicion, int limite, int[] celdas) {
+        celdasLeidas = 0;
+        vacias = 0;
+        malformadas = 0;
+
+        int fin = Math.min(limite, posicion + numCeldas);
+        for (int i = posicion; i < fin; i++) {
+            int valor = valorCaracter(datos.get(i));
+            if (valor > tamanyo) {
+                valor = -1;
+            }
+            anotarCelda(celdas, Math.max(valor, 0), valor < 0 ? MALFORMADA : (valor == 0 ? VACIA : CORRECTA));
+        }
+
+        for (int i = celdasLeidas; i < numCeldas; i++) {
+            celdas[i] = 0;
+            estados[i] = VACIA;
+        }
+
+        return celdasLeidas == numCeldas && malformadas == 0;
+    }
+
+    /**
+     * Obtiene el número de celdas encontradas en la última lectura.
+     * @return el número de celdas leídas.
+     */
+    public int getCeldasLeidas() {
+        return celdasLeidas;
+    }
+
+    /**
+     * Obtiene el número de celdas vacías de la última lectura.
+     * @return el número de celdas vacías.
+     */
+    public int getVacias() {
+        return vacias;
+    }
+
+    /**
+     * Obtiene el número de celdas mal escritas de la última lectura.
+     * @return el número de celdas mal escritas.
+     */
+    public int getMalformadas() {
+        return malformadas;
+    }
+
+    /**
+     * Obtiene el estado de una celda en la última lectura.
+     * @param celda el índice de la celda, por filas.
+     * @return {@link #CORRECTA}, {@link #VACIA} o {@link #MALFORMADA}.
+     */
+    public byte getEstado(int celda) {
+        return estados[celda];
+    }
+
+    /**
+     * Describe las celdas de la última lectura que tienen un estado concreto.
+     * @param estado el estado de las celdas a describir.
+     * @return las posiciones de las celdas, empezando en 1, en formato "(fila, columna)".
+     */
+    public String describirCeldas(byte estado) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numCeldas; i++) {
+            if (estados[i] == estado) {
+                if (!sb.isEmpty()) {
+                    sb.append(", ");
+                }
+                sb.append('(').append(i / tamanyo + 1).append(", ").append(i % tamanyo + 1).append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene el número de un carácter del formato compacto de una línea.
+     * @param caracter el carácter de la celda.
+     * @return el número de la celda, 0 si está vacía o -1 si el carácter no es válido.
+     */
+    private static int valorCaracter(byte caracter) {
+        if (caracter == '.' || caracter == '0') {
+            return 0;
+        }
+        if (caracter >= '1' && caracter <= '9') {
+            return caracter - '0';
+        }
+        if (caracter >= 'A' && caracter <= 'Z') {
+            return caracter - 'A' + 10;
+        }
+        if (caracter >= 'a' && caracter <= 'z') {
+            return caracter - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Guarda una celda leída si todavía cabe en el tablero.
+     * @param celdas el array de números leídos.
+     * @param valor el número de la celda, o 0.
+     * @param estado el estado de la celda.
+     */
+    private void anotarCelda(int[] celdas, int valor, byte estado) {
+        if (celdasLeidas < numCeldas) {
+            celdas[celdasLeidas] = valor;
+            estados[celdasLeidas] = estado;
+            if (estado == VACIA) {
+                vacias++;
+            } else if (estado == MALFORMADA) {
+                malformadas++;
+            }
+        }
+        celdasLeidas++;
+    }
+
+    /**
+     * Indica si un byte separa celdas: espacios, saltos de línea y los separadores de caja.
+     * @param b el byte a comprobar.
+     * @return true si el byte es un separador.
+     */
+    private static boolean esSeparador(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '|' || b == '-' || b == '+';
+    }
+}
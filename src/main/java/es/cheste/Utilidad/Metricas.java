@@ -0,0 +1,242 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Motor.GeneradorTablero;
+import es.cheste.Motor.VaciadorTablero;
+import es.cheste.Objetos.Dificultad;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase Metricas reúne los contadores y los histogramas de tiempos de la generación y la persistencia de
+ * Sudokus, junto a los contadores de la caché de {@link GestorSudokus}.
+ * <p>
+ * Se activan con la clave {@code metricas.activas} de la configuración. {@link #ACTIVAS} se lee al cargar la
+ * clase, así que no es una constante de compilación y javac mantiene las comprobaciones
+ * {@code if (Metricas.ACTIVAS)}. Como es un campo {@code static final}, el JIT sí la trata como constante y, con
+ * las métricas desactivadas, puede eliminar esas ramas al compilar los caminos calientes. Activadas, se publican
+ * por JMX como {@value #NOMBRE_JMX} y, si {@code metricas.volcado.segundos} es mayor que 0, se escriben
+ * periódicamente en el log. Las generaciones que tardan más de {@code metricas.generacion.lenta.ms} se avisan en
+ * el log una a una.
+ */
+public final class Metricas implements MetricasMXBean {
+
+    public static final String NOMBRE_JMX = "es.cheste:type=Metricas";
+    public static final boolean ACTIVAS = Boolean.parseBoolean(Configuracion.getConfiguracion("metricas.activas", "false"));
+
+    private static final Logger LOGGER = LogManager.getLogger(Metricas.class);
+    private static final double NANOS_POR_MILISEGUNDO = 1_000_000.0;
+    private static final long GENERACION_LENTA = TimeUnit.MILLISECONDS.toNanos(
+            Long.parseLong(Configuracion.getConfiguracion("metricas.generacion.lenta.ms", "500")));
+
+    private static final Map<String, LongAdder> CONTADORES = new LinkedHashMap<>();
+    private static final LongAdder SUDOKUS_GENERADOS = contador("generacion.sudokus");
+    private static final LongAdder TABLEROS_RELLENADOS = contador("generacion.tableros");
+    private static final LongAdder NODOS = contador("generacion.nodos");
+    private static final LongAdder RETROCESOS = contador("generacion.retrocesos");
+    private static final LongAdder REINICIOS = contador("generacion.reinicios");
+    private static final LongAdder PATRONES = contador("generacion.patrones");
+    private static final LongAdder COMPROBACIONES = contador("generacion.comprobaciones");
+    private static final LongAdder ABANDONADAS = contador("generacion.abandonadas");
+    private static final LongAdder PASOS_RESOLUTOR = contador("generacion.pasosResolutor");
+    private static final LongAdder SIN_CALIFICAR = contador("generacion.sinCalificar");
+    private static final LongAdder SUDOKUS_GUARDADOS = contador("almacen.sudokusGuardados");
+    private static final LongAdder BYTES_GUARDADOS = contador("almacen.bytesGuardados");
+    private static final LongAdder SUDOKUS_CARGADOS = contador("almacen.sudokusCargados");
+    private static final LongAdder BYTES_CARGADOS = contador("almacen.bytesCargados");
+    private static final LongAdder FALLOS_ALMACEN = contador("almacen.fallos");
+
+    private static final Map<Dificultad, Histograma> GENERACION = new EnumMap<>(Dificultad.class);
+    private static final Histograma GUARDADO = new Histograma();
+    private static final Histograma CARGA = new Histograma();
+
+    private static volatile CacheSudokus cache;
+
+    static {
+        for (Dificultad dificultad : Dificultad.values()) {
+            GENERACION.put(dificultad, new Histograma());
+        }
+        if (ACTIVAS) {
+            publicar();
+        }
+    }
+
+    private Metricas() {
+    }
+
+    /**
+     * Anota una generación de Sudoku calificada.
+     * @param dificultad la dificultad pedida.
+     * @param nanos el tiempo que tardó la generación.
+     * @param calificado true si se alcanzó la dificultad pedida.
+     * @param generador el generador usado, con sus contadores de esta generación.
+     * @param vaciador el vaciador usado, con sus contadores de esta generación.
+     */
+    public static void anotarGeneracion(Dificultad dificultad, long nanos, boolean calificado,
+                                        GeneradorTablero generador, VaciadorTablero vaciador) {
+        GENERACION.get(dificultad).anotar(nanos);
+        SUDOKUS_GENERADOS.increment();
+        TABLEROS_RELLENADOS.add(generador.getRellenados());
+        NODOS.add(generador.getNodos());
+        RETROCESOS.add(generador.getRetrocesos());
+        REINICIOS.add(generador.getReinicios());
+        PATRONES.add(generador.getPatrones());
+        COMPROBACIONES.add(vaciador.getComprobaciones());
+        ABANDONADAS.add(vaciador.getAbandonadas());
+        PASOS_RESOLUTOR.add(vaciador.getPasos());
+        if (!calificado) {
+            SIN_CALIFICAR.increment();
+        }
+
+        if (nanos > GENERACION_LENTA) {
+            LOGGER.warn("Generacion lenta de un sudoku {}: {} ms, {} tableros, {} nodos, {} retrocesos, "
+                            + "{} comprobaciones ({} abandonadas), calificado: {}", dificultad,
+                    nanos / 1_000_000, generador.getRellenados(), generador.getNodos(), generador.getRetrocesos(),
+                    vaciador.getComprobaciones(), vaciador.getAbandonadas(), calificado);
+        }
+    }
+
+    /**
+     * Anota un guardado de Sudokus en el almacén de datos.
+     * @param sudokus el número de Sudokus guardados.
+     * @param tamanyo el tamaño de los tableros.
+     * @param nanos el tiempo que tardó el guardado.
+     * @param correcto false si el guardado falló.
+     */
+    public static void anotarGuardado(int sudokus, int tamanyo, long nanos, boolean correcto) {
+        GUARDADO.anotar(nanos);
+        if (correcto) {
+            SUDOKUS_GUARDADOS.add(sudokus);
+            BYTES_GUARDADOS.add((long) sudokus * CodecSudoku.tamanyoCodificado(tamanyo));
+        } else FALLOS_ALMACEN.increment();
+    }
+
+    /**
+     * Anota una carga de un Sudoku desde el almacén de datos.
+     * @param tamanyo el tamaño del tablero.
+     * @param nanos el tiempo que tardó la carga.
+     * @param correcto false si el Sudoku no se encontró o no se pudo leer.
+     */
+    public static void anotarCarga(int tamanyo, long nanos, boolean correcto) {
+        CARGA.anotar(nanos);
+        if (correcto) {
+            SUDOKUS_CARGADOS.increment();
+            BYTES_CARGADOS.add(CodecSudoku.tamanyoCodificado(tamanyo));
+        } else FALLOS_ALMACEN.increment();
+    }
+
+    /**
+     * Indica la caché cuyos contadores se incluyen en las métricas.
+     * @param cacheSudokus la caché de Sudokus cargados.
+     */
+    public static void vigilarCache(CacheSudokus cacheSudokus) {
+        cache = cacheSudokus;
+    }
+
+    /**
+     * Describe todas las métricas en una línea por contador o histograma.
+     * @return el resumen de las métricas.
+     */
+    public static String resumen() {
+        Metricas metricas = new Metricas();
+        StringBuilder sb = new StringBuilder("--Metricas--\n");
+
+        metricas.getContadores().forEach((nombre, valor) -> sb.append(nombre).append(": ").append(valor).append('\n'));
+        metricas.getHistogramas().forEach((nombre, valor) -> sb.append(nombre).append(" (ms): ").append(valor).append('\n'));
+        return sb.toString();
+    }
+
+    @Override
+    public Map<String, Long> getContadores() {
+        Map<String, Long> contadores = new LinkedHashMap<>();
+
+        CONTADORES.forEach((nombre, contador) -> contadores.put(nombre, contador.sum()));
+        CacheSudokus vigilada = cache;
+        if (vigilada != null) {
+            contadores.put("cache.tamanyo", (long) vigilada.getTamanyo());
+            contadores.put("cache.aciertos", vigilada.getAciertos());
+            contadores.put("cache.fallos", vigilada.getFallos());
+            contadores.put("cache.expulsiones", vigilada.getExpulsiones());
+            contadores.put("cache.caducadas", vigilada.getCaducadas());
+        }
+        return contadores;
+    }
+
+    @Override
+    public Map<String, String> getHistogramas() {
+        Map<String, String> histogramas = new LinkedHashMap<>();
+
+        histogramas().forEach((nombre, histograma) -> histogramas.put(nombre, histograma.describir(NANOS_POR_MILISEGUNDO)));
+        return histogramas;
+    }
+
+    @Override
+    public double percentilMilisegundos(String histograma, double percentil) {
+        Histograma buscado = histogramas().get(histograma);
+        return buscado == null ? -1.0 : buscado.percentil(percentil) / NANOS_POR_MILISEGUNDO;
+    }
+
+    @Override
+    public void reiniciar() {
+        CONTADORES.values().forEach(LongAdder::reset);
+        histogramas().values().forEach(Histograma::reiniciar);
+    }
+
+    /**
+     * Crea un contador y lo registra con su nombre.
+     * @param nombre el nombre del contador.
+     * @return el contador creado.
+     */
+    private static LongAdder contador(String nombre) {
+        LongAdder contador = new LongAdder();
+        CONTADORES.put(nombre, contador);
+        return contador;
+    }
+
+    /**
+     * Obtiene todos los histogramas por nombre.
+     * @return los histogramas.
+     */
+    private static Map<String, Histograma> histogramas() {
+        Map<String, Histograma> histogramas = new LinkedHashMap<>();
+
+        GENERACION.forEach((dificultad, histograma) -> histogramas.put("generacion." + dificultad, histograma));
+        histogramas.put("almacen.guardar", GUARDADO);
+        histogramas.put("almacen.cargar", CARGA);
+        return histogramas;
+    }
+
+    /**
+     * Publica las métricas por JMX y programa su volcado periódico en el log.
+     */
+    private static void publicar() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metricas(), new ObjectName(NOMBRE_JMX));
+        } catch (JMException e) {
+            LOGGER.error("No se pudieron publicar las metricas por JMX {}", e.getMessage());
+        }
+
+        long segundos = Long.parseLong(Configuracion.getConfiguracion("metricas.volcado.segundos", "60"));
+        if (segundos > 0) {
+            ScheduledExecutorService volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "volcador-metricas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            volcador.scheduleAtFixedRate(() -> LOGGER.info(resumen()), segundos, segundos, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package es.cheste.Utilidad;
+
+import java.util.Map;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La interfaz MetricasMXBean publica por JMX las métricas de {@link Metricas}, con el nombre
+ * {@value Metricas#NOMBRE_JMX}.
+ */
+public interface MetricasMXBean {
+
+    /**
+     * Obtiene los contadores de generación, persistencia y caché.
+     * @return los contadores por nombre.
+     */
+    Map<String, Long> getContadores();
+
+    /**
+     * Obtiene un resumen de cada histograma de tiempos, en milisegundos.
+     * @return el resumen de cada histograma por nombre.
+     */
+    Map<String, String> getHistogramas();
+
+    /**
+     * Obtiene un percentil aproximado de un histograma de tiempos.
+     * @param histograma el nombre del histograma.
+     * @param percentil el percentil, entre 0 y 100.
+     * @return el percentil en milisegundos, o -1 si el histograma no existe.
+     */
+    double percentilMilisegundos(String histograma, double percentil);
+
+    /**
+     * Pone a cero todos los contadores e histogramas.
+     */
+    void reiniciar();
+}
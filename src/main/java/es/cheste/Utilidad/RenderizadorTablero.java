@@ -0,0 +1,277 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.Tablero;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase RenderizadorTablero escribe tableros de Sudoku como texto sin usar String.format.
+ * El texto se compone en un array de bytes que se reutiliza entre llamadas, por lo que no es seguro
+ * compartir una instancia entre hilos. Las matrices {@code int[][]} se copian antes en un {@link Tablero} auxiliar.
+ * <p>
+ * Ofrece dos formatos: el de {@link es.cheste.Objetos.Sudoku#mostrarTablero}, con cada celda alineada
+ * en columnas de cuatro caracteres y separadores de caja del tamaño que corresponda al tablero, y el formato compacto de una línea con un carácter
+ * por celda y un punto en las celdas vacías.
+ */
+public class RenderizadorTablero {
+
+    private static final int ANCHO = 4;
+    private static final byte[] SEPARADOR_COLUMNA = "   |".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GUION = "   -".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRUCE = "   +".getBytes(StandardCharsets.US_ASCII);
+
+    private final int tamanyo;
+    private final int lado;
+    private final byte[] lineaSeparadora;
+    private final Tablero auxiliar;
+    private byte[] bytes;
+    private int longitud;
+
+    /**
+     * Constructor de la clase RenderizadorTablero.
+     * @param tamanyo el tamaño del tablero.
+     */
+    public RenderizadorTablero(int tamanyo) {
+        this.tamanyo = tamanyo;
+        this.lado = (int) Math.round(Math.sqrt(tamanyo));
+        this.lineaSeparadora = crearLineaSeparadora();
+        this.auxiliar = new Tablero(tamanyo);
+        this.bytes = new byte[tamanyo * (tamanyo * 2 * ANCHO + lado * ANCHO + 1) + lado * lineaSeparadora.length];
+    }
+
+    /**
+     * Compone el texto de un tablero en el buffer interno.
+     * @param tablero el tablero a mostrar.
+     * @return el número de bytes escritos, disponibles en {@link #getBytes()}.
+     */
+    public int renderizar(int[][] tablero) {
+        auxiliar.copiarDe(tablero);
+        return renderizar(auxiliar);
+    }
+
+    /**
+     * Compone el texto de un tablero compacto en el buffer interno.
+     * @param tablero el tablero a mostrar.
+     * @return el número de bytes escritos, disponibles en {@link #getBytes()}.
+     */
+    public int renderizar(Tablero tablero) {
+        longitud = 0;
+
+        for (int i = 0; i < tamanyo; i++) {
+            if (i % lado == 0 && i != 0) {
+                poner(lineaSeparadora);
+            }
+            for (int j = 0; j < tamanyo; j++) {
+                if (j % lado == 0 && j != 0) {
+                    poner(SEPARADOR_COLUMNA);
+                }
+                ponerCelda(tablero.get(i, j));
+                for (int k = 0; k < ANCHO; k++) {
+                    poner((byte) ' ');
+                }
+            }
+            poner((byte) '\n');
+        }
+        return longitud;
+    }
+
+    /**
+     * Obtiene el buffer interno con el último texto compuesto. Solo son válidos los primeros bytes
+     * indicados por el último {@link #renderizar}.
+     * @return el buffer interno.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Muestra un tablero en el formato de {@link es.cheste.Objetos.Sudoku#mostrarTablero}.
+     * @param tablero el tablero a mostrar.
+     * @return una representación en cadena del tablero.
+     */
+    public String mostrar(int[][] tablero) {
+        return new String(bytes, 0, renderizar(tablero), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Muestra un tablero compacto en el formato de {@link es.cheste.Objetos.Sudoku#mostrarTablero}.
+     * @param tablero el tablero a mostrar.
+     * @return una representación en cadena del tablero.
+     */
+    public String mostrar(Tablero tablero) {
+        return new String(bytes, 0, renderizar(tablero), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Escribe un tablero en un buffer, a partir de su posición actual.
+     * @param tablero el tablero a escribir.
+     * @param destino el buffer de destino.
+     */
+    public void escribir(int[][] tablero, ByteBuffer destino) {
+        destino.put(bytes, 0, renderizar(tablero));
+    }
+
+    /**
+     * Escribe un tablero en un flujo de salida.
+     * @param tablero el tablero a escribir.
+     * @param destino el flujo de destino.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    public void escribir(int[][] tablero, OutputStream destino) throws IOException {
+        destino.write(bytes, 0, renderizar(tablero));
+    }
+
+    /**
+     * Escribe un tablero compacto en un flujo de salida.
+     * @param tablero el tablero a escribir.
+     * @param destino el flujo de destino.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    public void escribir(Tablero tablero, OutputStream destino) throws IOException {
+        destino.write(bytes, 0, renderizar(tablero));
+    }
+
+    /**
+     * Muestra un tablero en el formato compacto de una línea, sin salto de línea final.
+     * @param tablero el tablero a mostrar.
+     * @return una cadena con un carácter por celda.
+     */
+    public String mostrarLinea(int[][] tablero) {
+        auxiliar.copiarDe(tablero);
+        return mostrarLinea(auxiliar);
+    }
+
+    /**
+     * Muestra un tablero compacto en el formato de una línea, sin salto de línea final.
+     * @param tablero el tablero a mostrar.
+     * @return una cadena con un carácter por celda.
+     */
+    public String mostrarLinea(Tablero tablero) {
+        longitud = 0;
+        ponerLinea(tablero);
+        return new String(bytes, 0, longitud, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Escribe un tablero en el formato compacto de una línea, sin salto de línea final.
+     * @param tablero el tablero a escribir.
+     * @param destino el buffer de destino, a partir de su posición actual.
+     */
+    public void escribirLinea(int[][] tablero, ByteBuffer destino) {
+        auxiliar.copiarDe(tablero);
+        escribirLinea(auxiliar, destino);
+    }
+
+    /**
+     * Escribe un tablero compacto en el formato de una línea, sin salto de línea final.
+     * @param tablero el tablero a escribir.
+     * @param destino el buffer de destino, a partir de su posición actual.
+     */
+    public void escribirLinea(Tablero tablero, ByteBuffer destino) {
+        longitud = 0;
+        ponerLinea(tablero);
+        destino.put(bytes, 0, longitud);
+    }
+
+    /**
+     * Obtiene el carácter de una celda en el formato compacto: 1-9, después A-Z, y un punto si está vacía.
+     * @param valor el número de la celda.
+     * @return el carácter de la celda.
+     */
+    public static byte caracterCelda(int valor) {
+        if (valor == 0) {
+            return '.';
+        }
+        return (byte) (valor < 10 ? '0' + valor : 'A' + valor - 10);
+    }
+
+    /**
+     * Compone el formato compacto de un tablero en el buffer interno.
+     * @param tablero el tablero a componer.
+     */
+    private void ponerLinea(Tablero tablero) {
+        for (int celda = 0; celda < tablero.getNumCeldas(); celda++) {
+            poner(caracterCelda(tablero.get(celda)));
+        }
+    }
+
+    /**
+     * Escribe una celda alineada a la derecha en una columna de cuatro caracteres, con un punto si está vacía.
+     * @param valor el número de la celda.
+     */
+    private void ponerCelda(int valor) {
+        int digitos = valor == 0 ? 1 : (valor < 10 ? 1 : (valor < 100 ? 2 : 3));
+
+        for (int k = digitos; k < ANCHO; k++) {
+            poner((byte) ' ');
+        }
+        if (valor == 0) {
+            poner((byte) '.');
+            return;
+        }
+        asegurarCapacidad(digitos);
+        for (int k = digitos - 1; k >= 0; k--) {
+            bytes[longitud + k] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        }
+        longitud += digitos;
+    }
+
+    /**
+     * Crea la línea que separa las filas de cajas: dos guiones por celda, un cruce entre cajas
+     * y un guion menos en la última caja, que no tiene espacios detrás.
+     * @return los bytes de la línea separadora, incluido el salto de línea.
+     */
+    private byte[] crearLineaSeparadora() {
+        int guionesCaja = 2 * lado;
+        ByteBuffer linea = ByteBuffer.allocate(ANCHO * (lado * guionesCaja + lado - 2) + 1);
+        for (int caja = 0; caja < lado; caja++) {
+            if (caja != 0) {
+                linea.put(CRUCE);
+            }
+            int guiones = caja == lado - 1 ? guionesCaja - 1 : guionesCaja;
+            for (int i = 0; i < guiones; i++) {
+                linea.put(GUION);
+            }
+        }
+        linea.put((byte) '\n');
+        return linea.array();
+    }
+
+    /**
+     * Añade un byte al buffer interno.
+     * @param b el byte a añadir.
+     */
+    private void poner(byte b) {
+        asegurarCapacidad(1);
+        bytes[longitud++] = b;
+    }
+
+    /**
+     * Añade varios bytes al buffer interno.
+     * @param datos los bytes a añadir.
+     */
+    private void poner(byte[] datos) {
+        asegurarCapacidad(datos.length);
+        System.arraycopy(datos, 0, bytes, longitud, datos.length);
+        longitud += datos.length;
+    }
+
+    /**
+     * Amplía el buffer interno si no caben los bytes indicados.
+     * @param extra el número de bytes que se van a añadir.
+     */
+    private void asegurarCapacidad(int extra) {
+        if (longitud + extra > bytes.length) {
+            byte[] nuevo = new byte[Math.max(bytes.length * 2, longitud + extra)];
+            System.arraycopy(bytes, 0, nuevo, 0, longitud);
+            bytes = nuevo;
+        }
+    }
+}
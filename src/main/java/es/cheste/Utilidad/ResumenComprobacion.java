@@ -0,0 +1,34 @@
+package es.cheste.Utilidad;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro ResumenComprobacion recoge el resultado de comprobar un lote de partidas con {@link ComprobadorLote}.
+ *
+ * @param correctas las partidas resueltas sin errores.
+ * @param conErrores las partidas completas con alguna celda errónea.
+ * @param incompletas las partidas con celdas vacías, que no se corrigen.
+ * @param noValidas las partidas a las que les faltan celdas o tienen alguna mal escrita.
+ * @param fallidas las partidas que no se pudieron leer, cargar o guardar.
+ * @param celdasErroneas el número total de celdas erróneas de las partidas con errores.
+ * @param milisegundos el tiempo que tardó la comprobación.
+ */
+public record ResumenComprobacion(int correctas, int conErrores, int incompletas, int noValidas, int fallidas,
+                                  long celdasErroneas, long milisegundos) {
+
+    /**
+     * Obtiene el número de partidas procesadas.
+     * @return la suma de todas las partidas del resumen.
+     */
+    public int total() {
+        return correctas + conErrores + incompletas + noValidas + fallidas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Comprobadas %d partidas en %d ms: %d correctas, %d con errores (%d celdas erróneas), "
+                        + "%d incompletas, %d no válidas, %d fallidas",
+                total(), milisegundos, correctas, conErrores, celdasErroneas, incompletas, noValidas, fallidas);
+    }
+}
@@ -0,0 +1,35 @@
+package es.cheste.Utilidad;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * El registro ResumenImportacion recoge el resultado de importar un fichero de Sudokus en formato de línea
+ * con {@link ImportadorLineas}.
+ *
+ * @param importados los Sudokus guardados en el almacén.
+ * @param repetidos los Sudokus descartados por ser equivalentes a otro ya guardado.
+ * @param noValidos las líneas mal escritas o con una solución que no corresponde al enunciado.
+ * @param sinSolucionUnica los Sudokus sin solución, incluidos los que repiten un número, o con más de una.
+ * @param fallidos los Sudokus válidos que no se pudieron guardar.
+ * @param bytes el número de bytes leídos del fichero.
+ * @param milisegundos el tiempo que tardó la importación.
+ */
+public record ResumenImportacion(long importados, long repetidos, long noValidos, long sinSolucionUnica,
+                                 long fallidos, long bytes, long milisegundos) {
+
+    /**
+     * Obtiene el número de líneas procesadas, sin contar las vacías y los comentarios.
+     * @return la suma de todas las líneas del resumen.
+     */
+    public long total() {
+        return importados + repetidos + noValidos + sinSolucionUnica + fallidos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Importados %d de %d sudokus (%d MB) en %d ms: %d repetidos, %d no válidos, "
+                        + "%d sin solución única, %d fallidos",
+                importados, total(), bytes >> 20, milisegundos, repetidos, noValidos, sinSolucionUnica, fallidos);
+    }
+}
@@ -0,0 +1,142 @@
+package es.cheste.Motor;
+
+import es.cheste.Objetos.LoteTableros;
+import es.cheste.Objetos.Tablero;
+import es.cheste.Objetos.Tableros;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Pruebas de los comprobadores de lotes: el escalar sobre tableros conocidos, y el vectorial contra el escalar
+ * sobre lotes al azar. Las pruebas del vectorial se saltan si la JVM no tiene el módulo
+ * {@code jdk.incubator.vector} o el procesador no tiene vectores para ese tamaño.
+ */
+class ComprobadorTablerosTest {
+
+    private static final int TABLEROS = 200;
+
+    @Test
+    void elEscalarAnotaAciertosErroresYValidez() {
+        SplittableRandom random = new SplittableRandom(1);
+        Tablero solucion = Tableros.solucion(9, random);
+        Tablero otraSolucion = Tableros.solucion(9, random);
+        int[] completo = celdas(solucion);
+        int[] conUnError = celdas(solucion);
+        conUnError[10] = conUnError[10] % 9 + 1;
+        int[] conHuecos = celdas(solucion);
+        conHuecos[0] = 0;
+        conHuecos[80] = 0;
+
+        LoteTableros lote = new LoteTableros(9, 4);
+        lote.anyadir(completo, solucion);
+        lote.anyadir(conUnError, solucion);
+        lote.anyadir(conHuecos, solucion);
+        lote.anyadir(celdas(otraSolucion), solucion);
+        new ComprobadorEscalar(9).comprobar(lote);
+
+        assertEquals(0, lote.getNumErrores(0));
+        assertTrue(lote.esValido(0));
+        assertEquals(1, lote.getNumErrores(1));
+        assertFalse(lote.esValido(1));
+        assertEquals(0, lote.getNumErrores(2));
+        assertFalse(lote.esValido(2));
+        assertTrue(lote.getNumErrores(3) > 0);
+        assertTrue(lote.esValido(3));
+    }
+
+    @Test
+    void elVectorialCoincideConElEscalarEn4x4() {
+        comprobarIguales(4, 4);
+    }
+
+    @Test
+    void elVectorialCoincideConElEscalarEn9x9() {
+        comprobarIguales(9, 9);
+    }
+
+    @Test
+    void elVectorialCoincideConElEscalarEn16x16() {
+        comprobarIguales(16, 16);
+    }
+
+    /**
+     * Comprueba el mismo lote al azar con el comprobador de {@link ComprobadorTableros#para(int)} y con el escalar,
+     * y compara sus resultados.
+     * @param tamanyo el tamaño de los tableros.
+     * @param semilla la semilla del lote.
+     */
+    private static void comprobarIguales(int tamanyo, long semilla) {
+        ComprobadorTableros comprobador = ComprobadorTableros.para(tamanyo);
+        assumeFalse(comprobador instanceof ComprobadorEscalar, "No hay comprobador vectorial para " + tamanyo);
+
+        LoteTableros vectorial = new LoteTableros(tamanyo, TABLEROS);
+        LoteTableros escalar = new LoteTableros(tamanyo, TABLEROS);
+        SplittableRandom random = new SplittableRandom(semilla);
+        for (int t = 0; t < TABLEROS; t++) {
+            Tablero solucion = Tableros.solucion(tamanyo, random);
+            int[] jugador = jugadorAlAzar(solucion, random);
+            vectorial.anyadir(jugador, solucion);
+            escalar.anyadir(jugador, solucion);
+        }
+
+        comprobador.comprobar(vectorial);
+        new ComprobadorEscalar(tamanyo).comprobar(escalar);
+
+        assertArrayEquals(escalar.getAciertos(), vectorial.getAciertos());
+        assertArrayEquals(escalar.getErrores(), vectorial.getErrores());
+        assertArrayEquals(escalar.getValidos(), vectorial.getValidos());
+    }
+
+    /**
+     * Crea el tablero de un jugador a partir de una solución: completo y correcto, con huecos, con errores, otra
+     * solución válida o números al azar.
+     * @param solucion la solución del tablero.
+     * @param random el generador de números aleatorios.
+     * @return las celdas del tablero del jugador.
+     */
+    private static int[] jugadorAlAzar(Tablero solucion, SplittableRandom random) {
+        int tamanyo = solucion.getTamanyo();
+        int[] jugador = celdas(solucion);
+
+        switch (random.nextInt(5)) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = random.nextInt(1, 10); i > 0; i--) {
+                    jugador[random.nextInt(jugador.length)] = 0;
+                }
+            }
+            case 2 -> {
+                for (int i = random.nextInt(1, 4); i > 0; i--) {
+                    int celda = random.nextInt(jugador.length);
+                    jugador[celda] = jugador[celda] % tamanyo + 1;
+                }
+            }
+            case 3 -> jugador = celdas(Tableros.solucion(tamanyo, random));
+            default -> {
+                for (int celda = 0; celda < jugador.length; celda++) {
+                    jugador[celda] = random.nextInt(tamanyo + 1);
+                }
+            }
+        }
+        return jugador;
+    }
+
+    private static int[] celdas(Tablero tablero) {
+        int[] celdas = new int[tablero.getNumCeldas()];
+        for (int celda = 0; celda < celdas.length; celda++) {
+            celdas[celda] = tablero.get(celda);
+        }
+        return celdas;
+    }
+}
@@ -0,0 +1,40 @@
+package es.cheste.Objetos;
+
+import java.util.SplittableRandom;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * La clase Tableros crea tableros resueltos para las pruebas sin pasar por el generador, de modo que las pruebas
+ * no dependen de su velocidad ni de su configuración.
+ */
+public final class Tableros {
+
+    private Tableros() {
+    }
+
+    /**
+     * Crea un tablero resuelto a partir del patrón por desplazamientos, con los números cambiados al azar.
+     * @param tamanyo el tamaño del tablero, que debe ser un cuadrado perfecto.
+     * @param random el generador de números aleatorios.
+     * @return el tablero resuelto.
+     */
+    public static Tablero solucion(int tamanyo, SplittableRandom random) {
+        int caja = (int) Math.sqrt(tamanyo);
+        int[] numeros = new int[tamanyo];
+        for (int i = 0; i < tamanyo; i++) {
+            int j = random.nextInt(i + 1);
+            numeros[i] = numeros[j];
+            numeros[j] = i + 1;
+        }
+
+        Tablero solucion = new Tablero(tamanyo);
+        for (int fila = 0; fila < tamanyo; fila++) {
+            for (int col = 0; col < tamanyo; col++) {
+                solucion.poner(fila, col, numeros[((fila % caja) * caja + fila / caja + col) % tamanyo]);
+            }
+        }
+        return solucion;
+    }
+}
@@ -0,0 +1,249 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.EstadoSudoku;
+import es.cheste.Objetos.Sudoku;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static es.cheste.Utilidad.CodecSudokuTest.assertMismoSudoku;
+import static es.cheste.Utilidad.CodecSudokuTest.sudokuFijo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Pruebas del formato en disco de {@link AlmacenSegmento}: registros de tamaño fijo, recuperación de un final
+ * incompleto o dañado, registros dañados en medio del segmento y reconstrucción del índice.
+ */
+class AlmacenSegmentoTest {
+
+    private static final int TAMANYO = 9;
+    private static final int CABECERA_SEGMENTO = 16;
+    private static final int TAMANYO_REGISTRO = 9 + CodecSudoku.tamanyoCodificado(TAMANYO) + 4;
+
+    @TempDir
+    Path directorio;
+
+    private Path segmento;
+    private Path indice;
+
+    @BeforeEach
+    void prepararRutas() {
+        segmento = directorio.resolve("sudokus.seg");
+        indice = directorio.resolve("sudokus.idx");
+    }
+
+    @Test
+    void cargaLosSudokusAlVolverAAbrirlo() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(20, 1);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            assertTrue(almacen.estaVacio());
+            almacen.guardar(sudokus.subList(0, 12), EstadoSudoku.EN_JUEGO);
+            almacen.guardar(sudokus.subList(12, 20), EstadoSudoku.COMPROBADO);
+        }
+
+        assertEquals(CABECERA_SEGMENTO + 20L * TAMANYO_REGISTRO, Files.size(segmento));
+        try (AlmacenSegmento almacen = abrir()) {
+            for (Sudoku sudoku : sudokus) {
+                assertMismoSudoku(sudoku, almacen.cargar(sudoku.getUuid()));
+            }
+            assertNull(almacen.cargar(sudokuFijo(new SplittableRandom(99)).getUuid()));
+        }
+    }
+
+    @Test
+    void recorreSoloElUltimoRegistroDeCadaSudoku() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(5, 2);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+            almacen.guardar(sudokus.subList(1, 3), EstadoSudoku.COMPROBADO);
+
+            Map<String, EstadoSudoku> estados = almacen.recorrer(FiltroSudokus.TODOS)
+                    .collect(Collectors.toMap(EntradaSudoku::uuid, EntradaSudoku::estado));
+
+            assertEquals(5, estados.size());
+            assertEquals(EstadoSudoku.EN_JUEGO, estados.get(sudokus.get(0).getUuid()));
+            assertEquals(EstadoSudoku.COMPROBADO, estados.get(sudokus.get(1).getUuid()));
+            assertEquals(EstadoSudoku.COMPROBADO, estados.get(sudokus.get(2).getUuid()));
+            assertEquals(EstadoSudoku.EN_JUEGO, estados.get(sudokus.get(4).getUuid()));
+        }
+    }
+
+    @Test
+    void guardaLosGeneradosReproduciblesEnFormaCompacta() throws IOException {
+        Sudoku sudoku = Sudoku.regenerar(CodigoSudoku.actual(TAMANYO, Dificultad.FACIL, 1234L));
+
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(List.of(sudoku), EstadoSudoku.GENERADO);
+        }
+
+        ByteBuffer registro = ByteBuffer.wrap(Files.readAllBytes(segmento));
+        assertEquals(CABECERA_SEGMENTO + TAMANYO_REGISTRO, registro.capacity());
+        assertEquals(CodecSudoku.VERSION_COMPACTA, registro.get(CABECERA_SEGMENTO + 9 + 2));
+        try (AlmacenSegmento almacen = abrir()) {
+            assertMismoSudoku(sudoku, almacen.cargar(sudoku.getUuid()));
+        }
+    }
+
+    @Test
+    void descartaUnRegistroIncompletoAlFinal() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(3, 3);
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+        }
+
+        Files.write(segmento, new byte[TAMANYO_REGISTRO / 2], StandardOpenOption.APPEND);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            assertEquals(CABECERA_SEGMENTO + 3L * TAMANYO_REGISTRO, Files.size(segmento));
+            for (Sudoku sudoku : sudokus) {
+                assertMismoSudoku(sudoku, almacen.cargar(sudoku.getUuid()));
+            }
+            Sudoku nuevo = sudokuFijo(new SplittableRandom(30));
+            almacen.guardar(List.of(nuevo), EstadoSudoku.EN_JUEGO);
+            assertMismoSudoku(nuevo, almacen.cargar(nuevo.getUuid()));
+        }
+    }
+
+    @Test
+    void reconstruyeElIndiceSiNoExiste() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(50, 4);
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+        }
+
+        Files.delete(indice);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            for (Sudoku sudoku : sudokus) {
+                assertMismoSudoku(sudoku, almacen.cargar(sudoku.getUuid()));
+            }
+        }
+    }
+
+    @Test
+    void alReconstruirElIndiceSaltaLosRegistrosDanyadosDeEnMedio() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(4, 5);
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+            almacen.guardar(sudokus.subList(0, 1), EstadoSudoku.COMPROBADO);
+            almacen.guardar(crearSudokus(2, 50), EstadoSudoku.EN_JUEGO);
+        }
+        long longitud = Files.size(segmento);
+
+        danyarRegistro(1);
+        danyarRegistro(4);
+        Files.delete(indice);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            assertEquals(longitud, Files.size(segmento));
+            for (int i = 0; i < sudokus.size(); i++) {
+                if (i != 1) {
+                    assertMismoSudoku(sudokus.get(i), almacen.cargar(sudokus.get(i).getUuid()));
+                }
+            }
+            assertNull(almacen.cargar(sudokus.get(1).getUuid()));
+            for (Sudoku sudoku : crearSudokus(2, 50)) {
+                assertMismoSudoku(sudoku, almacen.cargar(sudoku.getUuid()));
+            }
+
+            Map<String, EstadoSudoku> estados = almacen.recorrer(FiltroSudokus.TODOS)
+                    .collect(Collectors.toMap(EntradaSudoku::uuid, EntradaSudoku::estado));
+            assertEquals(5, estados.size());
+            assertEquals(EstadoSudoku.EN_JUEGO, estados.get(sudokus.get(0).getUuid()));
+        }
+    }
+
+    @Test
+    void alReconstruirElIndiceCortaLosRegistrosDanyadosDelFinal() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(4, 8);
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+        }
+
+        danyarRegistro(2);
+        danyarRegistro(3);
+        Files.delete(indice);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            assertEquals(CABECERA_SEGMENTO + 2L * TAMANYO_REGISTRO, Files.size(segmento));
+            assertMismoSudoku(sudokus.get(0), almacen.cargar(sudokus.get(0).getUuid()));
+            assertMismoSudoku(sudokus.get(1), almacen.cargar(sudokus.get(1).getUuid()));
+            assertNull(almacen.cargar(sudokus.get(2).getUuid()));
+            assertNull(almacen.cargar(sudokus.get(3).getUuid()));
+        }
+    }
+
+    @Test
+    void rechazaUnRegistroDanyadoAlCargarlo() throws IOException {
+        List<Sudoku> sudokus = crearSudokus(2, 6);
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(sudokus, EstadoSudoku.EN_JUEGO);
+        }
+
+        danyarRegistro(1);
+
+        try (AlmacenSegmento almacen = abrir()) {
+            assertMismoSudoku(sudokus.get(0), almacen.cargar(sudokus.get(0).getUuid()));
+            assertThrows(IOException.class, () -> almacen.cargar(sudokus.get(1).getUuid()));
+        }
+    }
+
+    @Test
+    void rechazaUnSegmentoDeOtroTamanyo() throws IOException {
+        try (AlmacenSegmento almacen = abrir()) {
+            almacen.guardar(crearSudokus(1, 7), EstadoSudoku.EN_JUEGO);
+        }
+
+        assertThrows(IOException.class, () -> new AlmacenSegmento(segmento, indice, 16));
+    }
+
+    private AlmacenSegmento abrir() throws IOException {
+        return new AlmacenSegmento(segmento, indice, TAMANYO);
+    }
+
+    private static List<Sudoku> crearSudokus(int cuantos, long semilla) {
+        SplittableRandom random = new SplittableRandom(semilla);
+        List<Sudoku> sudokus = new ArrayList<>(cuantos);
+        for (int i = 0; i < cuantos; i++) {
+            sudokus.add(sudokuFijo(random));
+        }
+        return sudokus;
+    }
+
+    /**
+     * Cambia un byte de los datos de un registro, de modo que su CRC deja de coincidir.
+     * @param numero el número del registro.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    private void danyarRegistro(int numero) throws IOException {
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long posicion = CABECERA_SEGMENTO + (long) numero * TAMANYO_REGISTRO + 40;
+            ByteBuffer octeto = ByteBuffer.allocate(1);
+            canal.read(octeto, posicion);
+            octeto.put(0, (byte) ~octeto.get(0)).rewind();
+            canal.write(octeto, posicion);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.CodigoSudoku;
+import es.cheste.Objetos.Dificultad;
+import es.cheste.Objetos.Sudoku;
+import es.cheste.Objetos.Tablero;
+import es.cheste.Objetos.Tableros;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Pruebas del formato binario de {@link CodecSudoku} y de la lectura de los ficheros antiguos escritos con
+ * serialización de Java.
+ */
+class CodecSudokuTest {
+
+    private static final int TAMANYO = 9;
+
+    @Test
+    void codificaYDecodificaElFormatoCompleto() throws IOException {
+        Sudoku sudoku = sudokuFijo(new SplittableRandom(7));
+
+        byte[] datos = CodecSudoku.codificar(sudoku);
+
+        assertEquals(CodecSudoku.tamanyoCodificado(TAMANYO), datos.length);
+        assertEquals(72, datos.length);
+        assertEquals(CodecSudoku.VERSION, datos[2]);
+        assertMismoSudoku(sudoku, CodecSudoku.leer(datos));
+    }
+
+    @Test
+    void codificaEnElBufferDesdeSuPosicion() throws IOException {
+        Sudoku sudoku = sudokuFijo(new SplittableRandom(11));
+        ByteBuffer buffer = ByteBuffer.allocate(5 + CodecSudoku.tamanyoCodificado(TAMANYO));
+
+        buffer.position(5);
+        CodecSudoku.codificar(sudoku, buffer);
+
+        assertFalse(buffer.hasRemaining());
+        assertMismoSudoku(sudoku, CodecSudoku.decodificar(buffer.position(5)));
+    }
+
+    @Test
+    void codificaLosReproduciblesSoloConLaCabecera() throws IOException {
+        Sudoku sudoku = Sudoku.regenerar(CodigoSudoku.actual(TAMANYO, Dificultad.MEDIO, 42L));
+
+        byte[] datos = CodecSudoku.codificar(sudoku, true);
+
+        assertTrue(CodecSudoku.esRegenerable(sudoku));
+        assertEquals(20, datos.length);
+        assertEquals(CodecSudoku.VERSION_COMPACTA, datos[2]);
+        assertMismoSudoku(sudoku, CodecSudoku.leer(datos));
+    }
+
+    @Test
+    void codificaCompletosLosQueNoSeRegeneran() throws IOException {
+        Sudoku sudoku = sudokuFijo(new SplittableRandom(3));
+
+        byte[] datos = CodecSudoku.codificar(sudoku, true);
+
+        assertFalse(CodecSudoku.esRegenerable(sudoku));
+        assertEquals(CodecSudoku.VERSION, datos[2]);
+        assertArrayEquals(CodecSudoku.codificar(sudoku), datos);
+    }
+
+    @Test
+    void rechazaUnCompactoSinCodigo() {
+        byte[] datos = Arrays.copyOf(CodecSudoku.codificar(sudokuFijo(new SplittableRandom(5))), 20);
+        datos[2] = CodecSudoku.VERSION_COMPACTA;
+
+        assertThrows(IOException.class, () -> CodecSudoku.leer(datos));
+    }
+
+    @Test
+    void rechazaDatosSinFirmaOIncompletos() {
+        byte[] datos = CodecSudoku.codificar(sudokuFijo(new SplittableRandom(9)));
+
+        byte[] sinFirma = datos.clone();
+        sinFirma[1] = 'X';
+        byte[] otraVersion = datos.clone();
+        otraVersion[2] = 99;
+
+        assertThrows(IOException.class, () -> CodecSudoku.leer(sinFirma));
+        assertThrows(IOException.class, () -> CodecSudoku.leer(otraVersion));
+        assertThrows(IOException.class, () -> CodecSudoku.leer(Arrays.copyOf(datos, datos.length - 1)));
+    }
+
+    @Test
+    void leeLosFicherosAntiguosConSerializacionDeJava() throws IOException {
+        Sudoku sudoku = sudokuFijo(new SplittableRandom(13));
+        SudokuAntiguo antiguo = new SudokuAntiguo(sudoku.getSolucion().aMatriz(), sudoku.getEnunciado().aMatriz(),
+                sudoku.getUuid());
+
+        byte[] datos = renombrarClase(serializar(antiguo), SudokuAntiguo.class.getName(), "es.cheste.Objetos.Sudoku");
+
+        assertMismoSudoku(sudoku, CodecSudoku.leer(datos));
+    }
+
+    @Test
+    void rechazaObjetosSerializadosDeOtraClase() throws IOException {
+        ArrayList<String> otro = new ArrayList<>(List.of("no es un Sudoku"));
+
+        byte[] datos = serializar(otro);
+
+        assertThrows(IOException.class, () -> CodecSudoku.leer(datos));
+    }
+
+    /**
+     * Serializa un objeto con serialización de Java.
+     * @param objeto el objeto.
+     * @return los bytes serializados.
+     * @throws IOException si no se puede serializar.
+     */
+    private static byte[] serializar(Serializable objeto) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(salida)) {
+            oos.writeObject(objeto);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Cambia el nombre de la clase en el descriptor de un objeto serializado, con su longitud delante.
+     * @param datos los bytes serializados.
+     * @param nombre el nombre de la clase serializada.
+     * @param nuevo el nombre con el que debe aparecer.
+     * @return los bytes con el nombre cambiado.
+     */
+    private static byte[] renombrarClase(byte[] datos, String nombre, String nuevo) {
+        byte[] buscado = nombre.getBytes(StandardCharsets.UTF_8);
+        byte[] cambio = nuevo.getBytes(StandardCharsets.UTF_8);
+        int posicion = 2;
+        while (!Arrays.equals(datos, posicion, posicion + buscado.length, buscado, 0, buscado.length)) {
+            posicion++;
+        }
+
+        ByteBuffer resultado = ByteBuffer.allocate(datos.length - buscado.length + cambio.length);
+        resultado.put(datos, 0, posicion - 2).putShort((short) cambio.length).put(cambio);
+        resultado.put(datos, posicion + buscado.length, datos.length - posicion - buscado.length);
+        return resultado.array();
+    }
+
+    /**
+     * Crea un Sudoku con una solución válida barajada y la mitad de las celdas visibles, sin usar el generador.
+     * @param random el generador de números aleatorios.
+     * @return el Sudoku creado.
+     */
+    static Sudoku sudokuFijo(SplittableRandom random) {
+        Tablero solucion = Tableros.solucion(TAMANYO, random);
+        Tablero tablero = new Tablero(TAMANYO);
+        for (int celda = 0; celda < solucion.getNumCeldas(); celda++) {
+            if (random.nextBoolean()) {
+                tablero.poner(celda, solucion.get(celda));
+            }
+        }
+        return new Sudoku(new UUID(random.nextLong(), random.nextLong()), solucion, tablero);
+    }
+
+    /**
+     * Comprueba que dos Sudokus tienen el mismo UUID, la misma solución y las mismas celdas visibles.
+     * @param esperado el Sudoku esperado.
+     * @param obtenido el Sudoku obtenido.
+     */
+    static void assertMismoSudoku(Sudoku esperado, Sudoku obtenido) {
+        assertEquals(esperado.getIdentificador(), obtenido.getIdentificador());
+        assertEquals(esperado.getSolucion(), obtenido.getSolucion());
+        assertEquals(esperado.getEnunciado(), obtenido.getEnunciado());
+    }
+
+    /**
+     * Clase con los mismos campos que la clase Sudoku cuando se guardaba con serialización de Java.
+     */
+    private static final class SudokuAntiguo implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final int[][] tableroSolucion;
+        private final int[][] tablero;
+        private final int[][] tableroComprobado;
+        private final String uuid;
+
+        private SudokuAntiguo(int[][] tableroSolucion, int[][] tablero, String uuid) {
+            this.tableroSolucion = tableroSolucion;
+            this.tablero = tablero;
+            this.tableroComprobado = new int[tablero.length][tablero.length];
+            this.uuid = uuid;
+        }
+    }
+}
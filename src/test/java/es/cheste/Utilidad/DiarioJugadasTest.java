@@ -0,0 +1,236 @@
+package es.cheste.Utilidad;
+
+import es.cheste.Objetos.HistorialJugadas;
+import es.cheste.Objetos.Tablero;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Hugo Almodóvar Fuster
+ * @version 1.0
+ *
+ * Pruebas del formato en disco de {@link DiarioJugadas}: instantánea seguida de anotaciones, compactación,
+ * descarte de un final incompleto, diarios apartados y rechazo de historiales que no parten del diario.
+ */
+class DiarioJugadasTest {
+
+    private static final int TAMANYO = 9;
+    private static final int CELDAS = TAMANYO * TAMANYO;
+    private static final int CABECERA = 64;
+    private static final int REGISTRO = 16;
+    private static final String UUID = "0b6f3c1e-5a2d-4c8e-9f01-23456789abcd";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void cargaElHistorialRepitiendoLasAnotaciones() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        SplittableRandom random = new SplittableRandom(1);
+
+        jugarAlAzar(historial, random, 10);
+        diario.guardar(UUID, historial);
+        assertEquals(CABECERA + CELDAS + historial.getNumDeshacer() * REGISTRO, Files.size(diario.ruta(UUID)));
+
+        for (int i = 0; i < 5; i++) {
+            jugarAlAzar(historial, random, 7);
+            diario.guardar(UUID, historial);
+        }
+        assertEquals(historial.getLongitudDiario(), Files.size(diario.ruta(UUID)));
+
+        assertMismoHistorial(historial, diario.cargar(UUID));
+    }
+
+    @Test
+    void vuelveAEscribirLaInstantaneaConDemasiadasAnotaciones() throws IOException {
+        int compactarCada = 4;
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, compactarCada);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        SplittableRandom random = new SplittableRandom(2);
+
+        int instantaneas = 0;
+        for (int i = 0; i < 40; i++) {
+            jugarAlAzar(historial, random, 1);
+            diario.guardar(UUID, historial);
+
+            HistorialJugadas cargado = diario.cargar(UUID);
+            assertMismoHistorial(historial, cargado);
+            assertTrue(cargado.getRegistrosDiario() <= compactarCada);
+            if (cargado.getRegistrosDiario() == 0) {
+                instantaneas++;
+                assertEquals(CABECERA + CELDAS + (cargado.getNumDeshacer() + cargado.getNumRehacer())
+                        * (long) REGISTRO, Files.size(diario.ruta(UUID)));
+            }
+        }
+        assertEquals(40 / (compactarCada + 1), instantaneas);
+    }
+
+    @Test
+    void descartaLaAnotacionIncompletaDelFinal() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        SplittableRandom random = new SplittableRandom(3);
+
+        jugarAlAzar(historial, random, 5);
+        diario.guardar(UUID, historial);
+        jugarAlAzar(historial, random, 4);
+        HistorialJugadas antesDeLaUltima = historial.copiar();
+        jugarAlAzar(historial, random, 1);
+        diario.guardar(UUID, historial);
+        long longitud = Files.size(diario.ruta(UUID));
+
+        try (FileChannel canal = FileChannel.open(diario.ruta(UUID), StandardOpenOption.WRITE)) {
+            canal.truncate(longitud - REGISTRO / 2);
+        }
+
+        HistorialJugadas cargado = diario.cargar(UUID);
+        assertMismasJugadas(antesDeLaUltima, cargado);
+        assertEquals(longitud - REGISTRO, Files.size(diario.ruta(UUID)));
+        assertEquals(longitud - REGISTRO, cargado.getLongitudDiario());
+
+        cargado.jugar(0, 1, 1L);
+        diario.guardar(UUID, cargado);
+        assertMismoHistorial(cargado, diario.cargar(UUID));
+    }
+
+    @Test
+    void rechazaUnHistorialQueNoParteDelDiario() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        SplittableRandom random = new SplittableRandom(4);
+
+        jugarAlAzar(historial, random, 3);
+        diario.guardar(UUID, historial);
+        HistorialJugadas anterior = historial.copiar();
+
+        jugarAlAzar(historial, random, 3);
+        diario.guardar(UUID, historial);
+        long longitud = Files.size(diario.ruta(UUID));
+
+        anterior.jugar(5, 5, 10L);
+        assertThrows(IOException.class, () -> diario.guardar(UUID, anterior));
+        assertEquals(longitud, Files.size(diario.ruta(UUID)));
+        assertMismoHistorial(historial, diario.cargar(UUID));
+
+        assertThrows(IOException.class, () -> diario.guardar("otro", historial.copiar()));
+        assertFalse(Files.exists(diario.ruta("otro")));
+    }
+
+    @Test
+    void apartaUnDiarioSinInstantaneaValida() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        Path ruta = diario.ruta(UUID);
+
+        assertNull(diario.cargar(UUID));
+
+        Files.write(ruta, new byte[CABECERA + CELDAS]);
+        assertNull(diario.cargar(UUID));
+        assertFalse(Files.exists(ruta));
+        assertTrue(Files.exists(ruta.resolveSibling(ruta.getFileName() + ".danyado")));
+
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        historial.jugar(0, 3, 1L);
+        diario.guardar(UUID, historial);
+        assertNotNull(diario.cargar(UUID));
+    }
+
+    @Test
+    void apartaSinCortarloUnDiarioConUnaAnotacionQueNoSePuedeRepetir() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        Path ruta = diario.ruta(UUID);
+
+        jugarAlAzar(historial, new SplittableRandom(5), 6);
+        diario.guardar(UUID, historial);
+        historial.jugar(3, historial.get(3) % TAMANYO + 1, 1L);
+        diario.guardar(UUID, historial);
+        byte[] contenido = Files.readAllBytes(ruta);
+
+        // La anotación dice que la celda tenía otro número del que tiene al repetirla.
+        byte[] alterado = contenido.clone();
+        int anterior = alterado.length - REGISTRO + 2;
+        alterado[anterior] = (byte) (alterado[anterior] % TAMANYO + 1);
+        Files.write(ruta, alterado);
+
+        assertNull(diario.cargar(UUID));
+        assertFalse(Files.exists(ruta));
+        assertArrayEquals(alterado, Files.readAllBytes(ruta.resolveSibling(ruta.getFileName() + ".danyado")));
+    }
+
+    @Test
+    void apartaUnDiarioConUnTableroFueraDeRango() throws IOException {
+        DiarioJugadas diario = new DiarioJugadas(directorio, TAMANYO, 1000);
+        HistorialJugadas historial = new HistorialJugadas(new Tablero(TAMANYO));
+        Path ruta = diario.ruta(UUID);
+
+        historial.jugar(0, 4, 1L);
+        diario.guardar(UUID, historial);
+        byte[] contenido = Files.readAllBytes(ruta);
+        contenido[CABECERA + 7] = (byte) (TAMANYO + 1);
+        Files.write(ruta, contenido);
+
+        assertNull(diario.cargar(UUID));
+        assertTrue(Files.exists(ruta.resolveSibling(ruta.getFileName() + ".danyado")));
+    }
+
+    /**
+     * Hace jugadas al azar sobre un historial, con alguna jugada deshecha y rehecha entre ellas.
+     * @param historial el historial.
+     * @param random el generador de números aleatorios.
+     * @param cuantas el número de anotaciones.
+     */
+    private static void jugarAlAzar(HistorialJugadas historial, SplittableRandom random, int cuantas) {
+        long instante = historial.getEstadisticas().ultima() + 1;
+        for (int i = 0; i < cuantas; i++, instante += 1000) {
+            int tipo = random.nextInt(6);
+            if (tipo == 0 && historial.puedeDeshacer()) {
+                historial.deshacer(instante);
+            } else if (tipo == 1 && historial.puedeRehacer()) {
+                historial.rehacer(instante);
+            } else {
+                int celda = random.nextInt(CELDAS);
+                historial.jugar(celda, (historial.get(celda) + 1 + random.nextInt(TAMANYO)) % (TAMANYO + 1),
+                        instante);
+            }
+        }
+    }
+
+    /**
+     * Comprueba que un historial cargado coincide con el que se guardó.
+     * @param esperado el historial guardado.
+     * @param obtenido el historial cargado.
+     */
+    private static void assertMismoHistorial(HistorialJugadas esperado, HistorialJugadas obtenido) {
+        assertMismasJugadas(esperado, obtenido);
+        assertEquals(esperado.getLongitudDiario(), obtenido.getLongitudDiario());
+    }
+
+    /**
+     * Comprueba que dos historiales tienen el mismo tablero, las mismas pilas y las mismas estadísticas.
+     * @param esperado el historial esperado.
+     * @param obtenido el historial obtenido.
+     */
+    private static void assertMismasJugadas(HistorialJugadas esperado, HistorialJugadas obtenido) {
+        assertNotNull(obtenido);
+        assertEquals(esperado.getTablero(), obtenido.getTablero());
+        assertEquals(esperado.getDeshacer(), obtenido.getDeshacer());
+        assertEquals(esperado.getRehacer(), obtenido.getRehacer());
+        assertEquals(esperado.getEstadisticas(), obtenido.getEstadisticas());
+    }
+}